@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import com.google.javascript.rhino.BinaryNodeReader;
+import com.google.javascript.rhino.BinaryNodeWriter;
+import com.google.javascript.rhino.Node;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing and reading parsed ASTs in the format of
+ * {@link BinaryNodeWriter}, which {@link DiskParseCache} uses, with Java
+ * serialization of the same trees.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AstSerializationBenchmark {
+
+  @Param({BenchmarkCorpus.SYNTHETIC, BenchmarkCorpus.EXTERNS})
+  public String corpus;
+
+  private final List<SourceFile> files = new ArrayList<>();
+  private final List<Node> roots = new ArrayList<>();
+  private byte[] binary;
+  private byte[] serialized;
+
+  @Setup
+  public void setUp() throws IOException {
+    Compiler compiler = new Compiler();
+    compiler.initOptions(new CompilerOptions());
+    for (SourceFile file : BenchmarkCorpus.load(corpus)) {
+      files.add(file);
+      roots.add(new JsAst(file).getAstRoot(compiler));
+    }
+    binary = writeBinary().toByteArray();
+    serialized = writeSerialized().toByteArray();
+  }
+
+  @Benchmark
+  public ByteArrayOutputStream writeBinary() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (BinaryNodeWriter writer = new BinaryNodeWriter(bytes)) {
+      for (int i = 0; i < roots.size(); i++) {
+        writer.writeTree(roots.get(i), files.get(i));
+      }
+    }
+    return bytes;
+  }
+
+  @Benchmark
+  public List<Node> readBinary() throws IOException {
+    List<Node> result = new ArrayList<>();
+    try (BinaryNodeReader reader = new BinaryNodeReader(new ByteArrayInputStream(binary))) {
+      for (SourceFile file : files) {
+        result.add(reader.readTree(file));
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public ByteArrayOutputStream writeSerialized() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      for (Node root : roots) {
+        out.writeObject(root);
+      }
+    }
+    return bytes;
+  }
+
+  @Benchmark
+  public List<Node> readSerialized() throws IOException, ClassNotFoundException {
+    List<Node> result = new ArrayList<>();
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+      for (int i = 0; i < roots.size(); i++) {
+        result.add((Node) in.readObject());
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The JavaScript code that the benchmarks run on. Benchmarks take the name
+ * of a corpus as their {@code corpus} parameter, which is one of:
+ * <ul>
+ * <li>{@code synthetic}: generated, type annotated ES5 code in the style of a
+ *     large Closure application.
+ * <li>{@code externs}: the browser externs that are checked in with the
+ *     compiler.
+ * <li>the path of a directory: all the {@code .js} files under it, so that a
+ *     benchmark can be run on a real project with
+ *     {@code -p corpus=/path/to/project}.
+ * </ul>
+ */
+final class BenchmarkCorpus {
+
+  static final String SYNTHETIC = "synthetic";
+  static final String EXTERNS = "externs";
+
+  private static final int SYNTHETIC_FILES = 100;
+  private static final int SYNTHETIC_CLASSES_PER_FILE = 10;
+
+  private static final Joiner LINE_JOINER = Joiner.on('\n');
+
+  private static final String SYNTHETIC_CLASS = LINE_JOINER.join(
+      "/**",
+      " * @constructor",
+      " * @param {number} size",
+      " * @param {string} name",
+      " */",
+      "$N.Widget$C = function(size, name) {",
+      "  /** @private {number} */",
+      "  this.size_ = size;",
+      "  /** @private {string} */",
+      "  this.name_ = name;",
+      "  /** @private {!Array<number>} */",
+      "  this.values_ = [];",
+      "};",
+      "",
+      "/**",
+      " * @param {number} n",
+      " * @return {number}",
+      " */",
+      "$N.Widget$C.prototype.sum = function(n) {",
+      "  var total = 0;",
+      "  for (var i = 0; i < n; i++) {",
+      "    if (i % 2 == 0 && this.values_.length > i) {",
+      "      total += this.values_[i] * (2 + 3);",
+      "    } else {",
+      "      total -= i;",
+      "    }",
+      "  }",
+      "  return total;",
+      "};",
+      "",
+      "/** @return {string} */",
+      "$N.Widget$C.prototype.describe = function() {",
+      "  var self = this;",
+      "  var parts = this.values_.map(function(v) {",
+      "    return self.name_ + ':' + v;",
+      "  });",
+      "  return 'Widget' + ' ' + this.name_ + ' [' + parts.join(', ') + ']';",
+      "};",
+      "",
+      "/**",
+      " * @param {?$N.Widget$C} other",
+      " * @return {boolean}",
+      " */",
+      "$N.Widget$C.prototype.equals = function(other) {",
+      "  if (!other) {",
+      "    return false;",
+      "  }",
+      "  return this.size_ === other.size_ && this.name_ === other.name_;",
+      "};",
+      "",
+      "");
+
+  private BenchmarkCorpus() {}
+
+  /** Returns the files of the named corpus. */
+  static List<SourceFile> load(String corpus) throws IOException {
+    if (corpus.equals(SYNTHETIC)) {
+      return synthetic();
+    } else if (corpus.equals(EXTERNS)) {
+      return externs();
+    }
+    File directory = new File(corpus);
+    Preconditions.checkArgument(directory.isDirectory(), "Unknown corpus: %s", corpus);
+    ImmutableList.Builder<SourceFile> files = ImmutableList.builder();
+    for (String path : CommandLineRunner.findJsFiles(
+        ImmutableList.of(directory.getPath() + "/**.js"))) {
+      files.add(SourceFile.fromFile(path));
+    }
+    return files.build();
+  }
+
+  /** Returns the externs that are used when type checking a corpus. */
+  static List<SourceFile> externs() throws IOException {
+    return AbstractCommandLineRunner.getBuiltinExterns(CompilerOptions.Environment.BROWSER);
+  }
+
+  /**
+   * Returns the synthetic corpus. Each file defines a namespace of classes
+   * and a function that uses them and the previous file's function, so that
+   * type checking has to follow references across files.
+   */
+  static List<SourceFile> synthetic() {
+    ImmutableList.Builder<SourceFile> files = ImmutableList.builder();
+    for (int file = 0; file < SYNTHETIC_FILES; file++) {
+      String namespace = "bench" + file;
+      StringBuilder code = new StringBuilder();
+      code.append("var ").append(namespace).append(" = {};\n\n");
+      for (int c = 0; c < SYNTHETIC_CLASSES_PER_FILE; c++) {
+        code.append(SYNTHETIC_CLASS.replace("$N", namespace).replace("$C", String.valueOf(c)));
+      }
+      code.append(LINE_JOINER.join(
+          "/** @return {number} */",
+          namespace + ".run = function() {",
+          "  var widget = new " + namespace + ".Widget0(1, 'a');",
+          "  var other = new " + namespace + ".Widget1(2, 'b');",
+          "  var result = widget.sum(10) + widget.describe().length;",
+          "  if (widget.equals(null)) {",
+          "    result++;",
+          "  }",
+          "  return result + other.sum(5)"
+              + (file > 0 ? " + bench" + (file - 1) + ".run();" : ";"),
+          "};",
+          ""));
+      files.add(SourceFile.fromCode(namespace + ".js", code.toString()));
+    }
+    return files.build();
+  }
+
+  /**
+   * Creates a compiler and parses the given files into it. Setting up the
+   * compiler is left out of the measurement of the benchmarks that use it.
+   */
+  static Compiler parse(
+      List<SourceFile> externs, List<SourceFile> inputs, CompilerOptions options) {
+    Compiler compiler = new Compiler();
+    compiler.init(externs, inputs, options);
+    compiler.parseInputs();
+    Preconditions.checkState(!compiler.hasErrors(), "Parse errors in the corpus");
+    return compiler;
+  }
+}
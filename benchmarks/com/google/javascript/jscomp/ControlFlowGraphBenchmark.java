@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.ControlFlowGraph.Branch;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
+import com.google.javascript.rhino.Node;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the control flow graph of a single huge function, as
+ * found in generated code, and walking its edges the way the data flow
+ * analyses do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ControlFlowGraphBenchmark {
+
+  private static final String[] STATEMENTS = {
+    "x = x + $I;",
+    "if (p > $I) { x++; } else { x--; }",
+    "for (var i = 0; i < p; i++) { x += i; }",
+    "try { x = g(x); } catch (e) { x = 0; }",
+    "while (x > p) { x--; if (x == $I) break; }",
+  };
+
+  /** The number of statements in the function. */
+  @Param({"10000", "50000"})
+  public int statements;
+
+  private Compiler compiler;
+  private Node function;
+  private ControlFlowGraph<Node> cfg;
+
+  @Setup
+  public void setUp() {
+    StringBuilder code = new StringBuilder("function f(p) { var x = 0;\n");
+    for (int i = 0; i < statements; i++) {
+      code.append(STATEMENTS[i % STATEMENTS.length].replace("$I", String.valueOf(i)))
+          .append('\n');
+    }
+    code.append("return x; }");
+    compiler = BenchmarkCorpus.parse(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(SourceFile.fromCode("generated.js", code.toString())),
+        new CompilerOptions());
+    function = compiler.getRoot().getLastChild().getFirstFirstChild();
+    cfg = build();
+  }
+
+  @Benchmark
+  public ControlFlowGraph<Node> buildGraph() {
+    return build();
+  }
+
+  @Benchmark
+  public int walkGraph() {
+    int edges = 0;
+    for (DiGraphNode<Node, Branch> node : cfg.getDirectedGraphNodes()) {
+      edges += cfg.getDirectedSuccNodes(node).size() + cfg.getDirectedPredNodes(node).size();
+    }
+    return edges;
+  }
+
+  private ControlFlowGraph<Node> build() {
+    ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, true);
+    cfa.process(null, function);
+    return cfa.getCfg();
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.Config.LanguageMode;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.ErrorReporter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a corpus into an AST, which covers both the parser and
+ * the conversion of its tree by IRFactory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+  @Param({BenchmarkCorpus.SYNTHETIC, BenchmarkCorpus.EXTERNS})
+  public String corpus;
+
+  private List<SourceFile> files;
+  private String[] code;
+  private Config config;
+
+  private static final ErrorReporter FAIL_ON_ERROR = new ErrorReporter() {
+    @Override
+    public void warning(String message, String sourceName, int line, int lineOffset) {}
+
+    @Override
+    public void error(String message, String sourceName, int line, int lineOffset) {
+      throw new IllegalStateException(sourceName + ":" + line + ": " + message);
+    }
+  };
+
+  @Setup
+  public void setUp() throws IOException {
+    files = BenchmarkCorpus.load(corpus);
+    code = new String[files.size()];
+    for (int i = 0; i < code.length; i++) {
+      code[i] = files.get(i).getCode();
+    }
+    config = ParserRunner.createConfig(LanguageMode.ECMASCRIPT6, null);
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    for (int i = 0; i < code.length; i++) {
+      blackhole.consume(ParserRunner.parse(files.get(i), code[i], config, FAIL_ON_ERROR).ast);
+    }
+  }
+}
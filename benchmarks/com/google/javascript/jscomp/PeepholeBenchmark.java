@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.rhino.Node;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the peephole optimizations, with the same optimizations as the
+ * early and late peephole passes of {@link DefaultPassConfig}. The passes
+ * change the AST, so each invocation runs on a freshly parsed copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PeepholeBenchmark {
+
+  @Param({BenchmarkCorpus.SYNTHETIC})
+  public String corpus;
+
+  private List<SourceFile> inputs;
+  private Compiler compiler;
+
+  @Setup(Level.Trial)
+  public void loadCorpus() throws IOException {
+    inputs = BenchmarkCorpus.load(corpus);
+  }
+
+  @Setup(Level.Invocation)
+  public void parse() {
+    compiler = BenchmarkCorpus.parse(
+        ImmutableList.<SourceFile>of(), inputs, new CompilerOptions());
+  }
+
+  @Benchmark
+  public Node peepholeOptimizations() {
+    final boolean late = false;
+    new PeepholeOptimizationsPass(compiler,
+        new PeepholeMinimizeConditions(late, false),
+        new PeepholeSubstituteAlternateSyntax(late),
+        new PeepholeReplaceKnownMethods(late),
+        new PeepholeRemoveDeadCode(),
+        new PeepholeFoldConstants(late, false),
+        new PeepholeCollectPropertyAssignments())
+        .process(compiler.getRoot().getFirstChild(), compiler.getJsRoot());
+    return compiler.getJsRoot();
+  }
+
+  @Benchmark
+  public Node latePeepholeOptimizations() {
+    final boolean late = true;
+    new PeepholeOptimizationsPass(compiler,
+        new StatementFusion(false),
+        new PeepholeRemoveDeadCode(),
+        new PeepholeMinimizeConditions(late, false),
+        new PeepholeSubstituteAlternateSyntax(late),
+        new PeepholeReplaceKnownMethods(late),
+        new PeepholeFoldConstants(late, false),
+        new ReorderConstantExpression())
+        .process(compiler.getRoot().getFirstChild(), compiler.getJsRoot());
+    return compiler.getJsRoot();
+  }
+}
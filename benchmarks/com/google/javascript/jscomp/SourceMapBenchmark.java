@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.debugging.sourcemap.FilePosition;
+import com.google.debugging.sourcemap.SourceMapConsumerV3;
+import com.google.debugging.sourcemap.SourceMapConsumerV3.EntryVisitor;
+import com.google.debugging.sourcemap.SourceMapGeneratorV3;
+import com.google.debugging.sourcemap.SourceMapParseException;
+import com.google.javascript.rhino.Node;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures source map generation. {@link #printWithSourceMap} prints the
+ * corpus while recording a V3 source map, as the compiler does for its
+ * output. {@link #generateSourceMap} only measures {@link SourceMapGeneratorV3},
+ * by replaying the mappings of that source map into a new generator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SourceMapBenchmark {
+
+  @Param({BenchmarkCorpus.SYNTHETIC, BenchmarkCorpus.EXTERNS})
+  public String corpus;
+
+  private CompilerOptions options;
+  private Node root;
+  private final List<Mapping> mappings = new ArrayList<>();
+
+  @Setup
+  public void setUp() throws IOException, SourceMapParseException {
+    options = new CompilerOptions();
+    options.setSourceMapOutputPath("out.js.map");
+    Compiler compiler = BenchmarkCorpus.parse(
+        ImmutableList.<SourceFile>of(), BenchmarkCorpus.load(corpus), options);
+    // Files marked @externs are moved to the externs, so the whole tree is printed.
+    root = compiler.getRoot();
+
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(printWithSourceMap());
+    consumer.visitMappings(new EntryVisitor() {
+      @Override
+      public void visit(String sourceName, String symbolName,
+          FilePosition sourceStartPosition, FilePosition startPosition,
+          FilePosition endPosition) {
+        mappings.add(new Mapping(
+            sourceName, symbolName, sourceStartPosition, startPosition, endPosition));
+      }
+    });
+  }
+
+  @Benchmark
+  public String printWithSourceMap() throws IOException {
+    SourceMap sourceMap = SourceMap.Format.V3.getInstance();
+    new CodePrinter.Builder(root)
+        .setCompilerOptions(options)
+        .setSourceMap(sourceMap)
+        .build();
+    StringBuilder out = new StringBuilder();
+    sourceMap.appendTo(out, "out.js");
+    return out.toString();
+  }
+
+  @Benchmark
+  public String generateSourceMap() throws IOException {
+    SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    for (Mapping m : mappings) {
+      generator.addMapping(
+          m.sourceName, m.symbolName, m.sourceStartPosition, m.startPosition, m.endPosition);
+    }
+    StringBuilder out = new StringBuilder();
+    generator.appendTo(out, "out.js");
+    return out.toString();
+  }
+
+  private static class Mapping {
+    final String sourceName;
+    final String symbolName;
+    final FilePosition sourceStartPosition;
+    final FilePosition startPosition;
+    final FilePosition endPosition;
+
+    Mapping(String sourceName, String symbolName, FilePosition sourceStartPosition,
+        FilePosition startPosition, FilePosition endPosition) {
+      this.sourceName = sourceName;
+      this.symbolName = symbolName;
+      this.sourceStartPosition = sourceStartPosition;
+      this.startPosition = startPosition;
+      this.endPosition = endPosition;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the old type checker: building the typed scopes with
+ * {@link TypedScopeCreator}, flow-sensitive {@link TypeInference} over every
+ * function, and the checks of {@link TypeCheck}. The browser externs are
+ * type checked along with the corpus, as in a real build, with either kind
+ * of flow scopes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeCheckBenchmark {
+
+  @Param({BenchmarkCorpus.SYNTHETIC})
+  public String corpus;
+
+  @Param({"false", "true"})
+  public boolean useArrayFlowScopes;
+
+  private List<SourceFile> externs;
+  private List<SourceFile> inputs;
+  private Compiler compiler;
+
+  @Setup(Level.Trial)
+  public void loadCorpus() throws IOException {
+    externs = BenchmarkCorpus.externs();
+    inputs = BenchmarkCorpus.load(corpus);
+  }
+
+  @Setup(Level.Invocation)
+  public void parse() {
+    CompilerOptions options = new CompilerOptions();
+    options.setLanguageIn(LanguageMode.ECMASCRIPT5);
+    options.setCheckTypes(true);
+    options.setUseArrayFlowScopes(useArrayFlowScopes);
+    compiler = BenchmarkCorpus.parse(externs, inputs, options);
+  }
+
+  @Benchmark
+  public TypedScope typeCheck() {
+    TypeCheck check = new TypeCheck(
+        compiler, compiler.getReverseAbstractInterpreter(), compiler.getTypeRegistry());
+    return check.processForTesting(compiler.getRoot().getFirstChild(), compiler.getJsRoot());
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.javascript.jscomp.newtypes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the type environments of the new type inference on deep control
+ * flow: a chain of branches, each of which changes a variable on both sides
+ * before the two sides are joined. Environments with fewer than 100
+ * variables are joined on all their variables, larger ones on the variables
+ * in their change logs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeEnvBenchmark {
+
+  /** The number of variables in the environment. */
+  @Param({"20", "80", "400"})
+  public int variables;
+
+  /** The number of branches that are joined one after the other. */
+  @Param({"1000"})
+  public int branches;
+
+  private String[] names;
+  private TypeEnv initialEnv;
+
+  @Setup
+  public void setUp() {
+    names = new String[variables];
+    TypeEnv env = new TypeEnv();
+    for (int i = 0; i < variables; i++) {
+      names[i] = "x" + i;
+      env = env.putType(names[i], JSType.NUMBER);
+    }
+    initialEnv = env.clearChangeLog();
+  }
+
+  @Benchmark
+  public TypeEnv joinBranches() {
+    TypeEnv env = initialEnv;
+    for (int i = 0; i < branches; i++) {
+      TypeEnv thenEnv = env.putType(names[i % variables], JSType.STRING);
+      TypeEnv elseEnv = env.putType(names[(i * 7 + 1) % variables], JSType.BOOLEAN);
+      env = TypeEnv.join(thenEnv, elseEnv);
+      if (i % 10 == 9) {
+        // A statement at the top level of the function
+        env = env.clearChangeLog();
+      }
+    }
+    return env;
+  }
+}
@@ -84,6 +84,30 @@ final class Base64VLQ {
     } while (value > 0);
   }
 
+  /**
+   * The maximum number of digits written by {@link #encode(char[], int, int)}
+   * for one value.
+   */
+  static final int MAX_ENCODED_LENGTH = 7;
+
+  /**
+   * Writes a VLQ encoded value to the provided buffer, which must have room
+   * for {@link #MAX_ENCODED_LENGTH} chars from {@code pos}.
+   * @return The position after the last digit written.
+   */
+  static int encode(char[] buffer, int pos, int value) {
+    value = toVLQSigned(value);
+    do {
+      int digit = value & VLQ_BASE_MASK;
+      value >>>= VLQ_BASE_SHIFT;
+      if (value > 0) {
+        digit |= VLQ_CONTINUATION_BIT;
+      }
+      buffer[pos++] = Base64.toBase64(digit);
+    } while (value > 0);
+    return pos;
+  }
+
   /**
    * A simple interface for advancing through a sequence of characters, that
    * communicates that advance back to the source.
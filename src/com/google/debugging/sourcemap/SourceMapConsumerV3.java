@@ -17,7 +17,6 @@
 package com.google.debugging.sourcemap;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Iterables;
 import com.google.debugging.sourcemap.Base64VLQ.CharIterator;
 import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping.Builder;
@@ -29,26 +28,70 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Class for parsing version 3 of the SourceMap format, as produced by the
  * Closure Compiler, etc.
  * http://code.google.com/p/closure-compiler/wiki/SourceMaps
+ *
+ * <p>The mappings are not decoded into objects when the map is parsed.
+ * Instead, parsing records where each block of up to {@link #BLOCK_SIZE}
+ * entries of a line starts in the "mappings" string, together with the
+ * values needed to decode the block on its own. Lookups binary search the
+ * blocks and decode only the block they need; the most recently used
+ * decoded blocks are cached.
+ *
  * @author johnlenz@google.com (John Lenz)
  */
 public final class SourceMapConsumerV3 implements SourceMapConsumer,
     SourceMappingReversable {
   static final int UNMAPPED = -1;
 
+  // The maximum number of entries decoded together.
+  private static final int BLOCK_SIZE = 64;
+
+  // The maximum number of decoded blocks that are cached.
+  private static final int MAX_CACHED_BLOCKS = 1024;
+
+  // The fields of a block in the blocks array. The fields named PREVIOUS_*
+  // hold the values that the first entry of the block is relative to.
+  private static final int BLOCK_OFFSET = 0;
+  private static final int BLOCK_FIRST_COLUMN = 1;
+  private static final int BLOCK_PREVIOUS_COLUMN = 2;
+  private static final int BLOCK_PREVIOUS_SOURCE_FILE = 3;
+  private static final int BLOCK_PREVIOUS_SOURCE_LINE = 4;
+  private static final int BLOCK_PREVIOUS_SOURCE_COLUMN = 5;
+  private static final int BLOCK_PREVIOUS_NAME = 6;
+  private static final int BLOCK_FIELDS = 7;
+
+  // The fields of an entry in a decoded block.
+  private static final int ENTRY_COLUMN = 0;
+  private static final int ENTRY_SOURCE_FILE = 1;
+  private static final int ENTRY_SOURCE_LINE = 2;
+  private static final int ENTRY_SOURCE_COLUMN = 3;
+  private static final int ENTRY_NAME = 4;
+  private static final int ENTRY_FIELDS = 5;
+
   private String[] sources;
   private String[] names;
   private int lineCount;
-  // Slots in the lines list will be null if the line does not have any entries.
-  private ArrayList<ArrayList<Entry>> lines = null;
-  /** originalFile path ==> original line ==> target mappings */
-  private Map<String, Map<Integer, Collection<OriginalMapping>>>
-      reverseSourceMapping;
+  private String mappings;
+  // The number of lines of the mappings.
+  private int mappedLineCount;
+  // The blocks of line i are the blocks lineBlocks[i] to lineBlocks[i + 1].
+  private int[] lineBlocks;
+  private int[] blocks;
+  private final Map<Integer, int[]> decodedBlocks = new LinkedHashMap<Integer, int[]>(
+      16, 0.75f, /* accessOrder= */ true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+      return size() > MAX_CACHED_BLOCKS;
+    }
+  };
+  /** The mapped entries sorted by original file and original line. */
+  private ReverseIndex reverseIndex;
   private String sourceRoot;
   private Map<String, Object> extensions = new LinkedHashMap<>();
 
@@ -92,17 +135,14 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     sourceRoot = sourceMapObject.getSourceRoot();
     sources = sourceMapObject.getSources();
     names = sourceMapObject.getNames();
-
-    if (lineCount >= 0) {
-      lines = new ArrayList<>(lineCount);
-    } else {
-      lines = new ArrayList<>();
-    }
+    mappings = sourceMapObject.getMappings();
+    decodedBlocks.clear();
+    reverseIndex = null;
 
     // The value type of each extension is the native JSON type (e.g. JsonObject, or JSONObject
     // when compiled with GWT).
     extensions.putAll(sourceMapObject.getExtensions());
-    new MappingBuilder(sourceMapObject.getMappings()).build();
+    new MappingIndexer(mappings).build();
   }
 
   /**
@@ -156,29 +196,38 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     lineNumber--;
     column--;
 
-    if (lineNumber < 0 || lineNumber >= lines.size()) {
+    if (lineNumber < 0 || lineNumber >= mappedLineCount) {
       return null;
     }
 
     Preconditions.checkState(lineNumber >= 0);
     Preconditions.checkState(column >= 0);
 
+    int firstBlock = lineBlocks[lineNumber];
+    int endBlock = lineBlocks[lineNumber + 1];
 
     // If the line is empty return the previous mapping.
-    if (lines.get(lineNumber) == null) {
+    if (firstBlock == endBlock
+        || blocks[firstBlock * BLOCK_FIELDS + BLOCK_FIRST_COLUMN] > column) {
       return getPreviousMapping(lineNumber);
     }
 
-    ArrayList<Entry> entries = lines.get(lineNumber);
-    // No empty lists.
-    Preconditions.checkState(!entries.isEmpty());
-    if (entries.get(0).getGeneratedColumn() > column) {
-      return getPreviousMapping(lineNumber);
+    // Find the last block that starts at or before the column.
+    int low = firstBlock;
+    int high = endBlock - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (blocks[mid * BLOCK_FIELDS + BLOCK_FIRST_COLUMN] <= column) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
     }
 
-    int index = search(entries, column, 0, entries.size() - 1);
+    int[] entries = getBlock(low);
+    int index = search(entries, column);
     Preconditions.checkState(index >= 0, "unexpected:%s", index);
-    return getOriginalMappingForEntry(entries.get(index));
+    return getOriginalMappingForEntry(entries, index);
   }
 
   @Override
@@ -193,25 +242,10 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     // parameter.
 
     // Synchronization needs to be handled by callers.
-    if (reverseSourceMapping == null) {
-      createReverseMapping();
-    }
-
-    Map<Integer, Collection<OriginalMapping>> sourceLineToCollectionMap =
-        reverseSourceMapping.get(originalFile);
-
-    if (sourceLineToCollectionMap == null) {
-      return Collections.emptyList();
-    } else {
-      Collection<OriginalMapping> mappings =
-          sourceLineToCollectionMap.get(line);
-
-      if (mappings == null) {
-        return Collections.emptyList();
-      } else {
-        return mappings;
-      }
+    if (reverseIndex == null) {
+      reverseIndex = new ReverseIndex();
     }
+    return reverseIndex.get(originalFile, line);
   }
 
   public String getSourceRoot(){
@@ -228,91 +262,135 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     return this.extensions;
   }
 
-
-  private class MappingBuilder {
-    private static final int MAX_ENTRY_VALUES = 5;
-    private final StringCharIterator content;
+  /**
+   * Splits the mappings into blocks, validating every entry, without
+   * keeping the decoded entries.
+   */
+  private class MappingIndexer {
+    private final EntryDecoder decoder;
     private int line = 0;
-    private int previousCol = 0;
-    private int previousSrcId = 0;
-    private int previousSrcLine = 0;
-    private int previousSrcColumn = 0;
-    private int previousNameId = 0;
+    private int entriesInLine = 0;
+    private int blockCount = 0;
 
-    MappingBuilder(String lineMap) {
-      this.content = new StringCharIterator(lineMap);
+    MappingIndexer(String lineMap) {
+      this.decoder = new EntryDecoder(lineMap, 0);
     }
 
     void build() {
-      int [] temp = new int[MAX_ENTRY_VALUES];
-      ArrayList<Entry> entries = new ArrayList<>();
-      while (content.hasNext()) {
+      int expectedLines = lineCount >= 0 ? lineCount : 16;
+      lineBlocks = new int[expectedLines + 1];
+      blocks = new int[16 * BLOCK_FIELDS];
+      mappedLineCount = 0;
+
+      while (decoder.content.hasNext()) {
         // ';' denotes a new line.
-        if (tryConsumeToken(';')) {
-          // The line is complete, store the result
-          completeLine(entries);
-          if (!entries.isEmpty()) {
-            // A new array list for the next line.
-            entries = new ArrayList<>();
-          }
+        if (decoder.tryConsumeToken(';')) {
+          completeLine();
         } else {
+          if (entriesInLine % BLOCK_SIZE == 0) {
+            startBlock();
+          }
           // grab the next entry for the current line.
-          int entryValues = 0;
-          while (!entryComplete()) {
-            temp[entryValues] = nextValue();
-            entryValues++;
+          decoder.decodeEntry();
+          if (entriesInLine % BLOCK_SIZE == 0) {
+            blocks[(blockCount - 1) * BLOCK_FIELDS + BLOCK_FIRST_COLUMN] =
+                decoder.previousCol;
           }
-          Entry entry = decodeEntry(temp, entryValues);
-
-          validateEntry(entry);
-          entries.add(entry);
+          validateEntry();
+          entriesInLine++;
 
           // Consume the separating token, if there is one.
-          tryConsumeToken(',');
+          decoder.tryConsumeToken(',');
         }
       }
 
       // Some source map generator (e.g.UglifyJS) generates lines without
       // a trailing line separator. So add the rest of the content.
-      if (!entries.isEmpty()) {
-        completeLine(entries);
+      if (entriesInLine > 0) {
+        completeLine();
       }
     }
 
-    private void completeLine(ArrayList<Entry> entries) {
-      // The line is complete, store the result for the line,
-      // null if the line is empty.
-      if (!entries.isEmpty()) {
-        lines.add(entries);
-      } else {
-        lines.add(null);
+    private void startBlock() {
+      int b = blockCount * BLOCK_FIELDS;
+      if (b + BLOCK_FIELDS > blocks.length) {
+        blocks = Arrays.copyOf(blocks, blocks.length * 2);
       }
+      blocks[b + BLOCK_OFFSET] = decoder.content.current;
+      blocks[b + BLOCK_PREVIOUS_COLUMN] = decoder.previousCol;
+      blocks[b + BLOCK_PREVIOUS_SOURCE_FILE] = decoder.previousSrcId;
+      blocks[b + BLOCK_PREVIOUS_SOURCE_LINE] = decoder.previousSrcLine;
+      blocks[b + BLOCK_PREVIOUS_SOURCE_COLUMN] = decoder.previousSrcColumn;
+      blocks[b + BLOCK_PREVIOUS_NAME] = decoder.previousNameId;
+      blockCount++;
+    }
+
+    private void completeLine() {
+      // The line is complete, record where the blocks of the next line
+      // start.
       line++;
-      previousCol = 0;
+      mappedLineCount++;
+      if (mappedLineCount + 1 > lineBlocks.length) {
+        lineBlocks = Arrays.copyOf(lineBlocks, lineBlocks.length * 2);
+      }
+      lineBlocks[mappedLineCount] = blockCount;
+      entriesInLine = 0;
+      decoder.previousCol = 0;
     }
 
     /**
      * Sanity check the entry.
      */
-    private void validateEntry(Entry entry) {
+    private void validateEntry() {
       Preconditions.checkState((lineCount < 0) || (line < lineCount),
           "line=%s, lineCount=%s", line, lineCount);
-      Preconditions.checkState(entry.getSourceFileId() == UNMAPPED
-          || entry.getSourceFileId() < sources.length);
-      Preconditions.checkState(entry.getNameId() == UNMAPPED
-          || entry.getNameId() < names.length);
+      Preconditions.checkState(decoder.sourceFileId == UNMAPPED
+          || decoder.sourceFileId < sources.length);
+      Preconditions.checkState(decoder.nameId == UNMAPPED
+          || decoder.nameId < names.length);
+    }
+  }
+
+  /**
+   * Decodes the entries of the mappings, one at a time, keeping the previous
+   * values that the entries are relative to.
+   */
+  private static class EntryDecoder {
+    private static final int MAX_ENTRY_VALUES = 5;
+    private final StringCharIterator content;
+    private final int[] values = new int[MAX_ENTRY_VALUES];
+    int previousCol = 0;
+    int previousSrcId = 0;
+    int previousSrcLine = 0;
+    int previousSrcColumn = 0;
+    int previousNameId = 0;
+
+    // The values of the last decoded entry, UNMAPPED if absent.
+    int sourceFileId;
+    int sourceLine;
+    int sourceColumn;
+    int nameId;
+
+    EntryDecoder(String lineMap, int offset) {
+      this.content = new StringCharIterator(lineMap);
+      this.content.current = offset;
     }
 
     /**
      * Decodes the next entry, using the previous encountered values to
      * decode the relative values.
-     *
-     * @param vals An array of integers that represent values in the entry.
-     * @param entryValues The number of entries in the array.
-     * @return The entry object.
      */
-    private Entry decodeEntry(int[] vals, int entryValues) {
-      Entry entry;
+    void decodeEntry() {
+      int entryValues = 0;
+      while (!entryComplete()) {
+        if (entryValues == MAX_ENTRY_VALUES) {
+          throw new IllegalStateException(
+              "Unexpected number of values for entry:" + (entryValues + 1));
+        }
+        values[entryValues] = Base64VLQ.decode(content);
+        entryValues++;
+      }
+
       switch (entryValues) {
         // The first values, if present are in the following order:
         //   0: the starting column in the current line of the generated file
@@ -322,47 +400,36 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
         //   4: the id of the original symbol name
         // The values are relative to the last encountered value for that field.
         // Note: the previously column value for the generated file is reset
-        // to '0' when a new line is encountered.  This is done in the 'build'
-        // method.
+        // to '0' when a new line is encountered.  This is done by the
+        // MappingIndexer.
 
         case 1:
           // An unmapped section of the generated file.
-          entry = new UnmappedEntry(
-              vals[0] + previousCol);
-          // Set the values see for the next entry.
-          previousCol = entry.getGeneratedColumn();
-          return entry;
+          previousCol += values[0];
+          sourceFileId = UNMAPPED;
+          sourceLine = UNMAPPED;
+          sourceColumn = UNMAPPED;
+          nameId = UNMAPPED;
+          return;
 
         case 4:
           // A mapped section of the generated file.
-          entry = new UnnamedEntry(
-              vals[0] + previousCol,
-              vals[1] + previousSrcId,
-              vals[2] + previousSrcLine,
-              vals[3] + previousSrcColumn);
-          // Set the values see for the next entry.
-          previousCol = entry.getGeneratedColumn();
-          previousSrcId = entry.getSourceFileId();
-          previousSrcLine = entry.getSourceLine();
-          previousSrcColumn = entry.getSourceColumn();
-          return entry;
+          previousCol += values[0];
+          sourceFileId = previousSrcId += values[1];
+          sourceLine = previousSrcLine += values[2];
+          sourceColumn = previousSrcColumn += values[3];
+          nameId = UNMAPPED;
+          return;
 
         case 5:
           // A mapped section of the generated file, that has an associated
           // name.
-          entry = new NamedEntry(
-              vals[0] + previousCol,
-              vals[1] + previousSrcId,
-              vals[2] + previousSrcLine,
-              vals[3] + previousSrcColumn,
-              vals[4] + previousNameId);
-          // Set the values see for the next entry.
-          previousCol = entry.getGeneratedColumn();
-          previousSrcId = entry.getSourceFileId();
-          previousSrcLine = entry.getSourceLine();
-          previousSrcColumn = entry.getSourceColumn();
-          previousNameId = entry.getNameId();
-          return entry;
+          previousCol += values[0];
+          sourceFileId = previousSrcId += values[1];
+          sourceLine = previousSrcLine += values[2];
+          sourceColumn = previousSrcColumn += values[3];
+          nameId = previousNameId += values[4];
+          return;
 
         default:
           throw new IllegalStateException(
@@ -370,7 +437,7 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
       }
     }
 
-    private boolean tryConsumeToken(char token) {
+    boolean tryConsumeToken(char token) {
       if (content.hasNext() && content.peek() == token) {
         // consume the comma
         content.next();
@@ -379,6 +446,10 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
       return false;
     }
 
+    boolean atLineEnd() {
+      return !content.hasNext() || content.peek() == ';';
+    }
+
     private boolean entryComplete() {
       if (!content.hasNext()) {
         return true;
@@ -387,20 +458,61 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
       char c = content.peek();
       return (c == ';' || c == ',');
     }
+  }
 
-    private int nextValue() {
-      return Base64VLQ.decode(content);
+  /**
+   * Returns the entries of the given block, decoding them if they are not
+   * cached.
+   */
+  private int[] getBlock(int block) {
+    synchronized (decodedBlocks) {
+      int[] entries = decodedBlocks.get(block);
+      if (entries == null) {
+        entries = decodeBlock(block);
+        decodedBlocks.put(block, entries);
+      }
+      return entries;
     }
   }
 
   /**
-   * Perform a binary search on the array to find a section that covers
+   * Decodes the entries of the given block, {@link #ENTRY_FIELDS} ints per
+   * entry.
+   */
+  private int[] decodeBlock(int block) {
+    int b = block * BLOCK_FIELDS;
+    EntryDecoder decoder = new EntryDecoder(mappings, blocks[b + BLOCK_OFFSET]);
+    decoder.previousCol = blocks[b + BLOCK_PREVIOUS_COLUMN];
+    decoder.previousSrcId = blocks[b + BLOCK_PREVIOUS_SOURCE_FILE];
+    decoder.previousSrcLine = blocks[b + BLOCK_PREVIOUS_SOURCE_LINE];
+    decoder.previousSrcColumn = blocks[b + BLOCK_PREVIOUS_SOURCE_COLUMN];
+    decoder.previousNameId = blocks[b + BLOCK_PREVIOUS_NAME];
+
+    int[] entries = new int[BLOCK_SIZE * ENTRY_FIELDS];
+    int length = 0;
+    while (length < entries.length && !decoder.atLineEnd()) {
+      decoder.decodeEntry();
+      entries[length + ENTRY_COLUMN] = decoder.previousCol;
+      entries[length + ENTRY_SOURCE_FILE] = decoder.sourceFileId;
+      entries[length + ENTRY_SOURCE_LINE] = decoder.sourceLine;
+      entries[length + ENTRY_SOURCE_COLUMN] = decoder.sourceColumn;
+      entries[length + ENTRY_NAME] = decoder.nameId;
+      length += ENTRY_FIELDS;
+      decoder.tryConsumeToken(',');
+    }
+    return length == entries.length ? entries : Arrays.copyOf(entries, length);
+  }
+
+  /**
+   * Perform a binary search on the entries to find a section that covers
    * the target column.
    */
-  private static int search(ArrayList<Entry> entries, int target, int start, int end) {
+  private static int search(int[] entries, int target) {
+    int start = 0;
+    int end = entries.length / ENTRY_FIELDS - 1;
     while (true) {
       int mid = ((end - start) / 2) + start;
-      int compare = compareEntry(entries, mid, target);
+      int compare = entries[mid * ENTRY_FIELDS + ENTRY_COLUMN] - target;
       if (compare == 0) {
         return mid;
       } else if (compare < 0) {
@@ -419,13 +531,6 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     }
   }
 
-  /**
-   * Compare an array entry's column value to the target column value.
-   */
-  private static int compareEntry(ArrayList<Entry> entries, int entry, int target) {
-    return entries.get(entry).getGeneratedColumn() - target;
-  }
-
   /**
    * Returns the mapping entry that proceeds the supplied line or null if no
    * such entry exists.
@@ -436,73 +541,169 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
         return null;
       }
       lineNumber--;
-    } while (lines.get(lineNumber) == null);
-    ArrayList<Entry> entries = lines.get(lineNumber);
-    return getOriginalMappingForEntry(Iterables.getLast(entries));
+    } while (lineBlocks[lineNumber] == lineBlocks[lineNumber + 1]);
+    int[] entries = getBlock(lineBlocks[lineNumber + 1] - 1);
+    return getOriginalMappingForEntry(entries, entries.length / ENTRY_FIELDS - 1);
   }
 
   /**
-   * Creates an "OriginalMapping" object for the given entry object.
+   * Creates an "OriginalMapping" object for the given entry.
    */
-  private OriginalMapping getOriginalMappingForEntry(Entry entry) {
-    if (entry.getSourceFileId() == UNMAPPED) {
+  private OriginalMapping getOriginalMappingForEntry(int[] entries, int index) {
+    int e = index * ENTRY_FIELDS;
+    if (entries[e + ENTRY_SOURCE_FILE] == UNMAPPED) {
       return null;
     } else {
       // Adjust the line/column here to be start at 1.
       Builder x = OriginalMapping.newBuilder()
-        .setOriginalFile(sources[entry.getSourceFileId()])
-        .setLineNumber(entry.getSourceLine() + 1)
-        .setColumnPosition(entry.getSourceColumn() + 1);
-      if (entry.getNameId() != UNMAPPED) {
-        x.setIdentifier(names[entry.getNameId()]);
+        .setOriginalFile(sources[entries[e + ENTRY_SOURCE_FILE]])
+        .setLineNumber(entries[e + ENTRY_SOURCE_LINE] + 1)
+        .setColumnPosition(entries[e + ENTRY_SOURCE_COLUMN] + 1);
+      if (entries[e + ENTRY_NAME] != UNMAPPED) {
+        x.setIdentifier(names[entries[e + ENTRY_NAME]]);
       }
       return x.build();
     }
   }
 
   /**
-   * Reverse the source map; the created mapping will allow us to quickly go
-   * from a source file and line number to a collection of target
-   * OriginalMappings.
+   * The reverse of the source map; it allows us to quickly go from a source
+   * file and line number to a collection of target OriginalMappings. The
+   * mapped entries are kept sorted by source file and line in primitive
+   * arrays, and looked up with a binary search.
    */
-  private void createReverseMapping() {
-    reverseSourceMapping = new HashMap<>();
-
-    for (int targetLine = 0; targetLine < lines.size(); targetLine++) {
-      ArrayList<Entry> entries = lines.get(targetLine);
-
-      if (entries != null) {
-        for (Entry entry : entries) {
-          if (entry.getSourceFileId() != UNMAPPED
-              && entry.getSourceLine() != UNMAPPED) {
-            String originalFile = sources[entry.getSourceFileId()];
+  private final class ReverseIndex {
+    // The id of the first source with each source name.
+    private final Map<String, Integer> sourceIds = new HashMap<>();
+    // For each entry in order: its source id, source line, target line and
+    // target column.
+    private final int[] entrySources;
+    private final int[] entrySourceLines;
+    private final int[] targetLines;
+    private final int[] targetColumns;
+
+    ReverseIndex() {
+      int[] canonicalSourceIds = new int[sources.length];
+      for (int i = 0; i < sources.length; i++) {
+        Integer id = sourceIds.get(sources[i]);
+        if (id == null) {
+          id = i;
+          sourceIds.put(sources[i], id);
+        }
+        canonicalSourceIds[i] = id;
+      }
 
-            if (!reverseSourceMapping.containsKey(originalFile)) {
-              reverseSourceMapping.put(originalFile,
-                  new HashMap<Integer, Collection<OriginalMapping>>());
+      // Collect the mapped entries in the order of the generated file.
+      int count = 0;
+      int maxSourceLine = 0;
+      int[] unsortedSources = new int[16];
+      int[] unsortedSourceLines = new int[16];
+      int[] unsortedTargetLines = new int[16];
+      int[] unsortedTargetColumns = new int[16];
+      for (int targetLine = 0; targetLine < mappedLineCount; targetLine++) {
+        for (int block = lineBlocks[targetLine]; block < lineBlocks[targetLine + 1]; block++) {
+          int[] entries = decodeBlock(block);
+          for (int e = 0; e < entries.length; e += ENTRY_FIELDS) {
+            int sourceLine = entries[e + ENTRY_SOURCE_LINE];
+            if (entries[e + ENTRY_SOURCE_FILE] != UNMAPPED && sourceLine >= 0) {
+              if (count == unsortedSources.length) {
+                unsortedSources = Arrays.copyOf(unsortedSources, count * 2);
+                unsortedSourceLines = Arrays.copyOf(unsortedSourceLines, count * 2);
+                unsortedTargetLines = Arrays.copyOf(unsortedTargetLines, count * 2);
+                unsortedTargetColumns = Arrays.copyOf(unsortedTargetColumns, count * 2);
+              }
+              unsortedSources[count] = canonicalSourceIds[entries[e + ENTRY_SOURCE_FILE]];
+              unsortedSourceLines[count] = sourceLine;
+              unsortedTargetLines[count] = targetLine;
+              unsortedTargetColumns[count] = entries[e + ENTRY_COLUMN];
+              maxSourceLine = Math.max(maxSourceLine, sourceLine);
+              count++;
             }
+          }
+        }
+      }
 
-            Map<Integer, Collection<OriginalMapping>> lineToCollectionMap =
-                reverseSourceMapping.get(originalFile);
-
-            int sourceLine = entry.getSourceLine();
-
-            if (!lineToCollectionMap.containsKey(sourceLine)) {
-              lineToCollectionMap.put(sourceLine,
-                  new ArrayList<OriginalMapping>(1));
-            }
+      // Sort the entries by source and line, keeping the order of the
+      // generated file for equal keys: a counting sort by line followed by
+      // a counting sort by source.
+      int[] byLine = countingSort(
+          unsortedSourceLines, identity(count), count, maxSourceLine + 1);
+      int[] order = countingSort(unsortedSources, byLine, count, sources.length);
+
+      entrySources = new int[count];
+      entrySourceLines = new int[count];
+      targetLines = new int[count];
+      targetColumns = new int[count];
+      for (int i = 0; i < count; i++) {
+        int entry = order[i];
+        entrySources[i] = unsortedSources[entry];
+        entrySourceLines[i] = unsortedSourceLines[entry];
+        targetLines[i] = unsortedTargetLines[entry];
+        targetColumns[i] = unsortedTargetColumns[entry];
+      }
+    }
 
-            Collection<OriginalMapping> mappings =
-                lineToCollectionMap.get(sourceLine);
+    Collection<OriginalMapping> get(String originalFile, int line) {
+      Integer source = sourceIds.get(originalFile);
+      if (source == null) {
+        return Collections.emptyList();
+      }
 
-            Builder builder = OriginalMapping.newBuilder().setLineNumber(
-                targetLine).setColumnPosition(entry.getGeneratedColumn());
+      // Find the first entry with the source and line.
+      int low = 0;
+      int high = entrySources.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (entrySources[mid] < source
+            || (entrySources[mid] == source && entrySourceLines[mid] < line)) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
 
-            mappings.add(builder.build());
-          }
+      List<OriginalMapping> mappings = null;
+      for (int i = low; i < entrySources.length
+          && entrySources[i] == source && entrySourceLines[i] == line; i++) {
+        if (mappings == null) {
+          mappings = new ArrayList<>(1);
         }
+        mappings.add(OriginalMapping.newBuilder()
+            .setLineNumber(targetLines[i])
+            .setColumnPosition(targetColumns[i])
+            .build());
       }
+      return mappings == null
+          ? Collections.<OriginalMapping>emptyList() : mappings;
+    }
+  }
+
+  private static int[] identity(int count) {
+    int[] result = new int[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = i;
     }
+    return result;
+  }
+
+  /**
+   * Stably sorts the given order of entries by their keys, which are in the
+   * range [0, keyCount).
+   */
+  private static int[] countingSort(int[] keys, int[] order, int count, int keyCount) {
+    int[] starts = new int[keyCount + 1];
+    for (int i = 0; i < count; i++) {
+      starts[keys[i] + 1]++;
+    }
+    for (int k = 0; k < keyCount; k++) {
+      starts[k + 1] += starts[k];
+    }
+    int[] result = new int[count];
+    for (int i = 0; i < count; i++) {
+      int entry = order[i];
+      result[starts[keys[entry]]++] = entry;
+    }
+    return result;
   }
 
   /**
@@ -534,109 +735,6 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     }
   }
 
-  /**
-   * Represents a mapping entry in the source map.
-   */
-  private interface Entry {
-    int getGeneratedColumn();
-    int getSourceFileId();
-    int getSourceLine();
-    int getSourceColumn();
-    int getNameId();
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is not mapped
-   * to a section in the original source.
-   */
-  private static class UnmappedEntry implements Entry {
-    private final int column;
-
-    UnmappedEntry(int column) {
-      this.column = column;
-    }
-
-    @Override
-    public int getGeneratedColumn() {
-      return column;
-    }
-
-    @Override
-    public int getSourceFileId() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getSourceLine() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getSourceColumn() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getNameId() {
-      return UNMAPPED;
-    }
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is mapped
-   * to a section in the original source.
-   */
-  private static class UnnamedEntry extends UnmappedEntry {
-    private final int srcFile;
-    private final int srcLine;
-    private final int srcColumn;
-
-    UnnamedEntry(int column, int srcFile, int srcLine, int srcColumn) {
-      super(column);
-      this.srcFile = srcFile;
-      this.srcLine = srcLine;
-      this.srcColumn = srcColumn;
-    }
-
-    @Override
-    public int getSourceFileId() {
-      return srcFile;
-    }
-
-    @Override
-    public int getSourceLine() {
-      return srcLine;
-    }
-
-    @Override
-    public int getSourceColumn() {
-      return srcColumn;
-    }
-
-    @Override
-    public int getNameId() {
-      return UNMAPPED;
-    }
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is mapped
-   * to a section in the original source, and is associated with a name.
-   */
-  private static class NamedEntry extends UnnamedEntry {
-    private final int name;
-
-    NamedEntry(int column, int srcFile, int srcLine, int srcColumn, int name) {
-      super(column, srcFile, srcLine, srcColumn);
-      this.name = name;
-    }
-
-    @Override
-    public int getNameId() {
-      return name;
-    }
-  }
-
   public static interface EntryVisitor {
     void visit(String sourceName,
                String symbolName,
@@ -652,16 +750,13 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
     FilePosition sourceStartPosition = null;
     FilePosition startPosition = null;
 
-    final int lineCount = lines.size();
-    for (int i = 0; i < lineCount; i++) {
-      ArrayList<Entry> line = lines.get(i);
-      if (line != null) {
-        final int entryCount = line.size();
-        for (int j = 0; j < entryCount; j++) {
-          Entry entry = line.get(j);
+    for (int i = 0; i < mappedLineCount; i++) {
+      for (int block = lineBlocks[i]; block < lineBlocks[i + 1]; block++) {
+        int[] entries = decodeBlock(block);
+        for (int e = 0; e < entries.length; e += ENTRY_FIELDS) {
+          int column = entries[e + ENTRY_COLUMN];
           if (pending) {
-            FilePosition endPosition = new FilePosition(
-                i, entry.getGeneratedColumn());
+            FilePosition endPosition = new FilePosition(i, column);
             visitor.visit(
                 sourceName,
                 symbolName,
@@ -671,15 +766,14 @@ public final class SourceMapConsumerV3 implements SourceMapConsumer,
             pending = false;
           }
 
-          if (entry.getSourceFileId() != UNMAPPED) {
+          if (entries[e + ENTRY_SOURCE_FILE] != UNMAPPED) {
             pending = true;
-            sourceName = sources[entry.getSourceFileId()];
-            symbolName = (entry.getNameId() != UNMAPPED)
-                ? names[entry.getNameId()] : null;
+            sourceName = sources[entries[e + ENTRY_SOURCE_FILE]];
+            symbolName = (entries[e + ENTRY_NAME] != UNMAPPED)
+                ? names[entries[e + ENTRY_NAME]] : null;
             sourceStartPosition = new FilePosition(
-                entry.getSourceLine(), entry.getSourceColumn());
-            startPosition = new FilePosition(
-                i, entry.getGeneratedColumn());
+                entries[e + ENTRY_SOURCE_LINE], entries[e + ENTRY_SOURCE_COLUMN]);
+            startPosition = new FilePosition(i, column);
           }
         }
       }
@@ -19,10 +19,10 @@ package com.google.debugging.sourcemap;
 import com.google.debugging.sourcemap.SourceMapConsumerV3.EntryVisitor;
 import com.google.common.base.Preconditions;
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -62,11 +62,47 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
 
   private static final int UNMAPPED = -1;
 
+  // The fields of a mapping in the mappings array. The positions in the
+  // generated source file are indexed by 0. The position in the input source
+  // file is indexed by 1 for legacy reasons via the Rhino Node class.
+  private static final int START_LINE = 0;
+  private static final int START_COLUMN = 1;
+  private static final int END_LINE = 2;
+  private static final int END_COLUMN = 3;
+  private static final int SOURCE_FILE = 4;
+  private static final int SOURCE_LINE = 5;
+  private static final int SOURCE_COLUMN = 6;
+  private static final int ORIGINAL_NAME = 7;
+  private static final int MAPPING_SIZE = 8;
+
+  // The number of chars buffered by the LineMapper before they are appended
+  // to the output.
+  private static final int LINE_MAPPER_BUFFER_SIZE = 8 * 1024;
 
   /**
-   * A pre-order traversal ordered list of mappings stored in this map.
+   * A pre-order traversal ordered list of mappings stored in this map. Each
+   * mapping takes {@link #MAPPING_SIZE} consecutive ints, so that maps with
+   * millions of mappings do not hold millions of objects. The source file
+   * and original name of a mapping are indexes in {@link #mappedSourceFiles}
+   * and {@link #mappedNames}; a mapping without an original name has
+   * {@link #UNMAPPED} as its name.
    */
-  private final List<Mapping> mappings = new ArrayList<>();
+  private int[] mappings = new int[64 * MAPPING_SIZE];
+
+  /**
+   * The number of mappings stored in {@link #mappings}.
+   */
+  private int mappingCount = 0;
+
+  /**
+   * The source names used by the mappings.
+   */
+  private final StringTable mappedSourceFiles = new StringTable();
+
+  /**
+   * The original names used by the mappings.
+   */
+  private final StringTable mappedNames = new StringTable();
 
   /**
    * A map of source names to source name index
@@ -96,11 +132,6 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
    */
   private int lastSourceFileIndex = -1;
 
-  /**
-   * For validation store the last mapping added.
-   */
-  private Mapping lastMapping;
-
   /**
    * The position that the current source map is offset in the
    * buffer being used to generated the compiled source file.
@@ -132,8 +163,9 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
    */
   @Override
   public void reset() {
-    mappings.clear();
-    lastMapping = null;
+    mappingCount = 0;
+    mappedSourceFiles.clear();
+    mappedNames.clear();
     sourceFileMap.clear();
     sourceFileContentMap.clear();
     originalNameMap.clear();
@@ -210,8 +242,10 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
       return;
     }
 
-    FilePosition adjustedStart = startPosition;
-    FilePosition adjustedEnd = endPosition;
+    int startLine = startPosition.getLine();
+    int startColumn = startPosition.getColumn();
+    int endLine = endPosition.getLine();
+    int endColumn = endPosition.getColumn();
 
     if (offsetPosition.getLine() != 0
         || offsetPosition.getColumn() != 0) {
@@ -220,49 +254,46 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
       // the *last* line of the source file to which the code is
       // being generated.
       int offsetLine = offsetPosition.getLine();
-      int startOffsetPosition = offsetPosition.getColumn();
-      int endOffsetPosition = offsetPosition.getColumn();
 
-      if (startPosition.getLine() > 0) {
-        startOffsetPosition = 0;
+      if (startLine == 0) {
+        startColumn += offsetPosition.getColumn();
       }
 
-      if (endPosition.getLine() > 0) {
-        endOffsetPosition = 0;
+      if (endLine == 0) {
+        endColumn += offsetPosition.getColumn();
       }
 
-      adjustedStart = new FilePosition(
-          startPosition.getLine() + offsetLine,
-          startPosition.getColumn() + startOffsetPosition);
-
-      adjustedEnd = new FilePosition(
-          endPosition.getLine() + offsetLine,
-          endPosition.getColumn() + endOffsetPosition);
+      startLine += offsetLine;
+      endLine += offsetLine;
     }
 
-    // Create the new mapping.
-    Mapping mapping = new Mapping();
-    mapping.sourceFile = sourceName;
-    mapping.originalPosition = sourceStartPosition;
-    mapping.originalName = symbolName;
-    mapping.startPosition = adjustedStart;
-    mapping.endPosition = adjustedEnd;
-
     // Validate the mappings are in a proper order.
-    if (lastMapping != null) {
-      int lastLine = lastMapping.startPosition.getLine();
-      int lastColumn = lastMapping.startPosition.getColumn();
-      int nextLine = mapping.startPosition.getLine();
-      int nextColumn = mapping.startPosition.getColumn();
-      Preconditions.checkState(nextLine > lastLine
-          || (nextLine == lastLine && nextColumn >= lastColumn),
+    if (mappingCount > 0) {
+      int last = (mappingCount - 1) * MAPPING_SIZE;
+      int lastLine = mappings[last + START_LINE];
+      int lastColumn = mappings[last + START_COLUMN];
+      Preconditions.checkState(startLine > lastLine
+          || (startLine == lastLine && startColumn >= lastColumn),
           "Incorrect source mappings order, previous : (%s,%s)\n"
           + "new : (%s,%s)",
-          lastLine, lastColumn, nextLine, nextColumn);
+          lastLine, lastColumn, startLine, startColumn);
     }
 
-    lastMapping = mapping;
-    mappings.add(mapping);
+    // Store the new mapping.
+    int m = mappingCount * MAPPING_SIZE;
+    if (m + MAPPING_SIZE > mappings.length) {
+      mappings = Arrays.copyOf(mappings, mappings.length * 2);
+    }
+    mappings[m + START_LINE] = startLine;
+    mappings[m + START_COLUMN] = startColumn;
+    mappings[m + END_LINE] = endLine;
+    mappings[m + END_COLUMN] = endColumn;
+    mappings[m + SOURCE_FILE] = mappedSourceFiles.indexOf(sourceName);
+    mappings[m + SOURCE_LINE] = sourceStartPosition.getLine();
+    mappings[m + SOURCE_COLUMN] = sourceStartPosition.getColumn();
+    mappings[m + ORIGINAL_NAME] =
+        symbolName == null ? UNMAPPED : mappedNames.indexOf(symbolName);
+    mappingCount++;
   }
 
   @Override public void addSourcesContent(String source, String content) {
@@ -570,106 +601,87 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
   }
 
   /**
-   * Assigns sequential ids to used mappings, and returns the last line mapped.
+   * Returns the last line mapped by the mappings used by the source map.
    */
   private int prepMappings() throws IOException {
-    // Mark any unused mappings.
-    (new MappingTraversal()).traverse(new UsedMappingCheck());
-
-    // Renumber used mappings and keep track of the last line.
-    int id = 0;
-    int maxLine = 0;
-    for (Mapping m : mappings) {
-      if (m.used) {
-        m.id = id++;
-        int endPositionLine = m.endPosition.getLine();
-        maxLine = Math.max(maxLine, endPositionLine);
-      }
-    }
+    MaxLineFinder finder = new MaxLineFinder();
+    (new MappingTraversal()).traverse(finder);
 
     // Adjust for the prefix.
-    return maxLine + prefixPosition.getLine();
+    return finder.maxLine + prefixPosition.getLine();
   }
 
   /**
-   * A mapping from a given position in an input source file to a given position
-   * in the generated code.
+   * Interns strings into sequential indexes.
    */
-  static class Mapping {
-    /**
-     * A unique ID for this mapping for record keeping purposes.
-     */
-    int id = UNMAPPED;
-
-    /**
-     * The source file index.
-     */
-    String sourceFile;
-
-    /**
-     * The position of the code in the input source file. Both
-     * the line number and the character index are indexed by
-     * 1 for legacy reasons via the Rhino Node class.
-     */
-    FilePosition originalPosition;
-
-    /**
-     * The starting position of the code in the generated source
-     * file which this mapping represents. Indexed by 0.
-     */
-    FilePosition startPosition;
-
-    /**
-     * The ending position of the code in the generated source
-     * file which this mapping represents. Indexed by 0.
-     */
-    FilePosition endPosition;
+  private static final class StringTable {
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    // Cache of the last string interned, as consecutive mappings often have
+    // the same source name.
+    private String lastValue = null;
+    private int lastIndex = UNMAPPED;
+
+    int indexOf(String value) {
+      if (value != lastValue) {
+        Integer index = indexes.get(value);
+        if (index == null) {
+          index = values.size();
+          values.add(value);
+          indexes.put(value, index);
+        }
+        lastValue = value;
+        lastIndex = index;
+      }
+      return lastIndex;
+    }
 
-    /**
-     * The original name of the token found at the position
-     * represented by this mapping (if any).
-     */
-    String originalName;
+    String get(int index) {
+      return values.get(index);
+    }
 
-    /**
-     * Whether the mapping is actually used by the source map.
-     */
-    boolean used = false;
+    void clear() {
+      values.clear();
+      indexes.clear();
+      lastValue = null;
+      lastIndex = UNMAPPED;
+    }
   }
 
   /**
-   * Mark any visited mapping as "used".
+   * Finds the last line of the visited mappings, which are the mappings
+   * actually used by the source map.
    */
-  private static class UsedMappingCheck implements MappingVisitor {
-    /**
-     * @throws IOException
-     */
+  private class MaxLineFinder implements MappingVisitor {
+    int maxLine = 0;
+
     @Override
-    public void visit(Mapping m, int line, int col, int nextLine, int nextCol)
-        throws IOException {
-      if (m != null) {
-        m.used = true;
+    public void visit(int m, int line, int col, int nextLine, int nextCol) {
+      if (m != UNMAPPED) {
+        maxLine = Math.max(maxLine, mappings[m * MAPPING_SIZE + END_LINE]);
       }
     }
   }
 
   private interface MappingVisitor {
     /**
-     * @param m The mapping for the current code segment. null if the segment
-     *     is unmapped.
+     * @param m The index of the mapping for the current code segment.
+     *     UNMAPPED if the segment is unmapped.
      * @param line The starting line for this code segment.
      * @param col The starting column for this code segment.
      * @param endLine The ending line
      * @param endCol The ending column
      * @throws IOException
      */
-    void visit(Mapping m, int line, int col, int endLine, int endCol)
+    void visit(int m, int line, int col, int endLine, int endCol)
         throws IOException;
   }
 
   /**
    * Walk the mappings and visit each segment of the mappings, unmapped
-   * segments are visited with a null mapping, unused mapping are not visited.
+   * segments are visited with an UNMAPPED mapping, unused mapping are not
+   * visited.
    */
   private class MappingTraversal {
     // The last line and column written
@@ -684,46 +696,46 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
       // The mapping list is ordered as a pre-order traversal.  The mapping
       // positions give us enough information to rebuild the stack and this
       // allows the building of the source map in O(n) time.
-      Deque<Mapping> stack = new ArrayDeque<>();
-      for (Mapping m : mappings) {
+      int[] stack = new int[32];
+      int depth = 0;
+      for (int m = 0; m < mappingCount; m++) {
         // Find the closest ancestor of the current mapping:
         // An overlapping mapping is an ancestor of the current mapping, any
         // non-overlapping mappings are siblings (or cousins) and must be
         // closed in the reverse order of when they encountered.
-        while (!stack.isEmpty() && !isOverlapped(stack.peek(), m)) {
-          Mapping previous = stack.pop();
-          maybeVisit(v, previous);
+        while (depth > 0 && !isOverlapped(stack[depth - 1], m)) {
+          maybeVisit(v, stack[--depth]);
         }
 
         // Any gaps between the current line position and the start of the
         // current mapping belong to the parent.
-        Mapping parent = stack.peek();
+        int parent = depth > 0 ? stack[depth - 1] : UNMAPPED;
         maybeVisitParent(v, parent, m);
 
-        stack.push(m);
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = m;
       }
 
       // There are no more children to be had, simply close the remaining
       // mappings in the reverse order of when they encountered.
-      while (!stack.isEmpty()) {
-        Mapping m = stack.pop();
-        maybeVisit(v, m);
+      while (depth > 0) {
+        maybeVisit(v, stack[--depth]);
       }
     }
 
     /**
      * @return The line adjusted for the prefix position.
      */
-    private int getAdjustedLine(FilePosition p) {
-      return p.getLine() + prefixPosition.getLine();
+    private int getAdjustedLine(int rawLine) {
+      return rawLine + prefixPosition.getLine();
     }
 
     /**
      * @return The column adjusted for the prefix position.
      */
-    private int getAdjustedCol(FilePosition p) {
-      int rawLine = p.getLine();
-      int rawCol = p.getColumn();
+    private int getAdjustedCol(int rawLine, int rawCol) {
       // Only the first line needs the character position adjusted.
       return (rawLine != 0)
           ? rawCol : rawCol + prefixPosition.getColumn();
@@ -732,12 +744,12 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
     /**
      * @return Whether m1 ends before m2 starts.
      */
-    private boolean isOverlapped(Mapping m1, Mapping m2) {
+    private boolean isOverlapped(int m1, int m2) {
       // No need to use adjusted values here, relative positions are sufficient.
-      int l1 = m1.endPosition.getLine();
-      int l2 = m2.startPosition.getLine();
-      int c1 = m1.endPosition.getColumn();
-      int c2 = m2.startPosition.getColumn();
+      int l1 = mappings[m1 * MAPPING_SIZE + END_LINE];
+      int l2 = mappings[m2 * MAPPING_SIZE + START_LINE];
+      int c1 = mappings[m1 * MAPPING_SIZE + END_COLUMN];
+      int c2 = mappings[m2 * MAPPING_SIZE + START_COLUMN];
 
       return (l1 == l2 && c1 >= c2) || l1 > l2;
     }
@@ -746,9 +758,10 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
      * Write any needed entries from the current position to the end of the
      * provided mapping.
      */
-    private void maybeVisit(MappingVisitor v, Mapping m) throws IOException {
-      int nextLine = getAdjustedLine(m.endPosition);
-      int nextCol = getAdjustedCol(m.endPosition);
+    private void maybeVisit(MappingVisitor v, int m) throws IOException {
+      int endLine = mappings[m * MAPPING_SIZE + END_LINE];
+      int nextLine = getAdjustedLine(endLine);
+      int nextCol = getAdjustedCol(endLine, mappings[m * MAPPING_SIZE + END_COLUMN]);
       // If this anything remaining in this mapping beyond the
       // current line and column position, write it out now.
       if (line < nextLine || (line == nextLine && col < nextCol)) {
@@ -759,11 +772,12 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
     /**
      * Write any needed entries to complete the provided mapping.
      */
-    private void maybeVisitParent(MappingVisitor v, Mapping parent, Mapping m)
+    private void maybeVisitParent(MappingVisitor v, int parent, int m)
         throws IOException {
-      int nextLine = getAdjustedLine(m.startPosition);
-      int nextCol = getAdjustedCol(m.startPosition);
-      // If the previous value is null, no mapping exists.
+      int startLine = mappings[m * MAPPING_SIZE + START_LINE];
+      int nextLine = getAdjustedLine(startLine);
+      int nextCol = getAdjustedCol(startLine, mappings[m * MAPPING_SIZE + START_COLUMN]);
+      // If the previous value is UNMAPPED, no mapping exists.
       Preconditions.checkState(line < nextLine || col <= nextCol);
       if (line < nextLine || (line == nextLine && col < nextCol)) {
         visit(v, parent, nextLine, nextCol);
@@ -774,7 +788,7 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
      * Write any entries needed between the current position the next position
      * and update the current position.
      */
-    private void visit(MappingVisitor v, Mapping m,
+    private void visit(MappingVisitor v, int m,
         int nextLine, int nextCol)
         throws IOException {
       Preconditions.checkState(line <= nextLine);
@@ -879,6 +893,11 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
     private final Appendable out;
     private final int maxLine; // TODO(johnlenz): This shouldn't be necessary to track.
 
+    // The entries are encoded into this buffer, which is appended to the
+    // destination when it is full, rather than appending each char.
+    private final char[] buffer = new char[LINE_MAPPER_BUFFER_SIZE];
+    private int bufferLength = 0;
+
     private int previousLine = -1;
     private int previousColumn = 0;
 
@@ -897,7 +916,7 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
      * As each segment is visited write out the appropriate line mapping.
      */
     @Override
-    public void visit(Mapping m, int line, int col, int nextLine, int nextCol)
+    public void visit(int m, int line, int col, int nextLine, int nextCol)
       throws IOException {
       if (previousLine != line) {
         previousColumn = 0;
@@ -908,14 +927,16 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
         // So far they're just null mappings and we can ignore them.
         // (If they're non-null, we assert-fail.)
         if (line < maxLine) {
+          // A separator and the five fields of an entry.
+          reserve(1 + 5 * Base64VLQ.MAX_ENCODED_LENGTH);
           if (previousLine == line) { // not the first entry for the line
-            out.append(',');
+            buffer[bufferLength++] = ',';
           }
           writeEntry(m, col);
           previousLine = line;
           previousColumn = col;
         } else {
-          Preconditions.checkState(m == null);
+          Preconditions.checkState(m == UNMAPPED);
         }
       }
 
@@ -935,29 +956,31 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
      * The values are stored as relative to the last seen values for each
      * field and encoded as Base64VLQs.
      */
-    void writeEntry(Mapping m, int column) throws IOException {
+    void writeEntry(int m, int column) {
       // The relative generated column number
-      Base64VLQ.encode(out, column - previousColumn);
+      bufferLength = Base64VLQ.encode(buffer, bufferLength, column - previousColumn);
       previousColumn = column;
-      if (m != null) {
+      if (m != UNMAPPED) {
+        int offset = m * MAPPING_SIZE;
         // The relative source file id
-        int sourceId = getSourceId(m.sourceFile);
-        Base64VLQ.encode(out, sourceId - previousSourceFileId);
+        int sourceId = getSourceId(mappedSourceFiles.get(mappings[offset + SOURCE_FILE]));
+        bufferLength = Base64VLQ.encode(buffer, bufferLength, sourceId - previousSourceFileId);
         previousSourceFileId = sourceId;
 
         // The relative source file line and column
-        int srcline = m.originalPosition.getLine();
-        int srcColumn = m.originalPosition.getColumn();
-        Base64VLQ.encode(out, srcline - previousSourceLine);
+        int srcline = mappings[offset + SOURCE_LINE];
+        int srcColumn = mappings[offset + SOURCE_COLUMN];
+        bufferLength = Base64VLQ.encode(buffer, bufferLength, srcline - previousSourceLine);
         previousSourceLine = srcline;
 
-        Base64VLQ.encode(out, srcColumn - previousSourceColumn);
+        bufferLength = Base64VLQ.encode(buffer, bufferLength, srcColumn - previousSourceColumn);
         previousSourceColumn = srcColumn;
 
-        if (m.originalName != null) {
+        int originalName = mappings[offset + ORIGINAL_NAME];
+        if (originalName != UNMAPPED) {
           // The relative id for the associated symbol name
-          int nameId = getNameId(m.originalName);
-          Base64VLQ.encode(out, (nameId - previousNameId));
+          int nameId = getNameId(mappedNames.get(originalName));
+          bufferLength = Base64VLQ.encode(buffer, bufferLength, (nameId - previousNameId));
           previousNameId = nameId;
         }
       }
@@ -972,6 +995,7 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
 
       // And close the final line.
       closeLine(true);
+      flush();
     }
 
     /**
@@ -979,7 +1003,8 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
      */
     private void openLine(boolean firstEntry) throws IOException {
       if (firstEntry) {
-        out.append('\"');
+        reserve(1);
+        buffer[bufferLength++] = '\"';
       }
     }
 
@@ -987,11 +1012,26 @@ public final class SourceMapGeneratorV3 implements SourceMapGenerator {
      * End the entry for a line.
      */
     private void closeLine(boolean finalEntry) throws IOException {
-      out.append(';');
+      reserve(2);
+      buffer[bufferLength++] = ';';
       if (finalEntry) {
-        out.append('\"');
+        buffer[bufferLength++] = '\"';
       }
     }
+
+    /**
+     * Makes room for the given number of chars in the buffer.
+     */
+    private void reserve(int length) throws IOException {
+      if (bufferLength + length > buffer.length) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      out.append(String.valueOf(buffer, 0, bufferLength));
+      bufferLength = 0;
+    }
   }
 
 }
@@ -452,8 +452,27 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     options.moduleRoots = config.moduleRoots;
     options.angularPass = config.angularPass;
     options.tracer = config.tracerMode;
+    options.setTracerReportFormat(config.tracerReportFormat);
+    options.setTracerReportPath(config.tracerReportPath);
     options.setNewTypeInference(config.useNewTypeInference);
     options.instrumentationTemplateFile = config.instrumentationTemplateFile;
+    if (!config.parseCacheDir.isEmpty()) {
+      options.setParseCache(new DiskParseCache(new File(config.parseCacheDir)));
+    }
+    if (!config.typeSummaryCacheDir.isEmpty()) {
+      options.setTypeSummaryCache(
+          new DiskTypeSummaryCache(new File(config.typeSummaryCacheDir)));
+    }
+    if (config.numParallelParseThreads < 1
+        || config.numParallelOptimizationThreads < 1
+        || config.numParallelTypeInferenceThreads < 1
+        || config.numParallelOutputThreads < 1) {
+      throw new FlagUsageException("num_parallel_*_threads flags must be at least 1");
+    }
+    options.setNumParallelParseThreads(config.numParallelParseThreads);
+    options.setNumParallelOptimizationThreads(config.numParallelOptimizationThreads);
+    options.setNumParallelTypeInferenceThreads(config.numParallelTypeInferenceThreads);
+    options.setNumParallelOutputThreads(config.numParallelOutputThreads);
   }
 
   protected final A getCompiler() {
@@ -960,11 +979,49 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
               compiler.getDegenerateModuleGraph().getAllModules()));
     }
 
+    writeCompiledOutput(out, m, getModuleWrapper(m), "%s", null);
+  }
+
+  private String getModuleWrapper(JSModule m) {
     String fileName = getModuleOutputFileName(m);
     String baseName = new File(fileName).getName();
-    writeOutput(out, compiler, compiler.toSource(m),
-        parsedModuleWrappers.get(m.getName()).replace("%basename%", baseName),
-        "%s", null);
+    return parsedModuleWrappers.get(m.getName()).replace("%basename%", baseName);
+  }
+
+  /**
+   * Writes the code of a module, or of the whole program if the module is
+   * null, like {@link #writeOutput}. Unless the code has to be escaped, it is
+   * written as it is generated rather than printed to a string first, so
+   * that large outputs are not held in memory.
+   */
+  private void writeCompiledOutput(Appendable out, @Nullable JSModule module,
+      String wrapper, String codePlaceholder,
+      @Nullable Function<String, String> escaper) throws IOException {
+    if (escaper != null || compiler.getOptions().outputJs != OutputJs.NORMAL) {
+      String code = module == null ? compiler.toSource() : compiler.toSource(module);
+      writeOutput(out, compiler, code, wrapper, codePlaceholder, escaper);
+      return;
+    }
+
+    int pos = wrapper.indexOf(codePlaceholder);
+    String prefix = pos == -1 ? "" : wrapper.substring(0, pos);
+    out.append(prefix);
+    if (module == null) {
+      compiler.toSource(out);
+    } else {
+      compiler.toSource(out, module);
+    }
+    if (pos != -1) {
+      out.append(wrapper.substring(pos + codePlaceholder.length()));
+    }
+    // Make sure we always end output with a line feed.
+    out.append('\n');
+
+    // If we have a source map, adjust its offsets to match
+    // the code WITHIN the wrapper.
+    if (pos != -1 && compiler.getSourceMap() != null) {
+      compiler.getSourceMap().setWrapperPrefix(prefix);
+    }
   }
 
   /**
@@ -975,6 +1032,19 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       String wrapper, String codePlaceholder,
       @Nullable Function<String, String> escaper)
       throws IOException {
+    writeOutput(out, compiler, compiler == null ? null : compiler.getSourceMap(), code,
+        wrapper, codePlaceholder, escaper);
+  }
+
+  /**
+   * Writes code to an output stream like {@link #writeOutput(Appendable,
+   * Compiler, String, String, String, Function)}, adjusting the given source
+   * map to the wrapper.
+   */
+  private static void writeOutput(Appendable out, Compiler compiler,
+      @Nullable SourceMap sourceMap, String code, String wrapper,
+      String codePlaceholder, @Nullable Function<String, String> escaper)
+      throws IOException {
     if (compiler.getOptions().outputJs == OutputJs.SENTINEL) {
       out.append("// No JS output because the compiler was run in checks-only mode.\n");
       return;
@@ -1002,8 +1072,8 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
 
       // If we have a source map, adjust its offsets to match
       // the code WITHIN the wrapper.
-      if (compiler != null && compiler.getSourceMap() != null) {
-        compiler.getSourceMap().setWrapperPrefix(prefix);
+      if (sourceMap != null) {
+        sourceMap.setWrapperPrefix(prefix);
       }
 
     } else {
@@ -1268,9 +1338,7 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       }
 
       Appendable jsOutput = createDefaultOutput();
-      writeOutput(
-          jsOutput, compiler, compiler.toSource(), config.outputWrapper,
-          marker, escaper);
+      writeCompiledOutput(jsOutput, null, config.outputWrapper, marker, escaper);
       closeAppendable(jsOutput);
     }
   }
@@ -1337,6 +1405,12 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       return INVALID_MODULE_SOURCEMAP_PATTERN;
     }
 
+    int numThreads = options.getNumParallelOutputThreads();
+    if (numThreads > 1 && !isOutputInJson()) {
+      outputModulesInParallel(modules, options, numThreads);
+      return null;
+    }
+
     for (JSModule m : modules) {
       if (isOutputInJson()) {
         this.filesToStreamOut.add(createJsonFileFromModule(m));
@@ -1369,6 +1443,43 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
     return null;
   }
 
+  /**
+   * Prints up to {@code numThreads} modules at the same time, each with its
+   * own source map, and writes their files in the order of the modules. The
+   * modules are printed in batches, so that only the code of a few of them
+   * is held in memory.
+   */
+  private void outputModulesInParallel(List<JSModule> modules, B options, int numThreads)
+      throws IOException {
+    boolean createSourceMaps = options.sourceMapOutputPath != null;
+    for (int start = 0; start < modules.size(); start += numThreads) {
+      List<JSModule> batch =
+          modules.subList(start, Math.min(start + numThreads, modules.size()));
+      List<SourceMap> sourceMaps = null;
+      if (createSourceMaps) {
+        sourceMaps = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+          sourceMaps.add(compiler.createSourceMap());
+        }
+      }
+      List<String> code = compiler.toSourceInParallel(batch, sourceMaps, numThreads);
+
+      for (int i = 0; i < batch.size(); i++) {
+        JSModule m = batch.get(i);
+        SourceMap sourceMap = createSourceMaps ? sourceMaps.get(i) : null;
+        String moduleFilename = getModuleOutputFileName(m);
+        try (Writer writer = fileNameToLegacyOutputWriter(moduleFilename)) {
+          writeOutput(writer, compiler, sourceMap, code.get(i), getModuleWrapper(m), "%s", null);
+        }
+        if (createSourceMaps) {
+          try (Writer mapFileOut = fileNameToOutputWriter2(expandSourceMapPath(options, m))) {
+            sourceMap.appendTo(mapFileOut, moduleFilename);
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Given an output module, convert it to a JSONFileSpec with associated
    * sourcemap
@@ -2539,6 +2650,22 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
       return this;
     }
 
+    private CompilerOptions.TracerReportFormat tracerReportFormat =
+        CompilerOptions.TracerReportFormat.TEXT;
+
+    public CommandLineConfig setTracerReportFormat(
+        CompilerOptions.TracerReportFormat tracerReportFormat) {
+      this.tracerReportFormat = tracerReportFormat;
+      return this;
+    }
+
+    private String tracerReportPath = null;
+
+    public CommandLineConfig setTracerReportPath(String tracerReportPath) {
+      this.tracerReportPath = tracerReportPath;
+      return this;
+    }
+
     private boolean useNewTypeInference = false;
 
     public CommandLineConfig setNewTypeInference(boolean useNewTypeInference) {
@@ -2553,6 +2680,70 @@ public abstract class AbstractCommandLineRunner<A extends Compiler,
         return this;
     }
 
+    private String parseCacheDir = "";
+
+    /**
+     * Sets a directory in which parse results are kept between runs.
+     */
+    public CommandLineConfig setParseCacheDir(String parseCacheDir) {
+      this.parseCacheDir = parseCacheDir;
+      return this;
+    }
+
+    private String typeSummaryCacheDir = "";
+
+    /**
+     * Sets a directory in which the new type inference keeps the warnings of
+     * the functions of input files between runs.
+     */
+    public CommandLineConfig setTypeSummaryCacheDir(String typeSummaryCacheDir) {
+      this.typeSummaryCacheDir = typeSummaryCacheDir;
+      return this;
+    }
+
+    private int numParallelParseThreads = 1;
+
+    /**
+     * Sets the number of threads used to parse the input files.
+     */
+    public CommandLineConfig setNumParallelParseThreads(int numParallelParseThreads) {
+      this.numParallelParseThreads = numParallelParseThreads;
+      return this;
+    }
+
+    private int numParallelOptimizationThreads = 1;
+
+    /**
+     * Sets the number of threads used by the optimization passes that
+     * process one function at a time.
+     */
+    public CommandLineConfig setNumParallelOptimizationThreads(int numParallelOptimizationThreads) {
+      this.numParallelOptimizationThreads = numParallelOptimizationThreads;
+      return this;
+    }
+
+    private int numParallelTypeInferenceThreads = 1;
+
+    /**
+     * Sets the number of threads used by the new type inference to
+     * analyze functions.
+     */
+    public CommandLineConfig setNumParallelTypeInferenceThreads(int numParallelTypeInferenceThreads) {
+      this.numParallelTypeInferenceThreads = numParallelTypeInferenceThreads;
+      return this;
+    }
+
+    private int numParallelOutputThreads = 1;
+
+    /**
+     * Sets the number of threads used to print the modules when each
+     * module is written to its own file.
+     */
+    public CommandLineConfig setNumParallelOutputThreads(int numParallelOutputThreads) {
+      this.numParallelOutputThreads = numParallelOutputThreads;
+      return this;
+    }
+
     private JsonStreamMode jsonStreamMode = JsonStreamMode.NONE;
 
     public CommandLineConfig setJsonStreamMode(JsonStreamMode mode) {
@@ -34,6 +34,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import javax.annotation.Nullable;
 
 /**
@@ -274,6 +275,26 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
   /** Passes that do cross-scope modifications use this (eg, InlineVariables) */
   abstract void reportChangeToEnclosingScope(Node n);
 
+  /**
+   * Whether {@link #processFunctionsInParallel} may run functions on several
+   * threads. If not, passes should process functions one at a time.
+   */
+  abstract boolean canProcessFunctionsInParallel();
+
+  /**
+   * Runs the callback on each of the given function scopes, possibly at the
+   * same time. The scopes must not be nested in one another. Changes and
+   * errors that the callback reports are applied in the order of the scopes.
+   */
+  abstract void processFunctionsInParallel(
+      List<Node> scopeRoots, NodeTraversal.FunctionCallback callback);
+
+  /**
+   * Runs the tasks on up to {@code numThreads} threads of the worker pool of
+   * the compile job, and returns their results in the order of the tasks.
+   */
+  abstract <T> List<T> runInParallel(List<? extends Callable<T>> tasks, int numThreads);
+
   /**
    * Represents the different contexts for which the compiler could have
    * distinct configurations.
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.base.Preconditions;
+import com.google.javascript.jscomp.type.FlowScope;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.jstype.JSType;
+import com.google.javascript.rhino.jstype.SimpleSlot;
+import com.google.javascript.rhino.jstype.StaticTypedScope;
+import com.google.javascript.rhino.jstype.StaticTypedSlot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A flow scope that numbers the variables of the function the first time
+ * their types are inferred, and keeps the inferred types in arrays indexed
+ * by these numbers. Optimized for fast lookups and joins, which do not
+ * depend on the length of the flow.
+ *
+ * The arrays are split in chunks, and a child scope shares the chunks of its
+ * parent until it infers a type in them, so a child costs little memory.
+ * Scopes that flow from one another share most of their chunks, which joins
+ * and comparisons skip.
+ *
+ * All the scopes of a function must be created from the same entry lattice,
+ * with {@link #createEntryLattice(TypedScope)} for the first one.
+ */
+class ArrayFlowScope implements FlowScope {
+  private static final int CHUNK_BITS = 5;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  private static final SimpleSlot[][] NO_CHUNKS = new SimpleSlot[0][];
+
+  // The numbers of the variables of the function.
+  private final Numbering numbering;
+
+  // The TypedScope for the entire function or for the global scope.
+  private final TypedScope functionScope;
+
+  // The scope that this scope flows from, or null if it starts the flow or
+  // joins other scopes.
+  private final ArrayFlowScope parent;
+
+  // The slots inferred in the flow, by the numbers of their variables.
+  private SimpleSlot[][] chunks;
+
+  // The slots inferred in this scope, in order, or null if there are none.
+  private List<SimpleSlot> ownSlots = null;
+
+  // Whether the chunks array, and which of the chunks, were copied for this
+  // scope, which can then change them in place. Cleared when it is frozen.
+  private boolean ownsChunks = false;
+  private boolean[] ownedChunks = null;
+
+  // Flow scopes assume that all their ancestors are immutable.
+  // So once a child scope is created, this flow scope may not be modified.
+  private boolean frozen = false;
+
+  private ArrayFlowScope(Numbering numbering, TypedScope functionScope,
+      ArrayFlowScope parent, SimpleSlot[][] chunks) {
+    this.numbering = numbering;
+    this.functionScope = functionScope;
+    this.parent = parent;
+    this.chunks = chunks;
+  }
+
+  /**
+   * Creates an entry lattice for the flow of a function.
+   */
+  static ArrayFlowScope createEntryLattice(TypedScope scope) {
+    return new ArrayFlowScope(new Numbering(), scope, null, NO_CHUNKS);
+  }
+
+  /**
+   * Creates another entry lattice for the flow of the same function as this
+   * one, for example at the bottom of the lattice, so that they can be
+   * joined.
+   */
+  ArrayFlowScope createSiblingEntryLattice(TypedScope scope) {
+    return new ArrayFlowScope(numbering, scope, null, NO_CHUNKS);
+  }
+
+  /** Whether this flows from a bottom scope. */
+  private boolean flowsFromBottom() {
+    return functionScope.isBottom();
+  }
+
+  @Override
+  public void inferSlotType(String symbol, JSType type) {
+    Preconditions.checkState(!frozen);
+    SimpleSlot slot = new SimpleSlot(symbol, type, true);
+    int index = numbering.getOrAdd(symbol);
+    int chunk = index >>> CHUNK_BITS;
+    if (!ownsChunks || chunk >= chunks.length) {
+      SimpleSlot[][] newChunks = new SimpleSlot[Math.max(chunks.length, chunk + 1)][];
+      System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+      boolean[] newOwnedChunks = new boolean[newChunks.length];
+      if (ownsChunks) {
+        System.arraycopy(ownedChunks, 0, newOwnedChunks, 0, ownedChunks.length);
+      }
+      chunks = newChunks;
+      ownedChunks = newOwnedChunks;
+      ownsChunks = true;
+    }
+    if (!ownedChunks[chunk]) {
+      chunks[chunk] = chunks[chunk] == null
+          ? new SimpleSlot[CHUNK_SIZE] : chunks[chunk].clone();
+      ownedChunks[chunk] = true;
+    }
+    chunks[chunk][index & (CHUNK_SIZE - 1)] = slot;
+    if (ownSlots == null) {
+      ownSlots = new ArrayList<>(2);
+    }
+    ownSlots.add(slot);
+  }
+
+  @Override
+  public void inferQualifiedSlot(Node node, String symbol, JSType bottomType,
+      JSType inferredType, boolean declared) {
+    if (functionScope.isLocal()) {
+      TypedVar v  = functionScope.getVar(symbol);
+      if (v == null && !functionScope.isBottom()) {
+        v = functionScope.declare(symbol, node, bottomType, null, !declared);
+      }
+
+      if (v != null && !v.isTypeInferred()) {
+        JSType declaredType = v.getType();
+        // Use the inferred type over the declared type only if the
+        // inferred type is a strict subtype of the declared type.
+        if (declaredType != null && inferredType.isSubtype(declaredType)
+            && !declaredType.isSubtype(inferredType)
+            && !inferredType.isEquivalentTo(declaredType)) {
+          inferSlotType(symbol, inferredType);
+        }
+      } else {
+        inferSlotType(symbol, inferredType);
+      }
+    }
+  }
+
+  @Override
+  public JSType getTypeOfThis() {
+    return functionScope.getTypeOfThis();
+  }
+
+  @Override
+  public Node getRootNode() {
+    return functionScope.getRootNode();
+  }
+
+  @Override
+  public StaticTypedScope<JSType> getParentScope() {
+    return functionScope.getParentScope();
+  }
+
+  /**
+   * Get the slot for the given symbol.
+   */
+  @Override
+  public StaticTypedSlot<JSType> getSlot(String name) {
+    SimpleSlot slot = getFlowSlot(numbering.get(name));
+    return slot != null ? slot : functionScope.getSlot(name);
+  }
+
+  /** Returns the slot inferred in the flow for the given number, if any. */
+  private SimpleSlot getFlowSlot(int index) {
+    if (index == -1) {
+      return null;
+    }
+    int chunk = index >>> CHUNK_BITS;
+    if (chunk >= chunks.length || chunks[chunk] == null) {
+      return null;
+    }
+    return chunks[chunk][index & (CHUNK_SIZE - 1)];
+  }
+
+  @Override
+  public StaticTypedSlot<JSType> getOwnSlot(String name) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public FlowScope createChildFlowScope() {
+    freeze();
+    return new ArrayFlowScope(numbering, functionScope, this, chunks);
+  }
+
+  private void freeze() {
+    frozen = true;
+    ownsChunks = false;
+    ownedChunks = null;
+  }
+
+  /**
+   * Iterate through all the flow scopes before this one.
+   * If there's one and only one slot defined between this scope
+   * and the blind scope, return it.
+   */
+  @Override
+  public StaticTypedSlot<JSType> findUniqueRefinedSlot(FlowScope blindScope) {
+    StaticTypedSlot<JSType> result = null;
+
+    for (ArrayFlowScope currentScope = this;
+         currentScope != blindScope;
+         currentScope = currentScope.parent) {
+      if (currentScope.ownSlots == null) {
+        continue;
+      }
+      for (int i = currentScope.ownSlots.size() - 1; i >= 0; i--) {
+        SimpleSlot currentSlot = currentScope.ownSlots.get(i);
+        if (result == null) {
+          result = currentSlot;
+        } else if (!currentSlot.getName().equals(result.getName())) {
+          return null;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Look through the given scope, and try to find slots where it doesn't
+   * have enough type information. Then fill in that type information
+   * with stuff that we've inferred in the local flow.
+   */
+  @Override
+  public void completeScope(StaticTypedScope<JSType> staticScope) {
+    TypedScope scope = (TypedScope) staticScope;
+    for (TypedVar var : scope.getVarIterable()) {
+      if (var.isTypeInferred()) {
+        JSType type = var.getType();
+        if (type == null || type.isUnknownType()) {
+          JSType flowType = getSlot(var.getName()).getType();
+          var.setType(flowType);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the closest scope that this scope flows from without inferring
+   * anything, or this scope.
+   */
+  @Override
+  public ArrayFlowScope optimize() {
+    ArrayFlowScope current;
+    for (current = this;
+         current.parent != null && current.ownSlots == null;
+         current = current.parent) {}
+    return current;
+  }
+
+  /** Join the two FlowScopes. */
+  static class FlowScopeJoinOp extends JoinOp.BinaryJoinOp<FlowScope> {
+    @Override
+    public FlowScope apply(FlowScope a, FlowScope b) {
+      ArrayFlowScope scopeA = (ArrayFlowScope) a;
+      ArrayFlowScope scopeB = (ArrayFlowScope) b;
+      Preconditions.checkState(scopeA.numbering == scopeB.numbering,
+          "Joining flow scopes of different functions");
+      scopeA.freeze();
+      scopeB.freeze();
+      if (scopeA.optimize() == scopeB.optimize()) {
+        return scopeA.createChildFlowScope();
+      }
+      // Always prefer the "real" function scope to the faked-out
+      // bottom scope.
+      TypedScope functionScope = scopeA.flowsFromBottom()
+          ? scopeB.functionScope : scopeA.functionScope;
+      SimpleSlot[][] chunks =
+          new SimpleSlot[Math.max(scopeA.chunks.length, scopeB.chunks.length)][];
+      for (int i = 0; i < chunks.length; i++) {
+        SimpleSlot[] chunkA = i < scopeA.chunks.length ? scopeA.chunks[i] : null;
+        SimpleSlot[] chunkB = i < scopeB.chunks.length ? scopeB.chunks[i] : null;
+        if (chunkA == chunkB) {
+          chunks[i] = chunkA;
+        } else {
+          chunks[i] = joinChunks(scopeA, chunkA, scopeB, chunkB, i << CHUNK_BITS);
+        }
+      }
+      return new ArrayFlowScope(scopeA.numbering, functionScope, null, chunks);
+    }
+
+    private static SimpleSlot[] joinChunks(ArrayFlowScope scopeA, SimpleSlot[] chunkA,
+        ArrayFlowScope scopeB, SimpleSlot[] chunkB, int firstIndex) {
+      SimpleSlot[] chunk = new SimpleSlot[CHUNK_SIZE];
+      for (int j = 0; j < CHUNK_SIZE; j++) {
+        SimpleSlot slotA = chunkA == null ? null : chunkA[j];
+        SimpleSlot slotB = chunkB == null ? null : chunkB[j];
+        chunk[j] = slotA == slotB
+            ? slotA : joinSlots(scopeA, slotA, scopeB, slotB, firstIndex + j);
+      }
+      return chunk;
+    }
+
+    private static SimpleSlot joinSlots(ArrayFlowScope scopeA, SimpleSlot slotA,
+        ArrayFlowScope scopeB, SimpleSlot slotB, int index) {
+      // There are 5 different join cases:
+      // 1) The type is declared in scopeA, not in scopeB,
+      //    and not in functionScope. Just use the one in A.
+      // 2) The type is declared in scopeB, not in scopeA,
+      //    and not in functionScope. Just use the one in B.
+      // 3) The type is declared in functionScope and scopeA, but
+      //    not in scopeB. Join the two types.
+      // 4) The type is declared in functionScope and scopeB, but
+      //    not in scopeA. Join the two types.
+      // 5) The type is declared in scopeA and scopeB. Join
+      //    the two types.
+      String name = scopeA.numbering.getName(index);
+      JSType joinedType;
+      if (slotB == null || slotB.getType() == null) {
+        JSType fnSlotType = getFunctionScopeType(scopeB, name);
+        if (slotA == null || fnSlotType == null) {
+          // Case #1
+          return slotA;
+        }
+        // Case #3
+        joinedType = slotA.getType().getLeastSupertype(fnSlotType);
+      } else if (slotA == null || slotA.getType() == null) {
+        JSType fnSlotType = getFunctionScopeType(scopeA, name);
+        if (fnSlotType == null) {
+          // Case #2
+          return slotB;
+        }
+        // Case #4
+        joinedType = slotB.getType().getLeastSupertype(fnSlotType);
+      } else {
+        // Case #5
+        joinedType = slotA.getType().getLeastSupertype(slotB.getType());
+      }
+      return new SimpleSlot(name, joinedType, true);
+    }
+
+    private static JSType getFunctionScopeType(ArrayFlowScope scope, String name) {
+      StaticTypedSlot<JSType> fnSlot = scope.functionScope.getSlot(name);
+      return fnSlot == null ? null : fnSlot.getType();
+    }
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (other instanceof ArrayFlowScope) {
+      ArrayFlowScope that = (ArrayFlowScope) other;
+      if (this.optimize() == that.optimize()) {
+        return true;
+      }
+
+      // If two flow scopes are in the same function, then they could have
+      // two possible function scopes: the real one and the BOTTOM scope.
+      // If they have different function scopes, we *should* iterate through all
+      // the variables in each scope and compare. However, 99.9% of the time,
+      // they're not equal. And the other .1% of the time, we can pretend
+      // they're equal--this just means that data flow analysis will have
+      // to propagate the entry lattice a little bit further than it
+      // really needs to. Everything will still come out ok.
+      if (this.functionScope != that.functionScope) {
+        return false;
+      }
+
+      // Compare the slots that were inferred in either scope, skipping the
+      // chunks that the two scopes share.
+      int numChunks = Math.max(this.chunks.length, that.chunks.length);
+      for (int i = 0; i < numChunks; i++) {
+        SimpleSlot[] chunkA = i < this.chunks.length ? this.chunks[i] : null;
+        SimpleSlot[] chunkB = i < that.chunks.length ? that.chunks[i] : null;
+        if (chunkA == chunkB) {
+          continue;
+        }
+        for (int j = 0; j < CHUNK_SIZE; j++) {
+          SimpleSlot slotA = chunkA == null ? null : chunkA[j];
+          SimpleSlot slotB = chunkB == null ? null : chunkB[j];
+          if (slotA != slotB) {
+            String name = numbering.getName((i << CHUNK_BITS) + j);
+            if (diffSlots(getSlot(name), that.getSlot(name))) {
+              return false;
+            }
+          }
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Determines whether two slots are meaningfully different for the
+   * purposes of data flow analysis.
+   */
+  private static boolean diffSlots(StaticTypedSlot<JSType> slotA,
+                                   StaticTypedSlot<JSType> slotB) {
+    boolean aIsNull = slotA == null || slotA.getType() == null;
+    boolean bIsNull = slotB == null || slotB.getType() == null;
+    if (aIsNull && bIsNull) {
+      return false;
+    } else if (aIsNull ^ bIsNull) {
+      return true;
+    }
+
+    // Both slots and types must be non-null.
+    return slotA.getType().differsFrom(slotB.getType());
+  }
+
+  @Override
+  public int hashCode() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * The numbers of the variables of a function whose types were inferred,
+   * in the order in which they were first inferred.
+   */
+  private static class Numbering {
+    private final Map<String, Integer> numbers = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /** Returns the number of the variable, or -1 if it has none. */
+    int get(String name) {
+      Integer number = numbers.get(name);
+      return number == null ? -1 : number;
+    }
+
+    int getOrAdd(String name) {
+      Integer number = numbers.get(name);
+      if (number == null) {
+        number = names.size();
+        numbers.put(name, number);
+        names.add(name);
+      }
+      return number;
+    }
+
+    String getName(int number) {
+      return names.get(number);
+    }
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.javascript.jscomp.TypeSummaryCache.Entry;
+import com.google.javascript.jscomp.TypeSummaryCache.Warning;
+import com.google.javascript.rhino.Node;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Looks up, for the new type inference, which of the functions that it can
+ * skip belong to files that have not changed since they were analyzed with a
+ * {@link TypeSummaryCache}, and records the warnings of the other ones.
+ *
+ * <p>A file is only cached if it provides a namespace. Its fingerprint covers
+ * its code, the externs and all the other inputs. Not only the files it
+ * requires: the files that require it can add properties to its types, or
+ * subtypes of them, which changes what is reported in its functions, and so
+ * can the files that they require. In practice that is every input, so a
+ * change anywhere invalidates all the files.
+ *
+ * <p>After {@link #lookUp}, the instance is only read, so it can be shared by
+ * the threads that analyze functions, except for {@link #recordWarning}, which
+ * is called on a single thread, as the warnings are reported.
+ */
+@GwtIncompatible("com.google.common.hash")
+final class CachedTypeSummaries {
+
+  private final AbstractCompiler compiler;
+  private final TypeSummaryCache cache;
+  private final String settings;
+
+  private final Map<CompilerInput, String> hashOfInput = new HashMap<>();
+  private final Set<Node> unchangedRoots = new HashSet<>();
+  private final Multimap<Node, Warning> warningsOfScript = LinkedHashMultimap.create();
+  // The roots of the files that missed, and the fingerprints of these files
+  private final Set<Node> recordedRoots = new HashSet<>();
+  private final Map<Node, String> fingerprintOfScript = new LinkedHashMap<>();
+  private final Multimap<Node, Warning> recordedWarnings = LinkedHashMultimap.create();
+
+  /**
+   * @param settings The options that change what the analysis finds, which are
+   *     part of every fingerprint.
+   */
+  CachedTypeSummaries(AbstractCompiler compiler, TypeSummaryCache cache, String settings) {
+    this.compiler = compiler;
+    this.cache = cache;
+    this.settings = settings;
+  }
+
+  /**
+   * Looks up the files of the given function roots, which must be functions
+   * whose summaries are their declared types, and finds which are unchanged.
+   */
+  void lookUp(Node externs, List<Node> roots) {
+    Multimap<Node, Node> rootsOfScript = LinkedHashMultimap.create();
+    for (Node root : roots) {
+      Node script = NodeUtil.getEnclosingScript(root);
+      if (script != null && script.getInputId() != null) {
+        rootsOfScript.put(script, root);
+      }
+    }
+    if (rootsOfScript.isEmpty()) {
+      return;
+    }
+
+    List<String> hashesOfInputs = new ArrayList<>();
+    for (CompilerInput input : compiler.getInputsInOrder()) {
+      hashesOfInputs.add(getHash(input));
+    }
+    List<String> hashesOfExterns = new ArrayList<>();
+    collectHashesOfScripts(externs, hashesOfExterns);
+    if (hashesOfInputs.contains(null) || hashesOfExterns.contains(null)) {
+      return;
+    }
+
+    for (Node script : rootsOfScript.keySet()) {
+      CompilerInput input = compiler.getInput(script.getInputId());
+      if (input == null || input.getProvides().isEmpty()) {
+        continue;
+      }
+      Hasher hasher = Hashing.sha256().newHasher();
+      putString(hasher, Compiler.getReleaseVersion());
+      putString(hasher, settings);
+      putString(hasher, getHash(input));
+      for (List<String> hashes : ImmutableList.of(hashesOfExterns, hashesOfInputs)) {
+        hasher.putInt(hashes.size());
+        for (String hash : hashes) {
+          putString(hasher, hash);
+        }
+      }
+      String fingerprint = hasher.hash().toString();
+
+      Collection<Node> scriptRoots = rootsOfScript.get(script);
+      Entry entry = cache.lookup(fingerprint);
+      List<Warning> warnings = entry == null ? null : validate(script, scriptRoots, entry);
+      if (warnings != null) {
+        unchangedRoots.addAll(scriptRoots);
+        warningsOfScript.putAll(script, warnings);
+      } else {
+        recordedRoots.addAll(scriptRoots);
+        fingerprintOfScript.put(script, fingerprint);
+      }
+    }
+  }
+
+  /** Whether the function with the given root needs not be analyzed again. */
+  boolean isUnchanged(Node root) {
+    return unchangedRoots.contains(root);
+  }
+
+  /** Returns the warnings found in the function when it was last analyzed. */
+  List<JSError> getWarnings(Node root) {
+    List<JSError> warnings = new ArrayList<>();
+    Node script = NodeUtil.getEnclosingScript(root);
+    for (Warning warning : warningsOfScript.get(script)) {
+      Node n = getNode(script, warning.path);
+      if (isInside(n, root)) {
+        warnings.add(JSError.make(n, warning.level,
+            DiagnosticType.make(warning.key, warning.level, "{0}"), warning.description));
+      }
+    }
+    return warnings;
+  }
+
+  /**
+   * Keeps the given warning, found while analyzing the scope with the given
+   * root, if that scope is in a function of a changed file.
+   */
+  void recordWarning(Node scopeRoot, JSError warning) {
+    for (Node ancestor = scopeRoot; ancestor != null; ancestor = ancestor.getParent()) {
+      if (recordedRoots.contains(ancestor)) {
+        Node script = NodeUtil.getEnclosingScript(ancestor);
+        Node n = warning.node;
+        if (NodeUtil.getEnclosingScript(n) != script) {
+          // Can't be replayed, so don't store the file.
+          fingerprintOfScript.remove(script);
+          return;
+        }
+        recordedWarnings.put(script, new Warning(
+            warning.getType().key, warning.getDefaultLevel(), warning.description,
+            getPath(script, n), n.getLineno(), n.getCharno()));
+        return;
+      }
+    }
+  }
+
+  /** Stores the warnings of the changed files in the cache. */
+  void storeEntries() {
+    for (Map.Entry<Node, String> e : fingerprintOfScript.entrySet()) {
+      cache.store(e.getValue(),
+          new Entry(ImmutableList.copyOf(recordedWarnings.get(e.getKey()))));
+    }
+  }
+
+  /**
+   * Returns the warnings of the entry if all of them are at nodes of the
+   * given function roots, and null otherwise.
+   */
+  private static List<Warning> validate(Node script, Collection<Node> roots, Entry entry) {
+    for (Warning warning : entry.warnings) {
+      Node n = getNode(script, warning.path);
+      if (n == null || n.getLineno() != warning.lineno || n.getCharno() != warning.charno) {
+        return null;
+      }
+      boolean inRoot = false;
+      for (Node root : roots) {
+        if (isInside(n, root)) {
+          inRoot = true;
+          break;
+        }
+      }
+      if (!inRoot) {
+        return null;
+      }
+    }
+    return entry.warnings;
+  }
+
+  private static boolean isInside(Node n, Node root) {
+    for (Node ancestor = n; ancestor != null; ancestor = ancestor.getParent()) {
+      if (ancestor == root) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Node getNode(Node script, List<Integer> path) {
+    Node n = script;
+    for (int index : path) {
+      n = index < n.getChildCount() ? n.getChildAtIndex(index) : null;
+      if (n == null) {
+        return null;
+      }
+    }
+    return n;
+  }
+
+  private static ImmutableList<Integer> getPath(Node script, Node n) {
+    List<Integer> path = new ArrayList<>();
+    for (; n != script; n = n.getParent()) {
+      path.add(n.getParent().getIndexOfChild(n));
+    }
+    Collections.reverse(path);
+    return ImmutableList.copyOf(path);
+  }
+
+  private void collectHashesOfScripts(Node n, List<String> hashes) {
+    for (Node child : n.children()) {
+      if (child.isScript()) {
+        CompilerInput input =
+            child.getInputId() == null ? null : compiler.getInput(child.getInputId());
+        hashes.add(input == null ? null : getHash(input));
+      } else if (child.isBlock()) {
+        collectHashesOfScripts(child, hashes);
+      }
+    }
+  }
+
+  /** Returns the hash of the name and code of the input, or null if it can't be read. */
+  private String getHash(CompilerInput input) {
+    if (hashOfInput.containsKey(input)) {
+      return hashOfInput.get(input);
+    }
+    String hash = null;
+    try {
+      SourceFile file = input.getSourceFile();
+      if (file != null) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        putString(hasher, file.getName());
+        putString(hasher, file.getCode());
+        hash = hasher.hash().toString();
+      }
+    } catch (IOException e) {
+      // Not cached
+    }
+    hashOfInput.put(input, hash);
+    return hash;
+  }
+
+  private static void putString(Hasher hasher, String s) {
+    hasher.putInt(s.length()).putString(s, UTF_8);
+  }
+}
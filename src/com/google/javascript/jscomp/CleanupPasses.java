@@ -53,6 +53,11 @@ class CleanupPasses extends PassConfig {
     return state;
   }
 
+  @Override
+  protected void setIntermediateState(State state) {
+    this.state = state;
+  }
+
   @Override
   protected List<PassFactory> getOptimizations() {
     return ImmutableList.of();
@@ -357,7 +357,7 @@ final class ClosureRewriteModule implements HotSwapCompilerPass {
       }
 
       if (n.getJSDocInfo() != null) {
-        rewriteJsdoc(n.getJSDocInfo());
+        rewriteJsdoc(n.getMutableJSDocInfo());
       }
 
       return true;
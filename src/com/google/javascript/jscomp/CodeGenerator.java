@@ -49,7 +49,7 @@ public class CodeGenerator {
   private final boolean outputAsExterns;
   private final boolean useOriginalName;
 
-  private CodeGenerator(CodeConsumer consumer) {
+  CodeGenerator(CodeConsumer consumer) {
     cc = consumer;
     outputCharsetEncoder = null;
     preferSingleQuotes = false;
@@ -25,6 +25,7 @@ import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import com.google.javascript.rhino.TypeIRegistry;
 
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
@@ -43,12 +44,26 @@ public final class CodePrinter {
   // potentially has a very different implementation to the pretty
   // version.
 
+  // The number of characters of code that are buffered before completed lines
+  // are written to the output, when printing to an Appendable.
+  private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+  /** Carries an IOException of the output through the code generator. */
+  private static final class OutputException extends RuntimeException {
+    OutputException(IOException cause) {
+      super(cause);
+    }
+  }
+
   private abstract static class MappedCodePrinter extends CodeConsumer {
     private final Deque<Mapping> mappings;
     private final List<Mapping> allMappings;
     private final boolean createSrcMap;
     private final SourceMap.DetailLevel sourceMapDetailLevel;
     protected final StringBuilder code = new StringBuilder(1024);
+    // Where completed lines of code are written once enough of them have
+    // been buffered, or null to keep all the code in the buffer.
+    private Appendable out;
     protected final int lineLengthThreshold;
     protected int lineLength = 0;
     protected int lineIndex = 0;
@@ -201,6 +216,41 @@ public final class CodePrinter {
       return code.toString();
     }
 
+    void setOutput(Appendable out) {
+      this.out = out;
+    }
+
+    /**
+     * Writes the buffered code before the given position to the output, if
+     * there is an output and more than {@link #FLUSH_THRESHOLD} characters
+     * are buffered. The code that has been written is removed from the
+     * buffer, so positions in the buffer must be adjusted by the returned
+     * number of characters.
+     */
+    final int maybeFlush(int position) {
+      if (out == null || code.length() < FLUSH_THRESHOLD) {
+        return 0;
+      }
+      // Keep the last character, for getLastChar.
+      int length = Math.min(position, code.length() - 1);
+      if (length <= 0) {
+        return 0;
+      }
+      try {
+        out.append(code, 0, length);
+      } catch (IOException e) {
+        throw new OutputException(e);
+      }
+      code.delete(0, length);
+      return length;
+    }
+
+    /** Writes all the buffered code to the output. */
+    void flush() throws IOException {
+      out.append(code);
+      code.setLength(0);
+    }
+
     @Override
     char getLastChar() {
       return (code.length() > 0) ? code.charAt(code.length() - 1) : '\0';
@@ -268,6 +318,7 @@ public final class CodePrinter {
         code.append('\n');
         lineIndex++;
         lineLength = 0;
+        maybeFlush(code.length());
       }
     }
 
@@ -477,6 +528,23 @@ public final class CodePrinter {
         lineLength = 0;
         lineIndex++;
         lineStartPosition = code.length();
+        flushCompletedLines();
+      }
+    }
+
+    /**
+     * Writes out the lines before the previous one. The previous line is
+     * kept, since endFile may undo the line break at its end.
+     */
+    private void flushCompletedLines() {
+      int flushed = maybeFlush(prevCutPosition > 0 ? prevLineStartPosition : lineStartPosition);
+      if (flushed > 0) {
+        lineStartPosition -= flushed;
+        preferredBreakPosition -= flushed;
+        if (prevCutPosition > 0) {
+          prevCutPosition -= flushed;
+          prevLineStartPosition -= flushed;
+        }
       }
     }
 
@@ -519,6 +587,7 @@ public final class CodePrinter {
           lineIndex++;
           lineLength -= (position - lineStartPosition);
           lineStartPosition = position + 1;
+          flushCompletedLines();
         } else {
           startNewLine();
         }
@@ -665,13 +734,36 @@ public final class CodePrinter {
      * Generates the source code and returns it.
      */
     public String build() {
+      MappedCodePrinter mcp = print(null);
+      return mcp.getCode();
+    }
+
+    /**
+     * Generates the source code and writes it to the given output as it
+     * goes, so that the whole of it is never held in memory.
+     *
+     * <p>The mappings of the source map, if any, are still all kept in
+     * memory until the map is written. The mappings of a line can only be
+     * encoded once all the mappings that enclose it have ended, which for
+     * the mapping of a script is at its end.
+     */
+    public void build(Appendable out) throws IOException {
+      Preconditions.checkNotNull(out);
+      try {
+        print(out).flush();
+      } catch (OutputException e) {
+        throw (IOException) e.getCause();
+      }
+    }
+
+    private MappedCodePrinter print(Appendable out) {
       if (root == null) {
         throw new IllegalStateException(
             "Cannot build without root node being specified");
       }
 
       return toSource(root, Format.fromOptions(options, outputTypes, prettyPrint), options,
-          sourceMap, tagAsStrict, lineBreak, codeGeneratorFactory);
+          sourceMap, tagAsStrict, lineBreak, codeGeneratorFactory, out);
     }
   }
 
@@ -695,11 +787,12 @@ public final class CodePrinter {
   }
 
   /**
-   * Converts a tree to JS code
+   * Converts a tree to JS code. The code is left in the returned printer,
+   * except for the parts that have already been written to {@code out}.
    */
-  private static String toSource(Node root, Format outputFormat,
+  private static MappedCodePrinter toSource(Node root, Format outputFormat,
       CompilerOptions options, SourceMap sourceMap, boolean tagAsStrict, boolean lineBreak,
-      CodeGeneratorFactory codeGeneratorFactory) {
+      CodeGeneratorFactory codeGeneratorFactory, Appendable out) {
     Preconditions.checkState(options.sourceMapDetailLevel != null);
 
     boolean createSourceMap = (sourceMap != null);
@@ -715,6 +808,7 @@ public final class CodePrinter {
             options.lineLengthThreshold,
             createSourceMap,
             options.sourceMapDetailLevel);
+    mcp.setOutput(out);
     CodeGenerator cg = codeGeneratorFactory.getCodeGenerator(outputFormat, mcp);
 
     cg.maybeTagAsExterns();
@@ -725,12 +819,10 @@ public final class CodePrinter {
     cg.add(root);
     mcp.endFile();
 
-    String code = mcp.getCode();
-
     if (createSourceMap) {
       mcp.generateSourceMap(sourceMap);
     }
 
-    return code;
+    return mcp;
   }
 }
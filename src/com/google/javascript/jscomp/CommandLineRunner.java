@@ -570,10 +570,23 @@ public class CommandLineRunner extends
     @Option(name = "--tracer_mode",
         hidden = true,
         usage = "Shows the duration of each compiler pass and the impact to " +
-        "the compiled output size. Options: ALL, RAW_SIZE, TIMING_ONLY, OFF")
+        "the compiled output size. Options: ALL, RAW_SIZE, TIMING_ONLY, LIGHTWEIGHT, OFF")
     private CompilerOptions.TracerMode tracerMode =
         CompilerOptions.TracerMode.OFF;
 
+    @Option(name = "--tracer_report_format",
+        hidden = true,
+        usage = "The format of the report of --tracer_mode. Options: TEXT, "
+        + "JSON, CHROME_TRACE (a timeline for chrome://tracing)")
+    private CompilerOptions.TracerReportFormat tracerReportFormat =
+        CompilerOptions.TracerReportFormat.TEXT;
+
+    @Option(name = "--tracer_report_file",
+        hidden = true,
+        usage = "The file where the report of --tracer_mode is written. "
+        + "By default, it is written to the error stream")
+    private String tracerReportFile = null;
+
     @Option(name = "--new_type_inf",
         handler = BooleanOptionHandler.class,
         usage = "Checks for type errors using the new type inference algorithm.")
@@ -600,6 +613,53 @@ public class CommandLineRunner extends
             usage = "A file containing an instrumentation template.")
     private String instrumentationFile = "";
 
+    @Option(name = "--parse_cache_dir",
+        hidden = true,
+        usage = "A directory in which to keep the parse results of input files "
+            + "between runs. Files that have not changed since an earlier run "
+            + "are read from the cache rather than parsed again.")
+    private String parseCacheDir = "";
+
+    @Option(name = "--type_summary_cache_dir",
+        hidden = true,
+        usage = "A directory in which the new type inference keeps the "
+            + "warnings of the functions of input files between runs. The "
+            + "declared functions of the files are not analyzed again when "
+            + "no input has changed since an earlier run.")
+    private String typeSummaryCacheDir = "";
+
+    @Option(name = "--num_parallel_parse_threads",
+        hidden = true,
+        usage = "The number of threads used to parse the input files.")
+    private int numParallelParseThreads = 1;
+
+    @Option(name = "--num_parallel_optimization_threads",
+        hidden = true,
+        usage = "The number of threads used by the optimization passes that "
+            + "process one function at a time.")
+    private int numParallelOptimizationThreads = 1;
+
+    @Option(name = "--num_parallel_type_inference_threads",
+        hidden = true,
+        usage = "The number of threads used by the new type inference to "
+            + "analyze functions.")
+    private int numParallelTypeInferenceThreads = 1;
+
+    @Option(name = "--num_parallel_output_threads",
+        hidden = true,
+        usage = "The number of threads used to print the modules when each "
+            + "module is written to its own file.")
+    private int numParallelOutputThreads = 1;
+
+    @Option(name = "--daemon",
+        hidden = true,
+        handler = BooleanOptionHandler.class,
+        usage = "Runs a long-lived compile server instead of compiling. The server "
+            + "reads one compilation per line of standard input, given as a JSON "
+            + "array of flags, and writes one JSON result per line to standard "
+            + "output. Externs and parse results are kept between compilations.")
+    private boolean daemon = false;
+
     @Option(
       name = "--json_streams",
       hidden = true,
@@ -1433,7 +1493,15 @@ public class CommandLineRunner extends
           .setHideWarningsFor(flags.hideWarningsFor)
           .setAngularPass(flags.angularPass)
           .setTracerMode(flags.tracerMode)
+          .setTracerReportFormat(flags.tracerReportFormat)
+          .setTracerReportPath(flags.tracerReportFile)
           .setInstrumentationTemplateFile(flags.instrumentationFile)
+          .setParseCacheDir(flags.parseCacheDir)
+          .setTypeSummaryCacheDir(flags.typeSummaryCacheDir)
+          .setNumParallelParseThreads(flags.numParallelParseThreads)
+          .setNumParallelOptimizationThreads(flags.numParallelOptimizationThreads)
+          .setNumParallelTypeInferenceThreads(flags.numParallelTypeInferenceThreads)
+          .setNumParallelOutputThreads(flags.numParallelOutputThreads)
           .setNewTypeInference(flags.useNewTypeInference)
           .setJsonStreamMode(flags.jsonStreamMode);
     }
@@ -1617,12 +1685,21 @@ public class CommandLineRunner extends
     if (isInTestMode()) {
       return externs;
     } else {
-      List<SourceFile> builtinExterns = getBuiltinExterns(options.getEnvironment());
+      List<SourceFile> builtinExterns = createBuiltinExterns(options.getEnvironment());
       builtinExterns.addAll(externs);
       return builtinExterns;
     }
   }
 
+  /**
+   * Returns a mutable list of the externs that are built into the compiler
+   * for the given environment.
+   */
+  protected List<SourceFile> createBuiltinExterns(CompilerOptions.Environment env)
+      throws IOException {
+    return getBuiltinExterns(env);
+  }
+
   private ImmutableList<ConformanceConfig> loadConformanceConfigs(List<String> configPaths) {
     ImmutableList.Builder<ConformanceConfig> configs =
         ImmutableList.builder();
@@ -1769,12 +1846,34 @@ public class CommandLineRunner extends
     return this.errors;
   }
 
+  /**
+   * Runs a compile server on the standard input and output until the input
+   * ends.
+   *
+   * @return The exit status: 0 once the input has ended, or -2 if reading or
+   *     writing failed.
+   */
+  private int serve() {
+    try {
+      new CompileServer().serve(System.in, System.out);
+      return 0;
+    } catch (IOException e) {
+      getErrorPrintStream().println("ERROR - Compile server failed: " + e.getMessage());
+      return -2;
+    }
+  }
+
   /**
    * Runs the Compiler. Exits cleanly in the event of an error.
    */
   public static void main(String[] args) {
     CommandLineRunner runner = new CommandLineRunner(args);
-    if (runner.shouldRunCompiler()) {
+    if (runner.shouldRunCompiler() && runner.flags.daemon) {
+      int result = runner.serve();
+      if (result != 0) {
+        System.exit(result);
+      }
+    } else if (runner.shouldRunCompiler()) {
       runner.run();
     }
     if (runner.hasErrors()) {
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs compilations one after the other in a single long-lived process, so
+ * that builds which compile often do not pay for starting a JVM, loading
+ * the builtin externs and warming up the JIT every time. Started with the
+ * {@code --daemon} flag of {@link CommandLineRunner}.
+ *
+ * <p>Each line of the input is one compilation, given as a JSON array of
+ * the command line flags, for example
+ * {@code ["--js", "a.js", "--js_output_file", "a.min.js"]}. For each
+ * compilation one line is written to the output, with a JSON object of the
+ * exit status and what the compilation wrote to standard output and error:
+ * {@code {"exitCode":0,"out":"","err":""}}. The server stops at the end of
+ * its input.
+ *
+ * <p>The builtin externs are loaded once per environment, and the parses of
+ * the externs and of input files that have not changed are kept in a
+ * {@link MemoryParseCache}, unless the compilation asks for a
+ * {@code --parse_cache_dir}.
+ */
+@GwtIncompatible("java.io")
+final class CompileServer {
+
+  private final Gson gson = new Gson();
+  private final ParseCache parseCache = new MemoryParseCache();
+  private final Map<CompilerOptions.Environment, List<SourceFile>> builtinExterns =
+      new EnumMap<>(CompilerOptions.Environment.class);
+
+  /** The result of one compilation. */
+  static final class Response {
+    final int exitCode;
+    final String out;
+    final String err;
+
+    Response(int exitCode, String out, String err) {
+      this.exitCode = exitCode;
+      this.out = out;
+      this.err = err;
+    }
+  }
+
+  /**
+   * Runs the compilations read from the input until it ends.
+   */
+  void serve(InputStream in, OutputStream out) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+    Writer writer = new OutputStreamWriter(out, UTF_8);
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      Response response;
+      try {
+        response = compile(gson.fromJson(line, String[].class));
+      } catch (JsonParseException e) {
+        response = new Response(-1, "", "ERROR - Expected a JSON array of flags: " + line + "\n");
+      }
+      writer.write(gson.toJson(response));
+      writer.write('\n');
+      writer.flush();
+    }
+  }
+
+  /**
+   * Runs one compilation with the given command line flags.
+   */
+  Response compile(String[] args) {
+    ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+    ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+    int exitCode;
+    try (PrintStream out = new PrintStream(outBytes, true, UTF_8.name());
+        PrintStream err = new PrintStream(errBytes, true, UTF_8.name())) {
+      Runner runner = new Runner(args, out, err);
+      if (runner.shouldRunCompiler()) {
+        exitCode = runner.runOnce();
+      } else {
+        exitCode = runner.hasErrors() ? -1 : 0;
+      }
+    } catch (UnsupportedEncodingException e) {
+      throw new AssertionError(e);
+    }
+    return new Response(exitCode, new String(outBytes.toByteArray(), UTF_8),
+        new String(errBytes.toByteArray(), UTF_8));
+  }
+
+  private synchronized List<SourceFile> getBuiltinExterns(CompilerOptions.Environment env)
+      throws IOException {
+    List<SourceFile> externs = builtinExterns.get(env);
+    if (externs == null) {
+      externs = AbstractCommandLineRunner.getBuiltinExterns(env);
+      builtinExterns.put(env, externs);
+    }
+    return new ArrayList<>(externs);
+  }
+
+  /**
+   * A command line runner that shares the state of the server, and reports
+   * its exit status instead of exiting.
+   */
+  private final class Runner extends CommandLineRunner {
+    Runner(String[] args, PrintStream out, PrintStream err) {
+      super(args, new ByteArrayInputStream(new byte[0]), out, err);
+    }
+
+    int runOnce() {
+      try {
+        return doRun();
+      } catch (AbstractCommandLineRunner.FlagUsageException e) {
+        getErrorPrintStream().println(e.getMessage());
+        return -1;
+      } catch (Throwable t) {
+        t.printStackTrace(getErrorPrintStream());
+        return -2;
+      }
+    }
+
+    @Override
+    protected CompilerOptions createOptions() {
+      CompilerOptions options = super.createOptions();
+      // A --parse_cache_dir replaces this cache when the flags are applied.
+      options.setParseCache(parseCache);
+      return options;
+    }
+
+    @Override
+    protected List<SourceFile> createBuiltinExterns(CompilerOptions.Environment env)
+        throws IOException {
+      return getBuiltinExterns(env);
+    }
+  }
+}
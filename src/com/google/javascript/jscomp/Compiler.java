@@ -25,6 +25,7 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.javascript.jscomp.CompilerOptions.DevMode;
 import com.google.javascript.jscomp.ReferenceCollectingCallback.ReferenceCollection;
@@ -48,13 +49,21 @@ import com.google.javascript.rhino.TypeIRegistry;
 import com.google.javascript.rhino.jstype.JSTypeRegistry;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.nio.file.FileSystems;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -65,6 +74,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 
+import javax.annotation.Nullable;
+
 /**
  * Compiler (and the other classes in this package) does the following:
  * <ul>
@@ -485,11 +496,17 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
   private void initBasedOnOptions() {
     // Create the source map if necessary.
     if (options.sourceMapOutputPath != null) {
-      sourceMap = options.sourceMapFormat.getInstance();
-      sourceMap.setPrefixMappings(options.sourceMapLocationMappings);
+      sourceMap = createSourceMap();
     }
   }
 
+  /** Creates an empty source map in the format of the compiler options. */
+  SourceMap createSourceMap() {
+    SourceMap map = options.sourceMapFormat.getInstance();
+    map.setPrefixMappings(options.sourceMapLocationMappings);
+    return map;
+  }
+
   private <T extends SourceFile> List<CompilerInput> makeCompilerInput(
       List<T> files, boolean isExtern) {
     List<CompilerInput> inputs = new ArrayList<>(files.size());
@@ -714,7 +731,8 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
    * stack.
    */
   <T> T runInCompilerThread(Callable<T> callable) {
-    return compilerExecutor.runInCompilerThread(callable, options != null && options.tracer.isOn());
+    return compilerExecutor.runInCompilerThread(
+        callable, options != null && options.tracer.logsThreadTrace());
   }
 
   private void compileInternal() {
@@ -749,6 +767,10 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
       }
     }
 
+    finishCompile();
+  }
+
+  private void finishCompile() {
     if (options.recordFunctionInformation) {
       recordFunctionInformation();
     }
@@ -759,8 +781,49 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
     setProgress(1.0, "recordFunctionInformation");
 
     if (tracker != null) {
-      tracker.outputTracerReport();
+      tracker.outputTracerReport(options.tracerReportFormat, options.tracerReportPath);
+    }
+  }
+
+  /**
+   * Parses the inputs and runs the checks that do not depend on the
+   * configuration, for {@link MultiConfigurationCompiler}. The rest of the
+   * compilation is run by {@link #compileConfiguration} on compilers that
+   * restore the state of this one.
+   */
+  void compileFrontEnd() {
+    Preconditions.checkState(!options.skipNonTranspilationPasses);
+    setProgress(0.0, null);
+    CompilerOptionsPreprocessor.preprocess(options);
+    parse();
+    setProgress(0.15, "parse");
+    if (hasErrors() || !precheck()) {
+      return;
+    }
+
+    runCustomPasses(CustomPassExecutionTime.BEFORE_CHECKS);
+    List<PassFactory> checks = getPassConfig().getChecks();
+    int numConfigurationChecks = getPassConfig().getConfigurationChecks().size();
+    runChecks(checks.subList(0, checks.size() - numConfigurationChecks));
+    phaseOptimizer = null;
+  }
+
+  /**
+   * Runs the checks that depend on the configuration and the optimizations,
+   * on the state restored from a compiler that ran {@link #compileFrontEnd}.
+   */
+  void compileConfiguration() {
+    runChecks(getPassConfig().getConfigurationChecks());
+    if (hasErrors()) {
+      return;
     }
+    finishChecks();
+
+    if (!options.checksOnly && !options.shouldGenerateTypedExterns()) {
+      optimize();
+    }
+
+    finishCompile();
   }
 
   public void parse() {
@@ -832,7 +895,14 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
 
   public void check() {
     runCustomPasses(CustomPassExecutionTime.BEFORE_CHECKS);
+    runChecks(getPassConfig().getChecks());
+    if (hasErrors()) {
+      return;
+    }
+    finishChecks();
+  }
 
+  private void runChecks(List<PassFactory> checks) {
     // We are currently only interested in check-passes for progress reporting
     // as it is used for IDEs, that's why the maximum progress is set to 1.0.
     phaseOptimizer = new PhaseOptimizer(this, tracker,
@@ -843,12 +913,11 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
     if (options.getCheckDeterminism()) {
       phaseOptimizer.setPrintAstHashcodes(true);
     }
-    phaseOptimizer.consume(getPassConfig().getChecks());
+    phaseOptimizer.consume(checks);
     phaseOptimizer.process(externsRoot, jsRoot);
-    if (hasErrors()) {
-      return;
-    }
+  }
 
+  private void finishChecks() {
     if (options.getTweakProcessing().shouldStrip() ||
         !options.stripTypes.isEmpty() ||
         !options.stripNameSuffixes.isEmpty() ||
@@ -1403,6 +1472,10 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
     beforePass(PARSING_PASS_NAME);
 
     try {
+      if (options.getNumParallelParseThreads() > 1) {
+        preParseInParallel(options.getNumParallelParseThreads());
+      }
+
       // Parse externs sources.
       for (CompilerInput input : externs) {
         Node n = input.getAstRoot(this);
@@ -1508,6 +1581,35 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
     }
   }
 
+  /**
+   * Runs the parser over all externs and inputs concurrently. Only the
+   * parsing itself happens off the compiler thread: each tree is installed,
+   * and its diagnostics reported, when the loops in {@link #parseInputs} ask
+   * for it, so inputs are still processed in order and the result matches a
+   * sequential parse.
+   */
+  private void preParseInParallel(int numThreads) {
+    final Config externsConfig = getParserConfig(ConfigContext.EXTERNS);
+    final Config config = getParserConfig(ConfigContext.DEFAULT);
+    final ParseCache cache = options.getParseCache();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (CompilerInput input : Iterables.concat(externs, inputs)) {
+      if (!(input.getSourceAst() instanceof JsAst)) {
+        continue;
+      }
+      final JsAst ast = (JsAst) input.getSourceAst();
+      final boolean isExtern = ast.getSourceFile().isExtern();
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          ast.preParse(isExtern ? externsConfig : config, cache);
+          return null;
+        }
+      });
+    }
+    compilerExecutor.runInParallel(tasks, numThreads);
+  }
+
   void orderInputsWithLargeStack() {
     runInCompilerThread(new Callable<Void>() {
       @Override
@@ -1755,6 +1857,36 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
     });
   }
 
+  /**
+   * Converts the main parse tree back to JS code, writing it to the given
+   * output as it is generated instead of returning it as one string. The
+   * source map, if any, still keeps all its mappings in memory until it is
+   * written (see {@link CodePrinter.Builder#build(Appendable)}).
+   */
+  public void toSource(Appendable out) throws IOException {
+    final CodeBuilder cb = new CodeBuilder(out);
+    runInCompilerThread(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        Tracer tracer = newTracer("toSource");
+        try {
+          if (jsRoot != null) {
+            int i = 0;
+            for (Node scriptNode = jsRoot.getFirstChild();
+                 scriptNode != null;
+                 scriptNode = scriptNode.getNext()) {
+              toSource(cb, i++, scriptNode);
+            }
+          }
+          return null;
+        } finally {
+          stopTracer(tracer, "toSource");
+        }
+      }
+    });
+    cb.flush();
+  }
+
   /**
    * Converts the parse tree for each input back to JS code.
    */
@@ -1808,6 +1940,32 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
   }
 
 
+  /**
+   * Converts the parse tree for a module back to JS code, writing it to the
+   * given output as it is generated instead of returning it as one string.
+   * As with {@link #toSource(Appendable)}, the mappings of the source map
+   * are kept in memory.
+   */
+  public void toSource(Appendable out, final JSModule module) throws IOException {
+    final CodeBuilder cb = new CodeBuilder(out);
+    runInCompilerThread(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        List<CompilerInput> inputs = module.getInputs();
+        for (int i = 0; i < inputs.size(); i++) {
+          Node scriptNode = inputs.get(i).getAstRoot(Compiler.this);
+          if (scriptNode == null) {
+            throw new IllegalArgumentException(
+                "Bad module: " + module.getName());
+          }
+          toSource(cb, i, scriptNode);
+        }
+        return null;
+      }
+    });
+    cb.flush();
+  }
+
   /**
    * Converts the parse tree for each input in a module back to JS code.
    */
@@ -1852,64 +2010,112 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
     runInCompilerThread(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
-        if (options.printInputDelimiter) {
-          if ((cb.getLength() > 0) && !cb.endsWith("\n")) {
-            cb.append("\n");  // Make sure that the label starts on a new line
-          }
-          Preconditions.checkState(root.isScript());
+        toSource(cb, inputSeqNum, root, sourceMap);
+        return null;
+      }
+    });
+  }
 
-          String delimiter = options.inputDelimiter;
+  /**
+   * Converts the parse trees of several modules back to JS code, printing up
+   * to {@code numThreads} of them at the same time.
+   *
+   * @param sourceMaps The source maps in which to record the mappings of
+   *     each module, or null if no source maps are generated.
+   * @return The code of each module, in the order of the modules.
+   */
+  public List<String> toSourceInParallel(final List<JSModule> modules,
+      @Nullable final List<SourceMap> sourceMaps, final int numThreads) {
+    Preconditions.checkArgument(sourceMaps == null || sourceMaps.size() == modules.size());
+    return runInCompilerThread(new Callable<List<String>>() {
+      @Override
+      public List<String> call() throws Exception {
+        List<Callable<String>> tasks = new ArrayList<>(modules.size());
+        for (int i = 0; i < modules.size(); i++) {
+          final JSModule module = modules.get(i);
+          final SourceMap moduleSourceMap = sourceMaps == null ? null : sourceMaps.get(i);
+          tasks.add(new Callable<String>() {
+            @Override
+            public String call() {
+              CodeBuilder cb = new CodeBuilder();
+              List<CompilerInput> inputs = module.getInputs();
+              for (int j = 0; j < inputs.size(); j++) {
+                Node scriptNode = inputs.get(j).getAstRoot(Compiler.this);
+                if (scriptNode == null) {
+                  throw new IllegalArgumentException(
+                      "Bad module: " + module.getName());
+                }
+                toSource(cb, j, scriptNode, moduleSourceMap);
+              }
+              return cb.toString();
+            }
+          });
+        }
+        return compilerExecutor.runInParallel(tasks, numThreads);
+      }
+    });
+  }
 
-          String inputName = root.getInputId().getIdName();
-          String sourceName = root.getSourceFileName();
-          Preconditions.checkState(sourceName != null);
-          Preconditions.checkState(!sourceName.isEmpty());
+  /**
+   * Writes out JS code from a root node, recording its mappings in the given
+   * source map, if any. See {@link #toSource(CodeBuilder, int, Node)}.
+   */
+  private void toSource(
+      CodeBuilder cb, int inputSeqNum, Node root, @Nullable SourceMap sourceMap) {
+    if (options.printInputDelimiter) {
+      if ((cb.getLength() > 0) && !cb.endsWith("\n")) {
+        cb.append("\n");  // Make sure that the label starts on a new line
+      }
+      Preconditions.checkState(root.isScript());
 
-          delimiter = delimiter
-              .replaceAll("%name%", Matcher.quoteReplacement(inputName))
-              .replaceAll("%num%", String.valueOf(inputSeqNum));
+      String delimiter = options.inputDelimiter;
 
-          cb.append(delimiter)
-            .append("\n");
-        }
-        if (root.getJSDocInfo() != null) {
-          String license = root.getJSDocInfo().getLicense();
-          if (license != null && cb.addLicense(license)) {
-            cb.append("/*\n")
-              .append(license)
-              .append("*/\n");
-          }
-        }
+      String inputName = root.getInputId().getIdName();
+      String sourceName = root.getSourceFileName();
+      Preconditions.checkState(sourceName != null);
+      Preconditions.checkState(!sourceName.isEmpty());
 
-        // If there is a valid source map, then indicate to it that the current
-        // root node's mappings are offset by the given string builder buffer.
-        if (options.sourceMapOutputPath != null) {
-          sourceMap.setStartingPosition(
-              cb.getLineIndex(), cb.getColumnIndex());
-        }
+      delimiter = delimiter
+          .replaceAll("%name%", Matcher.quoteReplacement(inputName))
+          .replaceAll("%num%", String.valueOf(inputSeqNum));
 
-        // if LanguageMode is strict, only print 'use strict'
-        // for the first input file
-        String code = toSource(root, sourceMap, inputSeqNum == 0);
-        if (!code.isEmpty()) {
-          cb.append(code);
-
-          // In order to avoid parse ambiguity when files are concatenated
-          // together, all files should end in a semi-colon. Do a quick
-          // heuristic check if there's an obvious semi-colon already there.
-          int length = code.length();
-          char lastChar = code.charAt(length - 1);
-          char secondLastChar = length >= 2 ?
-              code.charAt(length - 2) : '\0';
-          boolean hasSemiColon = lastChar == ';' ||
-              (lastChar == '\n' && secondLastChar == ';');
-          if (!hasSemiColon) {
-            cb.append(";");
-          }
-        }
-        return null;
+      cb.append(delimiter)
+        .append("\n");
+    }
+    if (root.getJSDocInfo() != null) {
+      String license = root.getJSDocInfo().getLicense();
+      if (license != null && cb.addLicense(license)) {
+        cb.append("/*\n")
+          .append(license)
+          .append("*/\n");
       }
-    });
+    }
+
+    // If there is a valid source map, then indicate to it that the current
+    // root node's mappings are offset by the given string builder buffer.
+    if (options.sourceMapOutputPath != null && sourceMap != null) {
+      sourceMap.setStartingPosition(
+          cb.getLineIndex(), cb.getColumnIndex());
+    }
+
+    // if LanguageMode is strict, only print 'use strict'
+    // for the first input file
+    int start = cb.getLength();
+    toSource(cb, root, sourceMap, inputSeqNum == 0);
+    int length = cb.getLength() - start;
+    if (length > 0) {
+      // In order to avoid parse ambiguity when files are concatenated
+      // together, all files should end in a semi-colon. Do a quick
+      // heuristic check if there's an obvious semi-colon already there.
+      char lastChar = cb.getCharFromEnd(0);
+      char secondLastChar = length >= 2 ?
+          cb.getCharFromEnd(1) : '\0';
+      boolean hasSemiColon = lastChar == ';' ||
+          (lastChar == '\n' && secondLastChar == ';');
+      if (!hasSemiColon) {
+        cb.append(";");
+      }
+    }
   }
 
   /**
@@ -1926,32 +2132,90 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
    * Generates JavaScript source code for an AST.
    */
   private String toSource(Node n, SourceMap sourceMap, boolean firstOutput) {
+    return createCodePrinter(n, sourceMap, firstOutput).build();
+  }
+
+  /**
+   * Generates JavaScript source code for an AST, appending it to the code
+   * builder as it goes.
+   */
+  private void toSource(CodeBuilder cb, Node n, SourceMap sourceMap, boolean firstOutput) {
+    try {
+      createCodePrinter(n, sourceMap, firstOutput).build(cb);
+    } catch (IOException e) {
+      // A CodeBuilder records the errors of its output instead of throwing.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private CodePrinter.Builder createCodePrinter(
+      Node n, SourceMap sourceMap, boolean firstOutput) {
     CodePrinter.Builder builder = new CodePrinter.Builder(n);
     builder.setTypeRegistry(this.typeRegistry);
     builder.setCompilerOptions(options);
     builder.setSourceMap(sourceMap);
     builder.setTagAsStrict(firstOutput && options.getLanguageOut().isStrict());
-    return builder.build();
+    return builder;
   }
 
   /**
    * Stores a buffer of text to which more can be appended.  This is just like a
    * StringBuilder except that we also track the number of lines.
+   *
+   * <p>A code builder that is created with an output only buffers the end of
+   * the text, and writes the rest to the output. Errors of the output are
+   * thrown by {@link #flush}.
    */
-  public static class CodeBuilder {
+  public static class CodeBuilder implements Appendable {
+    // The number of buffered characters after which the text is written to
+    // the output, and how many of the last characters stay in the buffer.
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+    private static final int KEPT_CHARS = 16;
+
     private final StringBuilder sb = new StringBuilder();
+    private final Appendable out;
+    private int flushedLength = 0;
+    private IOException outputError = null;
     private int lineCount = 0;
     private int colCount = 0;
     private final Set<String> uniqueLicenses = new HashSet<>();
 
+    public CodeBuilder() {
+      this.out = null;
+    }
+
+    /** Creates a code builder that writes its text to the given output. */
+    public CodeBuilder(Appendable out) {
+      this.out = Preconditions.checkNotNull(out);
+    }
+
     /** Removes all text, but leaves the line count unchanged. */
     void reset() {
+      Preconditions.checkState(out == null, "Cannot reset a code builder with an output");
       sb.setLength(0);
     }
 
+    @Override
+    public CodeBuilder append(CharSequence csq) {
+      return append(String.valueOf(csq));
+    }
+
+    @Override
+    public CodeBuilder append(CharSequence csq, int start, int end) {
+      return append(csq.subSequence(start, end).toString());
+    }
+
+    @Override
+    public CodeBuilder append(char c) {
+      return append(String.valueOf(c));
+    }
+
     /** Appends the given string to the text buffer. */
     CodeBuilder append(String str) {
       sb.append(str);
+      if (out != null && sb.length() >= FLUSH_THRESHOLD) {
+        write(sb.length() - KEPT_CHARS);
+      }
 
       // Adjust the line and column information for the new text.
       int index = -1;
@@ -1971,15 +2235,50 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
       return this;
     }
 
+    /**
+     * Writes the text that is still buffered to the output, and throws the
+     * first error that writing to the output caused.
+     */
+    public void flush() throws IOException {
+      Preconditions.checkState(out != null, "No output to flush to");
+      write(sb.length());
+      if (outputError != null) {
+        throw outputError;
+      }
+    }
+
+    private void write(int length) {
+      if (outputError == null) {
+        try {
+          out.append(sb, 0, length);
+        } catch (IOException e) {
+          outputError = e;
+        }
+      }
+      sb.delete(0, length);
+      flushedLength += length;
+    }
+
     /** Returns all text in the text buffer. */
     @Override
     public String toString() {
+      Preconditions.checkState(out == null, "The text has been written to the output");
       return sb.toString();
     }
 
-    /** Returns the length of the text buffer. */
+    /** Returns the length of the text, including what has been written out. */
     public int getLength() {
-      return sb.length();
+      return flushedLength + sb.length();
+    }
+
+    /**
+     * Returns the character that is the given number of characters before
+     * the end of the text. Only the last few characters are available if
+     * the text has been written out.
+     */
+    char getCharFromEnd(int offset) {
+      Preconditions.checkElementIndex(offset, sb.length());
+      return sb.charAt(sb.length() - 1 - offset);
     }
 
     /** Returns the (zero-based) index of the last line in the text buffer. */
@@ -1994,7 +2293,8 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
 
     /** Determines whether the text ends with the given suffix. */
     boolean endsWith(String suffix) {
-      return (sb.length() > suffix.length())
+      return (getLength() > suffix.length())
+          && (sb.length() >= suffix.length())
           && suffix.equals(sb.substring(sb.length() - suffix.length()));
     }
 
@@ -2102,19 +2402,46 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
 
   @Override
   void addChangeHandler(CodeChangeHandler handler) {
+    if (phaseOptimizer != null && phaseOptimizer.updateParallelChangeHandlers(handler, true)) {
+      return;
+    }
     codeChangeHandlers.add(handler);
   }
 
   @Override
   void removeChangeHandler(CodeChangeHandler handler) {
+    if (phaseOptimizer != null && phaseOptimizer.updateParallelChangeHandlers(handler, false)) {
+      return;
+    }
     codeChangeHandlers.remove(handler);
   }
 
+  @Override
+  boolean canProcessFunctionsInParallel() {
+    return phaseOptimizer != null && options.getNumParallelOptimizationThreads() > 1;
+  }
+
+  @Override
+  void processFunctionsInParallel(
+      List<Node> scopeRoots, NodeTraversal.FunctionCallback callback) {
+    Preconditions.checkState(phaseOptimizer != null);
+    phaseOptimizer.processFunctionsInParallel(scopeRoots, callback, compilerExecutor,
+        options.getNumParallelOptimizationThreads());
+  }
+
+  @Override
+  <T> List<T> runInParallel(List<? extends Callable<T>> tasks, int numThreads) {
+    return compilerExecutor.runInParallel(tasks, numThreads);
+  }
+
   @Override
   void setScope(Node n) {
     if (phaseOptimizer != null) {
       phaseOptimizer.setScope(n);
     }
+    if (tracker != null) {
+      tracker.setScope(n);
+    }
   }
 
   @Override
@@ -2132,6 +2459,12 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
 
   @Override
   void reportChangeToEnclosingScope(Node n) {
+    if (phaseOptimizer != null && phaseOptimizer.recordParallelChange(n)) {
+      return;
+    }
+    if (tracker != null) {
+      tracker.recordChange(n);
+    }
     if (phaseOptimizer != null) {
       phaseOptimizer.reportChangeToEnclosingScope(n);
       phaseOptimizer.startCrossScopeReporting();
@@ -2154,6 +2487,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
 
   @Override
   public void reportCodeChange() {
+    if (phaseOptimizer != null && phaseOptimizer.recordParallelChange(null)) {
+      return;
+    }
     for (CodeChangeHandler handler : codeChangeHandlers) {
       handler.reportChange();
     }
@@ -2241,6 +2577,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
 
   @Override
   public void report(JSError error) {
+    if (phaseOptimizer != null && phaseOptimizer.recordParallelError(error)) {
+      return;
+    }
     CheckLevel level = error.getDefaultLevel();
     if (warningsGuard != null) {
       CheckLevel newLevel = warningsGuard.level(error);
@@ -2582,12 +2921,77 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
    */
   public void replaceScript(JsAst ast) {
     CompilerInput input = this.getInput(ast.getInputId());
+    // The namespaces provided by the old version are needed to find the
+    // inputs that depended on it, even if the new version dropped them.
+    Set<String> changedProvides = new LinkedHashSet<>();
+    if (options.recheckDependentsOnHotswap()) {
+      changedProvides.addAll(input.getProvides());
+    }
     if (!replaceIncrementalSourceAst(ast)) {
       return;
     }
     Node originalRoot = input.getAstRoot(this);
 
     processNewScript(ast, originalRoot);
+
+    if (options.recheckDependentsOnHotswap()) {
+      changedProvides.addAll(getInput(ast.getInputId()).getProvides());
+      recheckDependents(ast.getInputId(), changedProvides);
+    }
+  }
+
+  /**
+   * Re-runs the hot-swap checks on the inputs that transitively require one
+   * of the given namespaces, in the order of the inputs. The checks have
+   * already rewritten the ASTs of these inputs (goog.require calls are
+   * removed, for example), so each of them is re-parsed from its source
+   * file; the other inputs are left untouched.
+   */
+  private void recheckDependents(InputId changedId, Set<String> changedProvides) {
+    Map<String, List<CompilerInput>> requiredBy = new HashMap<>();
+    List<CompilerInput> orderedInputs = new ArrayList<>();
+    for (Node script : getRoot().getLastChild().children()) {
+      CompilerInput input = getInput(script.getInputId());
+      if (input == null || !(input.getSourceAst() instanceof JsAst)) {
+        continue;
+      }
+      orderedInputs.add(input);
+      for (String require : input.getRequires()) {
+        List<CompilerInput> dependents = requiredBy.get(require);
+        if (dependents == null) {
+          dependents = new ArrayList<>();
+          requiredBy.put(require, dependents);
+        }
+        dependents.add(input);
+      }
+    }
+
+    Set<InputId> cone = new HashSet<>();
+    cone.add(changedId);
+    Deque<String> namespaces = new ArrayDeque<>(changedProvides);
+    while (!namespaces.isEmpty()) {
+      List<CompilerInput> dependents = requiredBy.get(namespaces.pop());
+      if (dependents == null) {
+        continue;
+      }
+      for (CompilerInput dependent : dependents) {
+        if (cone.add(dependent.getInputId())) {
+          namespaces.addAll(dependent.getProvides());
+        }
+      }
+    }
+
+    for (CompilerInput dependent : orderedInputs) {
+      InputId id = dependent.getInputId();
+      if (id.equals(changedId) || !cone.contains(id)) {
+        continue;
+      }
+      logger.info("Rechecking dependent input " + id.getIdName());
+      JsAst dependentAst = new JsAst(dependent.getSourceFile());
+      if (replaceIncrementalSourceAst(dependentAst)) {
+        processNewScript(dependentAst, dependent.getAstRoot(this));
+      }
+    }
   }
 
   /**
@@ -2721,6 +3125,123 @@ public class Compiler extends AbstractCompiler implements ErrorHandler {
     return lastChild;
   }
 
+  /**
+   * The state of a compiler after the checks that is needed to run the rest
+   * of the compilation in another compiler. It is written as a single object
+   * so that shared references, for example from the AST to the types, are
+   * preserved.
+   */
+  private static final class CompilerState implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final Node externAndJsRoot;
+    final List<CompilerInput> externs;
+    final List<CompilerInput> inputs;
+    final Map<InputId, CompilerInput> inputsById;
+    final List<JSModule> modules;
+    final CompilerInput synthesizedExternsInput;
+    final CompilerInput synthesizedExternsInputAtEnd;
+    final Map<String, Node> injectedLibraries;
+    final Node lastInjectedLibrary;
+    final ImmutableMap<String, Node> defaultDefineValues;
+    final JSTypeRegistry typeRegistry;
+    final MostRecentTypechecker mostRecentTypechecker;
+    final List<TypeMismatch> typeMismatches;
+    final List<TypeMismatch> implicitInterfaceUses;
+    final Set<String> externProperties;
+    final boolean hasRegExpGlobalReferences;
+    final int uniqueNameId;
+    final PassConfig.State passConfigState;
+
+    CompilerState(Compiler compiler) {
+      this.externAndJsRoot = compiler.externAndJsRoot;
+      this.externs = compiler.externs;
+      this.inputs = compiler.inputs;
+      this.inputsById = compiler.inputsById;
+      this.modules = compiler.modules;
+      this.synthesizedExternsInput = compiler.synthesizedExternsInput;
+      this.synthesizedExternsInputAtEnd = compiler.synthesizedExternsInputAtEnd;
+      this.injectedLibraries = compiler.injectedLibraries;
+      this.lastInjectedLibrary = compiler.lastInjectedLibrary;
+      this.defaultDefineValues = compiler.defaultDefineValues;
+      this.typeRegistry = compiler.typeRegistry;
+      this.mostRecentTypechecker = compiler.mostRecentTypechecker;
+      if (compiler.typeValidator == null) {
+        this.typeMismatches = ImmutableList.of();
+        this.implicitInterfaceUses = ImmutableList.of();
+      } else {
+        this.typeMismatches = ImmutableList.copyOf(compiler.getTypeMismatches());
+        this.implicitInterfaceUses =
+            ImmutableList.copyOf(compiler.getImplicitInterfaceUses());
+      }
+      this.externProperties = compiler.externProperties;
+      this.hasRegExpGlobalReferences = compiler.hasRegExpGlobalReferences;
+      this.uniqueNameId = compiler.uniqueNameId;
+      this.passConfigState = compiler.getPassConfig().getIntermediateState();
+    }
+  }
+
+  /**
+   * Writes the AST, inputs and type information of this compiler, so that
+   * another compiler can continue the compilation with
+   * {@link #restoreState}. The new type inference is not supported.
+   */
+  @GwtIncompatible("java.io.ObjectOutputStream")
+  void saveState(OutputStream outputStream) throws IOException {
+    Preconditions.checkState(mostRecentTypechecker != MostRecentTypechecker.NTI,
+        "Saving the state of the new type inference is not supported");
+    ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+    objectOutputStream.writeObject(new CompilerState(this));
+    objectOutputStream.flush();
+  }
+
+  /**
+   * Replaces the state of this compiler with the one written by
+   * {@link #saveState}. The options must have been set with
+   * {@link #initOptions} before.
+   */
+  @GwtIncompatible("java.io.ObjectInputStream")
+  void restoreState(InputStream inputStream) throws IOException, ClassNotFoundException {
+    Preconditions.checkNotNull(options, "initOptions must be called first");
+    CompilerState state =
+        (CompilerState) new ObjectInputStream(inputStream).readObject();
+
+    externAndJsRoot = state.externAndJsRoot;
+    externsRoot = externAndJsRoot.getFirstChild();
+    jsRoot = externAndJsRoot.getLastChild();
+    externs = state.externs;
+    inputs = state.inputs;
+    inputsById = new HashMap<>();
+    for (Map.Entry<InputId, CompilerInput> entry : state.inputsById.entrySet()) {
+      putCompilerInput(entry.getKey(), entry.getValue());
+    }
+    modules = state.modules;
+    moduleGraph = modules.size() > 1 ? new JSModuleGraph(modules) : null;
+    synthesizedExternsInput = state.synthesizedExternsInput;
+    synthesizedExternsInputAtEnd = state.synthesizedExternsInputAtEnd;
+    injectedLibraries.clear();
+    injectedLibraries.putAll(state.injectedLibraries);
+    lastInjectedLibrary = state.lastInjectedLibrary;
+    defaultDefineValues = state.defaultDefineValues;
+    typeRegistry = state.typeRegistry;
+    if (typeRegistry != null) {
+      typeRegistry.setErrorReporter(oldErrorReporter);
+    }
+    mostRecentTypechecker = state.mostRecentTypechecker;
+    if (!state.typeMismatches.isEmpty() || !state.implicitInterfaceUses.isEmpty()) {
+      getTypeValidator().addMismatches(state.typeMismatches, state.implicitInterfaceUses);
+    }
+    externProperties = state.externProperties;
+    hasRegExpGlobalReferences = state.hasRegExpGlobalReferences;
+    uniqueNameId = state.uniqueNameId;
+    getPassConfig().setIntermediateState(state.passConfigState);
+
+    initBasedOnOptions();
+    for (CompilerInput input : inputs) {
+      addFilesToSourceMap(ImmutableList.of(input.getSourceFile()));
+    }
+  }
+
   /** Returns the compiler version baked into the jar. */
   @GwtIncompatible("java.util.ResourceBundle")
   public static String getReleaseVersion() {
@@ -19,14 +19,19 @@ package com.google.javascript.jscomp;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /** Run the compiler in a separate thread with a larger stack */
 final class CompilerExecutor {
@@ -62,6 +67,17 @@ final class CompilerExecutor {
 
   private int timeout = 0;
 
+  /**
+   * The threads that run the tasks of {@link #runInParallel}. They are started
+   * the first time they are needed and kept until the compile job that
+   * started them ends, so that passes that run often don't start new threads.
+   */
+  private ThreadPoolExecutor workers = null;
+
+  // How long idle workers are kept when they are not shut down explicitly,
+  // for example when runInParallel is called outside of a compile job.
+  private static final long WORKER_KEEP_ALIVE_SECONDS = 10;
+
   void disableThreads() {
     useThreads = false;
   }
@@ -95,6 +111,7 @@ final class CompilerExecutor {
               exception[0] = e;
             } finally {
               compilerThread = null;
+              shutdownWorkers();
               if (dumpTraceReport) {
                 Tracer.logCurrentThreadTrace();
               }
@@ -130,4 +147,108 @@ final class CompilerExecutor {
 
     return result;
   }
+
+  /**
+   * Runs independent tasks on up to {@code numThreads} threads of the worker
+   * pool, which have the same enlarged stack as the compiler thread, and waits
+   * for all of them to finish. The results are returned in the order of the tasks, and
+   * the first failure, in task order, is rethrown on the calling thread.
+   */
+  <T> List<T> runInParallel(final List<? extends Callable<T>> tasks, int numThreads) {
+    List<T> results = new ArrayList<>(tasks.size());
+    if (!useThreads || numThreads <= 1 || tasks.size() <= 1
+        || Thread.currentThread() instanceof WorkerThread) {
+      // Workers don't wait for nested tasks, which could be queued behind them.
+      for (Callable<T> task : tasks) {
+        try {
+          results.add(task.call());
+        } catch (Exception e) {
+          throw Throwables.propagate(e);
+        }
+      }
+      return results;
+    }
+
+    // Each worker takes the next task until there are none left, so that the
+    // tasks run on at most numThreads threads of the shared pool.
+    final int numTasks = tasks.size();
+    final Object[] taskResults = new Object[numTasks];
+    final Throwable[] taskFailures = new Throwable[numTasks];
+    final AtomicInteger nextTask = new AtomicInteger();
+    Runnable worker = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = nextTask.getAndIncrement(); i < numTasks; i = nextTask.getAndIncrement()) {
+          try {
+            taskResults[i] = tasks.get(i).call();
+          } catch (Throwable e) {
+            taskFailures[i] = e;
+          }
+        }
+      }
+    };
+    int numWorkers = Math.min(numThreads, numTasks);
+    List<Future<?>> futures = new ArrayList<>(numWorkers);
+    ExecutorService pool = getWorkers(numWorkers);
+    try {
+      for (int i = 0; i < numWorkers; i++) {
+        futures.add(pool.submit(worker));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      nextTask.set(numTasks);
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+
+    for (int i = 0; i < numTasks; i++) {
+      if (taskFailures[i] != null) {
+        throw Throwables.propagate(taskFailures[i]);
+      }
+      @SuppressWarnings("unchecked")
+      T result = (T) taskResults[i];
+      results.add(result);
+    }
+    return results;
+  }
+
+  /** Returns the worker pool, with at least {@code numWorkers} threads. */
+  private synchronized ThreadPoolExecutor getWorkers(int numWorkers) {
+    if (workers == null) {
+      workers = new ThreadPoolExecutor(
+          numWorkers, numWorkers, WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+              Thread t = new WorkerThread(r);
+              t.setDaemon(true);
+              return t;
+            }
+          });
+      workers.allowCoreThreadTimeOut(true);
+    } else if (workers.getMaximumPoolSize() < numWorkers) {
+      workers.setMaximumPoolSize(numWorkers);
+      workers.setCorePoolSize(numWorkers);
+    }
+    return workers;
+  }
+
+  /** Stops the worker threads, if any were started. */
+  synchronized void shutdownWorkers() {
+    if (workers != null) {
+      workers.shutdownNow();
+      workers = null;
+    }
+  }
+
+  /** A thread of the worker pool, with the same stack as the compiler thread. */
+  private static final class WorkerThread extends Thread {
+    WorkerThread(Runnable r) {
+      super(null, r, "jscompiler-worker", COMPILER_STACK_SIZE);
+    }
+  }
 }
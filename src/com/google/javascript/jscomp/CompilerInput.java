@@ -53,8 +53,9 @@ public class CompilerInput implements SourceAst, DependencyInfo {
   // The AST.
   private final SourceAst ast;
 
-  // DependencyInfo to delegate to.
-  private DependencyInfo dependencyInfo;
+  // DependencyInfo to delegate to. It is not serializable, and is generated
+  // again from the source when needed.
+  private transient DependencyInfo dependencyInfo;
   private final List<String> extraRequires = new ArrayList<>();
   private final List<String> extraProvides = new ArrayList<>();
 
@@ -124,6 +125,11 @@ public class CompilerInput implements SourceAst, DependencyInfo {
     return root;
   }
 
+  /** Returns the underlying AST provider. */
+  SourceAst getSourceAst() {
+    return ast;
+  }
+
   @Override
   public void clearAst() {
     ast.clearAst();
@@ -117,9 +117,68 @@ public class CompilerOptions {
   private boolean assumeStrictThis;
 
   private boolean allowHotswapReplaceScript = false;
+
+  /**
+   * Whether replaceScript should also re-run the hot-swap checks on the
+   * inputs that transitively goog.require a namespace of the replaced
+   * script, so that errors caused by the change in other files are reported.
+   */
+  private boolean recheckDependentsOnHotswap = false;
+
   private boolean preserveDetailedSourceInfo = false;
   private boolean continueAfterErrors = false;
 
+  /**
+   * The number of threads used to parse the inputs. Values greater than one
+   * parse files concurrently; the resulting AST and diagnostics are the same
+   * as for a sequential parse.
+   */
+  private int numParallelParseThreads = 1;
+
+  /**
+   * The number of threads used by optimization passes that process one
+   * function at a time. Values greater than one process functions that are
+   * not nested in one another concurrently; the output is the same as with
+   * one thread.
+   */
+  private int numParallelOptimizationThreads = 1;
+
+  /**
+   * The number of threads used to print the code and source maps of the
+   * modules when each module is written to its own file.
+   */
+  private int numParallelOutputThreads = 1;
+
+  /**
+   * The number of threads used by the new type inference to analyze
+   * functions. Values greater than one analyze functions that are not nested
+   * in one another concurrently, except those that update the type of a
+   * function namespace, which are analyzed alone; the inferred types and the
+   * warnings are the same as with one thread.
+   */
+  private int numParallelTypeInferenceThreads = 1;
+
+  /** Where to look up and store the parse results of unchanged files. */
+  private ParseCache parseCache = null;
+
+  /**
+   * Where the new type inference looks up and stores the warnings of the
+   * functions of unchanged files, so that it doesn't analyze them again.
+   * The types of the nodes in these functions are not recorded, so this is
+   * only meant for builds that report the type warnings. The compiler rejects
+   * it together with useTypesForOptimization and with the checks that read
+   * the types of the new type inference (see
+   * {@link CompilerOptionsPreprocessor}).
+   */
+  private TypeSummaryCache typeSummaryCache = null;
+
+  /**
+   * Whether the type inference keeps the types it infers in the flow of a
+   * function in arrays indexed by variable, rather than in chains of slots.
+   * This makes lookups and joins faster in long functions with many variables.
+   */
+  private boolean useArrayFlowScopes = false;
+
   /**
    * Whether the compiler should generate an output file that represents the type-only interface
    * of the code being compiled.  This is useful for incremental type checking.
@@ -901,6 +960,20 @@ public class CompilerOptions {
     this.tracer = mode;
   }
 
+  /** The format of the report of the tracer */
+  TracerReportFormat tracerReportFormat;
+
+  public void setTracerReportFormat(TracerReportFormat format) {
+    this.tracerReportFormat = format;
+  }
+
+  /** Where to save the report of the tracer, instead of the error stream */
+  String tracerReportPath;
+
+  public void setTracerReportPath(String path) {
+    this.tracerReportPath = path;
+  }
+
   private boolean colorizeErrorOutput;
 
   public ErrorFormat errorFormat;
@@ -1174,6 +1247,8 @@ public class CompilerOptions {
     preferLineBreakAtEndOfFile = false;
     reportPath = null;
     tracer = TracerMode.OFF;
+    tracerReportFormat = TracerReportFormat.TEXT;
+    tracerReportPath = null;
     colorizeErrorOutput = false;
     errorFormat = ErrorFormat.SINGLELINE;
     debugFunctionSideEffectsPath = null;
@@ -1921,6 +1996,14 @@ public class CompilerOptions {
     return allowHotswapReplaceScript;
   }
 
+  public void setRecheckDependentsOnHotswap(boolean recheckDependents) {
+    this.recheckDependentsOnHotswap = recheckDependents;
+  }
+
+  boolean recheckDependentsOnHotswap() {
+    return recheckDependentsOnHotswap;
+  }
+
   public void setPreserveDetailedSourceInfo(boolean preserveDetailedSourceInfo) {
     this.preserveDetailedSourceInfo = preserveDetailedSourceInfo;
   }
@@ -1937,6 +2020,71 @@ public class CompilerOptions {
     return continueAfterErrors;
   }
 
+  public void setNumParallelParseThreads(int numParallelParseThreads) {
+    Preconditions.checkArgument(numParallelParseThreads > 0);
+    this.numParallelParseThreads = numParallelParseThreads;
+  }
+
+  int getNumParallelParseThreads() {
+    return numParallelParseThreads;
+  }
+
+  public void setNumParallelOptimizationThreads(int numParallelOptimizationThreads) {
+    Preconditions.checkArgument(numParallelOptimizationThreads > 0);
+    this.numParallelOptimizationThreads = numParallelOptimizationThreads;
+  }
+
+  int getNumParallelOptimizationThreads() {
+    return numParallelOptimizationThreads;
+  }
+
+  public void setNumParallelOutputThreads(int numParallelOutputThreads) {
+    Preconditions.checkArgument(numParallelOutputThreads > 0);
+    this.numParallelOutputThreads = numParallelOutputThreads;
+  }
+
+  int getNumParallelOutputThreads() {
+    return numParallelOutputThreads;
+  }
+
+  public void setNumParallelTypeInferenceThreads(int numParallelTypeInferenceThreads) {
+    Preconditions.checkArgument(numParallelTypeInferenceThreads > 0);
+    this.numParallelTypeInferenceThreads = numParallelTypeInferenceThreads;
+  }
+
+  int getNumParallelTypeInferenceThreads() {
+    return numParallelTypeInferenceThreads;
+  }
+
+  public void setUseArrayFlowScopes(boolean useArrayFlowScopes) {
+    this.useArrayFlowScopes = useArrayFlowScopes;
+  }
+
+  boolean getUseArrayFlowScopes() {
+    return useArrayFlowScopes;
+  }
+
+  public void setParseCache(ParseCache parseCache) {
+    this.parseCache = parseCache;
+  }
+
+  /**
+   * Returns the cache of parse results to use, or null if files should
+   * always be parsed.
+   */
+  ParseCache getParseCache() {
+    // Cached parses do not keep the comments needed for detailed source info.
+    return preserveDetailedSourceInfo ? null : parseCache;
+  }
+
+  public void setTypeSummaryCache(TypeSummaryCache typeSummaryCache) {
+    this.typeSummaryCache = typeSummaryCache;
+  }
+
+  TypeSummaryCache getTypeSummaryCache() {
+    return typeSummaryCache;
+  }
+
 
   @Deprecated
   public void setParseJsDocDocumentation(boolean parseJsDocDocumentation) {
@@ -2570,6 +2718,7 @@ public class CompilerOptions {
             .add("aliasHandler", getAliasTransformationHandler())
             .add("aliasStringsBlacklist", aliasStringsBlacklist)
             .add("allowHotswapReplaceScript", allowsHotswapReplaceScript())
+            .add("recheckDependentsOnHotswap", recheckDependentsOnHotswap())
             .add("ambiguateProperties", ambiguateProperties)
             .add("angularPass", angularPass)
             .add("anonymousFunctionNaming", anonymousFunctionNaming)
@@ -2671,6 +2820,10 @@ public class CompilerOptions {
             .add("moduleRoots", moduleRoots)
             .add("moveFunctionDeclarations", moveFunctionDeclarations)
             .add("nameGenerator", nameGenerator)
+            .add("numParallelOptimizationThreads", numParallelOptimizationThreads)
+            .add("numParallelOutputThreads", numParallelOutputThreads)
+            .add("numParallelParseThreads", numParallelParseThreads)
+            .add("numParallelTypeInferenceThreads", numParallelTypeInferenceThreads)
             .add("optimizeArgumentsArray", optimizeArgumentsArray)
             .add("optimizeCalls", optimizeCalls)
             .add("optimizeParameters", optimizeParameters)
@@ -2681,6 +2834,7 @@ public class CompilerOptions {
             .add(
                 "parentModuleCanSeeSymbolsDeclaredInChildren",
                 parentModuleCanSeeSymbolsDeclaredInChildren)
+            .add("parseCache", parseCache)
             .add("parseJsDocDocumentation", isParseJsDocDocumentation())
             .add("polymerPass", polymerPass)
             .add("preferLineBreakAtEndOfFile", preferLineBreakAtEndOfFile)
@@ -2749,10 +2903,14 @@ public class CompilerOptions {
             .add("syntheticBlockStartMarker", syntheticBlockStartMarker)
             .add("tcProjectId", tcProjectId)
             .add("tracer", tracer)
+            .add("tracerReportFormat", tracerReportFormat)
+            .add("tracerReportPath", tracerReportPath)
             .add("transformAMDToCJSModules", transformAMDToCJSModules)
             .add("trustedStrings", trustedStrings)
             .add("tweakProcessing", getTweakProcessing())
             .add("tweakReplacements", getTweakReplacements())
+            .add("typeSummaryCache", typeSummaryCache)
+            .add("useArrayFlowScopes", useArrayFlowScopes)
             .add("useDebugLog", useDebugLog)
             .add("useNewTypeInference", getNewTypeInference())
             .add("useTypesForOptimization", useTypesForOptimization)
@@ -2917,11 +3075,26 @@ public class CompilerOptions {
     ALL,  // Collect all timing and size metrics.
     RAW_SIZE, // Collect all timing and size metrics, except gzipped size.
     TIMING_ONLY, // Collect timing metrics only.
+    // Collect timing metrics and incremental raw size estimates, cheaply
+    // enough to always stay on.
+    LIGHTWEIGHT,
     OFF;  // Collect no timing and size metrics.
 
     boolean isOn() {
       return this != OFF;
     }
+
+    /** Whether the events of the {@link Tracer}s are logged for each thread. */
+    boolean logsThreadTrace() {
+      return this != OFF && this != LIGHTWEIGHT;
+    }
+  }
+
+  /** The format of the report of the tracer */
+  public static enum TracerReportFormat {
+    TEXT,  // Human readable summary and log, as comma separated values.
+    JSON,  // Totals, summary and log as a JSON object.
+    CHROME_TRACE;  // Timeline of the pass runs in the Chrome trace event format.
   }
 
   /** Option for the ProcessTweaks pass */
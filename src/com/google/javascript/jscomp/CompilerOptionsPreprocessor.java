@@ -68,6 +68,21 @@ final class CompilerOptionsPreprocessor {
         throw new InvalidOptionsException(
             "check_eventful_object_disposal is not supported with the new type inference.");
       }
+      // The type summary cache skips functions, whose nodes then have no types.
+      if (options.getTypeSummaryCache() != null) {
+        if (options.useTypesForOptimization) {
+          throw new InvalidOptionsException(
+              "type_summary_cache_dir cannot be used with use_types_for_optimization.");
+        }
+        if (options.enables(DiagnosticGroups.ACCESS_CONTROLS)
+            || options.enables(DiagnosticGroups.CONSTANT_PROPERTY)
+            || options.enables(DiagnosticGroups.ANALYZER_CHECKS)) {
+          throw new InvalidOptionsException(
+              "type_summary_cache_dir cannot be used with the checks that use types "
+              + "after the new type inference: accessControls, constantProperty "
+              + "and analyzerChecks.");
+        }
+      }
     }
 
     if (options.jqueryPass && options.closurePass) {
@@ -17,20 +17,22 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.NodeTraversal.Callback;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
 
 /**
  * This is a compiler pass that computes a control flow graph.
@@ -55,26 +57,21 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
 
   private final AbstractCompiler compiler;
 
-  private ControlFlowGraph<Node> cfg;
+  private AstControlFlowGraph cfg;
 
-  private Map<Node, Integer> astPosition;
-
-  // TODO(nicksantos): should these be node annotations?
-  private Map<DiGraphNode<Node, Branch>, Integer> nodePriorities;
+  // The AST nodes in the order they are traversed.
+  private List<Node> traversedNodes;
 
   // We order CFG nodes by by looking at the AST positions.
   // CFG nodes that come first lexically should be visited first, because
   // they will often be executed first in the source program.
-  private final Comparator<DiGraphNode<Node, Branch>> priorityComparator =
-      new Comparator<DiGraphNode<Node, Branch>>() {
-    @Override
-    public int compare(
-        DiGraphNode<Node, Branch> a, DiGraphNode<Node, Branch> b) {
-      return astPosition.get(a.getValue()) - astPosition.get(b.getValue());
-    }
-  };
+  private List<DiGraphNode<Node, Branch>> nodesInAstOrder;
+  // The rank of each CFG node in nodesInAstOrder, by CFG node index.
+  private int[] astOrder;
+
+  // The priority of each CFG node by index, or 0 if it has none yet.
+  private int[] nodePriorities;
 
-  private int astPositionCounter;
   private int priorityCounter;
 
   private final boolean shouldTraverseFunctionsAndClasses;
@@ -146,16 +143,15 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
     Preconditions.checkArgument(
         NodeUtil.isValidCfgRoot(root), "Unexpected control flow graph root %s", root);
     this.root = root;
-    astPositionCounter = 0;
-    astPosition = new HashMap<>();
-    nodePriorities = new HashMap<>();
-    cfg = new AstControlFlowGraph(computeFallThrough(root), nodePriorities,
-                                  edgeAnnotations);
+    traversedNodes = new ArrayList<>();
+    cfg = new AstControlFlowGraph(computeFallThrough(root), edgeAnnotations);
     NodeTraversal.traverseEs6(compiler, root, this);
-    astPosition.put(null, ++astPositionCounter); // the implicit return is last.
+    traversedNodes.add(null); // the implicit return is last.
+    sortNodesInAstOrder();
 
     // Now, generate the priority of nodes by doing a depth-first
     // search on the CFG.
+    nodePriorities = new int[astOrder.length];
     priorityCounter = 0;
     DiGraphNode<Node, Branch> entry = cfg.getEntry();
     prioritizeFromEntryNode(entry);
@@ -167,7 +163,7 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
         Node value = candidate.getValue();
         if (value != null && value.isFunction()) {
           Preconditions.checkState(
-              !nodePriorities.containsKey(candidate) || candidate == entry);
+              nodePriorities[cfg.getIndex(candidate)] == 0 || candidate == entry);
           prioritizeFromEntryNode(candidate);
         }
       }
@@ -178,13 +174,40 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
     // Presumably, it doesn't really matter what priority they get, since
     // this shouldn't happen in real code.
     for (DiGraphNode<Node, Branch> candidate : cfg.getDirectedGraphNodes()) {
-      if (!nodePriorities.containsKey(candidate)) {
-        nodePriorities.put(candidate, ++priorityCounter);
+      if (nodePriorities[cfg.getIndex(candidate)] == 0) {
+        nodePriorities[cfg.getIndex(candidate)] = ++priorityCounter;
       }
     }
 
     // Again, the implicit return node is always last.
-    nodePriorities.put(cfg.getImplicitReturn(), ++priorityCounter);
+    nodePriorities[cfg.getIndex(cfg.getImplicitReturn())] = ++priorityCounter;
+    cfg.priorities = nodePriorities;
+  }
+
+  /**
+   * Sorts the CFG nodes by AST position once, so that the prioritization
+   * compares the ranks of the nodes instead of looking up their positions.
+   */
+  private void sortNodesInAstOrder() {
+    int nodeCount = cfg.getNodes().size();
+    nodesInAstOrder = new ArrayList<>(nodeCount);
+    astOrder = new int[nodeCount];
+    boolean[] sorted = new boolean[nodeCount];
+    for (Node n : traversedNodes) {
+      DiGraphNode<Node, Branch> node = cfg.getDirectedGraphNode(n);
+      if (node != null) {
+        astOrder[cfg.getIndex(node)] = nodesInAstOrder.size();
+        sorted[cfg.getIndex(node)] = true;
+        nodesInAstOrder.add(node);
+      }
+    }
+    for (DiGraphNode<Node, Branch> node : cfg.getDirectedGraphNodes()) {
+      if (!sorted[cfg.getIndex(node)]) {
+        astOrder[cfg.getIndex(node)] = nodesInAstOrder.size();
+        nodesInAstOrder.add(node);
+      }
+    }
+    traversedNodes = null;
   }
 
   /**
@@ -192,28 +215,35 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
    * and prioritize them.
    */
   private void prioritizeFromEntryNode(DiGraphNode<Node, Branch> entry) {
-    PriorityQueue<DiGraphNode<Node, Branch>> worklist =
-        new PriorityQueue<>(10, priorityComparator);
-    worklist.add(entry);
+    // The ranks of the nodes to visit. No rank lower than lowest is set.
+    BitSet worklist = new BitSet(astOrder.length);
+    int lowest = astOrder[cfg.getIndex(entry)];
+    worklist.set(lowest);
 
     while (!worklist.isEmpty()) {
-      DiGraphNode<Node, Branch> current = worklist.remove();
-      if (nodePriorities.containsKey(current)) {
+      lowest = worklist.nextSetBit(lowest);
+      worklist.clear(lowest);
+      DiGraphNode<Node, Branch> current = nodesInAstOrder.get(lowest);
+      if (nodePriorities[cfg.getIndex(current)] != 0) {
         continue;
       }
 
-      nodePriorities.put(current, ++priorityCounter);
+      nodePriorities[cfg.getIndex(current)] = ++priorityCounter;
 
-      List<DiGraphNode<Node, Branch>> successors =
-          cfg.getDirectedSuccNodes(current);
-      worklist.addAll(successors);
+      for (DiGraphEdge<Node, Branch> edge : current.getOutEdges()) {
+        int successor = cfg.getIndex(edge.getDestination());
+        if (nodePriorities[successor] == 0) {
+          worklist.set(astOrder[successor]);
+          lowest = Math.min(lowest, astOrder[successor]);
+        }
+      }
     }
   }
 
   @Override
   public boolean shouldTraverse(
       NodeTraversal nodeTraversal, Node n, Node parent) {
-    astPosition.put(n, astPositionCounter++);
+    traversedNodes.add(n);
 
     switch (n.getType()) {
       case CLASS:
@@ -832,9 +862,14 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
    */
   private void createEdge(Node fromNode, ControlFlowGraph.Branch branch,
       Node toNode) {
-    cfg.createNode(fromNode);
-    cfg.createNode(toNode);
-    cfg.connectIfNotFound(fromNode, branch, toNode);
+    // Look up the graph nodes once, instead of for each check.
+    DiGraphNode<Node, Branch> from = cfg.createDirectedGraphNode(fromNode);
+    DiGraphNode<Node, Branch> to = cfg.createDirectedGraphNode(toNode);
+    Predicate<Branch> isBranch = Predicates.equalTo(branch);
+    if (!cfg.isConnectedInDirection(from, isBranch, to)
+        && !cfg.isConnectedInDirection(to, isBranch, from)) {
+      cfg.connect(from, branch, to);
+    }
   }
 
   /**
@@ -1035,20 +1070,17 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
    * pre-order traversal of the AST.
    */
   private static class AstControlFlowGraph extends ControlFlowGraph<Node> {
-    private final Map<DiGraphNode<Node, Branch>, Integer> priorities;
+    // The priorities of the nodes by index (set by the
+    // {@link ControlFlowAnalysis#process} once the graph is built).
+    private int[] priorities;
 
     /**
      * Constructor.
      * @param entry The entry node.
-     * @param priorities The map from nodes to position in the AST (to be
-     *    filled by the {@link ControlFlowAnalysis#shouldTraverse}).
      */
-    private AstControlFlowGraph(Node entry,
-        Map<DiGraphNode<Node, Branch>, Integer> priorities,
-        boolean edgeAnnotations) {
+    private AstControlFlowGraph(Node entry, boolean edgeAnnotations) {
       super(entry,
           true /* node annotations */, edgeAnnotations);
-      this.priorities = priorities;
     }
 
     @Override
@@ -1083,8 +1115,8 @@ final class ControlFlowAnalysis implements Callback, CompilerPass {
      * @return An arbitrary counter used for comparing positions.
      */
     private int getPosition(DiGraphNode<Node, Branch> n) {
-      Integer priority = priorities.get(n);
-      Preconditions.checkNotNull(priority);
+      int priority = priorities[getIndex(n)];
+      Preconditions.checkState(priority != 0);
       return priority;
     }
   }
@@ -27,12 +27,12 @@ import com.google.javascript.jscomp.parsing.parser.util.format.SimpleFormat;
 import com.google.javascript.rhino.Node;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * A framework to help writing static program analysis. A subclass of
@@ -86,7 +86,8 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
 
   private final ControlFlowGraph<N> cfg;
   final JoinOp<L> joinOp;
-  protected final Set<DiGraphNode<N, Branch>> orderedWorkSet;
+  private final Comparator<DiGraphNode<N, Branch>> nodeComparator;
+  private WorkList<N> workList;
 
   /*
    * Feel free to increase this to a reasonable number if you are finding that
@@ -120,13 +121,7 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
   DataFlowAnalysis(ControlFlowGraph<N> targetCfg, JoinOp<L> joinOp) {
     this.cfg = targetCfg;
     this.joinOp = joinOp;
-    Comparator<DiGraphNode<N, Branch>> nodeComparator =
-      cfg.getOptionalNodeComparator(isForward());
-    if (nodeComparator != null) {
-      this.orderedWorkSet = new TreeSet<>(nodeComparator);
-    } else {
-      this.orderedWorkSet = new LinkedHashSet<>();
-    }
+    this.nodeComparator = cfg.getOptionalNodeComparator(isForward());
   }
 
   /**
@@ -201,13 +196,12 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
   final void analyze(int maxSteps) {
     initialize();
     int step = 0;
-    while (!orderedWorkSet.isEmpty()) {
+    while (!workList.isEmpty()) {
       if (step > maxSteps) {
         throw new MaxIterationsExceededException(
           "Analysis did not terminate after " + maxSteps + " iterations");
       }
-      DiGraphNode<N, Branch> curNode = orderedWorkSet.iterator().next();
-      orderedWorkSet.remove(curNode);
+      DiGraphNode<N, Branch> curNode = workList.poll();
       joinInputs(curNode);
       if (flow(curNode)) {
         // If there is a change in the current node, we want to grab the list
@@ -217,7 +211,7 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
             cfg.getDirectedPredNodes(curNode);
         for (DiGraphNode<N, Branch> nextNode : nextNodes) {
           if (nextNode != cfg.getImplicitReturn()) {
-            orderedWorkSet.add(nextNode);
+            workList.add(nextNode);
           }
         }
       }
@@ -246,17 +240,28 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
    * Initializes the work list and the control flow graph.
    */
   protected void initialize() {
-    // TODO(user): Calling clear doesn't deallocate the memory in a
-    // LinkedHashSet. Consider creating a new work set if we plan to repeatedly
-    // call analyze.
-    orderedWorkSet.clear();
     for (DiGraphNode<N, Branch> node : cfg.getDirectedGraphNodes()) {
       node.setAnnotation(new FlowState<>(createInitialEstimateLattice(),
           createInitialEstimateLattice()));
+    }
+    initializeWorkList();
+  }
+
+  /**
+   * Numbers the nodes of the control flow graph but the implicit return, which
+   * is never flowed through, and puts them in the work list.
+   */
+  final void initializeWorkList() {
+    List<DiGraphNode<N, Branch>> nodes = new ArrayList<>();
+    for (DiGraphNode<N, Branch> node : cfg.getDirectedGraphNodes()) {
       if (node != cfg.getImplicitReturn()) {
-        orderedWorkSet.add(node);
+        nodes.add(node);
       }
     }
+    workList = new WorkList<>(cfg, nodes, nodeComparator);
+    for (DiGraphNode<N, Branch> node : nodes) {
+      workList.add(node);
+    }
   }
 
   /**
@@ -384,6 +389,54 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
     }
   }
 
+  /**
+   * The nodes left to flow through. The nodes are numbered once, in the order
+   * of the control flow graph's node comparator if it has one, or else in the
+   * order of the graph. The work list is then a set of numbers, and the next
+   * node is the one with the lowest number, so no comparisons are made while
+   * the analysis runs.
+   *
+   * @param <N> The control flow graph's node value type.
+   */
+  private static final class WorkList<N> {
+    private final ControlFlowGraph<N> cfg;
+    private final List<DiGraphNode<N, Branch>> nodes;
+    // The numbers of the nodes, by graph index.
+    private final int[] numbers;
+    private final BitSet pending = new BitSet();
+    // No number lower than this one is pending.
+    private int lowest = 0;
+
+    WorkList(ControlFlowGraph<N> cfg, List<DiGraphNode<N, Branch>> nodes,
+        Comparator<DiGraphNode<N, Branch>> comparator) {
+      this.cfg = cfg;
+      this.nodes = nodes;
+      if (comparator != null) {
+        Collections.sort(nodes, comparator);
+      }
+      this.numbers = new int[cfg.getNodes().size()];
+      for (int i = 0; i < nodes.size(); i++) {
+        numbers[cfg.getIndex(nodes.get(i))] = i;
+      }
+    }
+
+    boolean isEmpty() {
+      return pending.isEmpty();
+    }
+
+    void add(DiGraphNode<N, Branch> node) {
+      int number = numbers[cfg.getIndex(node)];
+      pending.set(number);
+      lowest = Math.min(lowest, number);
+    }
+
+    DiGraphNode<N, Branch> poll() {
+      lowest = pending.nextSetBit(lowest);
+      pending.clear(lowest);
+      return nodes.get(lowest);
+    }
+  }
+
   /**
    * The exception to be thrown if the analysis has been running for a long
    * number of iterations. Chances are the analysis is not monotonic, a
@@ -401,7 +454,6 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
 
     @Override
     protected void initialize() {
-      orderedWorkSet.clear();
       for (DiGraphNode<N, Branch> node : getCfg().getDirectedGraphNodes()) {
         int outEdgeCount = getCfg().getOutEdges(node.getValue()).size();
         List<L> outLattices = new ArrayList<>();
@@ -410,10 +462,8 @@ abstract class DataFlowAnalysis<N, L extends LatticeElement> {
         }
         node.setAnnotation(new BranchedFlowState<>(
             createInitialEstimateLattice(), outLattices));
-        if (node != getCfg().getImplicitReturn()) {
-          orderedWorkSet.add(node);
-        }
       }
+      initializeWorkList();
     }
 
     BranchedForwardDataFlowAnalysis(ControlFlowGraph<N> targetCfg,
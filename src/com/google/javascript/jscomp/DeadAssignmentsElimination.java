@@ -87,6 +87,12 @@ class DeadAssignmentsElimination extends AbstractPostOrderCallback implements
             var.getName(), var.getNameNode(), var.getInput());
       }
     } else {
+      // The analysis only looks at the function itself, so it can only find
+      // something new if the function changed since the pass last ran.
+      if (!compiler.hasScopeChanged(t.getScopeRoot())) {
+        return;
+      }
+
       if (LiveVariablesAnalysis.MAX_VARIABLES_TO_ANALYZE <
           scope.getVarCount()) {
         return;
@@ -161,6 +161,20 @@ public final class DefaultPassConfig extends PassConfig {
         anonymousFunctionNameMap, stringMap, functionNames, idGeneratorMap);
   }
 
+  @Override
+  protected void setIntermediateState(State state) {
+    this.cssNames = state.cssNames == null ? null : new HashMap<>(state.cssNames);
+    this.exportedNames =
+        state.exportedNames == null ? null : new HashSet<>(state.exportedNames);
+    this.crossModuleIdGenerator = state.crossModuleIdGenerator;
+    this.variableMap = state.variableMap;
+    this.propertyMap = state.propertyMap;
+    this.anonymousFunctionNameMap = state.anonymousFunctionNameMap;
+    this.stringMap = state.stringMap;
+    this.functionNames = state.functionNames;
+    this.idGeneratorMap = state.idGeneratorMap;
+  }
+
   GlobalNamespace getGlobalNamespace() {
     return namespaceForChecks;
   }
@@ -459,6 +473,20 @@ public final class DefaultPassConfig extends PassConfig {
       checks.add(closureReplaceGetCssName);
     }
 
+    checks.addAll(getConfigurationChecks());
+
+    assertAllOneTimePasses(checks);
+    assertValidOrder(checks);
+    return checks;
+  }
+
+  @Override
+  protected List<PassFactory> getConfigurationChecks() {
+    List<PassFactory> checks = new ArrayList<>();
+    if (options.skipNonTranspilationPasses) {
+      return checks;
+    }
+
     // i18n
     // If you want to customize the compiler to use a different i18n pass,
     // you can create a PassConfig that calls replacePassFactory
@@ -492,9 +520,6 @@ public final class DefaultPassConfig extends PassConfig {
     }
 
     checks.add(createEmptyPass("afterStandardChecks"));
-
-    assertAllOneTimePasses(checks);
-    assertValidOrder(checks);
     return checks;
   }
 
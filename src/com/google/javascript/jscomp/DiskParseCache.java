@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.javascript.jscomp.JsAst.RhinoError;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.parser.FeatureSet;
+import com.google.javascript.rhino.BinaryNodeReader;
+import com.google.javascript.rhino.BinaryNodeWriter;
+import com.google.javascript.rhino.Node;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link ParseCache} that keeps one file per parse in a directory, so that
+ * it can be shared by successive builds. Entries are keyed by a hash of the
+ * compiler version, the parser config, the file name and the file contents,
+ * so a changed file or setting simply misses. Trees are stored in the
+ * format of {@link BinaryNodeWriter}. Failures to read or write the
+ * cache are logged and otherwise ignored.
+ */
+@GwtIncompatible("java.io")
+public final class DiskParseCache implements ParseCache {
+
+  private static final Logger logger =
+      Logger.getLogger(DiskParseCache.class.getName());
+
+  private static final String ENTRY_SUFFIX = ".ast";
+
+  private final File directory;
+  private final String compilerVersion;
+
+  public DiskParseCache(File directory) {
+    this(directory, Compiler.getReleaseVersion());
+  }
+
+  @VisibleForTesting
+  DiskParseCache(File directory, String compilerVersion) {
+    this.directory = directory;
+    this.compilerVersion = compilerVersion;
+  }
+
+  @Override
+  public Entry lookup(SourceFile file, String code, Config config) {
+    File entryFile = getEntryFile(file, code, config);
+    if (!entryFile.isFile()) {
+      return null;
+    }
+    try (InputStream in = new BufferedInputStream(new FileInputStream(entryFile))) {
+      Node root = new BinaryNodeReader(in).readTree(file);
+      ObjectInputStream objects = new ObjectInputStream(in);
+      FeatureSet features = (FeatureSet) objects.readObject();
+      int numWarnings = objects.readInt();
+      ImmutableList.Builder<RhinoError> warnings = ImmutableList.builder();
+      for (int i = 0; i < numWarnings; i++) {
+        warnings.add(new RhinoError(
+            (String) objects.readObject(),
+            (String) objects.readObject(),
+            objects.readInt(),
+            objects.readInt()));
+      }
+      return new Entry(root, features, warnings.build());
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      logger.log(Level.WARNING, "Ignoring unreadable parse cache entry " + entryFile, e);
+      return null;
+    }
+  }
+
+  @Override
+  public void store(SourceFile file, String code, Config config, Entry entry) {
+    File entryFile = getEntryFile(file, code, config);
+    File tempFile = null;
+    try {
+      directory.mkdirs();
+      // Write to a private file first and move it into place, so that builds
+      // sharing the directory never see a partially written entry.
+      tempFile = File.createTempFile(entryFile.getName(), ".tmp", directory);
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+        BinaryNodeWriter writer = new BinaryNodeWriter(out);
+        writer.writeTree(entry.root, file);
+        writer.flush();
+        ObjectOutputStream objects = new ObjectOutputStream(out);
+        objects.writeObject(entry.features);
+        objects.writeInt(entry.warnings.size());
+        for (RhinoError warning : entry.warnings) {
+          objects.writeObject(warning.message);
+          objects.writeObject(warning.sourceName);
+          objects.writeInt(warning.line);
+          objects.writeInt(warning.lineOffset);
+        }
+        objects.flush();
+      }
+      if (tempFile.renameTo(entryFile)) {
+        tempFile = null;
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to write parse cache entry " + entryFile, e);
+    } finally {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  private File getEntryFile(SourceFile file, String code, Config config) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (String part : ImmutableList.of(
+        compilerVersion, config.getFingerprint(), file.getName(), code)) {
+      hasher.putInt(part.length()).putString(part, UTF_8);
+    }
+    return new File(directory, hasher.hash() + ENTRY_SUFFIX);
+  }
+}
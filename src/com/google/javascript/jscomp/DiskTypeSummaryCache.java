@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.ImmutableList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link TypeSummaryCache} that keeps one file per entry in a directory,
+ * so that it can be shared by successive builds. The fingerprints already
+ * cover the compiler version and the contents of the files, so a changed
+ * file simply misses. Failures to read or write the cache are logged and
+ * otherwise ignored.
+ */
+@GwtIncompatible("java.io")
+public final class DiskTypeSummaryCache implements TypeSummaryCache {
+
+  private static final Logger logger =
+      Logger.getLogger(DiskTypeSummaryCache.class.getName());
+
+  private static final String ENTRY_SUFFIX = ".nti";
+
+  private final File directory;
+
+  public DiskTypeSummaryCache(File directory) {
+    this.directory = directory;
+  }
+
+  @Override
+  public Entry lookup(String fingerprint) {
+    File entryFile = getEntryFile(fingerprint);
+    if (!entryFile.isFile()) {
+      return null;
+    }
+    try (ObjectInputStream in = new ObjectInputStream(
+        new BufferedInputStream(new FileInputStream(entryFile)))) {
+      int numWarnings = in.readInt();
+      ImmutableList.Builder<Warning> warnings = ImmutableList.builder();
+      for (int i = 0; i < numWarnings; i++) {
+        String key = in.readUTF();
+        CheckLevel level = CheckLevel.valueOf(in.readUTF());
+        String description = (String) in.readObject();
+        int pathLength = in.readInt();
+        ImmutableList.Builder<Integer> path = ImmutableList.builder();
+        for (int j = 0; j < pathLength; j++) {
+          path.add(in.readInt());
+        }
+        warnings.add(new Warning(
+            key, level, description, path.build(), in.readInt(), in.readInt()));
+      }
+      return new Entry(warnings.build());
+    } catch (IOException | ClassNotFoundException | ClassCastException
+        | IllegalArgumentException e) {
+      logger.log(Level.WARNING, "Ignoring unreadable type summary cache entry " + entryFile, e);
+      return null;
+    }
+  }
+
+  @Override
+  public void store(String fingerprint, Entry entry) {
+    File entryFile = getEntryFile(fingerprint);
+    File tempFile = null;
+    try {
+      directory.mkdirs();
+      // Write to a private file first and move it into place, so that builds
+      // sharing the directory never see a partially written entry.
+      tempFile = File.createTempFile(entryFile.getName(), ".tmp", directory);
+      try (ObjectOutputStream out = new ObjectOutputStream(
+          new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(entry.warnings.size());
+        for (Warning warning : entry.warnings) {
+          out.writeUTF(warning.key);
+          out.writeUTF(warning.level.name());
+          // Descriptions can be longer than writeUTF allows.
+          out.writeObject(warning.description);
+          out.writeInt(warning.path.size());
+          for (int index : warning.path) {
+            out.writeInt(index);
+          }
+          out.writeInt(warning.lineno);
+          out.writeInt(warning.charno);
+        }
+      }
+      if (tempFile.renameTo(entryFile)) {
+        tempFile = null;
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to write type summary cache entry " + entryFile, e);
+    } finally {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  private File getEntryFile(String fingerprint) {
+    return new File(directory, fingerprint + ENTRY_SUFFIX);
+  }
+}
@@ -41,7 +41,7 @@ final class Es6RenameReferences extends AbstractPostOrderCallback {
       renameReference(t, n);
     }
 
-    JSDocInfo info = n.getJSDocInfo();
+    JSDocInfo info = n.getMutableJSDocInfo();
     if (info != null) {
       renameTypeNode(t, info.getTypeNodes());
     }
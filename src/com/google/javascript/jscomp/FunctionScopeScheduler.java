@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.NodeTraversal.FunctionCallback;
+import com.google.javascript.rhino.Node;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs a {@link FunctionCallback} on several function scopes at the same
+ * time. Each run of the callback records its changes, change handlers and
+ * errors in its own {@link ScopeChanges}, which the compiler looks up with
+ * {@link #getCurrentChanges} instead of updating its shared state. The
+ * caller applies the recorded changes in the order of the scopes once all
+ * the runs are done, so the result does not depend on the number of
+ * threads.
+ */
+class FunctionScopeScheduler {
+
+  private final ThreadLocal<ScopeChanges> currentChanges = new ThreadLocal<>();
+
+  /** The changes made by the callback while processing one function scope. */
+  static final class ScopeChanges {
+    final Node scopeRoot;
+    // The scope of the node being traversed, as set by Compiler#setScope.
+    Node currentScope;
+    final Set<Node> changedScopes = new LinkedHashSet<>();
+    final List<CodeChangeHandler> changeHandlers = new ArrayList<>();
+    final List<JSError> errors = new ArrayList<>();
+
+    ScopeChanges(Node scopeRoot) {
+      this.scopeRoot = scopeRoot;
+      this.currentScope = scopeRoot;
+    }
+
+    void reportChange(Node scope) {
+      changedScopes.add(scope);
+      for (CodeChangeHandler handler : changeHandlers) {
+        handler.reportChange();
+      }
+    }
+  }
+
+  /**
+   * Returns the changes of the function scope that the current thread is
+   * processing, or null if it is not running the callback.
+   */
+  ScopeChanges getCurrentChanges() {
+    return currentChanges.get();
+  }
+
+  /**
+   * Runs the callback on each of the given scopes, on up to
+   * {@code numThreads} threads, and returns their changes in the order of
+   * the scopes.
+   */
+  List<ScopeChanges> run(final AbstractCompiler compiler, List<Node> scopeRoots,
+      final FunctionCallback callback, CompilerExecutor executor, int numThreads) {
+    List<Callable<ScopeChanges>> tasks = new ArrayList<>(scopeRoots.size());
+    for (final Node scopeRoot : scopeRoots) {
+      tasks.add(new Callable<ScopeChanges>() {
+        @Override
+        public ScopeChanges call() {
+          ScopeChanges changes = new ScopeChanges(scopeRoot);
+          currentChanges.set(changes);
+          try {
+            callback.enterFunction(compiler, scopeRoot);
+          } finally {
+            currentChanges.remove();
+          }
+          return changes;
+        }
+      });
+    }
+    return executor.runInParallel(tasks, numThreads);
+  }
+}
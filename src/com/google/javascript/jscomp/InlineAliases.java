@@ -135,7 +135,7 @@ final class InlineAliases implements CompilerPass {
         default:
           break;
       }
-      maybeRewriteJsdoc(n.getJSDocInfo());
+      maybeRewriteJsdoc(n.getMutableJSDocInfo());
     }
 
     /**
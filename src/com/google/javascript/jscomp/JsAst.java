@@ -18,14 +18,17 @@ package com.google.javascript.jscomp;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.parsing.Config;
 import com.google.javascript.jscomp.parsing.ParserRunner;
 import com.google.javascript.jscomp.parsing.parser.FeatureSet;
+import com.google.javascript.jscomp.parsing.parser.trees.Comment;
 import com.google.javascript.rhino.ErrorReporter;
 import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.InputId;
 import com.google.javascript.rhino.Node;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 
 /**
@@ -35,12 +38,16 @@ import java.util.ArrayList;
 public class JsAst implements SourceAst {
   private static final long serialVersionUID = 1L;
 
-  private transient InputId inputId;
-  private transient SourceFile sourceFile;
+  private InputId inputId;
+  private SourceFile sourceFile;
   private String fileName;
   private Node root;
   private FeatureSet features;
 
+  // A parse run ahead of time, off the compiler thread, that has not yet been
+  // installed by getAstRoot.
+  private transient PendingParse pendingParse;
+
   public JsAst(SourceFile sourceFile) {
     this.inputId = new InputId(sourceFile.getName());
     this.sourceFile = sourceFile;
@@ -56,9 +63,30 @@ public class JsAst implements SourceAst {
     return root;
   }
 
+  /**
+   * Runs the parser over this file without touching any compiler state, so
+   * that several files may be parsed concurrently. The result, along with any
+   * diagnostics the parser produced, is held until the next call to
+   * {@link #getAstRoot}, which reports the diagnostics and finishes preparing
+   * the tree on the calling thread exactly as an ordinary parse would.
+   */
+  void preParse(Config config, ParseCache cache) {
+    if (root != null || pendingParse != null) {
+      return;
+    }
+    PendingParse pending = new PendingParse();
+    try {
+      pending.result = runParser(sourceFile, config, cache, pending);
+    } catch (IOException e) {
+      pending.readError = e;
+    }
+    pendingParse = pending;
+  }
+
   @Override
   public void clearAst() {
     root = null;
+    pendingParse = null;
     // While we're at it, clear out any saved text in the source file on
     // the assumption that if we're dumping the parse tree, then we probably
     // assume regenerating everything else is a smart idea also.
@@ -86,7 +114,9 @@ public class JsAst implements SourceAst {
     return features;
   }
 
-  public static class RhinoError {
+  public static class RhinoError implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public final String message;
     public final String sourceName;
     public final int line;
@@ -101,7 +131,9 @@ public class JsAst implements SourceAst {
   }
 
   /** Simple class to share parse results between compilation jobs */
-  public static class ParseResult {
+  public static class ParseResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public final ImmutableList<RhinoError> errors;
     public final ImmutableList<RhinoError> warnings;
     ParseResult(ImmutableList<RhinoError> errors, ImmutableList<RhinoError> warnings) {
@@ -132,6 +164,75 @@ public class JsAst implements SourceAst {
     }
   }
 
+  /**
+   * Buffers the diagnostics of a parse run by {@link #preParse}, in the order
+   * they were produced, so they can later be replayed to the compiler.
+   */
+  private static class PendingParse implements ErrorReporter {
+    private final ArrayList<RhinoError> diagnostics = new ArrayList<>();
+    private final ArrayList<Boolean> isError = new ArrayList<>();
+    ParserRunner.ParseResult result;
+    IOException readError;
+
+    @Override
+    public void warning(String message, String sourceName, int line, int lineOffset) {
+      diagnostics.add(new RhinoError(message, sourceName, line, lineOffset));
+      isError.add(false);
+    }
+
+    @Override
+    public void error(String message, String sourceName, int line, int lineOffset) {
+      diagnostics.add(new RhinoError(message, sourceName, line, lineOffset));
+      isError.add(true);
+    }
+
+    ParserRunner.ParseResult replay(ErrorReporter reporter) throws IOException {
+      if (readError != null) {
+        throw readError;
+      }
+      for (int i = 0; i < diagnostics.size(); i++) {
+        RhinoError d = diagnostics.get(i);
+        if (isError.get(i)) {
+          reporter.error(d.message, d.sourceName, d.line, d.lineOffset);
+        } else {
+          reporter.warning(d.message, d.sourceName, d.line, d.lineOffset);
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Parses the given file, or takes its parse from the cache if there is one.
+   * A cached parse replays the warnings that the original parse produced.
+   */
+  private static ParserRunner.ParseResult runParser(
+      SourceFile sourceFile, Config config, ParseCache cache, ErrorReporter reporter)
+      throws IOException {
+    String code = sourceFile.getCode();
+    if (cache == null) {
+      return ParserRunner.parse(sourceFile, code, config, reporter);
+    }
+
+    ParseCache.Entry entry = cache.lookup(sourceFile, code, config);
+    if (entry != null) {
+      for (RhinoError warning : entry.warnings) {
+        reporter.warning(
+            warning.message, warning.sourceName, warning.line, warning.lineOffset);
+      }
+      return new ParserRunner.ParseResult(
+          entry.root, ImmutableList.<Comment>of(), entry.features);
+    }
+
+    RecordingReporterProxy recorder = new RecordingReporterProxy(reporter);
+    ParserRunner.ParseResult result = ParserRunner.parse(sourceFile, code, config, recorder);
+    if (result.ast != null && recorder.errors.isEmpty()) {
+      cache.store(sourceFile, code, config, new ParseCache.Entry(
+          result.ast, result.features, ImmutableList.copyOf(recorder.warnings)));
+    }
+    return result;
+  }
+
   private void parse(AbstractCompiler compiler) {
     ErrorManager errorManager = compiler.getErrorManager();
     int startErrorCount = errorManager.getErrorCount();
@@ -140,13 +241,20 @@ public class JsAst implements SourceAst {
         compiler.getDefaultErrorReporter());
 
     try {
-      ParserRunner.ParseResult result = ParserRunner.parse(
-          sourceFile,
-          sourceFile.getCode(),
-          compiler.getParserConfig(sourceFile.isExtern()
-                        ? AbstractCompiler.ConfigContext.EXTERNS
-                        : AbstractCompiler.ConfigContext.DEFAULT),
-          reporter);
+      ParserRunner.ParseResult result;
+      if (pendingParse != null) {
+        PendingParse pending = pendingParse;
+        pendingParse = null;
+        result = pending.replay(reporter);
+      } else {
+        result = runParser(
+            sourceFile,
+            compiler.getParserConfig(sourceFile.isExtern()
+                          ? AbstractCompiler.ConfigContext.EXTERNS
+                          : AbstractCompiler.ConfigContext.DEFAULT),
+            compiler.getOptions().getParseCache(),
+            reporter);
+      }
       root = result.ast;
       features = result.features;
 
@@ -19,6 +19,7 @@ package com.google.javascript.jscomp;
 import com.google.common.base.Preconditions;
 import com.google.javascript.jscomp.ControlFlowGraph.Branch;
 import com.google.javascript.jscomp.graph.DiGraph.DiGraphEdge;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.jscomp.graph.LatticeElement;
 import com.google.javascript.rhino.Node;
 
@@ -41,6 +42,9 @@ import java.util.Set;
  * Due to the possibility of inner functions and closures, certain "local"
  * variables can escape the function. These variables will be considered as
  * global and they can be retrieved with {@link #getEscapedLocals()}.
+ * <p>
+ * Liveness is a bit vector problem, so the analysis updates the lattices of
+ * each node in place instead of allocating new ones on every join and flow.
  *
  */
 class LiveVariablesAnalysis extends
@@ -116,6 +120,11 @@ class LiveVariablesAnalysis extends
   private final Scope jsScope;
   private final Set<Var> escaped;
 
+  // Reused by every flow through a node.
+  private final BitSet gen = new BitSet();
+  private final BitSet kill = new BitSet();
+  private final BitSet liveIn = new BitSet();
+
   LiveVariablesAnalysis(ControlFlowGraph<Node> cfg, Scope jsScope,
       AbstractCompiler compiler) {
     super(cfg, new LiveVariableJoinOp());
@@ -149,8 +158,54 @@ class LiveVariablesAnalysis extends
 
   @Override
   LiveVariableLattice flowThrough(Node node, LiveVariableLattice input) {
-    final BitSet gen = new BitSet(input.liveSet.size());
-    final BitSet kill = new BitSet(input.liveSet.size());
+    LiveVariableLattice result = new LiveVariableLattice(jsScope.getVarCount());
+    computeLiveIn(node, input.liveSet, result.liveSet);
+    return result;
+  }
+
+  /**
+   * Joins the variables live before the successors of the node into its
+   * output lattice, in place.
+   */
+  @Override
+  protected void joinInputs(DiGraphNode<Node, Branch> node) {
+    FlowState<LiveVariableLattice> state = node.getAnnotation();
+    BitSet liveOut = state.getOut().liveSet;
+    liveOut.clear();
+    for (DiGraphNode<Node, Branch> succ : getCfg().getDirectedSuccNodes(node)) {
+      // Nothing is live at the implicit return.
+      if (succ != getCfg().getImplicitReturn()) {
+        FlowState<LiveVariableLattice> succState = succ.getAnnotation();
+        liveOut.or(succState.getIn().liveSet);
+      }
+    }
+  }
+
+  /**
+   * Computes the variables live before the node, and updates its input
+   * lattice in place if they changed.
+   */
+  @Override
+  protected boolean flow(DiGraphNode<Node, Branch> node) {
+    FlowState<LiveVariableLattice> state = node.getAnnotation();
+    computeLiveIn(node.getValue(), state.getOut().liveSet, liveIn);
+    BitSet liveSet = state.getIn().liveSet;
+    if (liveSet.equals(liveIn)) {
+      return false;
+    }
+    liveSet.clear();
+    liveSet.or(liveIn);
+    return true;
+  }
+
+  /**
+   * Computes the variables live before a node from the ones live after it.
+   *
+   * @param result Cleared, then set to the live variables.
+   */
+  private void computeLiveIn(Node node, BitSet liveOut, BitSet result) {
+    gen.clear();
+    kill.clear();
 
     // Make kills conditional if the node can end abruptly by an exception.
     boolean conditional = false;
@@ -161,11 +216,11 @@ class LiveVariablesAnalysis extends
       }
     }
     computeGenKill(node, gen, kill, conditional);
-    LiveVariableLattice result = new LiveVariableLattice(input);
     // L_in = L_out - Kill + Gen
-    result.liveSet.andNot(kill);
-    result.liveSet.or(gen);
-    return result;
+    result.clear();
+    result.or(liveOut);
+    result.andNot(kill);
+    result.or(gen);
   }
 
   /**
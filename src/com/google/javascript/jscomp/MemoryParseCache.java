@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.rhino.Node;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link ParseCache} that keeps parses in memory, for a process that runs
+ * many compilations, such as {@link CompileServer}. Only the parse of the
+ * latest contents of each file is kept, so the cache holds at most one tree
+ * per file name and parser config.
+ */
+public final class MemoryParseCache implements ParseCache {
+
+  private final Map<String, CachedParse> parses = new HashMap<>();
+
+  private static final class CachedParse {
+    final String code;
+    final Entry entry;
+
+    CachedParse(String code, Entry entry) {
+      this.code = code;
+      this.entry = entry;
+    }
+  }
+
+  @Override
+  public Entry lookup(SourceFile file, String code, Config config) {
+    CachedParse parse;
+    synchronized (parses) {
+      parse = parses.get(getKey(file, config));
+    }
+    if (parse == null || !parse.code.equals(code)) {
+      return null;
+    }
+    return new Entry(copyTree(parse.entry.root, file), parse.entry.features, parse.entry.warnings);
+  }
+
+  @Override
+  public void store(SourceFile file, String code, Config config, Entry entry) {
+    Node snapshot = entry.root.cloneTree(true);
+    snapshot.markJSDocInfoShared();
+    CachedParse parse = new CachedParse(
+        code, new Entry(snapshot, entry.features, entry.warnings));
+    synchronized (parses) {
+      parses.put(getKey(file, config), parse);
+    }
+  }
+
+  private static String getKey(SourceFile file, Config config) {
+    return config.getFingerprint() + ';' + file.getName();
+  }
+
+  /**
+   * Copies the stored tree, and points the copy at the given file, which may
+   * be a different object with the same name as the file that was parsed.
+   * The copy shares the JSDocInfo of the stored tree until it modifies it.
+   */
+  private static Node copyTree(Node root, SourceFile file) {
+    Node copy = root.cloneTree();
+    Deque<Node> worklist = new ArrayDeque<>();
+    worklist.push(copy);
+    while (!worklist.isEmpty()) {
+      Node n = worklist.pop();
+      if (n.getStaticSourceFile() != null && n.getStaticSourceFile() != file) {
+        n.setStaticSourceFile(file);
+      }
+      for (Node child = n.getFirstChild(); child != null; child = child.getNext()) {
+        worklist.push(child);
+      }
+    }
+    return copy;
+  }
+}
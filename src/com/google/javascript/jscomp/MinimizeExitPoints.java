@@ -41,7 +41,7 @@ class MinimizeExitPoints extends AbstractShallowCallback implements CompilerPass
 
   @Override
   public void process(Node externs, Node root) {
-    NodeTraversal.traverseChangedFunctions(compiler, new FunctionCallback() {
+    NodeTraversal.traverseChangedFunctionsInParallel(compiler, new FunctionCallback() {
         @Override
         public void enterFunction(AbstractCompiler compiler, Node root) {
           if (root.isFunction()) {
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Compiles the same sources with several configurations, for example one per
+ * locale or set of defines, parsing and checking them only once.
+ *
+ * <p>A front-end compiler parses the sources and runs the checks with the
+ * options of the first configuration, except for the checks that depend on
+ * the defines, tweaks and messages (see
+ * {@link PassConfig#getConfigurationChecks}). Its state is then saved, and
+ * restored into one compiler per other configuration, while the front end
+ * itself continues with the first one. Each compiler runs the remaining
+ * checks and the optimizations with its own options. These compilers are
+ * independent, so they run on several threads.
+ *
+ * <p>The configurations should only differ in the options used by the
+ * optimizations and the configuration checks; the checks options of the
+ * other configurations are ignored. The new type inference is not supported.
+ */
+@GwtIncompatible("java.io")
+public class MultiConfigurationCompiler {
+
+  private final List<CompilerOptions> configurations;
+  private int numThreads = 1;
+
+  public MultiConfigurationCompiler(List<CompilerOptions> configurations) {
+    Preconditions.checkArgument(!configurations.isEmpty(), "No configuration given");
+    this.configurations = ImmutableList.copyOf(configurations);
+  }
+
+  /** Sets the number of configurations compiled at the same time. */
+  public void setNumThreads(int numThreads) {
+    Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Creates the compilers for the front end and for each configuration.
+   * Subclasses can override this to report diagnostics differently.
+   */
+  protected Compiler createCompiler() {
+    return new Compiler();
+  }
+
+  /**
+   * Compiles the inputs with each configuration, and returns the compilers
+   * in the order of the configurations, to get their results and output.
+   * Each of them reports the diagnostics of the shared checks, and if there
+   * were errors, it does not run its optimizations.
+   */
+  public <T1 extends SourceFile, T2 extends SourceFile> List<Compiler> compile(
+      List<T1> externs, List<T2> inputs) {
+    Compiler frontEnd = createCompiler();
+    frontEnd.init(externs, inputs, configurations.get(0));
+    return compile(frontEnd);
+  }
+
+  /** Same as {@link #compile}, for sources in modules. */
+  public <T extends SourceFile> List<Compiler> compileModules(
+      List<T> externs, List<JSModule> modules) {
+    Compiler frontEnd = createCompiler();
+    frontEnd.initModules(externs, modules, configurations.get(0));
+    return compile(frontEnd);
+  }
+
+  private List<Compiler> compile(final Compiler frontEnd) {
+    // The state is saved on the compiler thread, whose stack is large enough
+    // for the AST and the types, and only if another compiler restores it.
+    final boolean saveState = configurations.size() > 1;
+    final byte[] savedState = frontEnd.runInCompilerThread(new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws IOException {
+        if (!frontEnd.hasErrors()) {
+          frontEnd.compileFrontEnd();
+        }
+        if (!saveState) {
+          return null;
+        }
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        frontEnd.saveState(state);
+        return state.toByteArray();
+      }
+    });
+
+    final JSError[] errors = frontEnd.getErrors();
+    final JSError[] warnings = frontEnd.getWarnings();
+    List<Callable<Compiler>> tasks = new ArrayList<>(configurations.size());
+    // The first configuration continues in the front end, so that its state
+    // is only restored by the other configurations.
+    tasks.add(new Callable<Compiler>() {
+      @Override
+      public Compiler call() {
+        return compileConfiguration(frontEnd);
+      }
+    });
+    for (final CompilerOptions options : configurations.subList(1, configurations.size())) {
+      tasks.add(new Callable<Compiler>() {
+        @Override
+        public Compiler call() {
+          final Compiler compiler = createCompiler();
+          compiler.initOptions(options);
+          compiler.runInCompilerThread(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException, ClassNotFoundException {
+              compiler.restoreState(new ByteArrayInputStream(savedState));
+              return null;
+            }
+          });
+          for (JSError error : errors) {
+            compiler.report(error);
+          }
+          for (JSError warning : warnings) {
+            compiler.report(warning);
+          }
+          return compileConfiguration(compiler);
+        }
+      });
+    }
+    CompilerExecutor executor = new CompilerExecutor();
+    try {
+      return executor.runInParallel(tasks, numThreads);
+    } finally {
+      executor.shutdownWorkers();
+    }
+  }
+
+  private static Compiler compileConfiguration(final Compiler compiler) {
+    try {
+      if (!compiler.hasErrors()) {
+        compiler.runInCompilerThread(new Callable<Void>() {
+          @Override
+          public Void call() {
+            compiler.compileConfiguration();
+            return null;
+          }
+        });
+      }
+    } finally {
+      compiler.getErrorManager().generateReport();
+    }
+    return compiler;
+  }
+}
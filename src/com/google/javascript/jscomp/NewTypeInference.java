@@ -17,7 +17,9 @@
 package com.google.javascript.jscomp;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedHashMultimap;
@@ -50,6 +52,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
 /**
  * New type inference algorithm.
@@ -340,10 +344,31 @@ final class NewTypeInference implements CompilerPass {
           || JSType.mockToString) {
         return;
       }
+      report(warning);
+    }
+
+    void report(JSError warning) {
       compiler.report(warning);
     }
   }
 
+  /**
+   * Keeps the warnings of a scope that is analyzed on a worker thread, so
+   * that they are reported in the order of the scopes.
+   */
+  private static final class BufferedWarningReporter extends WarningReporter {
+    final List<JSError> warnings = new ArrayList<>();
+
+    BufferedWarningReporter(AbstractCompiler compiler) {
+      super(compiler);
+    }
+
+    @Override
+    void report(JSError warning) {
+      warnings.add(warning);
+    }
+  }
+
   private WarningReporter warnings;
   private final AbstractCompiler compiler;
   private final CodingConvention convention;
@@ -356,6 +381,11 @@ final class NewTypeInference implements CompilerPass {
   private TypeEnv typeEnvFromDeclaredTypes = null;
   private GlobalTypeInfo symbolTable;
   private JSTypes commonTypes;
+  // False when analyzing a scope at the same time as others, which must not
+  // update the types of function namespaces.
+  private final boolean mayUpdateNamespaces;
+  // The functions of unchanged files that need not be analyzed again
+  private CachedTypeSummaries cachedSummaries;
   // RETVAL_ID is used when we calculate the summary type of a function
   private static final String RETVAL_ID = "%return";
   private static final String THIS_ID = "this";
@@ -381,6 +411,7 @@ final class NewTypeInference implements CompilerPass {
     this.envs = new LinkedHashMap<>();
     this.summaries = new LinkedHashMap<>();
     this.deferredChecks = new LinkedHashMap<>();
+    this.mayUpdateNamespaces = true;
     this.ABSTRACT_METHOD_NAME = convention.getAbstractMethodName();
     this.reportUnknownTypes =
         compiler.getOptions().enables(DiagnosticGroups.REPORT_UNKNOWN_TYPES);
@@ -398,6 +429,31 @@ final class NewTypeInference implements CompilerPass {
     this.allowPropertyOnSubtypes = inCompatibilityMode;
   }
 
+  /**
+   * Creates an instance that analyzes a single scope for the given instance,
+   * possibly on a worker thread. It only sees the summaries of the inner
+   * scopes, and buffers its warnings.
+   */
+  private NewTypeInference(NewTypeInference parent,
+      Map<NTIScope, JSType> summariesOfInnerScopes, boolean mayUpdateNamespaces) {
+    this.warnings = new BufferedWarningReporter(parent.compiler);
+    this.compiler = parent.compiler;
+    this.convention = parent.convention;
+    this.envs = new LinkedHashMap<>();
+    this.summaries = summariesOfInnerScopes;
+    this.deferredChecks = new LinkedHashMap<>();
+    this.symbolTable = parent.symbolTable;
+    this.commonTypes = parent.commonTypes;
+    this.mayUpdateNamespaces = mayUpdateNamespaces;
+    this.cachedSummaries = parent.cachedSummaries;
+    this.ABSTRACT_METHOD_NAME = parent.ABSTRACT_METHOD_NAME;
+    this.reportUnknownTypes = parent.reportUnknownTypes;
+    this.reportNullDeref = parent.reportNullDeref;
+    this.assertionFunctionsMap = parent.assertionFunctionsMap;
+    this.joinTypesWhenInstantiatingGenerics = parent.joinTypesWhenInstantiatingGenerics;
+    this.allowPropertyOnSubtypes = parent.allowPropertyOnSubtypes;
+  }
+
   @VisibleForTesting // Only used from tests
   public NTIScope processForTesting(Node externs, Node root) {
     process(externs, root);
@@ -409,13 +465,27 @@ final class NewTypeInference implements CompilerPass {
     try {
       this.symbolTable = (GlobalTypeInfo) compiler.getSymbolTable();
       this.commonTypes = symbolTable.getTypesUtilObject();
-      for (NTIScope scope : symbolTable.getScopes()) {
-        analyzeFunction(scope);
-        envs.clear();
+      Collection<NTIScope> scopes = symbolTable.getScopes();
+      TypeSummaryCache typeSummaryCache = compiler.getOptions().getTypeSummaryCache();
+      if (typeSummaryCache != null) {
+        scopes = lookUpCachedSummaries(externs, scopes, typeSummaryCache);
+      }
+      int numThreads = compiler.getOptions().getNumParallelTypeInferenceThreads();
+      if (numThreads > 1) {
+        analyzeFunctionsInParallel(scopes, numThreads);
+      } else {
+        for (NTIScope scope : scopes) {
+          analyzeFunction(scope);
+          envs.clear();
+        }
       }
       for (DeferredCheck check : deferredChecks.values()) {
+        currentScope = check.callerScope;
         check.runCheck(summaries, warnings);
       }
+      if (cachedSummaries != null) {
+        cachedSummaries.storeEntries();
+      }
       if (measureMem) {
         System.out.println("Peak mem: " + peakMem + "MB");
       }
@@ -428,6 +498,203 @@ final class NewTypeInference implements CompilerPass {
     }
   }
 
+  /**
+   * Finds the functions of unchanged files whose summaries are their declared
+   * types, which are not analyzed again, and returns the scopes to analyze.
+   * The warnings found in the functions of the other files are recorded.
+   */
+  private Collection<NTIScope> lookUpCachedSummaries(
+      Node externs, Collection<NTIScope> scopes, TypeSummaryCache typeSummaryCache) {
+    CompilerOptions options = compiler.getOptions();
+    String settings = Joiner.on(',').join(
+        reportUnknownTypes, reportNullDeref, allowPropertyOnSubtypes,
+        convention.getClass().getName(), options.getLanguageIn(), options.getLanguageOut(),
+        getDiagnosticLevels());
+    cachedSummaries = new CachedTypeSummaries(compiler, typeSummaryCache, settings);
+    List<Node> roots = new ArrayList<>();
+    for (NTIScope scope : scopes) {
+      if (hasDeclaredSummary(scope)) {
+        roots.add(scope.getRoot());
+      }
+    }
+    cachedSummaries.lookUp(externs, roots);
+
+    List<NTIScope> scopesToAnalyze = new ArrayList<>();
+    for (NTIScope scope : scopes) {
+      if (!isInUnchangedFunction(scope.getParent())) {
+        scopesToAnalyze.add(scope);
+      }
+    }
+    final CachedTypeSummaries recorder = cachedSummaries;
+    this.warnings = new WarningReporter(compiler) {
+      @Override
+      void report(JSError warning) {
+        if (currentScope != null) {
+          recorder.recordWarning(currentScope.getRoot(), warning);
+        }
+        super.report(warning);
+      }
+    };
+    return scopesToAnalyze;
+  }
+
+  /**
+   * Returns the levels that the warnings guards give to the warnings of this
+   * pass, which the settings of the cached summaries depend on.
+   */
+  private String getDiagnosticLevels() {
+    Map<String, CheckLevel> levels = new TreeMap<>();
+    for (DiagnosticType type : Iterables.concat(
+        COMPATIBLE_DIAGNOSTICS.getTypes(), NEW_DIAGNOSTICS.getTypes(),
+        ImmutableList.of(NULLABLE_DEREFERENCE, UNKNOWN_EXPR_TYPE))) {
+      levels.put(type.key, compiler.getErrorLevel(JSError.make(type)));
+    }
+    return levels.toString();
+  }
+
+  private boolean isInUnchangedFunction(NTIScope scope) {
+    for (; scope != null; scope = scope.getParent()) {
+      if (cachedSummaries.isUnchanged(scope.getRoot())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Analyzes the scopes on several threads, with the same results as
+   * analyzing them in order. A scope only needs the summaries of the
+   * functions defined in it, so the scopes are analyzed in waves, each after
+   * the waves of its inner scopes.
+   *
+   * The scopes that update the type of a function namespace, which any other
+   * scope may read, are analyzed alone instead: after all the scopes before
+   * them, and before all the scopes after them. The warnings are reported in
+   * the order of the scopes.
+   */
+  private void analyzeFunctionsInParallel(Collection<NTIScope> scopes, int numThreads) {
+    Multimap<NTIScope, NTIScope> innerScopes = LinkedHashMultimap.create();
+    Map<NTIScope, NewTypeInference> analyzers = new LinkedHashMap<>();
+    Map<NTIScope, Integer> waveOfScope = new LinkedHashMap<>();
+    List<List<NTIScope>> waves = new ArrayList<>();
+    for (NTIScope scope : scopes) {
+      if (updatesFunctionNamespace(scope)) {
+        analyzeWaves(waves, innerScopes, analyzers, numThreads);
+        waves.clear();
+        waveOfScope.clear();
+        NewTypeInference analyzer =
+            new NewTypeInference(this, getSummariesOfInnerScopes(scope, innerScopes), true);
+        addResults(new AnalyzeScope(analyzer, scope).call(), analyzers);
+      } else {
+        int wave = 0;
+        for (NTIScope innerScope : innerScopes.get(scope)) {
+          Integer innerWave = waveOfScope.get(innerScope);
+          if (innerWave != null) {
+            wave = Math.max(wave, innerWave + 1);
+          }
+        }
+        if (wave == waves.size()) {
+          waves.add(new ArrayList<NTIScope>());
+        }
+        waves.get(wave).add(scope);
+        waveOfScope.put(scope, wave);
+      }
+      if (scope.getParent() != null) {
+        innerScopes.put(scope.getParent(), scope);
+      }
+    }
+    analyzeWaves(waves, innerScopes, analyzers, numThreads);
+
+    for (NTIScope scope : scopes) {
+      NewTypeInference analyzer = analyzers.get(scope);
+      currentScope = scope;
+      for (JSError warning : ((BufferedWarningReporter) analyzer.warnings).warnings) {
+        warnings.report(warning);
+      }
+      deferredChecks.putAll(analyzer.deferredChecks);
+    }
+  }
+
+  /**
+   * Analyzes the scopes of each wave at the same time, using the worker pool
+   * of the compiler.
+   */
+  private void analyzeWaves(List<List<NTIScope>> waves,
+      Multimap<NTIScope, NTIScope> innerScopes, Map<NTIScope, NewTypeInference> analyzers,
+      int numThreads) {
+    for (List<NTIScope> wave : waves) {
+      List<AnalyzeScope> tasks = new ArrayList<>(wave.size());
+      for (NTIScope scope : wave) {
+        NewTypeInference analyzer =
+            new NewTypeInference(this, getSummariesOfInnerScopes(scope, innerScopes), false);
+        tasks.add(new AnalyzeScope(analyzer, scope));
+      }
+      for (NewTypeInference analyzer : compiler.runInParallel(tasks, numThreads)) {
+        addResults(analyzer, analyzers);
+      }
+    }
+  }
+
+  private Map<NTIScope, JSType> getSummariesOfInnerScopes(
+      NTIScope scope, Multimap<NTIScope, NTIScope> innerScopes) {
+    Map<NTIScope, JSType> summariesOfInnerScopes = new LinkedHashMap<>();
+    for (NTIScope innerScope : innerScopes.get(scope)) {
+      JSType summary = summaries.get(innerScope);
+      if (summary != null) {
+        summariesOfInnerScopes.put(innerScope, summary);
+      }
+    }
+    return summariesOfInnerScopes;
+  }
+
+  private void addResults(
+      NewTypeInference analyzer, Map<NTIScope, NewTypeInference> analyzers) {
+    NTIScope scope = analyzer.currentScope;
+    JSType summary = analyzer.summaries.get(scope);
+    if (summary != null) {
+      summaries.put(scope, summary);
+    }
+    analyzers.put(scope, analyzer);
+  }
+
+  /**
+   * Whether analyzing the scope may update the type of a function namespace:
+   * that of its own function, or that of a function defined in it, when it
+   * has no summary (see {@link #getSummaryOfLocalFunDef}).
+   */
+  private boolean updatesFunctionNamespace(NTIScope scope) {
+    if (scope.isFunction() && getFunctionNamespaceType(scope) != null) {
+      return true;
+    }
+    for (String fnName : scope.getLocalFunDefs()) {
+      if (getFunctionNamespaceType(scope.getScope(fnName)) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Analyzes a scope with its own instance, which keeps the results. */
+  private static final class AnalyzeScope implements Callable<NewTypeInference> {
+    final NewTypeInference analyzer;
+    final NTIScope scope;
+
+    AnalyzeScope(NewTypeInference analyzer, NTIScope scope) {
+      this.analyzer = analyzer;
+      this.scope = scope;
+    }
+
+    @Override
+    public NewTypeInference call() {
+      try {
+        analyzer.analyzeFunction(scope);
+      } catch (RuntimeException e) {
+        throw new RuntimeException(e.getMessage() + "\nIn scope: " + scope, e);
+      }
+      return analyzer;
+    }
+  }
+
   static void updatePeakMem() {
     Runtime rt = Runtime.getRuntime();
     long currentUsedMem = (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024);
@@ -713,6 +980,13 @@ final class NewTypeInference implements CompilerPass {
   private void analyzeFunction(NTIScope scope) {
     println("=== Analyzing function: ", scope.getReadableName(), " ===");
     currentScope = scope;
+    if (cachedSummaries != null && cachedSummaries.isUnchanged(scope.getRoot())) {
+      for (JSError warning : cachedSummaries.getWarnings(scope.getRoot())) {
+        warnings.report(warning);
+      }
+      setSummary(scope, createDeclaredSummary(scope));
+      return;
+    }
     ControlFlowAnalysis cfa = new ControlFlowAnalysis(compiler, false, false);
     cfa.process(null, scope.getRoot());
     this.cfg = cfa.getCfg();
@@ -1087,6 +1361,11 @@ final class NewTypeInference implements CompilerPass {
     JSType summary = commonTypes.fromFunctionType(builder.buildFunction());
     println("Function summary for ", fn.getReadableName());
     println("\t", summary);
+    setSummary(fn, summary);
+  }
+
+  private void setSummary(NTIScope fn, JSType summary) {
+    Node fnRoot = fn.getRoot();
     summary = changeTypeIfFunctionNamespace(fn, summary);
     summaries.put(fn, summary);
     maybeSetTypeI(fnRoot, summary);
@@ -1096,12 +1375,71 @@ final class NewTypeInference implements CompilerPass {
     }
   }
 
+  /**
+   * Whether the summary of the function is the same as its declared type,
+   * that is, whether it is a top-level function whose formals and return type
+   * are all declared.
+   */
+  private static boolean hasDeclaredSummary(NTIScope fn) {
+    DeclaredFunctionType declType = fn.getDeclaredFunctionType();
+    return fn.isFunction()
+        && fn.getParent().isTopLevel()
+        && !fn.hasUndeclaredFormalsOrOuters()
+        && fn.getOuterVars().isEmpty()
+        && (declType.getReturnType() != null || declType.getNominalType() != null);
+  }
+
+  private JSType createDeclaredSummary(NTIScope fn) {
+    DeclaredFunctionType declType = fn.getDeclaredFunctionType();
+    FunctionTypeBuilder builder = new FunctionTypeBuilder();
+    if (declType.isGeneric()) {
+      builder.addTypeParameters(declType.getTypeParameters());
+    }
+    int reqArity = declType.getRequiredArity();
+    int optArity = declType.getOptionalArity();
+    int formalIndex = 0;
+    for (String formal : fn.getFormals()) {
+      JSType formalType = fn.getDeclaredTypeOf(formal);
+      if (formalIndex < reqArity) {
+        builder.addReqFormal(formalType);
+      } else if (formalIndex < optArity) {
+        builder.addOptFormal(formalType);
+      }
+      formalIndex++;
+    }
+    if (declType.hasRestFormals()) {
+      builder.addRestFormals(declType.getFormalType(formalIndex));
+    }
+    builder.addNominalType(declType.getNominalType());
+    builder.addReceiverType(declType.getReceiverType());
+    JSType declRetType = declType.getReturnType();
+    // Constructors without a declared return type get undefined, as in createSummary.
+    builder.addRetType(declRetType != null ? declRetType : JSType.UNDEFINED);
+    return commonTypes.fromFunctionType(builder.buildFunction());
+  }
+
   private JSType changeTypeIfFunctionNamespace(NTIScope fnScope, JSType fnType) {
+    JSType namespaceType = getFunctionNamespaceType(fnScope);
+    if (namespaceType != null) {
+      Preconditions.checkState(mayUpdateNamespaces,
+          "Function namespace updated by a scope analyzed in parallel: %s", fnScope);
+      // Replace the less-precise declared function type
+      // with the new function summary.
+      JSType newType = namespaceType.withFunction(
+          fnType.getFunTypeIfSingletonObj(), commonTypes.getFunctionType());
+      newType.updateNamespaceType();
+      return newType;
+    }
+    return fnType;
+  }
+
+  /** Returns the namespace type of the function, if it is a namespace, or null. */
+  private static JSType getFunctionNamespaceType(NTIScope fnScope) {
     NTIScope enclosingScope = fnScope.getParent();
     Node fnNameNode = NodeUtil.getNameNode(fnScope.getRoot());
     JSType namespaceType = null;
     if (fnNameNode == null) {
-      return fnType;
+      return null;
     }
     if (fnNameNode.isName()) {
       String fnName = fnNameNode.getString();
@@ -1113,13 +1451,7 @@ final class NewTypeInference implements CompilerPass {
       JSType rootNs = enclosingScope.getDeclaredTypeOf(qname.getLeftmostName());
       namespaceType = rootNs == null ? null : rootNs.getProp(qname.getAllButLeftmost());
     }
-    if (namespaceType != null && namespaceType.isNamespace()) {
-      // Replace the less-precise declared function type
-      // with the new function summary.
-      return namespaceType.withFunction(
-          fnType.getFunTypeIfSingletonObj(), commonTypes.getFunctionType());
-    }
-    return fnType;
+    return namespaceType != null && namespaceType.isNamespace() ? namespaceType : null;
   }
 
   // TODO(dimvar): To get the adjusted end-of-fwd type for objs, we must be
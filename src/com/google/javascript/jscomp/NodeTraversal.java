@@ -24,9 +24,11 @@ import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -572,6 +574,54 @@ public class NodeTraversal {
         });
   }
 
+  /**
+   * Like {@link #traverseChangedFunctions}, but lets the compiler run the
+   * callback on several functions at the same time. The callback may then
+   * only change the function that it is given, not including the functions
+   * nested in it, which are processed after it. Functions that the callback
+   * removes from the AST are not processed.
+   */
+  public static void traverseChangedFunctionsInParallel(
+      final AbstractCompiler compiler, FunctionCallback callback) {
+    if (!compiler.canProcessFunctionsInParallel()) {
+      traverseChangedFunctions(compiler, callback);
+      return;
+    }
+    // The changed functions, by how deeply they are nested.
+    final List<List<Node>> waves = new ArrayList<>();
+    final Node jsRoot = compiler.getJsRoot();
+    NodeTraversal.traverseEs6(compiler, jsRoot,
+        new Callback() {
+          private int depth = 0;
+
+          @Override
+          public boolean shouldTraverse(NodeTraversal t, Node n, Node p) {
+            if (n == jsRoot || n.isFunction()) {
+              if (compiler.hasScopeChanged(n)) {
+                while (waves.size() <= depth) {
+                  waves.add(new ArrayList<Node>());
+                }
+                waves.get(depth).add(n);
+              }
+              depth++;
+            }
+            return true;
+          }
+
+          @Override
+          public void visit(NodeTraversal t, Node n, Node p) {
+            if (n == jsRoot || n.isFunction()) {
+              depth--;
+            }
+          }
+        });
+    for (List<Node> wave : waves) {
+      if (!wave.isEmpty()) {
+        compiler.processFunctionsInParallel(wave, callback);
+      }
+    }
+  }
+
   /**
    * Traverses a node recursively.
    * @deprecated Use traverseEs6 whenever possible.
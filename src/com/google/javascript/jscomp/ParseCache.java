@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.JsAst.RhinoError;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.parser.FeatureSet;
+import com.google.javascript.rhino.Node;
+
+/**
+ * A store of parse results that outlives a single compilation, so that files
+ * whose contents have not changed since an earlier build need not be parsed
+ * again. Only parses that produced no errors are stored.
+ *
+ * <p>Implementations may be called from several threads at once.
+ */
+public interface ParseCache {
+
+  /**
+   * Returns the stored parse of the given file contents under the given
+   * config, or null if there is none. Each call must return a tree that is
+   * not shared with any other caller.
+   */
+  Entry lookup(SourceFile file, String code, Config config);
+
+  /**
+   * Stores the parse of the given file contents under the given config. The
+   * caller goes on to modify the stored tree, so implementations must copy
+   * it before returning.
+   */
+  void store(SourceFile file, String code, Config config, Entry entry);
+
+  /** The result of a successful parse of one file. */
+  public static final class Entry {
+    public final Node root;
+    public final FeatureSet features;
+    public final ImmutableList<RhinoError> warnings;
+
+    public Entry(Node root, FeatureSet features, ImmutableList<RhinoError> warnings) {
+      this.root = root;
+      this.features = features;
+      this.warnings = warnings;
+    }
+  }
+}
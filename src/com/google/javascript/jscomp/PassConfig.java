@@ -63,6 +63,8 @@ public abstract class PassConfig {
    * @param root The root of the AST.
    */
   void regenerateGlobalTypedScope(AbstractCompiler compiler, Node root) {
+    // The type checker stores types on the type expressions of the JSDocInfo.
+    root.unshareJSDocInfo();
     internalScopeCreator = new TypedScopeCreator(compiler);
     typedScopeCreator = new MemoizedScopeCreator(internalScopeCreator);
     topScope = typedScopeCreator.createScope(root, null);
@@ -83,6 +85,7 @@ public abstract class PassConfig {
    */
   void patchGlobalTypedScope(AbstractCompiler compiler, Node scriptRoot) {
     Preconditions.checkNotNull(internalScopeCreator);
+    scriptRoot.unshareJSDocInfo();
     internalScopeCreator.patchGlobalScope(topScope, scriptRoot);
   }
 
@@ -126,6 +129,16 @@ public abstract class PassConfig {
    */
   protected abstract List<PassFactory> getChecks();
 
+  /**
+   * Gets the checking passes at the end of {@link #getChecks} that depend on
+   * the defines, tweaks and messages of the options, or that must run after
+   * the passes that do. {@link MultiConfigurationCompiler} runs the other
+   * checks once and these once per configuration.
+   */
+  protected List<PassFactory> getConfigurationChecks() {
+    return Collections.emptyList();
+  }
+
   /**
    * Gets the optimization passes to run.
    *
@@ -245,6 +258,12 @@ public abstract class PassConfig {
    */
   protected abstract State getIntermediateState();
 
+  /**
+   * Sets the intermediate state, as returned by {@link #getIntermediateState}
+   * of the pass config of another compiler, to continue its compilation.
+   */
+  protected abstract void setIntermediateState(State state);
+
   /**
    * An implementation of PassConfig that just proxies all its method calls
    * into an inner class.
@@ -267,6 +286,10 @@ public abstract class PassConfig {
       return delegate.getChecks();
     }
 
+    @Override protected List<PassFactory> getConfigurationChecks() {
+      return delegate.getConfigurationChecks();
+    }
+
     @Override protected List<PassFactory> getOptimizations() {
       return delegate.getOptimizations();
     }
@@ -282,6 +305,10 @@ public abstract class PassConfig {
     @Override protected State getIntermediateState() {
       return delegate.getIntermediateState();
     }
+
+    @Override protected void setIntermediateState(State state) {
+      delegate.setIntermediateState(state);
+    }
   }
 
   /**
@@ -291,6 +318,8 @@ public abstract class PassConfig {
     private static final long serialVersionUID = 1L;
 
     final Map<String, Integer> cssNames;
+    final Set<String> exportedNames;
+    final CrossModuleMethodMotion.IdGenerator crossModuleIdGenerator;
     final VariableMap variableMap;
     final VariableMap propertyMap;
     final VariableMap anonymousFunctionNameMap;
@@ -305,6 +334,8 @@ public abstract class PassConfig {
         VariableMap stringMap, FunctionNames functionNames,
         String idGeneratorMap) {
       this.cssNames = cssNames;
+      this.exportedNames = exportedNames;
+      this.crossModuleIdGenerator = crossModuleIdGenerator;
       this.variableMap = variableMap;
       this.propertyMap = propertyMap;
       this.anonymousFunctionNameMap = anonymousFunctionNameMap;
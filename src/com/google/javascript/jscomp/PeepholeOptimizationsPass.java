@@ -33,7 +33,6 @@ class PeepholeOptimizationsPass implements CompilerPass {
   private final AbstractPeepholeOptimization[] peepholeOptimizations;
 
   private boolean retraverseOnChange;
-  private RecentChange handler;
 
   /**
    * Creates a peephole optimization pass that runs the given
@@ -44,7 +43,6 @@ class PeepholeOptimizationsPass implements CompilerPass {
     this.compiler = compiler;
     this.peepholeOptimizations = optimizations;
     this.retraverseOnChange = true;
-    this.handler = new RecentChange();
   }
 
   void setRetraverseOnChange(boolean retraverse) {
@@ -53,22 +51,25 @@ class PeepholeOptimizationsPass implements CompilerPass {
 
   @Override
   public void process(Node externs, Node root) {
-    compiler.addChangeHandler(handler);
     beginTraversal();
-    NodeTraversal.traverseChangedFunctions(compiler, new FunctionCallback() {
+    NodeTraversal.traverseChangedFunctionsInParallel(compiler, new FunctionCallback() {
         @Override
         public void enterFunction(AbstractCompiler compiler, Node root) {
           if (root.isFunction()) {
             root = root.getLastChild();
           }
+          // Functions may be processed at the same time, so each one needs
+          // its own handler.
+          RecentChange handler = new RecentChange();
+          compiler.addChangeHandler(handler);
           do {
             handler.reset();
             NodeTraversal.traverseEs6(compiler, root, new PeepCallback());
           } while (retraverseOnChange && handler.hasCodeChanged());
+          compiler.removeChangeHandler(handler);
         }
       });
     endTraversal();
-    compiler.removeChangeHandler(handler);
   }
 
   private class PeepCallback extends AbstractShallowCallback {
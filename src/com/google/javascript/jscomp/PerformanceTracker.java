@@ -22,22 +22,33 @@ import com.google.common.annotations.GwtIncompatible;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import com.google.gson.stream.JsonWriter;
 import com.google.javascript.jscomp.CompilerOptions.TracerMode;
+import com.google.javascript.jscomp.CompilerOptions.TracerReportFormat;
 import com.google.javascript.rhino.Node;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -45,6 +56,25 @@ import java.util.zip.GZIPOutputStream;
  * how much a pass impacts the size of the compiled output, before and after
  * gzip.
  *
+ * <p>Besides the text report, the statistics can be written as JSON, or as a
+ * timeline in the Chrome trace event format (viewable in chrome://tracing),
+ * to compare them across builds.
+ *
+ * <p>The size is estimated incrementally. The sizes of the scripts and of the
+ * function bodies are cached, and a pass only invalidates those of the scopes
+ * it reports changes to (see {@link ScopeChanges}). Everything is printed
+ * again every {@link #FULL_MEASURE_INTERVAL} changing runs, and at the end in
+ * the {@link TracerMode#RAW_SIZE} and {@link TracerMode#ALL} modes, so that
+ * their final sizes are exact. The gzipped size still compresses the whole
+ * output, from the cached code of each script; function bodies are then not
+ * cached, to keep only one copy of the code.
+ *
+ * <p>In the {@link TracerMode#LIGHTWEIGHT} mode, the tracker can stay on in
+ * production builds. When measuring the size would take more than
+ * {@link #SIZE_OVERHEAD_BUDGET} of the compilation time, the size is not
+ * measured after the run, and its change is attributed to the next measured
+ * run.
+ *
  * TODO(moz): Make this GWT compatible.
  *
  * @author dimvar@google.com (Dimitris Vardoulakis)
@@ -54,26 +84,58 @@ public final class PerformanceTracker {
 
   private static final int DEFAULT_WHEN_SIZE_UNTRACKED = -1;
 
+  private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+  /**
+   * Changes reported without a location may be attributed to the wrong scope,
+   * so everything is measured again after this many changing runs.
+   */
+  @VisibleForTesting
+  static final int FULL_MEASURE_INTERVAL = 32;
+
+  /** The maximum fraction of the time spent measuring the size in the LIGHTWEIGHT mode. */
+  private static final double SIZE_OVERHEAD_BUDGET = 0.01;
+
   private final PrintStream printStream;
   private final OutputStreamWriter output;
 
   private final Node jsRoot;
   private final boolean trackSize;
   private final boolean trackGzSize;
+  // Whether the final sizes are measured again from scratch.
+  private final boolean exactFinalSize;
 
   // Keeps track of AST changes and computes code size estimation
   // if there is any.
-  private final RecentChange codeChange = new RecentChange();
+  private final ScopeChanges codeChange = new ScopeChanges();
+
+  // The size estimates of the scripts and, when the gzipped size is not
+  // tracked, of the function bodies.
+  private Map<Node, CodeSize> scriptSizes = new IdentityHashMap<>();
+  private final Map<Node, CodeSize> bodySizes = new IdentityHashMap<>();
+  private int changingRunsSinceFullMeasure = 0;
+  private double sizeOverheadBudget = Double.POSITIVE_INFINITY;
+  private long sizeNanos = 0;
+  // The last run that changed the code, and whether its size was measured.
+  private Stats lastChangingLogStats;
+  private Stats lastChangingSummaryStats;
+  private boolean lastChangeMeasured = true;
 
   private int initCodeSize = DEFAULT_WHEN_SIZE_UNTRACKED;
   private int initGzCodeSize = DEFAULT_WHEN_SIZE_UNTRACKED;
 
+  // The start of the timeline written in the trace event format.
+  private final long startTime = System.nanoTime();
+
   private int runtime = 0;
+  private long cpuTime = 0;
+  private long allocBytes = 0;
   private int maxMem = 0;
   private int runs = 0;
   private int changes = 0;
   private int loopRuns = 0;
   private int loopChanges = 0;
+  private int loopIterations = 0;
 
   // The following fields for tracking size changes are just estimates.
   // They do not take into account preserved license blocks, newline padding,
@@ -83,6 +145,7 @@ public final class PerformanceTracker {
   private int gzCodeSize = DEFAULT_WHEN_SIZE_UNTRACKED;
   private int diff = 0;
   private int gzDiff = 0;
+  private int astSize = DEFAULT_WHEN_SIZE_UNTRACKED;
 
   private final Deque<Stats> currentPass = new ArrayDeque<>();
 
@@ -103,16 +166,26 @@ public final class PerformanceTracker {
       case TIMING_ONLY:
         this.trackSize = false;
         this.trackGzSize = false;
+        this.exactFinalSize = false;
+        break;
+
+      case LIGHTWEIGHT:
+        this.trackSize = true;
+        this.trackGzSize = false;
+        this.exactFinalSize = false;
+        this.sizeOverheadBudget = SIZE_OVERHEAD_BUDGET;
         break;
 
       case RAW_SIZE:
         this.trackSize = true;
         this.trackGzSize = false;
+        this.exactFinalSize = true;
         break;
 
       case ALL:
         this.trackSize = true;
         this.trackGzSize = true;
+        this.exactFinalSize = true;
         break;
 
       case OFF:
@@ -127,7 +200,11 @@ public final class PerformanceTracker {
   }
 
   void recordPassStart(String passName, boolean isOneTime) {
-    currentPass.push(new Stats(passName, isOneTime));
+    Stats stats = new Stats(passName, isOneTime);
+    stats.startNanos = System.nanoTime();
+    stats.startCpuNanos = getCurrentThreadCpuTime();
+    stats.startAllocBytes = getCurrentThreadAllocatedBytes();
+    currentPass.push(stats);
     // In Compiler, toSource may be called after every pass X. We don't want it
     // to reset the handler, because recordPassStop for pass X has not been
     // called, so we are falsely logging that pass X didn't make changes.
@@ -136,6 +213,23 @@ public final class PerformanceTracker {
     }
   }
 
+  /**
+   * Records the scope that is being traversed, to which the changes reported
+   * without a location are attributed.
+   */
+  void setScope(Node n) {
+    codeChange.setScope(n);
+  }
+
+  /**
+   * Records a change to the scope of the given node. The compiler reports
+   * the change to the code change handlers right after.
+   */
+  void recordChange(Node n) {
+    codeChange.markChanged(n);
+    codeChange.scopedChangeReported = true;
+  }
+
   /**
    * Collects information about a pass P after P finishes running, eg, how much
    * time P took and what was its impact on code size.
@@ -144,10 +238,15 @@ public final class PerformanceTracker {
    * @param runtime execution time in milliseconds
    */
   void recordPassStop(String passName, long runtime) {
+    long stopNanos = System.nanoTime();
+    long cpuNanos = getCurrentThreadCpuTime();
+    long allocBytes = getCurrentThreadAllocatedBytes();
     int allocMem = getAllocatedMegabytes();
 
     Stats logStats = currentPass.pop();
     Preconditions.checkState(passName.equals(logStats.pass));
+    logStats.startNanos -= startTime;
+    logStats.wallNanos = stopNanos - startTime - logStats.startNanos;
 
     // Populate log and summary
     log.add(logStats);
@@ -159,21 +258,25 @@ public final class PerformanceTracker {
 
     // After parsing, initialize codeSize and gzCodeSize
     if (passName.equals(Compiler.PARSING_PASS_NAME) && trackSize) {
-      CodeSizeEstimatePrinter estimatePrinter = new CodeSizeEstimatePrinter();
-      CodeGenerator.forCostEstimation(estimatePrinter).add(jsRoot);
-      initCodeSize = codeSize = estimatePrinter.calcSize();
-      logStats.size = summaryStats.size = initCodeSize;
-      if (this.trackGzSize) {
-        initGzCodeSize = gzCodeSize = estimatePrinter.calcZippedSize();
-        logStats.gzSize = summaryStats.gzSize = initGzCodeSize;
-      }
+      long start = System.nanoTime();
+      measureScripts(true);
+      sizeNanos += System.nanoTime() - start;
+      initCodeSize = codeSize;
+      initGzCodeSize = gzCodeSize;
+      logStats.size = summaryStats.size = codeSize;
+      logStats.gzSize = summaryStats.gzSize = gzCodeSize;
+      logStats.astSize = summaryStats.astSize = astSize;
     }
 
     // Update fields that aren't related to code size
     logStats.runtime = runtime;
     logStats.allocMem = allocMem;
+    logStats.cpuTime = (cpuNanos - logStats.startCpuNanos) / 1000000;
+    logStats.allocBytes = allocBytes - logStats.startAllocBytes;
     logStats.runs = 1;
     summaryStats.runtime += runtime;
+    summaryStats.cpuTime += logStats.cpuTime;
+    summaryStats.allocBytes += logStats.allocBytes;
     summaryStats.allocMem = Math.max(allocMem, summaryStats.allocMem);
     summaryStats.runs += 1;
     if (codeChange.hasCodeChanged()) {
@@ -183,22 +286,166 @@ public final class PerformanceTracker {
 
     // Update fields related to code size
     if (codeChange.hasCodeChanged() && trackSize) {
-      int newSize = 0;
-      CodeSizeEstimatePrinter estimatePrinter = new CodeSizeEstimatePrinter();
-      CodeGenerator.forCostEstimation(estimatePrinter).add(jsRoot);
-      if (trackSize) {
-        newSize = estimatePrinter.calcSize();
-        logStats.diff = codeSize - newSize;
-        summaryStats.diff += logStats.diff;
-        codeSize = summaryStats.size = logStats.size = newSize;
+      changingRunsSinceFullMeasure++;
+      lastChangingLogStats = logStats;
+      lastChangingSummaryStats = summaryStats;
+      lastChangeMeasured = sizeOverheadBudget == Double.POSITIVE_INFINITY
+          || sizeNanos <= (System.nanoTime() - startTime) * sizeOverheadBudget;
+      if (lastChangeMeasured) {
+        updateSize(logStats, summaryStats,
+            changingRunsSinceFullMeasure >= FULL_MEASURE_INTERVAL);
       }
-      if (trackGzSize) {
-        newSize = estimatePrinter.calcZippedSize();
-        logStats.gzDiff = gzCodeSize - newSize;
-        summaryStats.gzDiff += logStats.gzDiff;
-        gzCodeSize = summaryStats.gzSize = logStats.gzSize = newSize;
+    }
+  }
+
+  /** Records an iteration of a loop of the {@link PhaseOptimizer}. */
+  void recordLoopIteration() {
+    loopIterations++;
+  }
+
+  @VisibleForTesting
+  void setSizeOverheadBudget(double budget) {
+    this.sizeOverheadBudget = budget;
+  }
+
+  /**
+   * Measures the size after the given run, and attributes the change since
+   * the last measure to it.
+   */
+  private void updateSize(Stats logStats, Stats summaryStats, boolean measureAll) {
+    long start = System.nanoTime();
+    int oldSize = codeSize;
+    int oldGzSize = gzCodeSize;
+    measureScripts(measureAll);
+    sizeNanos += System.nanoTime() - start;
+
+    int runDiff = oldSize - codeSize;
+    logStats.diff += runDiff;
+    summaryStats.diff += runDiff;
+    summaryStats.size = logStats.size = codeSize;
+    summaryStats.astSize = logStats.astSize = astSize;
+    if (trackGzSize) {
+      int runGzDiff = oldGzSize - gzCodeSize;
+      logStats.gzDiff += runGzDiff;
+      summaryStats.gzDiff += runGzDiff;
+      summaryStats.gzSize = logStats.gzSize = gzCodeSize;
+    }
+  }
+
+  /**
+   * Updates the sizes, printing only the scripts and function bodies that
+   * changed since the last measure, or everything if {@code measureAll} is
+   * true.
+   */
+  private void measureScripts(boolean measureAll) {
+    if (measureAll || codeChange.allScopesChanged) {
+      scriptSizes.clear();
+      bodySizes.clear();
+      changingRunsSinceFullMeasure = 0;
+    } else {
+      for (Node scope : codeChange.changedScopes) {
+        invalidate(scope);
       }
     }
+    codeChange.clearChangedScopes();
+
+    // Rebuild the map, to drop the scripts that have been removed.
+    Map<Node, CodeSize> newScriptSizes = new IdentityHashMap<>();
+    int size = 0;
+    int nodes = 1;
+    for (Node script = jsRoot.getFirstChild(); script != null; script = script.getNext()) {
+      CodeSize scriptSize = scriptSizes.get(script);
+      if (scriptSize == null) {
+        scriptSize = measure(script);
+      }
+      newScriptSizes.put(script, scriptSize);
+      size += scriptSize.size;
+      nodes += scriptSize.astSize;
+    }
+    scriptSizes = newScriptSizes;
+    codeSize = size;
+    astSize = nodes;
+
+    if (trackGzSize) {
+      CountingOutputStream output = new CountingOutputStream(ByteStreams.nullOutputStream());
+      try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(output), UTF_8)) {
+        for (Node script = jsRoot.getFirstChild(); script != null; script = script.getNext()) {
+          writer.write(scriptSizes.get(script).code);
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      gzCodeSize = (int) output.getCount();
+    }
+  }
+
+  /**
+   * Invalidates the sizes of the script and of the function bodies that
+   * contain the given scope. If it is not in a script, invalidates all.
+   */
+  private void invalidate(Node scope) {
+    for (Node n = scope; n != null; n = n.getParent()) {
+      if (n.isFunction()) {
+        bodySizes.remove(n.getLastChild());
+      } else if (n.isScript()) {
+        if (n.getParent() == null) {
+          break;
+        }
+        // Does nothing for the externs, which are not measured.
+        scriptSizes.remove(n);
+        return;
+      }
+    }
+    // The scope has been detached, or is above the scripts.
+    scriptSizes.clear();
+    bodySizes.clear();
+  }
+
+  /**
+   * Prints a script, reusing the sizes of the function bodies that did not
+   * change. When the gzipped size is tracked, the whole script is printed,
+   * and only its code is kept.
+   */
+  private CodeSize measure(Node script) {
+    final CodeSizeEstimatePrinter estimatePrinter = new CodeSizeEstimatePrinter();
+    new CodeGenerator(estimatePrinter) {
+      @Override
+      protected void add(Node n, Context context) {
+        if (trackGzSize || context != Context.PRESERVE_BLOCK
+            || !n.isBlock() || !n.getParent().isFunction()) {
+          super.add(n, context);
+          return;
+        }
+        CodeSize bodySize = bodySizes.get(n);
+        if (bodySize != null) {
+          estimatePrinter.appendBlock(bodySize);
+          return;
+        }
+        int start = estimatePrinter.size;
+        boolean wasStarted = estimatePrinter.statementStarted;
+        estimatePrinter.statementStarted = false;
+        super.add(n, context);
+        bodySizes.put(n, estimatePrinter.getBlockSince(start, wasStarted));
+      }
+    }.add(script);
+    return new CodeSize(estimatePrinter, NodeUtil.countAstSizeUpToLimit(script, Integer.MAX_VALUE));
+  }
+
+  private static long getCurrentThreadCpuTime() {
+    if (THREAD_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_BEAN.isThreadCpuTimeEnabled()) {
+      return THREAD_BEAN.getCurrentThreadCpuTime();
+    }
+    return 0;
+  }
+
+  private static long getCurrentThreadAllocatedBytes() {
+    if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+      if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return 0;
   }
 
   private int bytesToMB(long bytes) {
@@ -257,6 +504,11 @@ public final class PerformanceTracker {
     return loopRuns;
   }
 
+  @VisibleForTesting
+  int getLoopIterations() {
+    return loopIterations;
+  }
+
   public ImmutableMap<String, Stats> getStats() {
     calcTotalStats();
     return summaryCopy;
@@ -267,10 +519,18 @@ public final class PerformanceTracker {
     if (summaryCopy != null) {
       return;
     }
+    // The final sizes of the RAW_SIZE and ALL modes are printed again from
+    // scratch, so that they are exact; the difference with the incremental
+    // estimate is attributed to the last changing run.
+    if (lastChangingLogStats != null && (exactFinalSize || !lastChangeMeasured)) {
+      updateSize(lastChangingLogStats, lastChangingSummaryStats, exactFinalSize);
+    }
     summaryCopy = ImmutableMap.copyOf(summary);
     for (Entry<String, Stats> entry : summary.entrySet()) {
       Stats stats = entry.getValue();
       runtime += stats.runtime;
+      cpuTime += stats.cpuTime;
+      allocBytes += stats.allocBytes;
       maxMem = Math.max(maxMem, stats.allocMem);
       runs += stats.runs;
       changes += stats.changes;
@@ -293,44 +553,7 @@ public final class PerformanceTracker {
   public void outputTracerReport() {
     JvmMetrics.maybeWriteJvmMetrics(this.printStream, "verbose:pretty:all");
     try {
-      calcTotalStats();
-
-      ArrayList<Entry<String, Stats>> statEntries = new ArrayList<>();
-      statEntries.addAll(summary.entrySet());
-      Collections.sort(
-          statEntries,
-          new Comparator<Entry<String, Stats>>() {
-            @Override
-            public int compare(Entry<String, Stats> e1, Entry<String, Stats> e2) {
-              return Long.compare(e1.getValue().runtime, e2.getValue().runtime);
-            }
-          });
-
-      this.output.write("Summary:\n"
-          + "pass,runtime,allocMem,runs,changingRuns,reduction,gzReduction\n");
-      for (Entry<String, Stats> entry : statEntries) {
-        String key = entry.getKey();
-        Stats stats = entry.getValue();
-        this.output.write(String.format("%s,%d,%d,%d,%d,%d,%d\n", key, stats.runtime,
-              stats.allocMem, stats.runs, stats.changes, stats.diff, stats.gzDiff));
-      }
-      this.output.write("\nTOTAL:"
-          + "\nRuntime(ms): " + runtime
-          + "\nMax mem usage (measured after each pass)(MB): " + maxMem
-          + "\n#Runs: " + runs
-          + "\n#Changing runs: " + changes + "\n#Loopable runs: " + loopRuns
-          + "\n#Changing loopable runs: " + loopChanges + "\nEstimated Reduction(bytes): " + diff
-          + "\nEstimated GzReduction(bytes): " + gzDiff + "\nEstimated Size(bytes): " + codeSize
-          + "\nEstimated GzSize(bytes): " + gzCodeSize + "\n\n");
-
-      this.output.write("Log:\n"
-          + "pass,runtime,allocMem,codeChanged,reduction,gzReduction,size,gzSize\n");
-      for (Stats stats : log) {
-        this.output.write(String.format("%s,%d,%d,%b,%d,%d,%d,%d\n",
-            stats.pass, stats.runtime, stats.allocMem, stats.changes == 1,
-            stats.diff, stats.gzDiff, stats.size, stats.gzSize));
-      }
-      this.output.write("\n");
+      outputTextReport(this.output);
       // this.output can be System.out, so don't close it to not lose subsequent
       // error messages. Flush to ensure that you will see the tracer report.
       this.output.flush();
@@ -339,6 +562,180 @@ public final class PerformanceTracker {
     }
   }
 
+  /**
+   * Writes the report in the given format to the given file, or to the
+   * output stream of the tracker if the path is null.
+   */
+  void outputTracerReport(TracerReportFormat format, String path) {
+    if (format == TracerReportFormat.TEXT && path == null) {
+      outputTracerReport();
+      return;
+    }
+    try {
+      Writer writer = path == null
+          ? this.output
+          : new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), UTF_8));
+      try {
+        switch (format) {
+          case TEXT:
+            outputTextReport(writer);
+            break;
+          case JSON:
+            outputJsonReport(writer);
+            writer.write("\n");
+            break;
+          case CHROME_TRACE:
+            outputTraceEvents(writer);
+            writer.write("\n");
+            break;
+        }
+      } finally {
+        if (path == null) {
+          writer.flush();
+        } else {
+          writer.close();
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write statistics to output.", e);
+    }
+  }
+
+  private List<Stats> getSortedSummary() {
+    List<Stats> sortedSummary = new ArrayList<>(summary.values());
+    Collections.sort(
+        sortedSummary,
+        new Comparator<Stats>() {
+          @Override
+          public int compare(Stats s1, Stats s2) {
+            return Long.compare(s1.runtime, s2.runtime);
+          }
+        });
+    return sortedSummary;
+  }
+
+  private void outputTextReport(Writer writer) throws IOException {
+    calcTotalStats();
+
+    writer.write("Summary:\n"
+        + "pass,runtime,allocMem,runs,changingRuns,reduction,gzReduction\n");
+    for (Stats stats : getSortedSummary()) {
+      writer.write(String.format("%s,%d,%d,%d,%d,%d,%d\n", stats.pass, stats.runtime,
+            stats.allocMem, stats.runs, stats.changes, stats.diff, stats.gzDiff));
+    }
+    writer.write("\nTOTAL:"
+        + "\nRuntime(ms): " + runtime
+        + "\nMax mem usage (measured after each pass)(MB): " + maxMem
+        + "\n#Runs: " + runs
+        + "\n#Changing runs: " + changes + "\n#Loopable runs: " + loopRuns
+        + "\n#Changing loopable runs: " + loopChanges + "\nEstimated Reduction(bytes): " + diff
+        + "\nEstimated GzReduction(bytes): " + gzDiff + "\nEstimated Size(bytes): " + codeSize
+        + "\nEstimated GzSize(bytes): " + gzCodeSize + "\n\n");
+
+    writer.write("Log:\n"
+        + "pass,runtime,allocMem,codeChanged,reduction,gzReduction,size,gzSize\n");
+    for (Stats stats : log) {
+      writer.write(String.format("%s,%d,%d,%b,%d,%d,%d,%d\n",
+          stats.pass, stats.runtime, stats.allocMem, stats.changes == 1,
+          stats.diff, stats.gzDiff, stats.size, stats.gzSize));
+    }
+    writer.write("\n");
+  }
+
+  /**
+   * Writes the totals, the summary for each pass and the log of each pass
+   * run as a JSON object. Times are in milliseconds and sizes in bytes.
+   */
+  @VisibleForTesting
+  void outputJsonReport(Writer writer) throws IOException {
+    calcTotalStats();
+    JsonWriter json = new JsonWriter(writer);
+    json.beginObject();
+    json.name("total").beginObject()
+        .name("runtime").value(runtime)
+        .name("cpuTime").value(cpuTime)
+        .name("allocBytes").value(allocBytes)
+        .name("maxMem").value(maxMem)
+        .name("runs").value(runs)
+        .name("changingRuns").value(changes)
+        .name("loopRuns").value(loopRuns)
+        .name("changingLoopRuns").value(loopChanges)
+        .name("loopIterations").value(loopIterations)
+        .name("reduction").value(diff)
+        .name("gzReduction").value(gzDiff)
+        .name("size").value(codeSize)
+        .name("gzSize").value(gzCodeSize)
+        .name("astSize").value(astSize)
+        .endObject();
+    json.name("summary").beginArray();
+    for (Stats stats : getSortedSummary()) {
+      json.beginObject();
+      writeStats(json, stats);
+      json.name("runs").value(stats.runs)
+          .name("changingRuns").value(stats.changes)
+          .endObject();
+    }
+    json.endArray();
+    json.name("log").beginArray();
+    for (Stats stats : log) {
+      json.beginObject();
+      writeStats(json, stats);
+      json.name("start").value(stats.startNanos / 1000000)
+          .name("codeChanged").value(stats.changes == 1)
+          .endObject();
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  private static void writeStats(JsonWriter json, Stats stats) throws IOException {
+    json.name("pass").value(stats.pass)
+        .name("loopable").value(!stats.isOneTime)
+        .name("runtime").value(stats.runtime)
+        .name("cpuTime").value(stats.cpuTime)
+        .name("allocBytes").value(stats.allocBytes)
+        .name("allocMem").value(stats.allocMem)
+        .name("reduction").value(stats.diff)
+        .name("gzReduction").value(stats.gzDiff)
+        .name("size").value(stats.size)
+        .name("gzSize").value(stats.gzSize)
+        .name("astSize").value(stats.astSize);
+  }
+
+  /**
+   * Writes the log of each pass run as complete events of the Chrome trace
+   * event format, with timestamps and durations in microseconds.
+   */
+  @VisibleForTesting
+  void outputTraceEvents(Writer writer) throws IOException {
+    JsonWriter json = new JsonWriter(writer);
+    json.beginObject();
+    json.name("displayTimeUnit").value("ms");
+    json.name("traceEvents").beginArray();
+    for (Stats stats : log) {
+      json.beginObject()
+          .name("name").value(stats.pass)
+          .name("cat").value(stats.isOneTime ? "pass" : "loopablePass")
+          .name("ph").value("X")
+          .name("pid").value(1)
+          .name("tid").value(1)
+          .name("ts").value(stats.startNanos / 1000)
+          .name("dur").value(stats.wallNanos / 1000);
+      json.name("args").beginObject()
+          .name("cpuTime").value(stats.cpuTime)
+          .name("allocBytes").value(stats.allocBytes)
+          .name("codeChanged").value(stats.changes == 1)
+          .name("size").value(stats.size)
+          .name("astSize").value(stats.astSize)
+          .endObject();
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
   /**
    * A Stats object contains statistics about a pass run, such as running time,
    * size changes, etc
@@ -358,35 +755,124 @@ public final class PerformanceTracker {
     public int gzDiff = 0;
     public int size;
     public int gzSize;
+    /** CPU time of the current thread, in milliseconds. */
+    public long cpuTime = 0;
+    /** Bytes allocated by the current thread. */
+    public long allocBytes = 0;
+    /** Number of AST nodes, or -1 if it was not measured after this run. */
+    public int astSize = DEFAULT_WHEN_SIZE_UNTRACKED;
+
+    // For the runs in the log: the start relative to the creation of the
+    // tracker, and the wall time, in nanoseconds.
+    long startNanos;
+    long wallNanos;
+    private long startCpuNanos;
+    private long startAllocBytes;
   }
 
-  /** An object to get a gzsize estimate; it doesn't generate code. */
-  private final class CodeSizeEstimatePrinter extends CodeConsumer {
-    private int size = 0;
-    private char lastChar = '\0';
-    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
-    private final GZIPOutputStream stream;
+  /** The size estimate of a script or of a function body. */
+  private static final class CodeSize {
+    final int size;
+    final int astSize;
+    // The printed code of a script, only kept to compute the gzipped size.
+    final String code;
+    // Whether the code starts a statement (see CodeConsumer#statementStarted).
+    final boolean startsStatement;
+
+    CodeSize(int size, int astSize, String code, boolean startsStatement) {
+      this.size = size;
+      this.astSize = astSize;
+      this.code = code;
+      this.startsStatement = startsStatement;
+    }
 
-    private CodeSizeEstimatePrinter() {
-      try {
-        stream = new GZIPOutputStream(output);
-      } catch (IOException e) {
-        throw new RuntimeException(e);
+    CodeSize(CodeSizeEstimatePrinter estimatePrinter, int astSize) {
+      this(estimatePrinter.size, astSize,
+          estimatePrinter.code == null ? null : estimatePrinter.code.toString(), false);
+    }
+  }
+
+  /**
+   * Records whether the code has changed since the last reset, and when the
+   * size is tracked, which scopes have changed since the last measure.
+   * Changes reported without a location are attributed to the scope being
+   * traversed, or to all the scopes if there is none.
+   */
+  private final class ScopeChanges implements CodeChangeHandler {
+    private boolean hasChanged = false;
+
+    private final Set<Node> changedScopes = Sets.newIdentityHashSet();
+    private boolean allScopesChanged = true;
+
+    // The scope traversed by the current pass on the compiler thread.
+    private Node currentScope;
+    private Thread passThread;
+
+    // Whether the next change is reported for a scope recorded by recordChange.
+    private boolean scopedChangeReported = false;
+
+    @Override
+    public void reportChange() {
+      hasChanged = true;
+      if (scopedChangeReported) {
+        scopedChangeReported = false;
+      } else {
+        markChanged(currentScope);
+      }
+    }
+
+    boolean hasCodeChanged() {
+      return hasChanged;
+    }
+
+    void reset() {
+      hasChanged = false;
+      currentScope = null;
+      passThread = Thread.currentThread();
+    }
+
+    void setScope(Node n) {
+      // Passes that run functions in parallel set the scope on other threads;
+      // their changes are recorded with recordChange afterwards.
+      if (trackSize && Thread.currentThread() == passThread) {
+        currentScope = n;
+      }
+    }
+
+    void markChanged(Node n) {
+      if (!trackSize || allScopesChanged) {
+        return;
+      }
+      if (n == null) {
+        allScopesChanged = true;
+      } else {
+        changedScopes.add(n);
       }
     }
 
+    void clearChangedScopes() {
+      changedScopes.clear();
+      allScopesChanged = false;
+    }
+  }
+
+  /**
+   * An object to get a size estimate; it doesn't generate code, except to
+   * compute the gzipped size.
+   */
+  private final class CodeSizeEstimatePrinter extends CodeConsumer {
+    private int size = 0;
+    private char lastChar = '\0';
+    private final StringBuilder code = trackGzSize ? new StringBuilder() : null;
+
     @Override
     void append(String str) {
       int len = str.length();
       if (len > 0) {
         size += len;
         lastChar = str.charAt(len - 1);
-        if (trackGzSize) {
-          try {
-            stream.write(str.getBytes(UTF_8));
-          } catch (IOException e) {
-            throw new RuntimeException(e);
-          }
+        if (code != null) {
+          code.append(str);
         }
       }
     }
@@ -396,19 +882,22 @@ public final class PerformanceTracker {
       return lastChar;
     }
 
-    private int calcSize() {
-      return size;
+    /**
+     * Returns the size of the function body printed from the given position,
+     * which was printed with statementStarted set to false.
+     */
+    private CodeSize getBlockSince(int start, boolean wasStarted) {
+      boolean startsStatement = statementStarted;
+      statementStarted |= wasStarted;
+      return new CodeSize(size - start, 0, null, startsStatement);
     }
 
-    // Called iff trackGzSize is true
-    private int calcZippedSize() {
-      try {
-        stream.finish();
-        stream.close();
-        return output.size();
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
+    /** Appends a function body that was printed before, as it was printed. */
+    private void appendBlock(CodeSize block) {
+      size += block.size;
+      lastChar = '}';
+      statementNeedsEnded = false;
+      statementStarted |= block.startsStatement;
     }
   }
 }
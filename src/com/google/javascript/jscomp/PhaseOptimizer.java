@@ -19,6 +19,8 @@ package com.google.javascript.jscomp;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.FunctionScopeScheduler.ScopeChanges;
+import com.google.javascript.jscomp.NodeTraversal.FunctionCallback;
 import com.google.javascript.rhino.Node;
 
 import java.util.ArrayList;
@@ -71,6 +73,12 @@ class PhaseOptimizer implements CompilerPass {
   // change handlers. This flag prevents double update in ScopedChangeHandler.
   private boolean crossScopeReporting;
 
+  // Runs per-function passes on several threads. While it does, the changes
+  // made by the worker threads are recorded per function rather than in the
+  // fields above, and applied once all the workers are done.
+  private final FunctionScopeScheduler functionScheduler = new FunctionScopeScheduler();
+  private boolean inParallelSection;
+
   // Used for sanity checks between loopable passes
   private Node lastAst;
   private Map<Node, Node> mtoc; // Stands for "main to clone"
@@ -316,6 +324,11 @@ class PhaseOptimizer implements CompilerPass {
   }
 
   void setScope(Node n) {
+    ScopeChanges parallelChanges = getParallelChanges();
+    if (parallelChanges != null) {
+      parallelChanges.currentScope = n.isFunction() ? n : getEnclosingScope(n);
+      return;
+    }
     // NodeTraversal causes setScope calls outside loops; ignore them.
     if (inLoop) {
       // Find the top-level node in the scope.
@@ -351,6 +364,122 @@ class PhaseOptimizer implements CompilerPass {
     timestamp++;
   }
 
+  /**
+   * Runs the callback on each of the given function scopes, at the same time
+   * on up to {@code numThreads} threads. The scopes must not be nested in one
+   * another, and the callback may only change the scope it is given. Scopes
+   * that have been removed from the AST are skipped.
+   */
+  void processFunctionsInParallel(List<Node> scopeRoots, FunctionCallback callback,
+      CompilerExecutor executor, int numThreads) {
+    List<Node> attachedRoots = new ArrayList<>(scopeRoots.size());
+    for (Node scopeRoot : scopeRoots) {
+      if (isAttached(scopeRoot)) {
+        attachedRoots.add(scopeRoot);
+      }
+    }
+
+    Preconditions.checkState(!inParallelSection, "Nested parallel sections are forbidden");
+    List<ScopeChanges> allChanges;
+    inParallelSection = true;
+    try {
+      allChanges = functionScheduler.run(
+          compiler, attachedRoots, callback, executor, numThreads);
+    } finally {
+      inParallelSection = false;
+    }
+
+    for (ScopeChanges changes : allChanges) {
+      for (Node scope : changes.changedScopes) {
+        if (tracker != null) {
+          tracker.recordChange(scope);
+        }
+        if (inLoop) {
+          lastChange = timestamp;
+          scope.setChangeTime(timestamp);
+          timestamp++;
+        }
+        startCrossScopeReporting();
+        compiler.reportCodeChange();
+        endCrossScopeReporting();
+      }
+      for (JSError error : changes.errors) {
+        compiler.report(error);
+      }
+    }
+  }
+
+  private boolean isAttached(Node n) {
+    while (n != jsRoot) {
+      n = n.getParent();
+      if (n == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the changes of the function scope that the current thread is
+   * processing in {@link #processFunctionsInParallel}, or null.
+   */
+  private ScopeChanges getParallelChanges() {
+    return inParallelSection ? functionScheduler.getCurrentChanges() : null;
+  }
+
+  /**
+   * Records a change reported by a thread of
+   * {@link #processFunctionsInParallel}, to the current scope if {@code n} is
+   * null or else to the scope that encloses {@code n}.
+   *
+   * @return Whether the change was recorded. If not, the change was not
+   *     made by such a thread and should be reported as usual.
+   */
+  boolean recordParallelChange(Node n) {
+    ScopeChanges parallelChanges = getParallelChanges();
+    if (parallelChanges == null) {
+      return false;
+    }
+    parallelChanges.reportChange(
+        n == null ? parallelChanges.currentScope : getEnclosingScope(n));
+    return true;
+  }
+
+  /**
+   * Adds or removes a change handler for the scope that the current thread
+   * is processing in {@link #processFunctionsInParallel}.
+   *
+   * @return Whether the current thread is such a thread.
+   */
+  boolean updateParallelChangeHandlers(CodeChangeHandler handler, boolean add) {
+    ScopeChanges parallelChanges = getParallelChanges();
+    if (parallelChanges == null) {
+      return false;
+    }
+    if (add) {
+      parallelChanges.changeHandlers.add(handler);
+    } else {
+      parallelChanges.changeHandlers.remove(handler);
+    }
+    return true;
+  }
+
+  /**
+   * Records an error reported by a thread of
+   * {@link #processFunctionsInParallel}, to be reported to the compiler once
+   * all the threads are done.
+   *
+   * @return Whether the error was recorded.
+   */
+  boolean recordParallelError(JSError error) {
+    ScopeChanges parallelChanges = getParallelChanges();
+    if (parallelChanges == null) {
+      return false;
+    }
+    parallelChanges.errors.add(error);
+    return true;
+  }
+
   /**
    * Records that the currently-running pass may report cross-scope changes.
    * When this happens, we don't want to falsely report the current scope as
@@ -447,12 +576,21 @@ class PhaseOptimizer implements CompilerPass {
           if (count++ > MAX_LOOPS) {
             compiler.throwInternalError(OPTIMIZE_LOOP_ERROR, null);
           }
+          if (tracker != null) {
+            tracker.recordLoopIteration();
+          }
           lastIterMadeChanges = false;
           for (NamedPass pass : myPasses) {
             if ((state == State.RUN_PASSES_NOT_RUN_IN_PREV_ITER
                     && !runInPrevIter.contains(pass))
                 || (state == State.RUN_PASSES_THAT_CHANGED_STH_IN_PREV_ITER
                         && madeChanges.contains(pass))) {
+              if (!madeChanges.contains(pass) && !hasChangedSinceLastRun(pass)) {
+                // The pass would see the same AST as the last time it ran,
+                // when it found nothing to change.
+                runInPrevIter.add(pass);
+                continue;
+              }
               timestamp++;
               currentPass = pass;
               pass.process(externs, root);
@@ -489,6 +627,12 @@ class PhaseOptimizer implements CompilerPass {
       }
     }
 
+    /** Whether any scope changed since the pass last ran in this loop. */
+    private boolean hasChangedSinceLastRun(NamedPass pass) {
+      int timeOfLastRun = lastRuns.get(pass);
+      return timeOfLastRun == START_TIME || lastChange >= timeOfLastRun;
+    }
+
     /** Re-arrange the passes in an optimal order. */
     private void optimizePasses() {
       // It's important that this ordering is deterministic, so that
@@ -658,7 +658,7 @@ public final class ProcessCommonJSModules implements CompilerPass {
 
     @Override
     public void visit(NodeTraversal t, Node n, Node parent) {
-      JSDocInfo info = n.getJSDocInfo();
+      JSDocInfo info = n.getMutableJSDocInfo();
       if (info != null) {
         for (Node typeNode : info.getTypeNodes()) {
           fixTypeNode(t, typeNode);
@@ -32,6 +32,11 @@ import com.google.javascript.rhino.Node;
  * caching across compilations, and create new RecoverableJsAst's that act as
  * copying proxies around the original.
  *
+ * <p>The defensive copy is taken from a snapshot of the real source's AST,
+ * which proxies share with the central RecoverableJsAst. Each copy shares the
+ * snapshot's JSDocInfo and only copies the JSDocInfo that it modifies
+ * (see {@link Node#markJSDocInfoShared}).
+ *
  */
 public class RecoverableJsAst implements SourceAst {
 
@@ -40,6 +45,9 @@ public class RecoverableJsAst implements SourceAst {
   // The AST copy that will be kept around.
   private Node root = null;
 
+  // The unmodified AST that the copies are made from. It is never handed out.
+  private Node snapshot = null;
+
   // This is the actual SourceAst this caching wrapper wraps around.
   private final SourceAst realSource;
 
@@ -58,21 +66,33 @@ public class RecoverableJsAst implements SourceAst {
   @Override
   public synchronized Node getAstRoot(AbstractCompiler compiler) {
     if (root == null) {
-      // The original source (generally SourceAst) might not be thread-safe;
-      // synchronize on it.
-      synchronized (realSource) {
-        root = realSource.getAstRoot(compiler).cloneTree(true);
-
-        // Maybe replay parse error
-        JsAst.ParseResult result = (JsAst.ParseResult) root.getProp(Node.PARSE_RESULTS);
-        if (reportParseErrors && result != null) {
-          replay(compiler, result);
-        }
+      root = getSnapshot(compiler).cloneTree();
+
+      // Maybe replay parse error
+      JsAst.ParseResult result = (JsAst.ParseResult) root.getProp(Node.PARSE_RESULTS);
+      if (reportParseErrors && result != null) {
+        replay(compiler, result);
       }
     }
     return root;
   }
 
+  private synchronized Node getSnapshot(AbstractCompiler compiler) {
+    if (snapshot == null) {
+      if (realSource instanceof RecoverableJsAst) {
+        snapshot = ((RecoverableJsAst) realSource).getSnapshot(compiler);
+      } else {
+        // The original source (generally SourceAst) might not be thread-safe;
+        // synchronize on it.
+        synchronized (realSource) {
+          snapshot = realSource.getAstRoot(compiler).cloneTree(true);
+        }
+        snapshot.markJSDocInfoShared();
+      }
+    }
+    return snapshot;
+  }
+
   private void replay(AbstractCompiler compiler, ParseResult result) {
     ErrorReporter reporter = compiler.getDefaultErrorReporter();
     for (RhinoError error : result.errors) {
@@ -84,9 +104,10 @@ public class RecoverableJsAst implements SourceAst {
   }
 
   @Override
-  public void clearAst() {
+  public synchronized void clearAst() {
     // Just do a shallow clear; don't re-parse the input.
     this.root = null;
+    this.snapshot = null;
   }
 
   @Override
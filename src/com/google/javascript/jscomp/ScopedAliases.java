@@ -672,7 +672,7 @@ class ScopedAliases implements HotSwapCompilerPass {
 
         // When we inject declarations, we duplicate jsdoc. Make sure
         // we only process that jsdoc once.
-        JSDocInfo info = n.getJSDocInfo();
+        JSDocInfo info = n.getMutableJSDocInfo();
         if (info != null && !injectedDecls.contains(n)) {
           for (Node node : info.getTypeNodes()) {
             fixTypeNode(node);
@@ -92,7 +92,7 @@ class TypeInference
                 ReverseAbstractInterpreter reverseInterpreter,
                 TypedScope functionScope,
                 Map<String, AssertionFunctionSpec> assertionFunctionsMap) {
-    super(cfg, new LinkedFlowScope.FlowScopeJoinOp());
+    super(cfg, createJoinOp(compiler));
     this.compiler = compiler;
     this.registry = compiler.getTypeRegistry();
     this.reverseInterpreter = reverseInterpreter;
@@ -101,7 +101,9 @@ class TypeInference
     this.syntacticScope = functionScope;
     inferArguments(functionScope);
 
-    this.functionScope = LinkedFlowScope.createEntryLattice(functionScope);
+    this.functionScope = compiler.getOptions().getUseArrayFlowScopes()
+        ? ArrayFlowScope.createEntryLattice(functionScope)
+        : LinkedFlowScope.createEntryLattice(functionScope);
     this.assertionFunctionsMap = assertionFunctionsMap;
 
     // For each local variable declared with the VAR keyword, the entry
@@ -115,8 +117,17 @@ class TypeInference
           var.getName(), getNativeType(VOID_TYPE));
     }
 
-    this.bottomScope = LinkedFlowScope.createEntryLattice(
-        TypedScope.createLatticeBottom(functionScope.getRootNode()));
+    TypedScope bottom = TypedScope.createLatticeBottom(functionScope.getRootNode());
+    // Array flow scopes can only be joined with scopes of the same entry lattice.
+    this.bottomScope = this.functionScope instanceof ArrayFlowScope
+        ? ((ArrayFlowScope) this.functionScope).createSiblingEntryLattice(bottom)
+        : LinkedFlowScope.createEntryLattice(bottom);
+  }
+
+  private static JoinOp<FlowScope> createJoinOp(AbstractCompiler compiler) {
+    return compiler.getOptions().getUseArrayFlowScopes()
+        ? new ArrayFlowScope.FlowScopeJoinOp()
+        : new LinkedFlowScope.FlowScopeJoinOp();
   }
 
   /**
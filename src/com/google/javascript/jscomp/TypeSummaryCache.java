@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A store of what the new type inference found in the functions of a file,
+ * that outlives a single compilation, so that the functions of files that
+ * have not changed since an earlier build need not be analyzed again.
+ *
+ * <p>The summary of a top-level function whose formals and return type are
+ * all declared is its declared type, so only the warnings found in its body
+ * need to be kept. Entries are looked up by a fingerprint of the file, of
+ * the externs and of the other inputs, so a file is analyzed again when any
+ * of them changes.
+ *
+ * <p>Implementations may be called from several threads at once.
+ */
+public interface TypeSummaryCache {
+
+  /** Returns the entry stored under the given fingerprint, or null if there is none. */
+  Entry lookup(String fingerprint);
+
+  /** Stores the entry of a file under the given fingerprint. */
+  void store(String fingerprint, Entry entry);
+
+  /**
+   * The warnings found in the functions of one file whose summaries are
+   * their declared types.
+   */
+  public static final class Entry {
+    public final ImmutableList<Warning> warnings;
+
+    public Entry(ImmutableList<Warning> warnings) {
+      this.warnings = warnings;
+    }
+  }
+
+  /**
+   * A warning, with the path to its node from the root of the file, as the
+   * indices of the children to follow, and the position of the node.
+   */
+  public static final class Warning {
+    public final String key;
+    public final CheckLevel level;
+    public final String description;
+    public final ImmutableList<Integer> path;
+    public final int lineno;
+    public final int charno;
+
+    public Warning(String key, CheckLevel level, String description,
+        ImmutableList<Integer> path, int lineno, int charno) {
+      this.key = key;
+      this.level = level;
+      this.description = description;
+      this.path = path;
+      this.lineno = lineno;
+      this.charno = charno;
+    }
+  }
+}
@@ -29,6 +29,7 @@ import static com.google.javascript.rhino.jstype.JSTypeNative.UNKNOWN_TYPE;
 import static com.google.javascript.rhino.jstype.JSTypeNative.VOID_TYPE;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import com.google.javascript.jscomp.parsing.parser.util.format.SimpleFormat;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.Node;
@@ -43,6 +44,7 @@ import com.google.javascript.rhino.jstype.TemplateTypeMap;
 import com.google.javascript.rhino.jstype.TemplateTypeMapReplacer;
 import com.google.javascript.rhino.jstype.UnknownType;
 
+import java.io.Serializable;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -192,6 +194,16 @@ class TypeValidator {
     return mismatches;
   }
 
+  /**
+   * Adds the type violations found by the validator of another compiler,
+   * whose state was restored into this one.
+   */
+  void addMismatches(
+      Iterable<TypeMismatch> mismatches, Iterable<TypeMismatch> implicitInterfaceUses) {
+    Iterables.addAll(this.mismatches, mismatches);
+    Iterables.addAll(this.implicitStructuralInterfaceUses, implicitInterfaceUses);
+  }
+
   void setSubtypingMode(SubtypingMode mode) {
     this.subtypingMode = mode;
   }
@@ -821,10 +833,13 @@ class TypeValidator {
    * Type-based optimizations should take this into account
    * so that they don't wreck code with type warnings.
    */
-  static class TypeMismatch {
+  static class TypeMismatch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     final JSType typeA;
     final JSType typeB;
-    final JSError src;
+    // Not kept when the compiler state is saved; JSError is not serializable.
+    final transient JSError src;
 
     /**
      * It's the responsibility of the class that creates the
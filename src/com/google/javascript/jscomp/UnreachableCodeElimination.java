@@ -51,7 +51,6 @@ class UnreachableCodeElimination implements CompilerPass {
     Logger.getLogger(UnreachableCodeElimination.class.getName());
   private final AbstractCompiler compiler;
   private final boolean removeNoOpStatements;
-  private boolean codeChanged;
 
   UnreachableCodeElimination(AbstractCompiler compiler,
       boolean removeNoOpStatements) {
@@ -61,7 +60,7 @@ class UnreachableCodeElimination implements CompilerPass {
 
   @Override
   public void process(Node externs, Node toplevel) {
-    NodeTraversal.traverseChangedFunctions(compiler, new FunctionCallback() {
+    NodeTraversal.traverseChangedFunctionsInParallel(compiler, new FunctionCallback() {
         @Override
         public void enterFunction(AbstractCompiler compiler, Node root) {
           // Computes the control flow graph.
@@ -74,16 +73,19 @@ class UnreachableCodeElimination implements CompilerPass {
           if (root.isFunction()) {
             root = root.getLastChild();
           }
+          EliminationPass pass;
           do {
-            codeChanged = false;
-            NodeTraversal.traverseEs6(compiler, root, new EliminationPass(cfg));
-          } while (codeChanged);
+            pass = new EliminationPass(cfg);
+            NodeTraversal.traverseEs6(compiler, root, pass);
+          } while (pass.codeChanged);
         }
       });
   }
 
   private class EliminationPass extends AbstractShallowCallback {
     private final ControlFlowGraph<Node> cfg;
+    private boolean codeChanged;
+
     private EliminationPass(ControlFlowGraph<Node> cfg) {
       this.cfg = cfg;
     }
@@ -132,6 +132,15 @@ public class LinkedDirectedGraph<N, E>
     return nodes.get(nodeValue);
   }
 
+  /**
+   * Gets the index of a node of this graph. The nodes are numbered from 0 in
+   * the order they are created, so analyses can keep the data they compute
+   * for the nodes in arrays instead of maps.
+   */
+  public int getIndex(DiGraphNode<N, E> node) {
+    return ((LinkedDirectedGraphNode<N, E>) node).index;
+  }
+
   @Override
   public GraphNode<N, E> getNode(N nodeValue) {
     return getDirectedGraphNode(nodeValue);
@@ -156,6 +165,7 @@ public class LinkedDirectedGraph<N, E>
       node = useNodeAnnotations
           ? new AnnotatedLinkedDirectedGraphNode<N, E>(nodeValue)
           : new LinkedDirectedGraphNode<N, E>(nodeValue);
+      node.index = nodes.size();
       nodes.put(nodeValue, node);
     }
     return node;
@@ -373,6 +383,9 @@ public class LinkedDirectedGraph<N, E>
 
     protected final N value;
 
+    // The position of the node in the order of creation.
+    int index;
+
     /**
      * Constructor
      *
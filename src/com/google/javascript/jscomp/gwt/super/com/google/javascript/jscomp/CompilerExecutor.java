@@ -16,6 +16,8 @@
 
 package com.google.javascript.jscomp;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /** GWT compatible replacement for {@code CompilerExecutor} */
@@ -28,6 +30,18 @@ final class CompilerExecutor {
     }
   }
 
+  <T> List<T> runInParallel(List<? extends Callable<T>> tasks, int numThreads) {
+    List<T> results = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      try {
+        results.add(task.call());
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return results;
+  }
+
   void disableThreads() {
   }
 
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.NodeTraversal.FunctionCallback;
+import com.google.javascript.rhino.Node;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/** GWT compatible single-threaded replacement for {@code FunctionScopeScheduler} */
+class FunctionScopeScheduler {
+
+  private ScopeChanges currentChanges;
+
+  /** The changes made by the callback while processing one function scope. */
+  static final class ScopeChanges {
+    final Node scopeRoot;
+    // The scope of the node being traversed, as set by Compiler#setScope.
+    Node currentScope;
+    final Set<Node> changedScopes = new LinkedHashSet<>();
+    final List<CodeChangeHandler> changeHandlers = new ArrayList<>();
+    final List<JSError> errors = new ArrayList<>();
+
+    ScopeChanges(Node scopeRoot) {
+      this.scopeRoot = scopeRoot;
+      this.currentScope = scopeRoot;
+    }
+
+    void reportChange(Node scope) {
+      changedScopes.add(scope);
+      for (CodeChangeHandler handler : changeHandlers) {
+        handler.reportChange();
+      }
+    }
+  }
+
+  ScopeChanges getCurrentChanges() {
+    return currentChanges;
+  }
+
+  List<ScopeChanges> run(final AbstractCompiler compiler, List<Node> scopeRoots,
+      final FunctionCallback callback, CompilerExecutor executor, int numThreads) {
+    List<Callable<ScopeChanges>> tasks = new ArrayList<>(scopeRoots.size());
+    for (final Node scopeRoot : scopeRoots) {
+      tasks.add(new Callable<ScopeChanges>() {
+        @Override
+        public ScopeChanges call() {
+          ScopeChanges changes = new ScopeChanges(scopeRoot);
+          currentChanges = changes;
+          try {
+            callback.enterFunction(compiler, scopeRoot);
+          } finally {
+            currentChanges = null;
+          }
+          return changes;
+        }
+      });
+    }
+    return executor.runInParallel(tasks, numThreads);
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.javascript.jscomp;
 
 import com.google.javascript.jscomp.CompilerOptions.TracerMode;
+import com.google.javascript.jscomp.CompilerOptions.TracerReportFormat;
 import com.google.javascript.rhino.Node;
 
 import java.io.PrintStream;
@@ -29,10 +30,18 @@ public final class PerformanceTracker {
 
   void recordPassStop(String passName, long runTime) {}
 
+  void recordLoopIteration() {}
+
+  void setScope(Node n) {}
+
+  void recordChange(Node n) {}
+
   CodeChangeHandler getCodeChangeHandler() {
     throw new UnsupportedOperationException(
         "PerformanceTracker.getCodeChangeHandler not implemented");
   }
 
   public void outputTracerReport() {}
+
+  void outputTracerReport(TracerReportFormat format, String path) {}
 }
@@ -0,0 +1,656 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A persistent hash map, stored as a compressed hash-array mapped prefix
+ * tree (CHAMP). Each node has a bitmap of its entries and a bitmap of its
+ * subnodes, and removals keep the tree in a canonical form, so two maps
+ * with the same entries have the same shape.
+ *
+ * <p>A map that is derived from another one shares the nodes that were not
+ * changed, which makes {@link #equals} and {@link #join} proportional to the
+ * parts of the two maps that differ. Type environments are joined at every
+ * merge of the control flow, where the joined environments usually differ
+ * in a few variables.
+ *
+ * <p>Null keys and values are not allowed.
+ */
+final class ChampPersistentMap<K, V> extends PersistentMap<K, V> {
+
+  /**
+   * Computes the value of a key that is in both maps given to {@link #join},
+   * when the two values are different objects.
+   */
+  interface Merger<V> {
+    V merge(V v1, V v2);
+  }
+
+  private static final int BITS_PER_LEVEL = 5;
+  private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+  // Keys whose hashes are equal end up in collision nodes below this shift.
+  private static final int MAX_SHIFT = 30;
+  // The depth of the bitmap nodes, plus one for the collision nodes
+  private static final int MAX_DEPTH = MAX_SHIFT / BITS_PER_LEVEL + 2;
+
+  @SuppressWarnings("rawtypes")
+  private static final ChampPersistentMap EMPTY = new ChampPersistentMap<>(BitmapNode.EMPTY);
+
+  private final Node root;
+
+  private ChampPersistentMap(Node root) {
+    this.root = root;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <K, V> ChampPersistentMap<K, V> empty() {
+    return EMPTY;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    Preconditions.checkNotNull(key);
+    return (V) root.find(key, hash(key), 0);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return root.size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return root.size == 0;
+  }
+
+  @Override
+  public ChampPersistentMap<K, V> with(K key, V value) {
+    Preconditions.checkNotNull(key);
+    Preconditions.checkNotNull(value);
+    return wrap(root.with(key, value, hash(key), 0));
+  }
+
+  @Override
+  public ChampPersistentMap<K, V> without(K key) {
+    Preconditions.checkNotNull(key);
+    return wrap(root.without(key, hash(key), 0));
+  }
+
+  /**
+   * Returns a map with the keys of both maps. The value of a key that is in
+   * both maps is the value computed by the merger, unless the two values are
+   * the same object. Parts of the maps that are shared are not visited.
+   */
+  @SuppressWarnings("unchecked")
+  ChampPersistentMap<K, V> join(ChampPersistentMap<K, V> other, Merger<V> merger) {
+    Node newRoot = join(this.root, other.root, 0, (Merger<Object>) merger);
+    return newRoot == other.root ? other : wrap(newRoot);
+  }
+
+  private ChampPersistentMap<K, V> wrap(Node newRoot) {
+    return newRoot == root ? this : new ChampPersistentMap<K, V>(newRoot);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof ChampPersistentMap) {
+      return this.root.isEqualTo(((ChampPersistentMap<?, ?>) o).root);
+    }
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+      }
+
+      @Override
+      public int size() {
+        return root.size;
+      }
+    };
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int index(int hash, int shift) {
+    return (hash >>> shift) & LEVEL_MASK;
+  }
+
+  private static Object merge(Object v1, Object v2, Merger<Object> merger) {
+    return v1 == v2 ? v1 : merger.merge(v1, v2);
+  }
+
+  private static Node join(Node n1, Node n2, int shift, Merger<Object> merger) {
+    if (n1 == n2) {
+      return n1;
+    }
+    if (n1 instanceof CollisionNode) {
+      CollisionNode c2 = (CollisionNode) n2;
+      Node result = n1;
+      for (int i = 0; i < c2.size; i++) {
+        Object key = c2.keys[i];
+        Object v1 = n1.find(key, c2.hash, shift);
+        Object v2 = c2.values[i];
+        result = result.with(key, v1 == null ? v2 : merge(v1, v2, merger), c2.hash, shift);
+      }
+      return result;
+    }
+    BitmapNode b1 = (BitmapNode) n1;
+    BitmapNode b2 = (BitmapNode) n2;
+    int childShift = shift + BITS_PER_LEVEL;
+    int dataMap = 0;
+    int nodeMap = 0;
+    List<Object> entries = new ArrayList<>();
+    List<Node> nodes = new ArrayList<>();
+    boolean sameAsN1 = true;
+    boolean sameAsN2 = true;
+    for (int bits = b1.dataMap | b1.nodeMap | b2.dataMap | b2.nodeMap;
+         bits != 0; bits &= bits - 1) {
+      int bitpos = bits & -bits;
+      boolean inData1 = (b1.dataMap & bitpos) != 0;
+      boolean inData2 = (b2.dataMap & bitpos) != 0;
+      boolean inNodes1 = (b1.nodeMap & bitpos) != 0;
+      boolean inNodes2 = (b2.nodeMap & bitpos) != 0;
+      if (inData1 && inData2) {
+        Object k1 = b1.keyAt(bitpos);
+        Object k2 = b2.keyAt(bitpos);
+        Object v1 = b1.valueAt(bitpos);
+        Object v2 = b2.valueAt(bitpos);
+        if (k1.equals(k2)) {
+          Object v = merge(v1, v2, merger);
+          dataMap |= bitpos;
+          entries.add(k1);
+          entries.add(v);
+          sameAsN1 &= v == v1;
+          sameAsN2 &= v == v2 && k1 == k2;
+        } else {
+          nodeMap |= bitpos;
+          nodes.add(BitmapNode.of(k1, v1, hash(k1), k2, v2, hash(k2), childShift));
+          sameAsN1 = sameAsN2 = false;
+        }
+      } else if ((inData1 || inNodes1) && (inData2 || inNodes2)) {
+        // A subnode on one side at least, so join the two sides as subnodes.
+        Node child1 = inNodes1 ? b1.nodeAt(bitpos)
+            : singleton(b1.keyAt(bitpos), b1.valueAt(bitpos), childShift);
+        Node child2 = inNodes2 ? b2.nodeAt(bitpos)
+            : singleton(b2.keyAt(bitpos), b2.valueAt(bitpos), childShift);
+        Node child = join(child1, child2, childShift, merger);
+        nodeMap |= bitpos;
+        nodes.add(child);
+        sameAsN1 &= inNodes1 && child == child1;
+        sameAsN2 &= inNodes2 && child == child2;
+      } else if (inData1 || inData2) {
+        BitmapNode b = inData1 ? b1 : b2;
+        dataMap |= bitpos;
+        entries.add(b.keyAt(bitpos));
+        entries.add(b.valueAt(bitpos));
+        sameAsN1 &= inData1;
+        sameAsN2 &= inData2;
+      } else {
+        nodeMap |= bitpos;
+        nodes.add(inNodes1 ? b1.nodeAt(bitpos) : b2.nodeAt(bitpos));
+        sameAsN1 &= inNodes1;
+        sameAsN2 &= inNodes2;
+      }
+    }
+    if (sameAsN1) {
+      return n1;
+    } else if (sameAsN2) {
+      return n2;
+    }
+    Object[] content = new Object[entries.size() + nodes.size()];
+    entries.toArray(content);
+    for (int i = 0; i < nodes.size(); i++) {
+      content[content.length - 1 - i] = nodes.get(i);
+    }
+    return new BitmapNode(dataMap, nodeMap, content);
+  }
+
+  private static Node singleton(Object key, Object value, int shift) {
+    int hash = hash(key);
+    if (shift > MAX_SHIFT) {
+      return new CollisionNode(hash, new Object[] {key}, new Object[] {value});
+    }
+    return new BitmapNode(1 << index(hash, shift), 0, new Object[] {key, value});
+  }
+
+  private abstract static class Node {
+    // The number of entries in this node and its subnodes
+    final int size;
+
+    Node(int size) {
+      this.size = size;
+    }
+
+    abstract Object find(Object key, int hash, int shift);
+
+    abstract Node with(Object key, Object value, int hash, int shift);
+
+    abstract Node without(Object key, int hash, int shift);
+
+    abstract boolean isEqualTo(Node other);
+
+    abstract int dataArity();
+
+    abstract int nodeArity();
+
+    abstract Object getKey(int i);
+
+    abstract Object getValue(int i);
+
+    abstract Node getNode(int i);
+  }
+
+  private static final class BitmapNode extends Node {
+    static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+    final int dataMap;
+    final int nodeMap;
+    // The keys and values of the entries, followed by the subnodes in
+    // reverse order.
+    final Object[] content;
+
+    BitmapNode(int dataMap, int nodeMap, Object[] content) {
+      super(sizeOf(dataMap, content));
+      this.dataMap = dataMap;
+      this.nodeMap = nodeMap;
+      this.content = content;
+    }
+
+    private static int sizeOf(int dataMap, Object[] content) {
+      int dataArity = Integer.bitCount(dataMap);
+      int size = dataArity;
+      for (int i = 2 * dataArity; i < content.length; i++) {
+        size += ((Node) content[i]).size;
+      }
+      return size;
+    }
+
+    /** Returns a node with two entries whose keys are different. */
+    static Node of(Object k1, Object v1, int h1, Object k2, Object v2, int h2, int shift) {
+      if (shift > MAX_SHIFT) {
+        return new CollisionNode(h1, new Object[] {k1, k2}, new Object[] {v1, v2});
+      }
+      int i1 = index(h1, shift);
+      int i2 = index(h2, shift);
+      if (i1 == i2) {
+        Node child = of(k1, v1, h1, k2, v2, h2, shift + BITS_PER_LEVEL);
+        return new BitmapNode(0, 1 << i1, new Object[] {child});
+      }
+      return i1 < i2
+          ? new BitmapNode((1 << i1) | (1 << i2), 0, new Object[] {k1, v1, k2, v2})
+          : new BitmapNode((1 << i1) | (1 << i2), 0, new Object[] {k2, v2, k1, v1});
+    }
+
+    private int dataIndex(int bitpos) {
+      return 2 * Integer.bitCount(dataMap & (bitpos - 1));
+    }
+
+    private int nodeIndex(int bitpos) {
+      return content.length - 1 - Integer.bitCount(nodeMap & (bitpos - 1));
+    }
+
+    Object keyAt(int bitpos) {
+      return content[dataIndex(bitpos)];
+    }
+
+    Object valueAt(int bitpos) {
+      return content[dataIndex(bitpos) + 1];
+    }
+
+    Node nodeAt(int bitpos) {
+      return (Node) content[nodeIndex(bitpos)];
+    }
+
+    @Override
+    Object find(Object key, int hash, int shift) {
+      int bitpos = 1 << index(hash, shift);
+      if ((dataMap & bitpos) != 0) {
+        return key.equals(keyAt(bitpos)) ? valueAt(bitpos) : null;
+      } else if ((nodeMap & bitpos) != 0) {
+        return nodeAt(bitpos).find(key, hash, shift + BITS_PER_LEVEL);
+      }
+      return null;
+    }
+
+    @Override
+    Node with(Object key, Object value, int hash, int shift) {
+      int bitpos = 1 << index(hash, shift);
+      if ((dataMap & bitpos) != 0) {
+        int i = dataIndex(bitpos);
+        Object oldKey = content[i];
+        if (key.equals(oldKey)) {
+          if (content[i + 1] == value) {
+            return this;
+          }
+          Object[] newContent = content.clone();
+          newContent[i + 1] = value;
+          return new BitmapNode(dataMap, nodeMap, newContent);
+        }
+        // Replace the entry by a subnode with both entries.
+        Node child = of(oldKey, content[i + 1], hash(oldKey),
+            key, value, hash, shift + BITS_PER_LEVEL);
+        int j = nodeIndex(bitpos);
+        Object[] newContent = new Object[content.length - 1];
+        System.arraycopy(content, 0, newContent, 0, i);
+        System.arraycopy(content, i + 2, newContent, i, j - i - 1);
+        newContent[j - 1] = child;
+        System.arraycopy(content, j + 1, newContent, j, content.length - j - 1);
+        return new BitmapNode(dataMap ^ bitpos, nodeMap | bitpos, newContent);
+      } else if ((nodeMap & bitpos) != 0) {
+        int j = nodeIndex(bitpos);
+        Node child = (Node) content[j];
+        Node newChild = child.with(key, value, hash, shift + BITS_PER_LEVEL);
+        if (newChild == child) {
+          return this;
+        }
+        Object[] newContent = content.clone();
+        newContent[j] = newChild;
+        return new BitmapNode(dataMap, nodeMap, newContent);
+      }
+      int i = dataIndex(bitpos);
+      Object[] newContent = new Object[content.length + 2];
+      System.arraycopy(content, 0, newContent, 0, i);
+      newContent[i] = key;
+      newContent[i + 1] = value;
+      System.arraycopy(content, i, newContent, i + 2, content.length - i);
+      return new BitmapNode(dataMap | bitpos, nodeMap, newContent);
+    }
+
+    @Override
+    Node without(Object key, int hash, int shift) {
+      int bitpos = 1 << index(hash, shift);
+      if ((dataMap & bitpos) != 0) {
+        int i = dataIndex(bitpos);
+        if (!key.equals(content[i])) {
+          return this;
+        }
+        Object[] newContent = new Object[content.length - 2];
+        System.arraycopy(content, 0, newContent, 0, i);
+        System.arraycopy(content, i + 2, newContent, i, content.length - i - 2);
+        return new BitmapNode(dataMap ^ bitpos, nodeMap, newContent);
+      } else if ((nodeMap & bitpos) != 0) {
+        int j = nodeIndex(bitpos);
+        Node child = (Node) content[j];
+        Node newChild = child.without(key, hash, shift + BITS_PER_LEVEL);
+        if (newChild == child) {
+          return this;
+        }
+        if (newChild.size == 1) {
+          // Move the last entry of the subnode up, to keep the tree canonical.
+          int i = dataIndex(bitpos);
+          Object[] newContent = new Object[content.length + 1];
+          System.arraycopy(content, 0, newContent, 0, i);
+          newContent[i] = newChild.getKey(0);
+          newContent[i + 1] = newChild.getValue(0);
+          System.arraycopy(content, i, newContent, i + 2, j - i);
+          System.arraycopy(content, j + 1, newContent, j + 2, content.length - j - 1);
+          return new BitmapNode(dataMap | bitpos, nodeMap ^ bitpos, newContent);
+        }
+        Object[] newContent = content.clone();
+        newContent[j] = newChild;
+        return new BitmapNode(dataMap, nodeMap, newContent);
+      }
+      return this;
+    }
+
+    @Override
+    boolean isEqualTo(Node other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof BitmapNode) || size != other.size) {
+        return false;
+      }
+      BitmapNode n = (BitmapNode) other;
+      if (dataMap != n.dataMap || nodeMap != n.nodeMap) {
+        return false;
+      }
+      int dataLength = 2 * dataArity();
+      for (int i = 0; i < dataLength; i++) {
+        if (!content[i].equals(n.content[i])) {
+          return false;
+        }
+      }
+      for (int i = dataLength; i < content.length; i++) {
+        if (!((Node) content[i]).isEqualTo((Node) n.content[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    int dataArity() {
+      return Integer.bitCount(dataMap);
+    }
+
+    @Override
+    int nodeArity() {
+      return Integer.bitCount(nodeMap);
+    }
+
+    @Override
+    Object getKey(int i) {
+      return content[2 * i];
+    }
+
+    @Override
+    Object getValue(int i) {
+      return content[2 * i + 1];
+    }
+
+    @Override
+    Node getNode(int i) {
+      return (Node) content[content.length - 1 - i];
+    }
+  }
+
+  /** The entries whose keys have the same hash. */
+  private static final class CollisionNode extends Node {
+    final int hash;
+    final Object[] keys;
+    final Object[] values;
+
+    CollisionNode(int hash, Object[] keys, Object[] values) {
+      super(keys.length);
+      this.hash = hash;
+      this.keys = keys;
+      this.values = values;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < keys.length; i++) {
+        if (key.equals(keys[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    Object find(Object key, int hash, int shift) {
+      int i = indexOf(key);
+      return i == -1 ? null : values[i];
+    }
+
+    @Override
+    Node with(Object key, Object value, int hash, int shift) {
+      int i = indexOf(key);
+      if (i != -1) {
+        if (values[i] == value) {
+          return this;
+        }
+        Object[] newValues = values.clone();
+        newValues[i] = value;
+        return new CollisionNode(hash, keys, newValues);
+      }
+      Object[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+      Object[] newValues = Arrays.copyOf(values, keys.length + 1);
+      newKeys[keys.length] = key;
+      newValues[keys.length] = value;
+      return new CollisionNode(hash, newKeys, newValues);
+    }
+
+    @Override
+    Node without(Object key, int hash, int shift) {
+      int i = indexOf(key);
+      if (i == -1) {
+        return this;
+      }
+      Object[] newKeys = new Object[keys.length - 1];
+      Object[] newValues = new Object[keys.length - 1];
+      System.arraycopy(keys, 0, newKeys, 0, i);
+      System.arraycopy(values, 0, newValues, 0, i);
+      System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+      System.arraycopy(values, i + 1, newValues, i, keys.length - i - 1);
+      return new CollisionNode(hash, newKeys, newValues);
+    }
+
+    @Override
+    boolean isEqualTo(Node other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof CollisionNode) || size != other.size) {
+        return false;
+      }
+      CollisionNode n = (CollisionNode) other;
+      // The entries can be in any order.
+      for (int i = 0; i < keys.length; i++) {
+        int j = n.indexOf(keys[i]);
+        if (j == -1 || !values[i].equals(n.values[j])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    int dataArity() {
+      return keys.length;
+    }
+
+    @Override
+    int nodeArity() {
+      return 0;
+    }
+
+    @Override
+    Object getKey(int i) {
+      return keys[i];
+    }
+
+    @Override
+    Object getValue(int i) {
+      return values[i];
+    }
+
+    @Override
+    Node getNode(int i) {
+      throw new IndexOutOfBoundsException();
+    }
+  }
+
+  /** Visits the entries of each node before the entries of its subnodes. */
+  private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+    private final Node[] nodes = new Node[MAX_DEPTH];
+    private final int[] nextSubnodes = new int[MAX_DEPTH];
+    private int depth = 0;
+    private Node current;
+    private int nextEntry = 0;
+
+    EntryIterator(Node root) {
+      nodes[0] = root;
+      current = root;
+      advance();
+    }
+
+    /** Moves to the next node with entries if the current one has no more. */
+    private void advance() {
+      while (current != null && nextEntry == current.dataArity()) {
+        current = null;
+        while (depth >= 0) {
+          Node node = nodes[depth];
+          if (nextSubnodes[depth] == node.nodeArity()) {
+            depth--;
+          } else {
+            current = node.getNode(nextSubnodes[depth]++);
+            depth++;
+            nodes[depth] = current;
+            nextSubnodes[depth] = 0;
+            nextEntry = 0;
+            break;
+          }
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return current != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map.Entry<K, V> next() {
+      if (current == null) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(
+          (K) current.getKey(nextEntry), (V) current.getValue(nextEntry));
+      nextEntry++;
+      advance();
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -1206,6 +1206,7 @@ public abstract class JSType implements FunctionTypeI, ObjectTypeI {
   }
 
   // Adds ft to this type, replacing the current function, if any.
+  // The namespace keeps its old type until updateNamespaceType is called.
   public JSType withFunction(FunctionType ft, NominalType fnNominal) {
     // This method is used for a very narrow purpose, hence these checks.
     Preconditions.checkNotNull(ft);
@@ -1214,6 +1215,12 @@ public abstract class JSType implements FunctionTypeI, ObjectTypeI {
         getObjTypeIfSingletonObj().withFunction(ft, fnNominal));
   }
 
+  // Makes this type, the result of withFunction, the type of its namespace.
+  public void updateNamespaceType() {
+    Preconditions.checkState(this.isNamespace());
+    getObjTypeIfSingletonObj().updateNamespaceType();
+  }
+
   public static String createGetterPropName(String originalPropName) {
     return "%getter_fun" + originalPropName;
   }
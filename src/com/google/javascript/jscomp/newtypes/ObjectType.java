@@ -291,10 +291,13 @@ final class ObjectType implements TypeWithProperties {
   ObjectType withFunction(FunctionType ft, NominalType fnNominal) {
     Preconditions.checkState(this.isNamespace());
     Preconditions.checkState(!ft.isLoose() || ft.isQmarkFunction());
-    ObjectType obj = makeObjectType(
+    return makeObjectType(
         fnNominal, this.props, ft, this.ns, false, this.objectKind);
-    this.ns.updateNamespaceType(JSType.fromObjectType(obj));
-    return obj;
+  }
+
+  void updateNamespaceType() {
+    Preconditions.checkState(this.isNamespace());
+    this.ns.updateNamespaceType(JSType.fromObjectType(this));
   }
 
   static ImmutableSet<ObjectType> withoutProperty(
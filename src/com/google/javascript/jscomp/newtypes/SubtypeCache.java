@@ -25,14 +25,14 @@ final class SubtypeCache {
   // For each pair (key, val) in this map, we are in the process of checking
   // whether key is a subtype of val (during regular subtype checking or during
   // unification). The values of the map are always interfaces.
-  private final PersistentMap<NominalType, NominalType> m;
+  private final ChampPersistentMap<NominalType, NominalType> m;
 
-  private SubtypeCache(PersistentMap<NominalType, NominalType> m) {
+  private SubtypeCache(ChampPersistentMap<NominalType, NominalType> m) {
     this.m = m;
   }
 
   static SubtypeCache create() {
-    return new SubtypeCache(PersistentMap.<NominalType, NominalType>create());
+    return new SubtypeCache(ChampPersistentMap.<NominalType, NominalType>empty());
   }
 
   NominalType get(NominalType key) {
@@ -22,7 +22,6 @@ import com.google.common.collect.ImmutableSet;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.Map;
 
 /**
  * A persistent map from variables to abstract values (types)
@@ -31,7 +30,7 @@ import java.util.Map;
  * @author dimvar@google.com (Dimitris Vardoulakis)
  */
 public final class TypeEnv {
-  private final PersistentMap<String, JSType> typeMap;
+  private final ChampPersistentMap<String, JSType> typeMap;
 
   // Above this threshold, the type env keeps track of which variables have
   // changed, in order to improve the speed of joins.
@@ -39,17 +38,17 @@ public final class TypeEnv {
   private PersistentSet<String> changedVars = null;
 
   public TypeEnv() {
-    this.typeMap = PersistentMap.create();
+    this.typeMap = ChampPersistentMap.empty();
   }
 
-  private TypeEnv(PersistentMap<String, JSType> typeMap) {
+  private TypeEnv(ChampPersistentMap<String, JSType> typeMap) {
     this.typeMap = typeMap;
     if (typeMap.size() >= SIZE_THRESHOLD) {
       this.changedVars = PersistentSet.create();
     }
   }
 
-  private TypeEnv(PersistentMap<String, JSType> typeMap,
+  private TypeEnv(ChampPersistentMap<String, JSType> typeMap,
       PersistentSet<String> changedVars) {
     Preconditions.checkState(typeMap.size() >= SIZE_THRESHOLD);
     this.typeMap = typeMap;
@@ -104,25 +103,22 @@ public final class TypeEnv {
     if (!envsIter.hasNext()) {
       return firstEnv;
     }
-    PersistentMap<String, JSType> newMap = firstEnv.typeMap;
+    ChampPersistentMap<String, JSType> newMap = firstEnv.typeMap;
 
     if (firstEnv.changedVars == null) {
+      // The envs share the types of the variables that were not changed
+      // since they were forked, so the join only visits the other ones.
+      // The join has the variables of both envs, so when it has as many as
+      // each of them, all the envs have the same variables.
+      int size = firstEnv.typeMap.size();
       while (envsIter.hasNext()) {
-        TypeEnv env = envsIter.next();
-        for (Map.Entry<String, JSType> entry : env.typeMap.entrySet()) {
-          String name = entry.getKey();
-          // TODO(dimvar):
-          // If the iteration order in the type envs is guaranteed to get the
-          // keys in the same order for any env, then we can iterate through the
-          // two type envs at the same time, to avoid the map lookup here.
-          JSType currentType = newMap.get(name);
-          JSType otherType = entry.getValue();
-          Preconditions.checkNotNull(
-              currentType, "%s is missing from an env", name);
-          if (!currentType.equals(otherType)) {
-            newMap = newMap.with(name, JSType.join(currentType, otherType));
-          }
+        ChampPersistentMap<String, JSType> otherMap = envsIter.next().typeMap;
+        ChampPersistentMap<String, JSType> joinedMap = newMap.join(otherMap, JOIN_TYPES);
+        if (joinedMap.size() != size || otherMap.size() != size) {
+          throw new IllegalStateException(String.format(
+              "%s is missing from an env", getMissingVar(newMap, otherMap)));
         }
+        newMap = joinedMap;
       }
       return new TypeEnv(newMap);
     }
@@ -146,6 +142,30 @@ public final class TypeEnv {
     return new TypeEnv(newMap, newLog);
   }
 
+  private static String getMissingVar(
+      ChampPersistentMap<String, JSType> map1, ChampPersistentMap<String, JSType> map2) {
+    for (String name : map1.keySet()) {
+      if (!map2.containsKey(name)) {
+        return name;
+      }
+    }
+    for (String name : map2.keySet()) {
+      if (!map1.containsKey(name)) {
+        return name;
+      }
+    }
+    throw new IllegalStateException("The envs have the same variables");
+  }
+
+  private static final ChampPersistentMap.Merger<JSType> JOIN_TYPES =
+      new ChampPersistentMap.Merger<JSType>() {
+        @Override
+        public JSType merge(JSType currentType, JSType otherType) {
+          return currentType.equals(otherType)
+              ? currentType : JSType.join(currentType, otherType);
+        }
+      };
+
   @Override
   public String toString() {
     MoreObjects.ToStringHelper helper = MoreObjects.toStringHelper(this);
@@ -16,8 +16,10 @@
 
 package com.google.javascript.jscomp.parsing;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Ordering;
 import com.google.javascript.jscomp.parsing.parser.FeatureSet;
 
 import java.util.Set;
@@ -136,6 +138,19 @@ public final class Config {
     this.languageMode = languageMode;
   }
 
+  /**
+   * Returns a string that is the same for two configs exactly when they parse
+   * every file the same way, for use in the keys of cached parse results.
+   */
+  public String getFingerprint() {
+    return Joiner.on(';').join(
+        languageMode,
+        parseJsDocDocumentation,
+        keepGoing,
+        Ordering.natural().sortedCopy(annotationNames.keySet()),
+        Ordering.natural().sortedCopy(suppressionNames));
+  }
+
   /**
    * Create the annotation names from the user-specified
    * annotation whitelist.
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.rhino;
+
+import com.google.common.annotations.GwtIncompatible;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Constants and helpers shared by {@link BinaryNodeWriter} and
+ * {@link BinaryNodeReader}.
+ *
+ * <p>A stream starts with {@link #MAGIC} and the format {@link #VERSION},
+ * followed by one frame per tree. A frame holds the Java-serialized property
+ * values that have no compact encoding, followed by the nodes of the tree in
+ * pre-order. Each node is written as its token, a bitmap of the fields that
+ * are present, the fields themselves, its properties and its children.
+ * Integers are written as varints, source positions as the difference from
+ * the previously written node, and strings as indices into a table that grows
+ * as new strings are first written. Properties that are shared between
+ * nodes are written once and referenced by index afterwards.
+ */
+@GwtIncompatible("java.io.ObjectOutputStream")
+final class BinaryNodeFormat {
+
+  static final int MAGIC = 0x4A534E44;  // "JSND"
+  static final int VERSION = 3;
+
+  // Marks the end of a list of children.
+  static final int END_OF_CHILDREN = 0;
+
+  // Bits of the field bitmap written after each node's token.
+  static final int HAS_CHILDREN = 1;
+  static final int HAS_POSITION = 1 << 1;
+  static final int HAS_LENGTH = 1 << 2;
+  static final int HAS_PROPS = 1 << 3;
+  static final int KIND_SHIFT = 4;
+
+  // The Node subclass and the extra value written for it, stored in the
+  // bitmap starting at KIND_SHIFT.
+  static final int KIND_PLAIN = 0;
+  static final int KIND_STRING = 1;
+  static final int KIND_INT_NUMBER = 2;
+  static final int KIND_NUMBER = 3;
+  static final int KIND_TYPE_DECLARATION = 4;
+  static final int KIND_TYPE_DECLARATION_WITH_STRING = 5;
+
+  // Starts a node's properties that were not written before. Properties that
+  // were are written as (index << 1 | 1) instead.
+  static final int NEW_PROPS = 0;
+
+  // Tags for the encoding of property values.
+  static final int OBJECT_STRING = 0;
+  static final int OBJECT_NODE = 1;
+  static final int OBJECT_SOURCE_FILE = 2;
+  static final int OBJECT_SERIALIZED = 3;
+  static final int OBJECT_INT = 4;
+
+  private BinaryNodeFormat() {}
+
+  /**
+   * Stands in for the tree's source file in the Java-serialized section. The
+   * source file is referenced from nearly every node, but belongs to the
+   * caller and is never itself written.
+   */
+  enum SourceFilePlaceholder {
+    INSTANCE
+  }
+
+  static final class SourceFileReplacingOutputStream extends ObjectOutputStream {
+    private final StaticSourceFile sourceFile;
+
+    SourceFileReplacingOutputStream(OutputStream out, StaticSourceFile sourceFile)
+        throws IOException {
+      super(out);
+      this.sourceFile = sourceFile;
+      enableReplaceObject(sourceFile != null);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) {
+      return obj == sourceFile ? SourceFilePlaceholder.INSTANCE : obj;
+    }
+  }
+
+  static final class SourceFileResolvingInputStream extends ObjectInputStream {
+    private final StaticSourceFile sourceFile;
+
+    SourceFileResolvingInputStream(InputStream in, StaticSourceFile sourceFile)
+        throws IOException {
+      super(in);
+      this.sourceFile = sourceFile;
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) {
+      return obj == SourceFilePlaceholder.INSTANCE ? sourceFile : obj;
+    }
+  }
+}
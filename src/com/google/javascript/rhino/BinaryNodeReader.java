@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.rhino;
+
+import static com.google.javascript.rhino.BinaryNodeFormat.END_OF_CHILDREN;
+import static com.google.javascript.rhino.BinaryNodeFormat.NEW_PROPS;
+import static com.google.javascript.rhino.BinaryNodeFormat.HAS_CHILDREN;
+import static com.google.javascript.rhino.BinaryNodeFormat.HAS_LENGTH;
+import static com.google.javascript.rhino.BinaryNodeFormat.HAS_POSITION;
+import static com.google.javascript.rhino.BinaryNodeFormat.HAS_PROPS;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_INT_NUMBER;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_NUMBER;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_PLAIN;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_SHIFT;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_STRING;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_TYPE_DECLARATION;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_TYPE_DECLARATION_WITH_STRING;
+import static com.google.javascript.rhino.BinaryNodeFormat.OBJECT_INT;
+import static com.google.javascript.rhino.BinaryNodeFormat.OBJECT_NODE;
+import static com.google.javascript.rhino.BinaryNodeFormat.OBJECT_SERIALIZED;
+import static com.google.javascript.rhino.BinaryNodeFormat.OBJECT_SOURCE_FILE;
+import static com.google.javascript.rhino.BinaryNodeFormat.OBJECT_STRING;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.javascript.rhino.BinaryNodeFormat.SourceFileResolvingInputStream;
+import com.google.javascript.rhino.Node.PackedProps;
+import com.google.javascript.rhino.Node.TypeDeclarationNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Reads parse trees written by {@link BinaryNodeWriter}. Trees must be read
+ * in the order in which they were written.
+ */
+@GwtIncompatible("java.io.ObjectInputStream")
+public final class BinaryNodeReader implements Closeable {
+
+  private static final Token[] TOKENS = Token.values();
+
+  private final DataInputStream in;
+  private final List<String> strings = new ArrayList<>();
+
+  // The state of the tree being read.
+  private byte[] bytes;
+  private int offset;
+  private final List<PackedProps> propSets = new ArrayList<>();
+  private Object[] serializedValues;
+  private StaticSourceFile sourceFile;
+  private int previousPosition;
+
+  public BinaryNodeReader(InputStream in) throws IOException {
+    this.in = new DataInputStream(in);
+    if (this.in.readInt() != BinaryNodeFormat.MAGIC) {
+      throw new IOException("Not a binary AST stream");
+    }
+    int version = this.in.readInt();
+    if (version != BinaryNodeFormat.VERSION) {
+      throw new IOException("Unsupported binary AST version " + version);
+    }
+  }
+
+  /**
+   * Reads the next tree from the stream.
+   *
+   * @param sourceFile The file that references to the tree's source file are
+   *     resolved to.
+   * @return The root of the tree, or null if the end of the stream has been
+   *     reached.
+   */
+  public Node readTree(@Nullable StaticSourceFile sourceFile) throws IOException {
+    int first = in.read();
+    if (first == -1) {
+      return null;
+    }
+    this.sourceFile = sourceFile;
+    this.previousPosition = 0;
+    propSets.clear();
+
+    byte[] serialized = new byte[readVarint(in, first)];
+    in.readFully(serialized);
+    serializedValues = readSerializedValues(serialized);
+
+    bytes = new byte[readVarint(in, in.read())];
+    in.readFully(bytes);
+    offset = 0;
+    try {
+      return readNode(readVarint());
+    } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("Malformed binary AST", e);
+    } finally {
+      bytes = null;
+      serializedValues = null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private Object[] readSerializedValues(byte[] serialized) throws IOException {
+    if (serialized.length == 0) {
+      return new Object[0];
+    }
+    try (ObjectInputStream objects =
+        new SourceFileResolvingInputStream(new ByteArrayInputStream(serialized), sourceFile)) {
+      Object[] values = new Object[objects.readInt()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = objects.readObject();
+      }
+      return values;
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private Node readNode(int tokenCode) {
+    Token token = TOKENS[tokenCode - 1];
+    int fields = readVarint();
+
+    Node n;
+    switch (fields >>> KIND_SHIFT) {
+      case KIND_PLAIN:
+        n = new Node(token);
+        break;
+      case KIND_STRING:
+        n = Node.newString(token, readString());
+        break;
+      case KIND_INT_NUMBER:
+        n = Node.newNumber(readSignedVarint());
+        n.setToken(token);
+        break;
+      case KIND_NUMBER:
+        n = Node.newNumber(Double.longBitsToDouble(readLong()));
+        n.setToken(token);
+        break;
+      case KIND_TYPE_DECLARATION:
+        n = new TypeDeclarationNode(token);
+        break;
+      case KIND_TYPE_DECLARATION_WITH_STRING:
+        n = new TypeDeclarationNode(token, readString());
+        break;
+      default:
+        throw new IllegalArgumentException("unexpected node kind " + (fields >>> KIND_SHIFT));
+    }
+
+    if ((fields & HAS_POSITION) != 0) {
+      previousPosition += readSignedVarint();
+      n.setSourceEncodedPosition(previousPosition);
+    }
+    if ((fields & HAS_LENGTH) != 0) {
+      n.setLength(readVarint());
+    }
+    if ((fields & HAS_PROPS) != 0) {
+      n.setPackedProps(readProps());
+    }
+    if ((fields & HAS_CHILDREN) != 0) {
+      for (int code = readVarint(); code != END_OF_CHILDREN; code = readVarint()) {
+        n.addChildToBack(readNode(code));
+      }
+    }
+    return n;
+  }
+
+  /** Reads properties written by {@link BinaryNodeWriter#writeProps}. */
+  private PackedProps readProps() {
+    int code = readVarint();
+    if (code != NEW_PROPS) {
+      return propSets.get(code >>> 1);
+    }
+    // Numbered before the values are read, since node-valued properties may
+    // contain further properties.
+    int index = propSets.size();
+    propSets.add(null);
+    long flags = readVarLong();
+    long slotMask = readVarLong();
+    Object[] slots = new Object[Long.bitCount(slotMask)];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = readObject();
+    }
+    PackedProps props = new PackedProps(flags, slotMask, slots);
+    propSets.set(index, props);
+    return props;
+  }
+
+  private Object readObject() {
+    int tag = readVarint();
+    switch (tag) {
+      case OBJECT_INT:
+        return readSignedVarint();
+      case OBJECT_STRING:
+        return readString();
+      case OBJECT_NODE:
+        return readNode(readVarint());
+      case OBJECT_SOURCE_FILE:
+        return sourceFile;
+      case OBJECT_SERIALIZED:
+        return serializedValues[readVarint()];
+      default:
+        throw new IllegalArgumentException("unexpected object tag " + tag);
+    }
+  }
+
+  private String readString() {
+    int index = readVarint();
+    if (index != 0) {
+      return strings.get(index - 1);
+    }
+    char[] chars = new char[readVarint()];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) readVarint();
+    }
+    String s = new String(chars);
+    strings.add(s);
+    return s;
+  }
+
+  private int readVarint() {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = bytes[offset++];
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private long readVarLong() {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = bytes[offset++];
+      value |= (b & 0x7FL) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private int readSignedVarint() {
+    int value = readVarint();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private long readLong() {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value |= (bytes[offset++] & 0xFFL) << (i * 8);
+    }
+    return value;
+  }
+
+  private static int readVarint(DataInputStream in, int first) throws IOException {
+    int value = 0;
+    int b = first;
+    for (int shift = 0; ; shift += 7) {
+      if (b == -1) {
+        throw new EOFException();
+      }
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+      b = in.read();
+    }
+  }
+}
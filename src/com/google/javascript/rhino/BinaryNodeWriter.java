@@ -0,0 +1,314 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.rhino;
+
+import static com.google.javascript.rhino.BinaryNodeFormat.END_OF_CHILDREN;
+import static com.google.javascript.rhino.BinaryNodeFormat.NEW_PROPS;
+import static com.google.javascript.rhino.BinaryNodeFormat.HAS_CHILDREN;
+import static com.google.javascript.rhino.BinaryNodeFormat.HAS_LENGTH;
+import static com.google.javascript.rhino.BinaryNodeFormat.HAS_POSITION;
+import static com.google.javascript.rhino.BinaryNodeFormat.HAS_PROPS;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_INT_NUMBER;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_NUMBER;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_PLAIN;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_SHIFT;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_STRING;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_TYPE_DECLARATION;
+import static com.google.javascript.rhino.BinaryNodeFormat.KIND_TYPE_DECLARATION_WITH_STRING;
+import static com.google.javascript.rhino.BinaryNodeFormat.OBJECT_INT;
+import static com.google.javascript.rhino.BinaryNodeFormat.OBJECT_NODE;
+import static com.google.javascript.rhino.BinaryNodeFormat.OBJECT_SERIALIZED;
+import static com.google.javascript.rhino.BinaryNodeFormat.OBJECT_SOURCE_FILE;
+import static com.google.javascript.rhino.BinaryNodeFormat.OBJECT_STRING;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.javascript.rhino.BinaryNodeFormat.SourceFileReplacingOutputStream;
+import com.google.javascript.rhino.Node.NumberNode;
+import com.google.javascript.rhino.Node.PackedProps;
+import com.google.javascript.rhino.Node.StringNode;
+import com.google.javascript.rhino.Node.TypeDeclarationNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Writes parse trees to a stream in a compact binary format, to be read back
+ * with {@link BinaryNodeReader}. Several trees may be written to the same
+ * stream, and the strings they have in common are written only once. See
+ * {@link BinaryNodeFormat} for a description of the format.
+ *
+ * <p>Only the syntactic information of the tree is written: types attached
+ * by type checking are dropped. Node-valued properties are written as
+ * separate trees. Property values without a compact encoding, such as
+ * {@link JSDocInfo}, are written with Java serialization.
+ */
+@GwtIncompatible("java.io.ObjectOutputStream")
+public final class BinaryNodeWriter implements Closeable, Flushable {
+
+  private final DataOutputStream out;
+  private final Map<String, Integer> strings = new HashMap<>();
+
+  // The state of the tree being written.
+  private final ByteBuffer buffer = new ByteBuffer();
+  private final Map<PackedProps, Integer> propSets = new IdentityHashMap<>();
+  private final List<Object> serializedValues = new ArrayList<>();
+  private StaticSourceFile sourceFile;
+  private int previousPosition;
+
+  public BinaryNodeWriter(OutputStream out) throws IOException {
+    this.out = new DataOutputStream(out);
+    this.out.writeInt(BinaryNodeFormat.MAGIC);
+    this.out.writeInt(BinaryNodeFormat.VERSION);
+  }
+
+  /**
+   * Writes a tree to the stream.
+   *
+   * @param root The root of the tree. It is written as though it had no
+   *     parent or siblings.
+   * @param sourceFile The file the tree was parsed from, if any. References
+   *     to it are written as references to the file given to
+   *     {@link BinaryNodeReader#readTree} when the tree is read back.
+   */
+  public void writeTree(Node root, @Nullable StaticSourceFile sourceFile) throws IOException {
+    this.sourceFile = sourceFile;
+    this.previousPosition = 0;
+    buffer.reset();
+    propSets.clear();
+    serializedValues.clear();
+
+    writeNode(root);
+
+    ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+    if (!serializedValues.isEmpty()) {
+      try (ObjectOutputStream objects =
+          new SourceFileReplacingOutputStream(serialized, sourceFile)) {
+        objects.writeInt(serializedValues.size());
+        for (Object value : serializedValues) {
+          objects.writeObject(value);
+        }
+      }
+    }
+    writeVarint(out, serialized.size());
+    serialized.writeTo(out);
+    writeVarint(out, buffer.size);
+    out.write(buffer.bytes, 0, buffer.size);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  private void writeNode(Node n) {
+    buffer.writeVarint(n.getToken().ordinal() + 1);
+
+    int kind;
+    if (n instanceof StringNode) {
+      kind = KIND_STRING;
+    } else if (n instanceof NumberNode) {
+      kind = isSmallInt(n.getDouble()) ? KIND_INT_NUMBER : KIND_NUMBER;
+    } else if (n instanceof TypeDeclarationNode) {
+      kind = n.getString() == null ? KIND_TYPE_DECLARATION : KIND_TYPE_DECLARATION_WITH_STRING;
+    } else if (n.getClass() == Node.class) {
+      kind = KIND_PLAIN;
+    } else {
+      throw new IllegalArgumentException("unexpected node class " + n.getClass());
+    }
+
+    int position = n.getSourcePosition();
+    PackedProps props = n.getPackedProps();
+    int fields = kind << KIND_SHIFT;
+    if (n.hasChildren()) {
+      fields |= HAS_CHILDREN;
+    }
+    if (position != -1) {
+      fields |= HAS_POSITION;
+    }
+    if (n.getLength() != 0) {
+      fields |= HAS_LENGTH;
+    }
+    if (props != null) {
+      fields |= HAS_PROPS;
+    }
+    buffer.writeVarint(fields);
+
+    switch (kind) {
+      case KIND_STRING:
+      case KIND_TYPE_DECLARATION_WITH_STRING:
+        writeString(n.getString());
+        break;
+      case KIND_INT_NUMBER:
+        buffer.writeSignedVarint((int) n.getDouble());
+        break;
+      case KIND_NUMBER:
+        buffer.writeLong(Double.doubleToRawLongBits(n.getDouble()));
+        break;
+      default:
+        break;
+    }
+    if (position != -1) {
+      buffer.writeSignedVarint(position - previousPosition);
+      previousPosition = position;
+    }
+    if (n.getLength() != 0) {
+      buffer.writeVarint(n.getLength());
+    }
+    if (props != null) {
+      writeProps(props);
+    }
+    if (n.hasChildren()) {
+      for (Node child = n.getFirstChild(); child != null; child = child.getNext()) {
+        writeNode(child);
+      }
+      buffer.writeVarint(END_OF_CHILDREN);
+    }
+  }
+
+  /**
+   * Writes the properties of a node, or a reference by index to the same
+   * properties if they have already been written for another node. This
+   * keeps the sharing of properties between nodes, which IRFactory relies on
+   * to give all the nodes of a file the same source file property.
+   */
+  private void writeProps(PackedProps props) {
+    Integer index = propSets.get(props);
+    if (index != null) {
+      buffer.writeVarint(index << 1 | 1);
+      return;
+    }
+    propSets.put(props, propSets.size());
+
+    buffer.writeVarint(NEW_PROPS);
+    buffer.writeVarLong(props.flags);
+    buffer.writeVarLong(props.slotMask);
+    for (Object value : props.slots) {
+      writeObject(value);
+    }
+  }
+
+  private void writeObject(Object value) {
+    if (value instanceof Integer) {
+      buffer.writeVarint(OBJECT_INT);
+      buffer.writeSignedVarint((Integer) value);
+    } else if (value instanceof String) {
+      buffer.writeVarint(OBJECT_STRING);
+      writeString((String) value);
+    } else if (value instanceof Node) {
+      buffer.writeVarint(OBJECT_NODE);
+      writeNode((Node) value);
+    } else if (value != null && value == sourceFile) {
+      buffer.writeVarint(OBJECT_SOURCE_FILE);
+    } else {
+      buffer.writeVarint(OBJECT_SERIALIZED);
+      buffer.writeVarint(serializedValues.size());
+      serializedValues.add(value);
+    }
+  }
+
+  private void writeString(String s) {
+    Integer index = strings.get(s);
+    if (index != null) {
+      buffer.writeVarint(index + 1);
+      return;
+    }
+    strings.put(s, strings.size());
+    // Written as chars rather than UTF-8, since JavaScript strings may
+    // contain unpaired surrogates.
+    buffer.writeVarint(0);
+    buffer.writeVarint(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      buffer.writeVarint(s.charAt(i));
+    }
+  }
+
+  private static boolean isSmallInt(double d) {
+    // Excludes -0.0, which compares equal to 0.
+    return d == (int) d && (d != 0 || 1 / d > 0);
+  }
+
+  private static void writeVarint(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  /** A growable byte array that the tree is encoded into. */
+  private static final class ByteBuffer {
+    byte[] bytes = new byte[1024];
+    int size = 0;
+
+    void reset() {
+      size = 0;
+    }
+
+    void writeVarint(int value) {
+      ensureCapacity(5);
+      while ((value & ~0x7F) != 0) {
+        bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[size++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[size++] = (byte) value;
+    }
+
+    void writeSignedVarint(int value) {
+      writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    void writeLong(long value) {
+      ensureCapacity(8);
+      for (int i = 0; i < 8; i++) {
+        bytes[size++] = (byte) (value >>> (i * 8));
+      }
+    }
+
+    private void ensureCapacity(int extra) {
+      if (size + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+      }
+    }
+  }
+}
@@ -566,6 +566,7 @@ public class JSDocInfo implements Serializable {
     other.bitset = this.bitset;
     other.type = cloneType(this.type, cloneTypeNodes);
     other.thisType = cloneType(this.thisType, cloneTypeNodes);
+    other.inlineType = this.inlineType;
     other.includeDocumentation = this.includeDocumentation;
     other.originalCommentPosition = this.originalCommentPosition;
     return other;
@@ -2037,36 +2038,43 @@ public class JSDocInfo implements Serializable {
    */
   public Collection<Node> getTypeNodes() {
     List<Node> nodes = new ArrayList<>();
+    for (JSTypeExpression expr : getTypeExpressions()) {
+      nodes.add(expr.getRoot());
+    }
+    return nodes;
+  }
+
+  /**
+   * Returns the type expressions whose roots {@link #getTypeNodes} returns.
+   */
+  private List<JSTypeExpression> getTypeExpressions() {
+    List<JSTypeExpression> exprs = new ArrayList<>();
 
     if (type != null) {
-      nodes.add(type.getRoot());
+      exprs.add(type);
     }
 
     if (thisType != null) {
-      nodes.add(thisType.getRoot());
+      exprs.add(thisType);
     }
 
     if (info != null) {
       if (info.baseType != null) {
-        nodes.add(info.baseType.getRoot());
+        exprs.add(info.baseType);
       }
 
       if (info.extendedInterfaces != null) {
-        for (JSTypeExpression interfaceType : info.extendedInterfaces) {
-          nodes.add(interfaceType.getRoot());
-        }
+        exprs.addAll(info.extendedInterfaces);
       }
 
       if (info.implementedInterfaces != null) {
-        for (JSTypeExpression interfaceType : info.implementedInterfaces) {
-          nodes.add(interfaceType.getRoot());
-        }
+        exprs.addAll(info.implementedInterfaces);
       }
 
       if (info.parameters != null) {
         for (JSTypeExpression parameterType : info.parameters.values()) {
           if (parameterType != null) {
-            nodes.add(parameterType.getRoot());
+            exprs.add(parameterType);
           }
         }
       }
@@ -2074,13 +2082,36 @@ public class JSDocInfo implements Serializable {
       if (info.thrownTypes != null) {
         for (JSTypeExpression thrownType : info.thrownTypes) {
           if (thrownType != null) {
-            nodes.add(thrownType.getRoot());
+            exprs.add(thrownType);
           }
         }
       }
     }
 
-    return nodes;
+    return exprs;
+  }
+
+  /**
+   * Marks the type expressions of this JSDocInfo as shared with other trees.
+   * @see Node#markJSDocInfoShared
+   */
+  void markTypesShared() {
+    for (JSTypeExpression expr : getTypeExpressions()) {
+      expr.markShared();
+    }
+  }
+
+  /**
+   * Whether any type expression of this JSDocInfo is shared with other trees,
+   * and so must not be modified in place.
+   */
+  boolean hasSharedTypes() {
+    for (JSTypeExpression expr : getTypeExpressions()) {
+      if (expr.isShared()) {
+        return true;
+      }
+    }
+    return false;
   }
 
   public boolean hasModifies() {
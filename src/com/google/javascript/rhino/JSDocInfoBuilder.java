@@ -186,6 +186,11 @@ public final class JSDocInfoBuilder {
       Preconditions.checkState(currentInfo != null);
       JSDocInfo built = currentInfo;
       currentInfo = null;
+      if (built.hasSharedTypes()) {
+        // The recorded types came from a tree that shares its JSDocInfo with
+        // other trees, and the caller may modify them.
+        built = built.clone(true);
+      }
       populateDefaults(built);
       populated = false;
       return built;
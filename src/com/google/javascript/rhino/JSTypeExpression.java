@@ -39,6 +39,7 @@
 
 package com.google.javascript.rhino;
 
+import com.google.common.base.Preconditions;
 import com.google.javascript.rhino.jstype.JSType;
 import com.google.javascript.rhino.jstype.JSTypeRegistry;
 import com.google.javascript.rhino.jstype.StaticTypedScope;
@@ -59,11 +60,25 @@ public final class JSTypeExpression implements Serializable {
   /** The source name where the type expression appears. */
   private final String sourceName;
 
+  /**
+   * Whether the expression is shared by the JSDocInfo of several trees, and so
+   * must not be modified.
+   */
+  private boolean shared;
+
   public JSTypeExpression(Node root, String sourceName) {
     this.root = root;
     this.sourceName = sourceName;
   }
 
+  void markShared() {
+    shared = true;
+  }
+
+  boolean isShared() {
+    return shared;
+  }
+
   /**
    * Make the given type expression into an optional type expression,
    * if possible.
@@ -96,6 +111,9 @@ public final class JSTypeExpression implements Serializable {
    */
   public JSType evaluate(StaticTypedScope<JSType> scope, TypeIRegistry registry) {
     if (registry instanceof JSTypeRegistry) {
+      // The type is stored on the root, so the expression must belong to
+      // this compilation only (see Node#unshareJSDocInfo).
+      Preconditions.checkState(!shared, "Evaluating a shared type expression");
       JSType type = ((JSTypeRegistry) registry).createTypeFromCommentNode(root, sourceName, scope);
       root.setJSType(type);
       return type;
@@ -40,16 +40,22 @@
 
 package com.google.javascript.rhino;
 
+import com.google.common.annotations.GwtIncompatible;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.javascript.rhino.jstype.JSType;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.Arrays;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -62,7 +68,7 @@ import javax.annotation.Nullable;
 
 public class Node implements Serializable {
 
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 2L;
 
   public static final int
       JSDOC_INFO_PROP   = 29,     // contains a JSDocInfo object
@@ -152,6 +158,15 @@ public class Node implements Serializable {
                                   // past.
       IS_ES6_CLASS = 92;          // Indicates that a FUNCTION node is converted from an ES6 class
 
+  // The range of property types. A node's properties are stored as bits of a
+  // long, indexed from FIRST_PROP, so there can be at most 64 of them.
+  private static final int FIRST_PROP = JSDOC_INFO_PROP;
+  private static final int LAST_PROP = IS_ES6_CLASS;
+
+  static {
+    Preconditions.checkState(LAST_PROP - FIRST_PROP < Long.SIZE);
+  }
+
   private static final String propToString(int propType) {
       switch (propType) {
         case VAR_ARGS_NAME:      return "var_args_name";
@@ -258,7 +273,7 @@ public class Node implements Serializable {
     }
   }
 
-  private static class NumberNode extends Node {
+  static class NumberNode extends Node {
 
     private static final long serialVersionUID = 1L;
 
@@ -305,7 +320,7 @@ public class Node implements Serializable {
     }
   }
 
-  private static class StringNode extends Node {
+  static class StringNode extends Node {
 
     private static final long serialVersionUID = 1L;
 
@@ -380,103 +395,102 @@ public class Node implements Serializable {
     }
   }
 
-  // PropListItems must be immutable so that they can be shared.
-  private interface PropListItem {
-    int getType();
-    PropListItem getNext();
-    PropListItem chain(PropListItem next);
-    Object getObjectValue();
-    int getIntValue();
-  }
-
-  private abstract static class AbstractPropListItem
-      implements PropListItem, Serializable {
-    private static final long serialVersionUID = 1L;
-
-    private final PropListItem next;
-    private final int propType;
-
-    AbstractPropListItem(int propType, PropListItem next) {
-      this.propType = propType;
-      this.next = next;
-    }
-
-    @Override
-    public int getType() {
-      return propType;
-    }
-
-    @Override
-    public PropListItem getNext() {
-      return next;
-    }
-
-    @Override
-    public abstract PropListItem chain(PropListItem next);
-  }
-
-  // A base class for Object storing props
-  private static class ObjectPropListItem
-      extends AbstractPropListItem {
+  /**
+   * The properties of a node, packed for constant time lookup. Each property
+   * type has a bit, {@code 1L << (propType - FIRST_PROP)}. Int properties
+   * with the value 1, which is how boolean properties are stored, only set
+   * their bit in {@code flags}. All other properties set their bit in
+   * {@code slotMask} and keep their value in {@code slots}, at the index given
+   * by the number of lower bits set in the mask. Int values are boxed.
+   *
+   * <p>PackedProps must be immutable so that they can be shared.
+   */
+  static final class PackedProps implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private final Object objectValue;
+    private static final Object[] NO_SLOTS = new Object[0];
 
-    ObjectPropListItem(int propType, Object objectValue, PropListItem next) {
-      super(propType, next);
-      this.objectValue = objectValue;
-    }
+    final long flags;
+    final long slotMask;
+    final Object[] slots;
 
-    @Override
-    public int getIntValue() {
-      throw new UnsupportedOperationException();
+    PackedProps(long flags, long slotMask, Object[] slots) {
+      this.flags = flags;
+      this.slotMask = slotMask;
+      this.slots = slots;
     }
 
-    @Override
-    public Object getObjectValue() {
-      return objectValue;
+    static long bit(int propType) {
+      // Shifts wrap around, so a property type out of range would alias another.
+      Preconditions.checkArgument(
+          propType >= FIRST_PROP && propType <= LAST_PROP, "Unknown property type %s", propType);
+      return 1L << (propType - FIRST_PROP);
     }
 
-    @Override
-    public String toString() {
-      return String.valueOf(objectValue);
+    boolean has(long bit) {
+      return ((flags | slotMask) & bit) != 0;
     }
 
-    @Override
-    public PropListItem chain(PropListItem next) {
-      return new ObjectPropListItem(getType(), objectValue, next);
-    }
-  }
-
-  // A base class for int storing props
-  private static class IntPropListItem extends AbstractPropListItem {
-    private static final long serialVersionUID = 1L;
-
-    final int intValue;
-
-    IntPropListItem(int propType, int intValue, PropListItem next) {
-      super(propType, next);
-      this.intValue = intValue;
+    Object getSlot(long bit) {
+      return (slotMask & bit) == 0 ? null : slots[Long.bitCount(slotMask & (bit - 1))];
     }
 
-    @Override
-    public int getIntValue() {
-      return intValue;
-    }
+    /**
+     * Returns the properties with the given property set to a flag, set to a
+     * slot value, or removed if neither is given. Returns {@code props} itself
+     * if nothing changed, and null if no property is left.
+     */
+    static PackedProps put(
+        @Nullable PackedProps props, long bit, boolean isFlag, @Nullable Object slotValue) {
+      long flags = props == null ? 0 : props.flags;
+      long slotMask = props == null ? 0 : props.slotMask;
+      Object[] slots = props == null ? NO_SLOTS : props.slots;
+      int index = Long.bitCount(slotMask & (bit - 1));
+
+      long newFlags = isFlag ? flags | bit : flags & ~bit;
+      long newSlotMask = slotMask;
+      Object[] newSlots = slots;
+      if (slotValue != null) {
+        if ((slotMask & bit) != 0) {
+          if (slots[index] != slotValue) {
+            newSlots = slots.clone();
+            newSlots[index] = slotValue;
+          }
+        } else {
+          newSlotMask |= bit;
+          newSlots = new Object[slots.length + 1];
+          System.arraycopy(slots, 0, newSlots, 0, index);
+          newSlots[index] = slotValue;
+          System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+        }
+      } else if ((slotMask & bit) != 0) {
+        newSlotMask &= ~bit;
+        newSlots = new Object[slots.length - 1];
+        System.arraycopy(slots, 0, newSlots, 0, index);
+        System.arraycopy(slots, index + 1, newSlots, index, newSlots.length - index);
+      }
 
-    @Override
-    public Object getObjectValue() {
-      throw new UnsupportedOperationException();
+      if (newFlags == flags && newSlotMask == slotMask && newSlots == slots) {
+        return props;
+      }
+      return newFlags == 0 && newSlotMask == 0
+          ? null : new PackedProps(newFlags, newSlotMask, newSlots);
     }
 
-    @Override
-    public String toString() {
-      return String.valueOf(intValue);
+    // Gets all the property types, in sorted order.
+    int[] getSortedTypes() {
+      long bits = flags | slotMask;
+      int[] types = new int[Long.bitCount(bits)];
+      for (int i = 0; i < types.length; i++) {
+        types[i] = FIRST_PROP + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+      }
+      return types;
     }
 
-    @Override
-    public PropListItem chain(PropListItem next) {
-      return new IntPropListItem(getType(), intValue, next);
+    String valueToString(int propType) {
+      long bit = bit(propType);
+      return (flags & bit) != 0 ? "1" : String.valueOf(getSlot(bit));
     }
   }
 
@@ -910,12 +924,8 @@ public class Node implements Serializable {
   }
 
   @VisibleForTesting
-  PropListItem lookupProperty(int propType) {
-    PropListItem x = propListHead;
-    while (x != null && propType != x.getType()) {
-      x = x.getNext();
-    }
-    return x;
+  boolean hasProp(int propType) {
+    return props != null && props.has(PackedProps.bit(propType));
   }
 
   /**
@@ -926,50 +936,29 @@ public class Node implements Serializable {
    * @return this node.
    */
   public Node clonePropsFrom(Node other) {
-    Preconditions.checkState(this.propListHead == null,
+    Preconditions.checkState(this.props == null,
         "Node has existing properties.");
-    this.propListHead = other.propListHead;
+    this.props = other.props;
     return this;
   }
 
   public void removeProp(int propType) {
-    PropListItem result = removeProp(propListHead, propType);
-    if (result != propListHead) {
-      propListHead = result;
-    }
+    props = PackedProps.put(props, PackedProps.bit(propType), false, null);
   }
 
   public boolean hasProps() {
-    return propListHead != null;
-  }
-
-  /**
-   * @param item The item to inspect
-   * @param propType The property to look for
-   * @return The replacement list if the property was removed, or
-   *   'item' otherwise.
-   */
-  private PropListItem removeProp(PropListItem item, int propType) {
-    if (item == null) {
-      return null;
-    } else if (item.getType() == propType) {
-      return item.getNext();
-    } else {
-      PropListItem result = removeProp(item.getNext(), propType);
-      if (result != item.getNext()) {
-        return item.chain(result);
-      } else {
-        return item;
-      }
-    }
+    return props != null;
   }
 
   public Object getProp(int propType) {
-    PropListItem item = lookupProperty(propType);
-    if (item == null) {
+    if (props == null) {
       return null;
     }
-    return item.getObjectValue();
+    long bit = PackedProps.bit(propType);
+    if ((props.flags & bit) != 0) {
+      throw new UnsupportedOperationException();
+    }
+    return props.getSlot(bit);
   }
 
   public boolean getBooleanProp(int propType) {
@@ -981,26 +970,40 @@ public class Node implements Serializable {
    * is not defined.
    */
   public int getIntProp(int propType) {
-    PropListItem item = lookupProperty(propType);
-    if (item == null) {
+    if (props == null) {
       return 0;
     }
-    return item.getIntValue();
+    long bit = PackedProps.bit(propType);
+    if ((props.flags & bit) != 0) {
+      return 1;
+    }
+    Object value = props.getSlot(bit);
+    return value == null ? 0 : intValue(value);
   }
 
   public int getExistingIntProp(int propType) {
-    PropListItem item = lookupProperty(propType);
-    if (item == null) {
-      throw new IllegalStateException("missing prop: " + propType);
+    if (props != null) {
+      long bit = PackedProps.bit(propType);
+      if ((props.flags & bit) != 0) {
+        return 1;
+      }
+      Object value = props.getSlot(bit);
+      if (value != null) {
+        return intValue(value);
+      }
     }
-    return item.getIntValue();
+    throw new IllegalStateException("missing prop: " + propType);
   }
 
-  public void putProp(int propType, Object value) {
-    removeProp(propType);
-    if (value != null) {
-      propListHead = createProp(propType, value, propListHead);
+  private static int intValue(Object value) {
+    if (!(value instanceof Integer)) {
+      throw new UnsupportedOperationException();
     }
+    return (Integer) value;
+  }
+
+  public void putProp(int propType, Object value) {
+    props = PackedProps.put(props, PackedProps.bit(propType), false, value);
   }
 
   public void putBooleanProp(int propType, boolean value) {
@@ -1008,10 +1011,8 @@ public class Node implements Serializable {
   }
 
   public void putIntProp(int propType, int value) {
-    removeProp(propType);
-    if (value != 0) {
-      propListHead = createProp(propType, value, propListHead);
-    }
+    props = PackedProps.put(
+        props, PackedProps.bit(propType), value == 1, value == 0 || value == 1 ? null : value);
   }
 
   /**
@@ -1030,14 +1031,6 @@ public class Node implements Serializable {
     return (TypeDeclarationNode) getProp(DECLARED_TYPE_EXPR);
   }
 
-  PropListItem createProp(int propType, Object value, PropListItem next) {
-    return new ObjectPropListItem(propType, value, next);
-  }
-
-  PropListItem createProp(int propType, int value, PropListItem next) {
-    return new IntPropListItem(propType, value, next);
-  }
-
   /**
    * Returns the type of this node before casting. This annotation will only exist on the first
    * child of a CAST node after type checking.
@@ -1046,23 +1039,6 @@ public class Node implements Serializable {
     return (JSType) getProp(TYPE_BEFORE_CAST);
   }
 
-  // Gets all the property types, in sorted order.
-  private int[] getSortedPropTypes() {
-    int count = 0;
-    for (PropListItem x = propListHead; x != null; x = x.getNext()) {
-      count++;
-    }
-
-    int[] keys = new int[count];
-    for (PropListItem x = propListHead; x != null; x = x.getNext()) {
-      count--;
-      keys[count] = x.getType();
-    }
-
-    Arrays.sort(keys);
-    return keys;
-  }
-
   /** Can only be called when <tt>getType() == TokenStream.NUMBER</tt> */
   public double getDouble() throws UnsupportedOperationException {
     if (this.token == Token.NUMBER) {
@@ -1159,15 +1135,14 @@ public class Node implements Serializable {
       }
     }
 
-    if (printAnnotations) {
-      int[] keys = getSortedPropTypes();
+    if (printAnnotations && props != null) {
+      int[] keys = props.getSortedTypes();
       for (int i = 0; i < keys.length; i++) {
         int type = keys[i];
-        PropListItem x = lookupProperty(type);
         sb.append(" [");
         sb.append(propToString(type));
         sb.append(": ");
-        sb.append(x);
+        sb.append(props.valueToString(type));
         sb.append(']');
       }
     }
@@ -1212,19 +1187,21 @@ public class Node implements Serializable {
     }
   }
 
-  Token token;           // Type of the token of the node; NAME for example
-  Node next;             // next sibling, a linked list
-  Node previous;         // previous sibling, a circular linked list
-  Node first;            // first element of a linked list of children
+  // The links between nodes are written by writeTree rather than by default
+  // serialization.
+  Token token;                 // Type of the token of the node; NAME for example
+  transient Node next;         // next sibling, a linked list
+  transient Node previous;     // previous sibling, a circular linked list
+  transient Node first;        // first element of a linked list of children
   // We get the last child as first.previous. But last.next is null, not first.
 
   /**
-   * Linked list of properties. Since vast majority of nodes would have
-   * no more then 2 properties, linked list saves memory and provides
-   * fast lookup. If this does not holds, propListHead can be replaced
-   * by UintMap.
+   * The properties of the node, or null if it has none. Nodes that are
+   * cloned or created from a template share their properties until one of
+   * them changes, so a node costs no more than this reference until its
+   * properties differ from the template's.
    */
-  private PropListItem propListHead;
+  private PackedProps props;
 
   /**
    * COLUMN_BITS represents how many of the lower-order bits of
@@ -1263,7 +1240,131 @@ public class Node implements Serializable {
 
   private TypeI typei;
 
-  protected Node parent;
+  protected transient Node parent;
+
+  //==========================================================================
+  // Serialization
+
+  /**
+   * The state of the trees that are being written to a stream.
+   * @see #writeObject
+   */
+  @GwtIncompatible("java.io.ObjectOutputStream")
+  private static final class TreeWriterState {
+    /** The roots of the trees being written. */
+    final Set<Node> roots = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+    /** The node that writeTree is writing. */
+    Node current;
+  }
+
+  /** The state of the streams that the current thread is writing trees to. */
+  @GwtIncompatible("java.io.ObjectOutputStream")
+  private static final ThreadLocal<Map<ObjectOutputStream, TreeWriterState>> treeWriterStates =
+      new ThreadLocal<Map<ObjectOutputStream, TreeWriterState>>() {
+        @Override
+        protected Map<ObjectOutputStream, TreeWriterState> initialValue() {
+          return new IdentityHashMap<>();
+        }
+      };
+
+  /**
+   * Writes the fields of this node and, if this is the first node of its tree
+   * to be written, the shape of the whole tree. Default serialization would
+   * follow the sibling links from node to node, nesting one call per sibling,
+   * and overflow the stack on large trees. The shape is instead written in
+   * one loop over the tree, and the other nodes of the tree only write their
+   * own fields.
+   */
+  @GwtIncompatible("java.io.ObjectOutputStream")
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    Map<ObjectOutputStream, TreeWriterState> states = treeWriterStates.get();
+    TreeWriterState state = states.get(out);
+    if (state == null) {
+      state = new TreeWriterState();
+      states.put(out, state);
+    }
+    Node root = null;
+    if (state.current != this) {
+      root = this;
+      while (root.parent != null) {
+        root = root.parent;
+      }
+      if (state.roots.contains(root)) {
+        // A node reached through a property or type of another node of the
+        // tree, before writeTree got to it.
+        root = null;
+      } else {
+        // Added before the fields are written, as they may lead to other
+        // nodes of the tree.
+        state.roots.add(root);
+      }
+    }
+    if (root == null) {
+      out.defaultWriteObject();
+      out.writeBoolean(false);
+      return;
+    }
+    try {
+      out.defaultWriteObject();
+      out.writeBoolean(true);
+      writeTree(root, out, state);
+    } finally {
+      state.roots.remove(root);
+      state.current = null;
+      if (state.roots.isEmpty()) {
+        states.remove(out);
+      }
+    }
+  }
+
+  /**
+   * Writes the nodes of a tree in pre-order, each followed by its number of
+   * children.
+   */
+  @GwtIncompatible("java.io.ObjectOutputStream")
+  private static void writeTree(Node root, ObjectOutputStream out, TreeWriterState state)
+      throws IOException {
+    Deque<Node> worklist = new ArrayDeque<>();
+    worklist.push(root);
+    while (!worklist.isEmpty()) {
+      Node n = worklist.pop();
+      state.current = n;
+      out.writeObject(n);
+      out.writeInt(n.getChildCount());
+      for (Node child = n.getLastChild(); child != null; child = child.getPrevious()) {
+        worklist.push(child);
+      }
+    }
+  }
+
+  @GwtIncompatible("java.io.ObjectInputStream")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    if (in.readBoolean()) {
+      readTree(in);
+    }
+  }
+
+  /** Reads a tree written by {@link #writeTree} and links its nodes. */
+  @GwtIncompatible("java.io.ObjectInputStream")
+  private static void readTree(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    Deque<Node> parents = new ArrayDeque<>();
+    Deque<Integer> missingChildren = new ArrayDeque<>();
+    do {
+      Node n = (Node) in.readObject();
+      int childCount = in.readInt();
+      if (!parents.isEmpty()) {
+        parents.peek().addChildToBack(n);
+        missingChildren.push(missingChildren.pop() - 1);
+      }
+      parents.push(n);
+      missingChildren.push(childCount);
+      while (!parents.isEmpty() && missingChildren.peek() == 0) {
+        parents.pop();
+        missingChildren.pop();
+      }
+    } while (!parents.isEmpty());
+  }
 
   //==========================================================================
   // Source position management
@@ -1512,12 +1613,16 @@ public class Node implements Serializable {
   // ==========================================================================
   // Accessors
 
-  PropListItem getPropListHeadForTesting() {
-    return propListHead;
+  PackedProps getPropsForTesting() {
+    return props;
   }
 
-  void setPropListHead(PropListItem propListHead) {
-    this.propListHead = propListHead;
+  PackedProps getPackedProps() {
+    return props;
+  }
+
+  void setPackedProps(PackedProps props) {
+    this.props = props;
   }
 
   public Node getParent() {
@@ -2079,7 +2184,7 @@ public class Node implements Serializable {
     dst.setSourceEncodedPosition(this.sourcePosition);
     dst.setLength(this.getLength());
     dst.setTypeI(this.typei);
-    dst.setPropListHead(this.propListHead);
+    dst.setPackedProps(this.props);
 
     // TODO(johnlenz): Remove this once JSTypeExpression are immutable
     if (cloneTypeExprs) {
@@ -2270,6 +2375,21 @@ public class Node implements Serializable {
     return (JSDocInfo) getProp(JSDOC_INFO_PROP);
   }
 
+  /**
+   * Gets the {@link JSDocInfo} attached to this node, for a caller that
+   * modifies its type expressions in place. If they are shared with other
+   * trees (see {@link #markJSDocInfoShared}), this node first gets its own
+   * copy of the JSDocInfo.
+   */
+  public JSDocInfo getMutableJSDocInfo() {
+    JSDocInfo info = getJSDocInfo();
+    if (info != null && info.hasSharedTypes()) {
+      info = info.clone(true);
+      setJSDocInfo(info);
+    }
+    return info;
+  }
+
   /**
    * Sets the {@link JSDocInfo} attached to this node.
    */
@@ -2278,6 +2398,47 @@ public class Node implements Serializable {
     return this;
   }
 
+  /**
+   * Marks the type expressions in the JSDocInfo of this node and all its
+   * descendants as shared. Trees cloned from this one with
+   * {@link #cloneTree()} then share the JSDocInfo objects instead of copying
+   * them. A clone gets its own copy of a JSDocInfo when a pass asks for it to
+   * modify it (see {@link #getMutableJSDocInfo}), when a
+   * {@link JSDocInfoBuilder} uses its types, or when the types are evaluated
+   * (see {@link #unshareJSDocInfo}). This tree must not be modified
+   * afterwards.
+   */
+  public void markJSDocInfoShared() {
+    Deque<Node> worklist = new ArrayDeque<>();
+    worklist.push(this);
+    while (!worklist.isEmpty()) {
+      Node n = worklist.pop();
+      JSDocInfo info = n.getJSDocInfo();
+      if (info != null) {
+        info.markTypesShared();
+      }
+      for (Node child = n.first; child != null; child = child.next) {
+        worklist.push(child);
+      }
+    }
+  }
+
+  /**
+   * Gives this node and all its descendants their own copies of any
+   * JSDocInfo that they share with other trees.
+   */
+  public void unshareJSDocInfo() {
+    Deque<Node> worklist = new ArrayDeque<>();
+    worklist.push(this);
+    while (!worklist.isEmpty()) {
+      Node n = worklist.pop();
+      n.getMutableJSDocInfo();
+      for (Node child = n.first; child != null; child = child.next) {
+        worklist.push(child);
+      }
+    }
+  }
+
   /** This node was last changed at {@code time} */
   public void setChangeTime(int time) {
     putIntProp(CHANGE_TIME, time);
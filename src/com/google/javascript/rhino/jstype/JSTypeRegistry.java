@@ -48,7 +48,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.javascript.rhino.ErrorReporter;
@@ -60,10 +63,13 @@ import com.google.javascript.rhino.Token;
 import com.google.javascript.rhino.TypeI;
 import com.google.javascript.rhino.TypeIRegistry;
 import com.google.javascript.rhino.jstype.RecordTypeBuilder.RecordProperty;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -114,7 +120,7 @@ public class JSTypeRegistry implements TypeIRegistry, Serializable {
   // and force usage of this registry instead. This will allow us to evolve the
   // types without being tied by an open API.
 
-  private final transient ErrorReporter reporter;
+  private transient ErrorReporter reporter;
 
   // We use an Array instead of an immutable list because this lookup needs
   // to be very fast. When it was an immutable list, we were spending 5% of
@@ -175,6 +181,13 @@ public class JSTypeRegistry implements TypeIRegistry, Serializable {
   // The template type name.
   private final Map<String, TemplateType> templateTypes = new HashMap<>();
 
+  // The union and record types in use, by their alternates and by their
+  // properties, so that identical ones are the same instance. Each type holds
+  // its key, so the entries go away with the types. They are not serialized:
+  // a restored registry starts interning anew.
+  private transient Interner<UnionKey> unionTypes = Interners.newWeakInterner();
+  private transient Interner<RecordKey> recordTypes = Interners.newWeakInterner();
+
   // A single empty TemplateTypeMap, which can be safely reused in cases where
   // there are no template types.
   private final TemplateTypeMap emptyTemplateTypeMap;
@@ -245,10 +258,20 @@ public class JSTypeRegistry implements TypeIRegistry, Serializable {
     return reporter;
   }
 
+  /**
+   * Sets the reporter of a registry that was deserialized, since the
+   * reporter is not serialized with it.
+   */
+  public void setErrorReporter(ErrorReporter reporter) {
+    this.reporter = reporter;
+  }
+
   /**
    * Reset to run the TypeCheck pass.
    */
   public void resetForTypeCheck() {
+    unionTypes = Interners.newWeakInterner();
+    recordTypes = Interners.newWeakInterner();
     typesIndexedByProperty.clear();
     eachRefTypeIndexedByProperty.clear();
     initializeBuiltInTypes();
@@ -1397,7 +1420,45 @@ public class JSTypeRegistry implements TypeIRegistry, Serializable {
    * Creates a record type.
    */
   public RecordType createRecordType(Map<String, RecordProperty> properties) {
-    return new RecordType(this, properties);
+    return internRecordType(properties, true);
+  }
+
+  /**
+   * Returns the union type with the given alternates, which must be
+   * normalized by a {@link UnionTypeBuilder}. Unions of the same alternates,
+   * in the same order, are the same instance.
+   *
+   * <p>Like the rest of the registry, this is not meant to be called from
+   * several threads; it is synchronized only so that a pass that runs on
+   * several functions at once can't get two instances of one union.
+   */
+  synchronized UnionType internUnionType(Collection<JSType> alternates) {
+    UnionKey key = unionTypes.intern(new UnionKey(alternates));
+    if (key.type == null) {
+      // The key was just added, over the caller's collection.
+      key.alternates = ImmutableList.copyOf(alternates);
+      key.type = new UnionType(this, key.alternates);
+      key.type.internKey = key;
+    }
+    return key.type;
+  }
+
+  /**
+   * Returns the record type with the given properties. Records whose
+   * properties have the same names, types and nodes, in the same order, are
+   * the same instance. Synchronized like {@link #internUnionType}.
+   */
+  synchronized RecordType internRecordType(
+      Map<String, RecordProperty> properties, boolean declared) {
+    RecordKey key = recordTypes.intern(new RecordKey(properties, declared));
+    if (key.type == null) {
+      // Throws on a null property, before the key holds a copy.
+      RecordType record = new RecordType(this, properties, declared);
+      key.properties = ImmutableMap.copyOf(properties);
+      key.type = record;
+      record.internKey = key;
+    }
+    return key.type;
   }
 
   /**
@@ -1875,4 +1936,112 @@ public class JSTypeRegistry implements TypeIRegistry, Serializable {
         && !(type instanceof NamespaceType)
         && !isNonNullable(type);
   }
+
+  private void readObject(ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    unionTypes = Interners.newWeakInterner();
+    recordTypes = Interners.newWeakInterner();
+  }
+
+  /**
+   * The alternates of an interned union. They are compared by identity,
+   * since the types may not be resolved yet and structural equality is what
+   * interning avoids.
+   */
+  private static final class UnionKey {
+    Collection<JSType> alternates;
+    UnionType type;
+    private final int hash;
+
+    UnionKey(Collection<JSType> alternates) {
+      this.alternates = alternates;
+      int hash = 1;
+      for (JSType alternate : alternates) {
+        hash = 31 * hash + System.identityHashCode(alternate);
+      }
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof UnionKey)) {
+        return false;
+      }
+      Collection<JSType> otherAlternates = ((UnionKey) other).alternates;
+      if (alternates.size() != otherAlternates.size()) {
+        return false;
+      }
+      Iterator<JSType> otherIter = otherAlternates.iterator();
+      for (JSType alternate : alternates) {
+        if (alternate != otherIter.next()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * The properties of an interned record. Property names are compared by
+   * value, and property types and nodes by identity, like the alternates of
+   * a {@link UnionKey}.
+   */
+  private static final class RecordKey {
+    Map<String, RecordProperty> properties;
+    final boolean declared;
+    RecordType type;
+    private final int hash;
+
+    RecordKey(Map<String, RecordProperty> properties, boolean declared) {
+      this.properties = properties;
+      this.declared = declared;
+      int hash = declared ? 1231 : 1237;
+      for (Map.Entry<String, RecordProperty> entry : properties.entrySet()) {
+        RecordProperty prop = entry.getValue();
+        hash = 31 * hash + entry.getKey().hashCode();
+        if (prop != null) {
+          hash = 31 * hash + System.identityHashCode(prop.getType());
+          hash = 31 * hash + System.identityHashCode(prop.getPropertyNode());
+        }
+      }
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof RecordKey)) {
+        return false;
+      }
+      RecordKey otherKey = (RecordKey) other;
+      if (declared != otherKey.declared
+          || properties.size() != otherKey.properties.size()) {
+        return false;
+      }
+      Iterator<Map.Entry<String, RecordProperty>> otherIter =
+          otherKey.properties.entrySet().iterator();
+      for (Map.Entry<String, RecordProperty> entry : properties.entrySet()) {
+        Map.Entry<String, RecordProperty> otherEntry = otherIter.next();
+        RecordProperty prop = entry.getValue();
+        RecordProperty otherProp = otherEntry.getValue();
+        if (!entry.getKey().equals(otherEntry.getKey())
+            || prop == null || otherProp == null
+            || prop.getType() != otherProp.getType()
+            || prop.getPropertyNode() != otherProp.getPropertyNode()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
 }
@@ -62,6 +62,8 @@ public class RecordType extends PrototypeObjectType {
 
   private final boolean declared;
   private boolean isFrozen = false;
+  // The registry's key for this record, which it only keeps weakly.
+  transient Object internKey;
 
   RecordType(JSTypeRegistry registry, Map<String, RecordProperty> properties) {
     this(registry, properties, true);
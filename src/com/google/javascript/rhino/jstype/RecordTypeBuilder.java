@@ -89,7 +89,7 @@ public class RecordTypeBuilder {
        return registry.getNativeObjectType(JSTypeNative.OBJECT_TYPE);
     }
 
-    return new RecordType(registry, properties.build(), isDeclared);
+    return registry.internRecordType(properties.build(), isDeclared);
   }
 
   static class RecordProperty {
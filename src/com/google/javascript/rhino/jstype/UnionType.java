@@ -73,6 +73,8 @@ public class UnionType extends JSType {
   // alternates under structural typing
   Collection<JSType> alternates;
   private int hashcode;
+  // The registry's key for this union, which it only keeps weakly.
+  transient Object internKey;
 
   /**
    * Creates a union type.
@@ -516,6 +518,10 @@ public class UnionType extends JSType {
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
+    // Unions are interned, so this is common.
+    if (this == that) {
+      return true;
+    }
     // unknown
     if (that.isUnknownType() || this.isUnknownType()) {
       return true;
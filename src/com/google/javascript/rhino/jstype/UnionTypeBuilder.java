@@ -360,7 +360,7 @@ public class UnionTypeBuilder implements Serializable {
     if (result == null) {
       result = reduceAlternatesWithoutUnion();
       if (result == null) {
-        result = new UnionType(registry, ImmutableList.copyOf(getAlternates()));
+        result = registry.internUnionType(getAlternates());
       }
     }
     return result;
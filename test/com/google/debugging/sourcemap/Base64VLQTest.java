@@ -91,6 +91,10 @@ public final class Base64VLQTest extends TestCase {
       ci.set(sb);
       int result = Base64VLQ.decode(ci);
       assertThat(result).isEqualTo(value);
+
+      char[] buffer = new char[Base64VLQ.MAX_ENCODED_LENGTH + 1];
+      int length = Base64VLQ.encode(buffer, 1, value) - 1;
+      assertThat(new String(buffer, 1, length)).isEqualTo(sb.toString());
     } catch (Exception e) {
       throw new RuntimeException("failed for value " + value, e);
     }
@@ -18,6 +18,7 @@ package com.google.debugging.sourcemap;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 
@@ -93,6 +94,49 @@ public final class SourceMapConsumerV3Test extends TestCase {
     assertThat(consumer.getSourceRoot()).isEqualTo("http://server/path/");
   }
 
+  public void testLongLines() throws Exception {
+    SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+    for (int i = 0; i < 1000; i++) {
+      generator.addMapping(i % 2 == 0 ? "a.js" : "b.js", i % 3 == 0 ? "name" + i : null,
+          new FilePosition(i / 4, i % 4),
+          new FilePosition(0, i * 10),
+          i == 999 ? new FilePosition(2, 5) : new FilePosition(0, i * 10 + 10));
+    }
+    generator.addMapping("a.js", null, new FilePosition(7, 0),
+        new FilePosition(2, 5), new FilePosition(2, 6));
+    StringBuilder sb = new StringBuilder();
+    generator.appendTo(sb, "out.js");
+
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(sb.toString());
+
+    for (int i = 0; i < 1000; i++) {
+      for (int column : new int[] {i * 10 + 1, i * 10 + 10}) {
+        OriginalMapping mapping = consumer.getMappingForLine(1, column);
+        assertThat(mapping.getOriginalFile()).isEqualTo(i % 2 == 0 ? "a.js" : "b.js");
+        assertThat(mapping.getLineNumber()).isEqualTo(i / 4 + 1);
+        assertThat(mapping.getColumnPosition()).isEqualTo(i % 4 + 1);
+        assertThat(mapping.getIdentifier()).isEqualTo(i % 3 == 0 ? "name" + i : "");
+      }
+    }
+
+    // Lines without entries, and columns before the first entry of a line,
+    // map to the last entry of the previous line.
+    OriginalMapping last = consumer.getMappingForLine(1, 9991);
+    assertThat(consumer.getMappingForLine(2, 1)).isEqualTo(last);
+    assertThat(consumer.getMappingForLine(3, 1)).isEqualTo(last);
+    assertThat(consumer.getMappingForLine(3, 6).getLineNumber()).isEqualTo(8);
+    assertThat(consumer.getMappingForLine(4, 1)).isNull();
+
+    assertThat(consumer.getReverseMapping("a.js", 5, 0)).containsExactly(
+        OriginalMapping.newBuilder().setLineNumber(0).setColumnPosition(200).build(),
+        OriginalMapping.newBuilder().setLineNumber(0).setColumnPosition(220).build())
+        .inOrder();
+    assertThat(consumer.getReverseMapping("a.js", 7, 0)).hasSize(3);
+    assertThat(consumer.getReverseMapping("b.js", 250, 0)).isEmpty();
+    assertThat(consumer.getReverseMapping("c.js", 5, 0)).isEmpty();
+  }
+
   public void testExtensions() throws Exception{
     String sourceMap =  "{\n" +
                         "\"version\":3,\n" +
@@ -20,6 +20,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.collect.ImmutableList;
 import com.google.debugging.sourcemap.SourceMapGeneratorV3.ExtensionMergeAction;
+import com.google.debugging.sourcemap.proto.Mapping.OriginalMapping;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -617,6 +618,31 @@ public final class SourceMapGeneratorV3Test extends SourceMapTestCase {
     assertThat(mapping.get("sourceRoot").getAsString()).isEqualTo("http://url/path");
   }
 
+  public void testManyMappings() throws Exception {
+    SourceMapGeneratorV3 mapper = new SourceMapGeneratorV3();
+    for (int line = 0; line < 500; line++) {
+      for (int i = 0; i < 20; i++) {
+        mapper.addMapping("file" + (line % 7) + ".js", i % 3 == 0 ? null : "name" + i,
+            new FilePosition(line * 3, i * 2),
+            new FilePosition(line, i * 10), new FilePosition(line, i * 10 + 5));
+      }
+    }
+    StringBuilder out = new StringBuilder();
+    mapper.appendTo(out, "out.js");
+
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(out.toString());
+    for (int line = 0; line < 500; line++) {
+      for (int i = 0; i < 20; i++) {
+        OriginalMapping mapping = consumer.getMappingForLine(line + 1, i * 10 + 1);
+        assertThat(mapping.getOriginalFile()).isEqualTo("file" + (line % 7) + ".js");
+        assertThat(mapping.getLineNumber()).isEqualTo(line * 3 + 1);
+        assertThat(mapping.getColumnPosition()).isEqualTo(i * 2 + 1);
+        assertThat(mapping.getIdentifier()).isEqualTo(i % 3 == 0 ? "" : "name" + i);
+      }
+    }
+  }
+
   FilePosition count(String js) {
     int line = 0, column = 0;
     for (int i = 0; i < js.length(); i++) {
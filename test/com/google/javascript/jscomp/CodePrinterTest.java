@@ -23,6 +23,7 @@ import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -717,6 +718,32 @@ public final class CodePrinterTest extends CodePrinterTestBase {
         })));
   }
 
+  public void testBuildToAppendable() throws IOException {
+    // Large enough for the printer to write out code before it is done.
+    StringBuilder js = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      js.append("function f" + i + "(a) { if (a) { return a + " + i + "; } return 'x' + a; }\n");
+    }
+    Node root = parse(js.toString());
+
+    for (final boolean prettyPrint : new boolean[] {false, true}) {
+      for (final boolean preferLineBreakAtEndOfFile : new boolean[] {false, true}) {
+        CompilerOptions options = newCompilerOptions(new CompilerOptionBuilder() {
+          @Override
+          void setOptions(CompilerOptions options) {
+            options.setPrettyPrint(prettyPrint);
+            options.setLineLengthThreshold(100);
+            options.setPreferLineBreakAtEndOfFile(preferLineBreakAtEndOfFile);
+          }
+        });
+        StringBuilder out = new StringBuilder();
+        new CodePrinter.Builder(root).setCompilerOptions(options).build(out);
+        assertEquals(
+            new CodePrinter.Builder(root).setCompilerOptions(options).build(), out.toString());
+      }
+    }
+  }
+
   public void testPrettyPrinter() {
     // Ensure that the pretty printer inserts line breaks at appropriate
     // places.
@@ -1030,6 +1030,30 @@ public final class CommandLineRunnerTest extends TestCase {
     assertThat(lastCompiler.getOptions().sourceMapFormat).isEqualTo(SourceMap.Format.V3);
   }
 
+  public void testNumParallelThreads() {
+    args.add("--num_parallel_parse_threads=2");
+    args.add("--num_parallel_optimization_threads=3");
+    args.add("--num_parallel_type_inference_threads=4");
+    args.add("--num_parallel_output_threads=5");
+    testSame("var x = 3;");
+    CompilerOptions options = lastCompiler.getOptions();
+    assertThat(options.getNumParallelParseThreads()).isEqualTo(2);
+    assertThat(options.getNumParallelOptimizationThreads()).isEqualTo(3);
+    assertThat(options.getNumParallelTypeInferenceThreads()).isEqualTo(4);
+    assertThat(options.getNumParallelOutputThreads()).isEqualTo(5);
+  }
+
+  public void testNumParallelThreadsMustBePositive() throws Exception {
+    args.add("--num_parallel_output_threads=0");
+    try {
+      CommandLineRunner runner = createCommandLineRunner(new String[0]);
+      runner.doRun();
+      fail("Expected FlagUsageException");
+    } catch (FlagUsageException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("num_parallel_"));
+    }
+  }
+
   public void testSourceMapLocationsTranslations1() {
     args.add("--js_output_file");
     args.add("/path/to/out.js");
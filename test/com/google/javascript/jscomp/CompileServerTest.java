@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Joiner;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link CompileServer}.
+ */
+public final class CompileServerTest extends TestCase {
+
+  private File directory;
+
+  @Override
+  protected void setUp() throws IOException {
+    directory = Files.createTempDirectory("jscomp").toFile();
+  }
+
+  public void testRepeatedCompilations() throws IOException {
+    File input = writeFile("a.js", "function f(x) { return x + 1; } window.g = f;");
+    CompileServer server = new CompileServer();
+    String[] args = {"--js", input.getPath()};
+
+    CompileServer.Response first = server.compile(args);
+    assertEquals(first.err, 0, first.exitCode);
+    assertEquals("function f(a){return a+1}window.g=f;\n", first.out);
+
+    CompileServer.Response second = server.compile(args);
+    assertEquals(0, second.exitCode);
+    assertEquals(first.out, second.out);
+
+    writeFile("a.js", "window.g = function(x) { return x - 1; };");
+    CompileServer.Response third = server.compile(args);
+    assertEquals(0, third.exitCode);
+    assertEquals("window.g=function(a){return a-1};\n", third.out);
+  }
+
+  public void testErrors() throws IOException {
+    File input = writeFile("a.js", "var x = ;");
+    CompileServer server = new CompileServer();
+
+    CompileServer.Response response = server.compile(new String[] {"--js", input.getPath()});
+    assertEquals(1, response.exitCode);
+    assertTrue(response.err, response.err.contains("ERROR - Parse error"));
+
+    response = server.compile(new String[] {"--no_such_flag"});
+    assertEquals(-1, response.exitCode);
+    assertTrue(response.err, response.err.contains("--no_such_flag"));
+  }
+
+  public void testServe() throws IOException {
+    File input = writeFile("a.js", "var x = 1 + 2;");
+    String request = "[\"--js\", \"" + input.getPath() + "\"]";
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new CompileServer().serve(
+        new ByteArrayInputStream(Joiner.on('\n').join(request, "", "[1,", request).getBytes(UTF_8)),
+        out);
+
+    String[] responses = new String(out.toByteArray(), UTF_8).split("\n");
+    assertEquals(3, responses.length);
+    assertEquals("{\"exitCode\":0,\"out\":\"var x\\u003d3;\\n\",\"err\":\"\"}", responses[0]);
+    assertTrue(responses[1], responses[1].startsWith("{\"exitCode\":-1,"));
+    assertEquals(responses[0], responses[2]);
+  }
+
+  private File writeFile(String name, String code) throws IOException {
+    File file = new File(directory, name);
+    Files.write(file.toPath(), code.getBytes(UTF_8));
+    return file;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link CompilerExecutor}.
+ */
+public final class CompilerExecutorTest extends TestCase {
+
+  public void testResultsAreInTaskOrder() {
+    CompilerExecutor executor = new CompilerExecutor();
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      final int value = i;
+      tasks.add(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          return value;
+        }
+      });
+    }
+    List<Integer> results = executor.runInParallel(tasks, 4);
+    executor.shutdownWorkers();
+    for (int i = 0; i < 20; i++) {
+      assertEquals(i, results.get(i).intValue());
+    }
+  }
+
+  public void testWorkersAreReused() {
+    CompilerExecutor executor = new CompilerExecutor();
+    final Set<Thread> threads = Sets.newConcurrentHashSet();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          threads.add(Thread.currentThread());
+          return null;
+        }
+      });
+    }
+    for (int i = 0; i < 50; i++) {
+      executor.runInParallel(tasks, 2);
+    }
+    executor.shutdownWorkers();
+    assertTrue(threads.size() <= 2);
+    assertFalse(threads.contains(Thread.currentThread()));
+  }
+
+  public void testAtMostNumThreadsRunAtOnce() {
+    CompilerExecutor executor = new CompilerExecutor();
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws InterruptedException {
+          int now = running.incrementAndGet();
+          synchronized (maxRunning) {
+            maxRunning.set(Math.max(maxRunning.get(), now));
+          }
+          Thread.sleep(2);
+          running.decrementAndGet();
+          return null;
+        }
+      });
+    }
+    // Grow the pool first, so that a smaller request finds more threads.
+    executor.runInParallel(tasks, 4);
+    maxRunning.set(0);
+    executor.runInParallel(tasks, 2);
+    executor.shutdownWorkers();
+    assertTrue(maxRunning.get() <= 2);
+  }
+
+  public void testFirstFailureInTaskOrderIsRethrown() {
+    CompilerExecutor executor = new CompilerExecutor();
+    List<Callable<Void>> tasks = ImmutableList.of(
+        new Callable<Void>() {
+          @Override
+          public Void call() {
+            return null;
+          }
+        },
+        new Callable<Void>() {
+          @Override
+          public Void call() {
+            throw new IllegalStateException("first");
+          }
+        },
+        new Callable<Void>() {
+          @Override
+          public Void call() {
+            throw new IllegalArgumentException("second");
+          }
+        });
+    try {
+      executor.runInParallel(tasks, 3);
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("first", e.getMessage());
+    } finally {
+      executor.shutdownWorkers();
+    }
+  }
+}
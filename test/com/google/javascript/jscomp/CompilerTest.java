@@ -585,6 +585,69 @@ public final class CompilerTest extends TestCase {
     assertEquals(js, cb.toString());
   }
 
+  public void testToSourceToAppendable() throws IOException {
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      StringBuilder js = new StringBuilder();
+      for (int j = 0; j < 100; j++) {
+        js.append("window.f" + i + "_" + j + " = function(a) { return a + " + j + "; }\n");
+      }
+      inputs.add(SourceFile.fromCode("in" + i + ".js", js.toString()));
+    }
+    CompilerOptions options = new CompilerOptions();
+    options.setPrintInputDelimiter(true);
+    Compiler compiler = new Compiler();
+    compiler.compile(EMPTY_EXTERNS, inputs, options);
+
+    StringBuilder out = new StringBuilder();
+    compiler.toSource(out);
+    assertEquals(compiler.toSource(), out.toString());
+
+    JSModule module = compiler.getDegenerateModuleGraph().getRootModule();
+    out.setLength(0);
+    compiler.toSource(out, module);
+    assertEquals(compiler.toSource(module), out.toString());
+  }
+
+  public void testToSourceInParallelMatchesSequentialToSource() throws IOException {
+    List<JSModule> modules = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      JSModule module = new JSModule("m" + i);
+      for (int j = 0; j < 3; j++) {
+        module.add(SourceFile.fromCode("m" + i + "_" + j + ".js",
+            "window.f" + i + "_" + j + " = function(a) {\n  return a + " + j + ";\n};\n"));
+      }
+      if (i > 0) {
+        module.addDependency(modules.get(0));
+      }
+      modules.add(module);
+    }
+    CompilerOptions options = new CompilerOptions();
+    options.setPrintInputDelimiter(true);
+    options.setSourceMapOutputPath("%outname%.map");
+    Compiler compiler = new Compiler();
+    compiler.compileModules(EMPTY_EXTERNS, modules, options);
+
+    List<SourceMap> sourceMaps = new ArrayList<>();
+    for (int i = 0; i < modules.size(); i++) {
+      sourceMaps.add(compiler.createSourceMap());
+    }
+    List<String> code = compiler.toSourceInParallel(modules, sourceMaps, 3);
+
+    for (int i = 0; i < modules.size(); i++) {
+      JSModule module = modules.get(i);
+      SourceMap sourceMap = compiler.getSourceMap();
+      sourceMap.reset();
+      assertEquals(compiler.toSource(module), code.get(i));
+
+      StringBuilder expectedMap = new StringBuilder();
+      sourceMap.appendTo(expectedMap, module.getName());
+      StringBuilder map = new StringBuilder();
+      sourceMaps.get(i).appendTo(map, module.getName());
+      assertEquals(expectedMap.toString(), map.toString());
+    }
+  }
+
   public void testWarningsFiltering() {
     // Warnings and errors are left alone when no filtering is used
     assertTrue(hasOutput(
@@ -822,6 +885,69 @@ public final class CompilerTest extends TestCase {
     }
   }
 
+  public void testParallelParseMatchesSequentialParse() {
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i + ".js",
+          i % 7 == 3 ? "var x" + i + " = ;" : "/** @XYZ */ var x" + i + " = " + i + ";"));
+    }
+
+    CompilerOptions options = new CompilerOptions();
+    options.setContinueAfterErrors(true);
+    Compiler sequential = compile(inputs, options);
+    options.setNumParallelParseThreads(4);
+    Compiler parallel = compile(inputs, options);
+    assertSameResults(sequential, parallel);
+    // Each input that doesn't parse reports its own error.
+    assertEquals(3, parallel.getErrorCount());
+  }
+
+  public void testParallelOptimizationsMatchSequentialOptimizations() {
+    List<SourceFile> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(SourceFile.fromCode("in" + i + ".js", Joiner.on('\n').join(
+          "function f" + i + "(x) {",
+          "  if (x) { return 1 + 2; } else { return 3; }",
+          "  alert('unreachable');",
+          "}",
+          "function g" + i + "() {",
+          "  while (true) { if (f" + i + "(1)) { continue; } break; }",
+          "  return function() { return !!(f" + i + "(2) && true); };",
+          "}",
+          "window['g" + i + "'] = g" + i + ";")));
+    }
+
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(options);
+    Compiler sequential = compile(inputs, options);
+    options.setNumParallelOptimizationThreads(4);
+    Compiler parallel = compile(inputs, options);
+    assertSameResults(sequential, parallel);
+    // The passes that run on several functions at once did their work.
+    assertThat(parallel.toSource()).doesNotContain("unreachable");
+    assertThat(parallel.toSource()).doesNotContain("1+2");
+  }
+
+  private static Compiler compile(List<SourceFile> inputs, CompilerOptions options) {
+    Compiler compiler = new Compiler();
+    compiler.compile(EMPTY_EXTERNS, inputs, options);
+    return compiler;
+  }
+
+  /**
+   * Asserts that two compilers of the same inputs, for example with one and
+   * with several threads, have the same output and diagnostics.
+   */
+  private static void assertSameResults(Compiler expected, Compiler actual) {
+    assertEquals(expected.toSource(), actual.toSource());
+    assertEquals(
+        ImmutableList.copyOf(expected.getErrors()).toString(),
+        ImmutableList.copyOf(actual.getErrors()).toString());
+    assertEquals(
+        ImmutableList.copyOf(expected.getWarnings()).toString(),
+        ImmutableList.copyOf(actual.getWarnings()).toString());
+  }
+
   private static CompilerOptions createNewFlagBasedOptions() {
     CompilerOptions opt = new CompilerOptions();
     CompilationLevel.ADVANCED_OPTIMIZATIONS.setOptionsForCompilationLevel(opt);
@@ -757,6 +757,43 @@ public final class DataFlowAnalysisTest extends TestCase {
     verifyBranchedInHas(n4, a, 0);
   }
 
+  public void testNodesWithTheSamePriority() {
+    // a = 1; b = a; c = b;
+    Variable a = new Variable("a");
+    Variable b = new Variable("b");
+    Variable c = new Variable("c");
+    Instruction inst1 = newAssignNumberToVariableInstruction(a, 1);
+    Instruction inst2 = newAssignVariableToVariableInstruction(b, a);
+    Instruction inst3 = newAssignVariableToVariableInstruction(c, b);
+    ControlFlowGraph<Instruction> cfg =
+      new ControlFlowGraph<Instruction>(inst1, true, true) {
+      @Override
+      public Comparator<DiGraphNode<Instruction, Branch>>
+          getOptionalNodeComparator(boolean isForward) {
+        return new Comparator<DiGraphNode<Instruction, Branch>>() {
+          @Override
+          public int compare(DiGraphNode<Instruction, Branch> o1,
+              DiGraphNode<Instruction, Branch> o2) {
+            return 0;
+          }
+        };
+      }
+    };
+    GraphNode<Instruction, Branch> n1 = cfg.createNode(inst1);
+    GraphNode<Instruction, Branch> n2 = cfg.createNode(inst2);
+    GraphNode<Instruction, Branch> n3 = cfg.createNode(inst3);
+    cfg.connect(inst1, ControlFlowGraph.Branch.UNCOND, inst2);
+    cfg.connect(inst2, ControlFlowGraph.Branch.UNCOND, inst3);
+
+    DummyConstPropagation constProp = new DummyConstPropagation(cfg);
+    constProp.analyze();
+
+    // Nodes that compare equal are all still visited.
+    verifyOutHas(n1, a, 1);
+    verifyOutHas(n2, b, 1);
+    verifyOutHas(n3, c, 1);
+  }
+
   private static final int MAX_STEP = 10;
 
   public void testMaxIterationsExceededException() {
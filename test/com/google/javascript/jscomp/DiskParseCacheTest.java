@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.JsAst.RhinoError;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.testing.TestErrorReporter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link DiskParseCache}.
+ */
+public final class DiskParseCacheTest extends TestCase {
+
+  private File directory;
+  private Config config;
+
+  @Override
+  protected void setUp() throws IOException {
+    directory = Files.createTempDirectory("jscomp").toFile();
+    config = ParserRunner.createConfig(Config.LanguageMode.ECMASCRIPT6, null);
+  }
+
+  public void testRoundTrip() {
+    DiskParseCache cache = new DiskParseCache(directory, "v1");
+    String code = "/** @const */ var a = function(x) { return x + 1; };";
+    SourceFile file = SourceFile.fromCode("a.js", code);
+    ParserRunner.ParseResult result = parse(file, code);
+    RhinoError warning = new RhinoError("careful", "a.js", 1, 2);
+    cache.store(file, code, config,
+        new ParseCache.Entry(result.ast, result.features, ImmutableList.of(warning)));
+
+    // Stored entries must not be affected by later changes to the tree.
+    result.ast.removeChildren();
+
+    SourceFile sameFile = SourceFile.fromCode("a.js", code);
+    ParseCache.Entry entry = cache.lookup(sameFile, code, config);
+    assertNotNull(entry);
+    assertNull(parse(file, code).ast.checkTreeEquals(entry.root));
+    assertEquals(result.features, entry.features);
+    assertSame(sameFile, entry.root.getFirstChild().getStaticSourceFile());
+    assertEquals(1, entry.warnings.size());
+    assertEquals("careful", entry.warnings.get(0).message);
+    assertEquals(2, entry.warnings.get(0).lineOffset);
+
+    // Each lookup returns its own copy of the tree.
+    assertNotSame(entry.root, cache.lookup(sameFile, code, config).root);
+  }
+
+  public void testMisses() {
+    DiskParseCache cache = new DiskParseCache(directory, "v1");
+    String code = "var a = 1;";
+    SourceFile file = SourceFile.fromCode("a.js", code);
+    ParserRunner.ParseResult result = parse(file, code);
+    cache.store(file, code, config,
+        new ParseCache.Entry(result.ast, result.features, ImmutableList.<RhinoError>of()));
+
+    assertNotNull(cache.lookup(file, code, config));
+    assertNull(cache.lookup(file, "var a = 2;", config));
+    assertNull(cache.lookup(SourceFile.fromCode("b.js", code), code, config));
+    assertNull(cache.lookup(file, code,
+        ParserRunner.createConfig(Config.LanguageMode.ECMASCRIPT5, null)));
+    assertNull(new DiskParseCache(directory, "v2").lookup(file, code, config));
+  }
+
+  public void testCompileWithCache() {
+    CompilerOptions options = new CompilerOptions();
+    options.setParseCache(new DiskParseCache(directory, "v1"));
+    ImmutableList<SourceFile> inputs = ImmutableList.of(
+        SourceFile.fromCode("a.js", "var a = 1; /** @XYZ */ var b = a;"),
+        SourceFile.fromCode("b.js", "function f() { return a + b; }"));
+
+    Compiler first = new Compiler();
+    first.compile(ImmutableList.<SourceFile>of(), inputs, options);
+    assertEquals(2, directory.list().length);
+
+    Compiler second = new Compiler();
+    second.compile(ImmutableList.<SourceFile>of(), inputs, options);
+    assertEquals(first.toSource(), second.toSource());
+    assertEquals(first.getWarningCount(), second.getWarningCount());
+  }
+
+  private ParserRunner.ParseResult parse(SourceFile file, String code) {
+    return ParserRunner.parse(file, code, config, TestErrorReporter.forNoExpectedReports());
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link DiskTypeSummaryCache}, and for skipping the functions of
+ * unchanged files in the new type inference.
+ */
+public final class DiskTypeSummaryCacheTest extends TestCase {
+
+  private static final ImmutableList<SourceFile> EXTERNS = ImmutableList.of(
+      SourceFile.fromCode("externs.js", CompilerTypeTestCase.DEFAULT_EXTERNS));
+
+  private static final SourceFile BASE = SourceFile.fromCode("base.js",
+      "/** @const */ var goog = {};"
+      + "/** @param {string} name */ goog.provide = function(name) {};"
+      + "/** @param {string} name */ goog.require = function(name) {};");
+
+  private File directory;
+
+  @Override
+  protected void setUp() throws IOException {
+    directory = Files.createTempDirectory("jscomp").toFile();
+  }
+
+  public void testRoundTrip() {
+    DiskTypeSummaryCache cache = new DiskTypeSummaryCache(directory);
+    TypeSummaryCache.Warning warning = new TypeSummaryCache.Warning(
+        "JSC_KEY", CheckLevel.WARNING, "careful", ImmutableList.of(0, 2, 1), 3, 4);
+    cache.store("abc", new TypeSummaryCache.Entry(ImmutableList.of(warning)));
+
+    TypeSummaryCache.Entry entry = cache.lookup("abc");
+    assertNotNull(entry);
+    assertEquals(1, entry.warnings.size());
+    TypeSummaryCache.Warning stored = entry.warnings.get(0);
+    assertEquals("JSC_KEY", stored.key);
+    assertEquals(CheckLevel.WARNING, stored.level);
+    assertEquals("careful", stored.description);
+    assertEquals(ImmutableList.of(0, 2, 1), stored.path);
+    assertEquals(3, stored.lineno);
+    assertEquals(4, stored.charno);
+  }
+
+  public void testMisses() throws IOException {
+    DiskTypeSummaryCache cache = new DiskTypeSummaryCache(directory);
+    cache.store("abc", new TypeSummaryCache.Entry(ImmutableList.<TypeSummaryCache.Warning>of()));
+
+    assertNotNull(cache.lookup("abc"));
+    assertNull(cache.lookup("abd"));
+
+    Files.write(new File(directory, "abd.nti").toPath(), new byte[] {1, 2, 3});
+    assertNull(cache.lookup("abd"));
+  }
+
+  public void testCompileWithCache() {
+    CountingCache cache = new CountingCache(new DiskTypeSummaryCache(directory));
+    SourceFile a = SourceFile.fromCode("a.js",
+        "goog.provide('a');"
+        + "/** @return {string} */ a.g = function() { return 'a'; };");
+    SourceFile b = SourceFile.fromCode("b.js",
+        "goog.provide('b'); goog.require('a');"
+        + "/** @return {number} */ b.f = function() { return a.g(); };"
+        + "/** @param {number} x @return {number} */"
+        + "b.h = function(x) { return x + 1; };"
+        + "b.h('2');");
+
+    Compiler first = compile(cache, a, b);
+    assertEquals(0, cache.hits);
+    assertEquals(2, first.getWarningCount());
+    assertEquals(2, directory.list().length);
+
+    Compiler second = compile(cache, a, b);
+    assertEquals(2, cache.hits);
+    assertEquals(descriptions(first), descriptions(second));
+
+    // Changing a.js invalidates b.js, which requires it.
+    SourceFile changedA = SourceFile.fromCode("a.js",
+        "goog.provide('a');"
+        + "/** @return {number} */ a.g = function() { return 1; };");
+    Compiler third = compile(cache, changedA, b);
+    assertEquals(2, cache.hits);
+    assertEquals(1, third.getWarningCount());
+    assertEquals(4, directory.list().length);
+  }
+
+  public void testChangedDependentInvalidatesRequiredFile() {
+    CountingCache cache = new CountingCache(new DiskTypeSummaryCache(directory));
+    SourceFile a = SourceFile.fromCode("a.js",
+        "goog.provide('a');"
+        + "/** @constructor */ a.Foo = function() {};"
+        + "/** @return {number} */ a.Foo.prototype.get = function() { return this.x; };");
+    SourceFile b = SourceFile.fromCode("b.js",
+        "goog.provide('b'); goog.require('a');"
+        + "/** @type {number} */ a.Foo.prototype.x = 1;");
+    assertEquals(0, compile(cache, a, b).getWarningCount());
+
+    // The property that a.js reads is no longer defined, which is reported
+    // in a.js although only b.js changed.
+    SourceFile changedB = SourceFile.fromCode("b.js",
+        "goog.provide('b'); goog.require('a');");
+    Compiler uncached = compile(createOptions(null), a, changedB);
+    assertEquals(1, uncached.getWarningCount());
+    assertEquals(NewTypeInference.INEXISTENT_PROPERTY, uncached.getWarnings()[0].getType());
+
+    Compiler cached = compile(cache, a, changedB);
+    assertEquals(0, cache.hits);
+    assertEquals(descriptions(uncached), descriptions(cached));
+  }
+
+  public void testWarningLevelsAreInFingerprint() {
+    CountingCache cache = new CountingCache(new DiskTypeSummaryCache(directory));
+    SourceFile a = SourceFile.fromCode("a.js",
+        "goog.provide('a');"
+        + "/** @param {number} x @return {number} */ a.f = function(x) { return x; };");
+    compile(createOptions(cache), a);
+    compile(createOptions(cache), a);
+    assertEquals(1, cache.hits);
+
+    CompilerOptions options = createOptions(cache);
+    options.setWarningLevel(
+        DiagnosticGroup.forType(NewTypeInference.INVALID_ARGUMENT_TYPE), CheckLevel.OFF);
+    compile(options, a);
+    assertEquals(1, cache.hits);
+  }
+
+  public void testTypeBasedOptimizationsAreRejected() {
+    CompilerOptions options =
+        createOptions(new DiskTypeSummaryCache(directory));
+    options.setUseTypesForOptimization(true);
+    try {
+      compile(options, SourceFile.fromCode("a.js", "goog.provide('a');"));
+      fail();
+    } catch (CompilerOptionsPreprocessor.InvalidOptionsException e) {
+      assertTrue(e.getMessage().contains("use_types_for_optimization"));
+    }
+  }
+
+  public void testTypeBasedChecksAreRejected() {
+    CompilerOptions options =
+        createOptions(new DiskTypeSummaryCache(directory));
+    options.setWarningLevel(DiagnosticGroups.ACCESS_CONTROLS, CheckLevel.ERROR);
+    try {
+      compile(options, SourceFile.fromCode("a.js", "goog.provide('a');"));
+      fail();
+    } catch (CompilerOptionsPreprocessor.InvalidOptionsException e) {
+      assertTrue(e.getMessage().contains("accessControls"));
+    }
+  }
+
+  private static Compiler compile(TypeSummaryCache cache, SourceFile a, SourceFile b) {
+    return compile(createOptions(cache), a, b);
+  }
+
+  private static CompilerOptions createOptions(TypeSummaryCache cache) {
+    CompilerOptions options = new CompilerOptions();
+    options.setClosurePass(true);
+    options.setNewTypeInference(true);
+    options.setTypeSummaryCache(cache);
+    return options;
+  }
+
+  private static Compiler compile(CompilerOptions options, SourceFile... inputs) {
+    Compiler compiler = new Compiler();
+    compiler.compile(
+        EXTERNS, ImmutableList.<SourceFile>builder().add(BASE).add(inputs).build(), options);
+    return compiler;
+  }
+
+  private static ImmutableList<String> descriptions(Compiler compiler) {
+    ImmutableList.Builder<String> descriptions = ImmutableList.builder();
+    for (JSError warning : compiler.getWarnings()) {
+      descriptions.add(warning.toString());
+    }
+    return descriptions.build();
+  }
+
+  private static final class CountingCache implements TypeSummaryCache {
+    final TypeSummaryCache delegate;
+    int hits = 0;
+
+    CountingCache(TypeSummaryCache delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Entry lookup(String fingerprint) {
+      Entry entry = delegate.lookup(fingerprint);
+      if (entry != null) {
+        hits++;
+      }
+      return entry;
+    }
+
+    @Override
+    public void store(String fingerprint, Entry entry) {
+      delegate.store(fingerprint, entry);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.JsAst.RhinoError;
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.testing.TestErrorReporter;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link MemoryParseCache}.
+ */
+public final class MemoryParseCacheTest extends TestCase {
+
+  private static final Joiner LINE_JOINER = Joiner.on('\n');
+
+  private Config config;
+
+  @Override
+  protected void setUp() {
+    config = ParserRunner.createConfig(Config.LanguageMode.ECMASCRIPT6, null);
+  }
+
+  public void testRoundTrip() {
+    MemoryParseCache cache = new MemoryParseCache();
+    String code = "/** @const */ var a = function(x) { return x + 1; };";
+    SourceFile file = SourceFile.fromCode("a.js", code);
+    ParserRunner.ParseResult result = parse(file, code);
+    RhinoError warning = new RhinoError("careful", "a.js", 1, 2);
+    cache.store(file, code, config,
+        new ParseCache.Entry(result.ast, result.features, ImmutableList.of(warning)));
+
+    // Stored entries must not be affected by later changes to the tree.
+    result.ast.removeChildren();
+
+    SourceFile sameFile = SourceFile.fromCode("a.js", code);
+    ParseCache.Entry entry = cache.lookup(sameFile, code, config);
+    assertNotNull(entry);
+    assertNull(parse(file, code).ast.checkTreeEqualsIncludingJsDoc(entry.root));
+    assertEquals(result.features, entry.features);
+    assertSame(sameFile, entry.root.getStaticSourceFile());
+    assertSame(sameFile, entry.root.getFirstChild().getFirstChild().getStaticSourceFile());
+    assertEquals(ImmutableList.of(warning), entry.warnings);
+
+    // Each lookup returns its own copy of the tree.
+    assertNotSame(entry.root, cache.lookup(sameFile, code, config).root);
+  }
+
+  public void testMisses() {
+    MemoryParseCache cache = new MemoryParseCache();
+    String code = "var a = 1;";
+    SourceFile file = SourceFile.fromCode("a.js", code);
+    ParserRunner.ParseResult result = parse(file, code);
+    cache.store(file, code, config,
+        new ParseCache.Entry(result.ast, result.features, ImmutableList.<RhinoError>of()));
+
+    assertNotNull(cache.lookup(file, code, config));
+    assertNull(cache.lookup(file, "var a = 2;", config));
+    assertNull(cache.lookup(SourceFile.fromCode("b.js", code), code, config));
+    assertNull(cache.lookup(file, code,
+        ParserRunner.createConfig(Config.LanguageMode.ECMASCRIPT5, null)));
+
+    // Only the latest contents of a file are kept.
+    String newCode = "var a = 2;";
+    ParserRunner.ParseResult newResult = parse(file, newCode);
+    cache.store(file, newCode, config,
+        new ParseCache.Entry(newResult.ast, newResult.features, ImmutableList.<RhinoError>of()));
+    assertNull(cache.lookup(file, code, config));
+    assertNotNull(cache.lookup(file, newCode, config));
+  }
+
+  public void testCompileWithCache() {
+    CompilerOptions options = new CompilerOptions();
+    options.setParseCache(new MemoryParseCache());
+    ImmutableList<SourceFile> inputs = ImmutableList.of(
+        SourceFile.fromCode("a.js", "var a = 1; /** @XYZ */ var b = a;"),
+        SourceFile.fromCode("b.js", "function f() { return a + b; }"));
+
+    Compiler first = new Compiler();
+    first.compile(ImmutableList.<SourceFile>of(), inputs, options);
+
+    Compiler second = new Compiler();
+    second.compile(ImmutableList.<SourceFile>of(), inputs, options);
+    assertEquals(first.toSource(), second.toSource());
+    assertEquals(first.getWarningCount(), second.getWarningCount());
+  }
+
+  public void testRewrittenTypesAreNotCached() {
+    ImmutableList<SourceFile> inputs = ImmutableList.of(
+        SourceFile.fromCode("a.js", LINE_JOINER.join(
+            "/** @const */ var goog = {};",
+            "goog.scope = function(fn) {};",
+            "/** @const */ var ns = {};",
+            "/** @constructor */ ns.Foo = function() {};")),
+        SourceFile.fromCode("b.js", LINE_JOINER.join(
+            "goog.scope(function() {",
+            "  var Foo = ns.Foo;",
+            "  /** @param {Foo} x @return {number} */",
+            "  ns.f = function(x) { return x; };",
+            "});")));
+    MemoryParseCache cache = new MemoryParseCache();
+
+    // The second compilation gets the trees from the cache. Both rewrite the
+    // aliased type name Foo in the JSDoc, and evaluate the types.
+    for (int i = 0; i < 2; i++) {
+      Compiler compiler = new Compiler();
+      compiler.compile(
+          ImmutableList.<SourceFile>of(), inputs, createTypeCheckOptions(cache, true));
+      assertThat(compiler.getWarnings()[0].description).contains("ns.Foo");
+    }
+
+    // Without the closure pass, Foo is an unknown type.
+    Compiler expected = new Compiler();
+    expected.compile(ImmutableList.<SourceFile>of(), inputs,
+        createTypeCheckOptions(new MemoryParseCache(), false));
+    Compiler second = new Compiler();
+    second.compile(
+        ImmutableList.<SourceFile>of(), inputs, createTypeCheckOptions(cache, false));
+    assertThat(expected.getWarnings()[0].description).doesNotContain("ns.Foo");
+    assertEquals(expected.getWarnings()[0].description, second.getWarnings()[0].description);
+    assertEquals(expected.toSource(), second.toSource());
+  }
+
+  private static CompilerOptions createTypeCheckOptions(
+      ParseCache cache, boolean closurePass) {
+    CompilerOptions options = new CompilerOptions();
+    options.setParseCache(cache);
+    options.setCheckTypes(true);
+    options.setClosurePass(closurePass);
+    options.setWarningLevel(DiagnosticGroups.CHECK_TYPES, CheckLevel.WARNING);
+    return options;
+  }
+
+  private ParserRunner.ParseResult parse(SourceFile file, String code) {
+    return ParserRunner.parse(file, code, config, TestErrorReporter.forNoExpectedReports());
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link MultiConfigurationCompiler}.
+ */
+public final class MultiConfigurationCompilerTest extends TestCase {
+
+  private static final List<SourceFile> EXTERNS = ImmutableList.of(
+      SourceFile.fromCode("externs.js", "var window; function alert(x) {}"));
+
+  public void testDefines() {
+    List<SourceFile> inputs = ImmutableList.of(SourceFile.fromCode("a.js",
+        "/** @define {boolean} */ var DEBUG = true;"
+        + "/** @define {string} */ var LOCALE = 'en';"
+        + "if (DEBUG) { alert('debug'); }"
+        + "alert(LOCALE);"));
+    CompilerOptions debug = createOptions(CompilationLevel.SIMPLE_OPTIMIZATIONS);
+    CompilerOptions release = createOptions(CompilationLevel.SIMPLE_OPTIMIZATIONS);
+    release.setDefineToBooleanLiteral("DEBUG", false);
+    release.setDefineToStringLiteral("LOCALE", "fr");
+
+    List<Compiler> compilers =
+        new MultiConfigurationCompiler(ImmutableList.of(debug, release)).compile(EXTERNS, inputs);
+
+    assertEquals(2, compilers.size());
+    assertEquals("var DEBUG=!0,LOCALE=\"en\";DEBUG&&alert(\"debug\");alert(LOCALE);",
+        compilers.get(0).toSource());
+    assertEquals("var DEBUG=!1,LOCALE=\"fr\";DEBUG&&alert(\"debug\");alert(LOCALE);",
+        compilers.get(1).toSource());
+  }
+
+  public void testMatchesSeparateCompilations() {
+    List<SourceFile> inputs = ImmutableList.of(
+        SourceFile.fromCode("a.js",
+            "/** @define {boolean} */ var DEBUG = true;"
+            + "/** @constructor */ function A() { this.name = 'a'; }"
+            + "A.prototype.getName = function() { return this.name; };"
+            + "/** @constructor */ function B() { this.name = 'b'; }"
+            + "B.prototype.getName = function() { return DEBUG ? this.name : ''; };"),
+        SourceFile.fromCode("b.js",
+            "alert(new A().getName()); alert(new B().getName());"));
+    CompilerOptions first = createOptions(CompilationLevel.ADVANCED_OPTIMIZATIONS);
+    first.setDisambiguateProperties(true);
+    CompilerOptions second = createOptions(CompilationLevel.ADVANCED_OPTIMIZATIONS);
+    second.setDisambiguateProperties(true);
+    second.setDefineToBooleanLiteral("DEBUG", false);
+    CompilerOptions third = createOptions(CompilationLevel.SIMPLE_OPTIMIZATIONS);
+
+    MultiConfigurationCompiler multiCompiler =
+        new MultiConfigurationCompiler(ImmutableList.of(first, second, third));
+    multiCompiler.setNumThreads(2);
+    List<Compiler> compilers = multiCompiler.compile(EXTERNS, inputs);
+
+    assertEquals(3, compilers.size());
+    for (int i = 0; i < compilers.size(); i++) {
+      Compiler compiler = compilers.get(i);
+      assertTrue(compiler.getResult().success);
+      Compiler separate = new Compiler();
+      separate.compile(EXTERNS, inputs, compiler.getOptions());
+      assertEquals(separate.toSource(), compiler.toSource());
+    }
+  }
+
+  public void testCheckErrorsAreReportedForEachConfiguration() {
+    List<SourceFile> inputs = ImmutableList.of(SourceFile.fromCode("a.js",
+        "/** @param {number} x */ function f(x) {} f('a');"));
+    CompilerOptions first = createOptions(CompilationLevel.SIMPLE_OPTIMIZATIONS);
+    first.setWarningLevel(DiagnosticGroups.CHECK_TYPES, CheckLevel.ERROR);
+    CompilerOptions second = createOptions(CompilationLevel.SIMPLE_OPTIMIZATIONS);
+    second.setWarningLevel(DiagnosticGroups.CHECK_TYPES, CheckLevel.ERROR);
+
+    List<Compiler> compilers =
+        new MultiConfigurationCompiler(ImmutableList.of(first, second)).compile(EXTERNS, inputs);
+
+    for (Compiler compiler : compilers) {
+      Result result = compiler.getResult();
+      assertFalse(result.success);
+      assertEquals(1, result.errors.length);
+      assertEquals(TypeValidator.TYPE_MISMATCH_WARNING, result.errors[0].getType());
+    }
+  }
+
+  private static CompilerOptions createOptions(CompilationLevel level) {
+    CompilerOptions options = new CompilerOptions();
+    level.setOptionsForCompilationLevel(options);
+    options.setCheckTypes(true);
+    return options;
+  }
+}
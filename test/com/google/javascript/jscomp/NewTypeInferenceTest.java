@@ -17752,4 +17752,36 @@ public final class NewTypeInferenceTest extends NewTypeInferenceTestBase {
         "  }",
         "}"));
   }
+
+  public void testParallelAnalysis() {
+    compilerOptions.setNumParallelTypeInferenceThreads(4);
+
+    typeCheck(LINE_JOINER.join(
+        "function f(x) { return x - 1; }",
+        "function g() {",
+        "  function h(y) { return y - 1; }",
+        "  var /** string */ s = h(1);",
+        "  return f('a');",
+        "}",
+        "/** @const */",
+        "var ns = {};",
+        "ns.k = function(z) { return z; };",
+        "/** @constructor */",
+        "function Foo() {}",
+        "Foo.prototype.m = function() { var /** number */ n = 'b'; };"),
+        NewTypeInference.INVALID_ARGUMENT_TYPE,
+        NewTypeInference.MISTYPED_ASSIGN_RHS,
+        NewTypeInference.MISTYPED_ASSIGN_RHS);
+
+    // ns.f is a function namespace, whose type is updated with its summary.
+    typeCheck(LINE_JOINER.join(
+        "/** @const */",
+        "var ns = {};",
+        "ns.f = function(x) { return x - 1; };",
+        "/** @type {number} */",
+        "ns.f.prop = 123;",
+        "function g() { var /** string */ s = ns.f.prop; }",
+        "function h() { return ns.f(1); }"),
+        NewTypeInference.MISTYPED_ASSIGN_RHS);
+  }
 }
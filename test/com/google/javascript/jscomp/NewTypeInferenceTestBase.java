@@ -22,10 +22,12 @@ import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.InputId;
 import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.TypeI;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Use by the classes that test {@link NewTypeInference}.
@@ -206,17 +208,60 @@ public abstract class NewTypeInferenceTestBase extends CompilerTypeTestCase {
   }
 
   private final void parseAndTypeCheck(String externs, String js) {
+    if (compilerOptions.getNumParallelTypeInferenceThreads() > 1) {
+      runTypeCheck(externs, js);
+      return;
+    }
+    // The parallel analysis must find the same warnings and types as the
+    // sequential one, which runs last for the checks of the test.
+    compilerOptions.setNumParallelTypeInferenceThreads(4);
+    List<String> parallelResults;
+    try {
+      parallelResults = getResults(runTypeCheck(externs, js));
+    } finally {
+      compilerOptions.setNumParallelTypeInferenceThreads(1);
+    }
+    assertEquals("Results of the parallel analysis",
+        LINE_JOINER.join(parallelResults),
+        LINE_JOINER.join(getResults(runTypeCheck(externs, js))));
+  }
+
+  /** Returns the warnings and errors of the compiler, and the types of the AST. */
+  private List<String> getResults(Node root) {
+    List<String> results = new ArrayList<>();
+    for (JSError warning : compiler.getWarnings()) {
+      results.add(warning.toString());
+    }
+    for (JSError error : compiler.getErrors()) {
+      results.add(error.toString());
+    }
+    collectTypes(root, results);
+    return results;
+  }
+
+  private static void collectTypes(Node n, List<String> results) {
+    TypeI type = n.getTypeI();
+    if (type != null) {
+      results.add(n.getLineno() + ":" + n.getCharno() + " " + n.getToken() + ": " + type);
+    }
+    for (Node child = n.getFirstChild(); child != null; child = child.getNext()) {
+      collectTypes(child, results);
+    }
+  }
+
+  /** Type checks the code with the current options, and returns the AST. */
+  private Node runTypeCheck(String externs, String js) {
     initializeNewCompiler(compilerOptions);
     compiler.init(
         ImmutableList.of(SourceFile.fromCode("[externs]", externs)),
         ImmutableList.of(SourceFile.fromCode("[testcode]", js)),
         compilerOptions);
 
-    Node externsRoot = IR.block();
+    final Node externsRoot = IR.block();
     externsRoot.setIsSyntheticBlock(true);
     externsRoot.addChildToFront(
         compiler.getInput(new InputId("[externs]")).getAstRoot(compiler));
-    Node astRoot = IR.block();
+    final Node astRoot = IR.block();
     astRoot.setIsSyntheticBlock(true);
     astRoot.addChildToFront(
         compiler.getInput(new InputId("[testcode]")).getAstRoot(compiler));
@@ -253,9 +298,17 @@ public abstract class NewTypeInferenceTestBase extends CompilerTypeTestCase {
     passes.add(makePassFactory("GlobalTypeInfo", compiler.getSymbolTable()));
     passes.add(makePassFactory("NewTypeInference", new NewTypeInference(compiler)));
 
-    PhaseOptimizer phaseopt = new PhaseOptimizer(compiler, null, null);
+    final PhaseOptimizer phaseopt = new PhaseOptimizer(compiler, null, null);
     phaseopt.consume(passes);
-    phaseopt.process(externsRoot, astRoot);
+    // On the compiler thread, so that the worker threads are shut down after.
+    compiler.runInCompilerThread(new Callable<Void>() {
+      @Override
+      public Void call() {
+        phaseopt.process(externsRoot, astRoot);
+        return null;
+      }
+    });
+    return block;
   }
 
   protected final void typeCheck(String js, DiagnosticType... warningKinds) {
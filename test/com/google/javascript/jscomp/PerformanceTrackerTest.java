@@ -19,8 +19,12 @@ package com.google.javascript.jscomp;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.javascript.jscomp.CompilerOptions.TracerMode;
 import com.google.javascript.jscomp.PerformanceTracker.Stats;
+import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 
@@ -28,6 +32,7 @@ import junit.framework.TestCase;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.io.StringWriter;
 import java.util.regex.Pattern;
 
 /**
@@ -128,4 +133,228 @@ public final class PerformanceTrackerTest extends TestCase {
     String outputString = output.toString();
     assertThat(outputString).matches(p);
   }
+
+  public void testJsonReport() throws Exception {
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyScript, TracerMode.ALL, null);
+    CodeChangeHandler handler = tracker.getCodeChangeHandler();
+    tracker.recordPassStart(Compiler.PARSING_PASS_NAME, true);
+    tracker.recordPassStop(Compiler.PARSING_PASS_NAME, 5);
+    tracker.recordLoopIteration();
+    tracker.recordPassStart("loopA", false);
+    handler.reportChange();
+    tracker.recordPassStop("loopA", 3);
+    tracker.recordLoopIteration();
+    tracker.recordPassStart("loopA", false);
+    tracker.recordPassStop("loopA", 2);
+
+    StringWriter writer = new StringWriter();
+    tracker.outputJsonReport(writer);
+    JsonObject report = new JsonParser().parse(writer.toString()).getAsJsonObject();
+
+    JsonObject total = report.getAsJsonObject("total");
+    assertEquals(10, total.get("runtime").getAsInt());
+    assertEquals(3, total.get("runs").getAsInt());
+    assertEquals(2, total.get("loopRuns").getAsInt());
+    assertEquals(1, total.get("changingLoopRuns").getAsInt());
+    assertEquals(2, total.get("loopIterations").getAsInt());
+    assertEquals(1, total.get("astSize").getAsInt());
+    assertTrue(total.get("cpuTime").getAsLong() >= 0);
+    assertTrue(total.get("allocBytes").getAsLong() >= 0);
+
+    JsonArray summary = report.getAsJsonArray("summary");
+    assertEquals(2, summary.size());
+    JsonObject loopA = summary.get(1).getAsJsonObject();
+    assertEquals("loopA", loopA.get("pass").getAsString());
+    assertTrue(loopA.get("loopable").getAsBoolean());
+    assertEquals(2, loopA.get("runs").getAsInt());
+    assertEquals(1, loopA.get("changingRuns").getAsInt());
+
+    JsonArray log = report.getAsJsonArray("log");
+    assertEquals(3, log.size());
+    assertEquals(Compiler.PARSING_PASS_NAME,
+        log.get(0).getAsJsonObject().get("pass").getAsString());
+    assertTrue(log.get(1).getAsJsonObject().get("codeChanged").getAsBoolean());
+    assertFalse(log.get(2).getAsJsonObject().get("codeChanged").getAsBoolean());
+    // The size is measured after parsing and after the runs that change
+    // the code, and -1 tells the other runs apart from an empty AST.
+    assertEquals(1, log.get(0).getAsJsonObject().get("astSize").getAsInt());
+    assertEquals(1, log.get(1).getAsJsonObject().get("astSize").getAsInt());
+    assertEquals(-1, log.get(2).getAsJsonObject().get("astSize").getAsInt());
+  }
+
+  public void testTraceEvents() throws Exception {
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyScript, TracerMode.TIMING_ONLY, null);
+    tracker.recordPassStart("outer", true);
+    tracker.recordPassStart("inner", true);
+    tracker.recordPassStop("inner", 1);
+    tracker.recordPassStop("outer", 2);
+
+    StringWriter writer = new StringWriter();
+    tracker.outputTraceEvents(writer);
+    JsonObject trace = new JsonParser().parse(writer.toString()).getAsJsonObject();
+
+    JsonArray events = trace.getAsJsonArray("traceEvents");
+    assertEquals(2, events.size());
+    JsonObject inner = events.get(0).getAsJsonObject();
+    JsonObject outer = events.get(1).getAsJsonObject();
+    assertEquals("inner", inner.get("name").getAsString());
+    assertEquals("outer", outer.get("name").getAsString());
+    assertEquals("X", outer.get("ph").getAsString());
+    long outerStart = outer.get("ts").getAsLong();
+    long innerStart = inner.get("ts").getAsLong();
+    assertTrue(outerStart <= innerStart);
+    assertTrue(innerStart + inner.get("dur").getAsLong()
+        <= outerStart + outer.get("dur").getAsLong() + 1);
+    assertTrue(outer.getAsJsonObject("args").has("cpuTime"));
+    assertEquals(-1, outer.getAsJsonObject("args").get("astSize").getAsInt());
+  }
+
+  public void testIncrementalSize() {
+    Node name1 = IR.name("a");
+    Node script1 = IR.script(IR.exprResult(name1));
+    Node name2 = IR.name("b");
+    Node function = IR.function(IR.name("f"), IR.paramList(), IR.block(IR.exprResult(name2)));
+    Node script2 = IR.script(function);
+    Node root = new Node(Token.BLOCK, script1, script2);
+    PerformanceTracker tracker =
+        new PerformanceTracker(root, TracerMode.LIGHTWEIGHT, null);
+    tracker.setSizeOverheadBudget(Double.POSITIVE_INFINITY);
+    CodeChangeHandler handler = tracker.getCodeChangeHandler();
+    tracker.recordPassStart(Compiler.PARSING_PASS_NAME, true);
+    tracker.recordPassStop(Compiler.PARSING_PASS_NAME, 0);
+
+    // A change reported while traversing the function, whose scope root is
+    // the function, as in NodeTraversal.
+    tracker.recordPassStart("rename", true);
+    tracker.setScope(root);
+    tracker.setScope(function);
+    name2.setString("bbb");
+    handler.reportChange();
+    tracker.recordPassStop("rename", 0);
+
+    // A change recorded at its node while traversing the global scope. Only
+    // its script is measured again, so the unreported change to the other
+    // script is not seen yet.
+    tracker.recordPassStart("inline", true);
+    tracker.setScope(root);
+    function.getFirstChild().setString("ff");
+    name1.setString("aa");
+    tracker.recordChange(name1);
+    handler.reportChange();
+    tracker.recordPassStop("inline", 0);
+
+    // A change reported without a location while traversing the global
+    // scope measures everything again, including the unreported change.
+    tracker.recordPassStart("remove", true);
+    tracker.setScope(root);
+    script1.removeChildren();
+    handler.reportChange();
+    tracker.recordPassStop("remove", 0);
+
+    assertEquals(-2, tracker.getStats().get("rename").diff);
+    assertEquals(-1, tracker.getStats().get("inline").diff);
+    assertEquals(1, tracker.getStats().get("remove").diff);
+    assertEquals(getFullSize(root), tracker.getSize());
+  }
+
+  public void testSizeIsMeasuredAtTheEndWhenOverBudget() {
+    Node script = IR.script(IR.exprResult(IR.name("a")));
+    Node root = new Node(Token.BLOCK, script);
+    PerformanceTracker tracker =
+        new PerformanceTracker(root, TracerMode.LIGHTWEIGHT, null);
+    tracker.setSizeOverheadBudget(0);
+    CodeChangeHandler handler = tracker.getCodeChangeHandler();
+    tracker.recordPassStart(Compiler.PARSING_PASS_NAME, true);
+    tracker.recordPassStop(Compiler.PARSING_PASS_NAME, 0);
+
+    tracker.recordPassStart("rename", true);
+    tracker.setScope(root);
+    script.getFirstChild().getFirstChild().setString("abc");
+    handler.reportChange();
+    tracker.recordPassStop("rename", 0);
+
+    tracker.recordPassStart("noop", true);
+    tracker.recordPassStop("noop", 0);
+
+    assertEquals(getFullSize(root), tracker.getSize());
+    assertEquals(-2, tracker.getStats().get("rename").diff);
+  }
+
+  public void testFunctionBodySizes() {
+    checkFunctionBodySizes(TracerMode.RAW_SIZE);
+    checkFunctionBodySizes(TracerMode.ALL);
+  }
+
+  public void testFinalSizeIsExact() {
+    Node script1 = IR.script(IR.exprResult(IR.name("a")));
+    Node script2 = IR.script(IR.exprResult(IR.name("b")));
+    Node root = new Node(Token.BLOCK, script1, script2);
+    PerformanceTracker tracker = new PerformanceTracker(root, TracerMode.ALL, null);
+    CodeChangeHandler handler = tracker.getCodeChangeHandler();
+    tracker.recordPassStart(Compiler.PARSING_PASS_NAME, true);
+    tracker.recordPassStop(Compiler.PARSING_PASS_NAME, 0);
+
+    // A change attributed to the wrong script is only seen by the final measure.
+    tracker.recordPassStart("rename", true);
+    tracker.setScope(script2);
+    script1.getFirstChild().getFirstChild().setString("abc");
+    handler.reportChange();
+    tracker.recordPassStop("rename", 0);
+
+    assertSizes(root, tracker, TracerMode.ALL);
+    assertEquals(-2, tracker.getStats().get("rename").diff);
+  }
+
+  private static void checkFunctionBodySizes(TracerMode mode) {
+    Compiler compiler = new Compiler();
+    compiler.initOptions(new CompilerOptions());
+    Node script1 = compiler.parseSyntheticCode(
+        "function f(a) { return a + 1; } function g() { return function() { return 'g'; }; }");
+    Node script2 = compiler.parseSyntheticCode("var x = function() { return f(2) + g()(); };");
+    Node root = new Node(Token.BLOCK, script1, script2);
+    PerformanceTracker tracker = new PerformanceTracker(root, mode, null);
+    CodeChangeHandler handler = tracker.getCodeChangeHandler();
+    tracker.recordPassStart(Compiler.PARSING_PASS_NAME, true);
+    tracker.recordPassStop(Compiler.PARSING_PASS_NAME, 0);
+
+    // A change reported while traversing f.
+    tracker.recordPassStart("simplifyF", true);
+    Node f = script1.getFirstChild();
+    Node add = f.getLastChild().getFirstChild().getFirstChild();
+    tracker.setScope(f);
+    add.getParent().replaceChild(add, add.removeFirstChild());
+    handler.reportChange();
+    tracker.recordPassStop("simplifyF", 0);
+
+    // A change reported to the scope of the inner function of g.
+    tracker.recordPassStart("renameG", true);
+    Node string = script1.getLastChild().getLastChild().getFirstChild().getFirstChild()
+        .getLastChild().getFirstChild().getFirstChild();
+    string.setString("gg");
+    tracker.recordChange(string);
+    handler.reportChange();
+    tracker.recordPassStop("renameG", 0);
+
+    assertSizes(root, tracker, mode);
+    assertEquals(2, tracker.getStats().get("simplifyF").diff);
+    assertEquals(-1, tracker.getStats().get("renameG").diff);
+  }
+
+  private static void assertSizes(Node root, PerformanceTracker tracker, TracerMode mode) {
+    PerformanceTracker fullTracker = new PerformanceTracker(root, mode, null);
+    fullTracker.recordPassStart(Compiler.PARSING_PASS_NAME, true);
+    fullTracker.recordPassStop(Compiler.PARSING_PASS_NAME, 0);
+    assertEquals(fullTracker.getSize(), tracker.getSize());
+    assertEquals(fullTracker.getGzSize(), tracker.getGzSize());
+  }
+
+  private static int getFullSize(Node root) {
+    PerformanceTracker tracker =
+        new PerformanceTracker(root, TracerMode.LIGHTWEIGHT, null);
+    tracker.recordPassStart(Compiler.PARSING_PASS_NAME, true);
+    tracker.recordPassStop(Compiler.PARSING_PASS_NAME, 0);
+    return tracker.getSize();
+  }
 }
@@ -97,6 +97,16 @@ public final class PhaseOptimizerTest extends TestCase {
     }
   }
 
+  public void testPassesAreSkippedIfNothingChangedSinceTheyRan() {
+    Loop loop = optimizer.addFixedPointLoop();
+    addLoopedPass(loop, "x", 1);
+    addLoopedPass(loop, "y", 0);
+    addLoopedPass(loop, "z", 0);
+    // y and z already saw the change made by the first x, and the second x
+    // did not change anything, so they are not run again.
+    assertPasses("x", "y", "z", "x");
+  }
+
   public void testSchedulingOfAnyKindOfPasses1() {
     addOneTimePass("a");
     Loop loop = optimizer.addFixedPointLoop();
@@ -116,8 +126,10 @@ public final class PhaseOptimizerTest extends TestCase {
             createPassFactory("e", 1, true),
             createPassFactory("f", 0, true)));
     // The pass iterations can be grouped as:
-    // [a] [b c d] [b c d] [c] [b d] [e] [f]
-    assertPasses("a", "b", "c", "d", "b", "c", "d", "c", "b", "d", "e", "f");
+    // [a] [b c d] [b c d] [c] [b] [e] [f]
+    // d is not run again after the last [c], since nothing changed after it
+    // last ran.
+    assertPasses("a", "b", "c", "d", "b", "c", "d", "c", "b", "e", "f");
   }
 
   public void testSchedulingOfAnyKindOfPasses3() {
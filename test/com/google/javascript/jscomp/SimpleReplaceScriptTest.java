@@ -319,6 +319,46 @@ public final class SimpleReplaceScriptTest extends BaseReplaceScriptTestCase {
     assertErrorType(result.errors[0], CheckProvides.MISSING_PROVIDE_WARNING, 1);
   }
 
+  /**
+   * Tests that with recheckDependentsOnHotswap the inputs that transitively
+   * require the replaced script are checked again.
+   */
+  public void testRecheckDependents() {
+    CompilerOptions options = getOptions(DiagnosticGroups.CHECK_TYPES);
+    options.setRecheckDependentsOnHotswap(true);
+    String source0 = "goog.provide('ns');\n"
+        + "/** @param {number} x */ ns.f = function(x) {};";
+    String source1 = "goog.provide('ns.user');\n"
+        + "goog.require('ns');\n"
+        + "ns.f(1);";
+    String source2 = "goog.require('ns.user');\n"
+        + "ns.f(2);";
+    String source3 = "var unrelated = 3;";
+    String modifiedSource0 = "goog.provide('ns');\n"
+        + "/** @param {string} x */ ns.f = function(x) {};";
+    Result result = runReplaceScript(options,
+        ImmutableList.of(source0, source1, source2, source3), 0, 0,
+        modifiedSource0, 0, true).getResult();
+    assertNumWarningsAndErrors(result, 2, 0);
+    assertEquals("in1", result.errors[0].sourceName);
+    assertErrorType(result.errors[0], TypeValidator.TYPE_MISMATCH_WARNING, 3);
+    assertEquals("in2", result.errors[1].sourceName);
+    assertErrorType(result.errors[1], TypeValidator.TYPE_MISMATCH_WARNING, 2);
+  }
+
+  public void testNoRecheckOfDependentsByDefault() {
+    CompilerOptions options = getOptions(DiagnosticGroups.CHECK_TYPES);
+    String source0 = "goog.provide('ns');\n"
+        + "/** @param {number} x */ ns.f = function(x) {};";
+    String source1 = "goog.require('ns');\n"
+        + "ns.f(1);";
+    String modifiedSource0 = "goog.provide('ns');\n"
+        + "/** @param {string} x */ ns.f = function(x) {};";
+    Result result = runReplaceScript(options,
+        ImmutableList.of(source0, source1), 0, 0, modifiedSource0, 0, true).getResult();
+    assertNoWarningsOrErrors(result);
+  }
+
   /** Test related to DefaultPassConfig.inferTypes */
   public void testNewTypeAdded() {
     CompilerOptions options = getOptions(DiagnosticGroups.CHECK_TYPES);
@@ -63,6 +63,7 @@ public final class TypeInferenceTest extends TestCase {
   private Map<String, JSType> assumptions;
   private JSType assumedThisType;
   private FlowScope returnScope;
+  private FlowScope arrayReturnScope;
   private static final Map<String, AssertionFunctionSpec>
       ASSERTION_FUNCTION_MAP = new HashMap<>();
   static {
@@ -82,6 +83,7 @@ public final class TypeInferenceTest extends TestCase {
     registry = compiler.getTypeRegistry();
     assumptions = new HashMap<>();
     returnScope = null;
+    arrayReturnScope = null;
   }
 
   private void assumingThisType(JSType type) {
@@ -97,6 +99,15 @@ public final class TypeInferenceTest extends TestCase {
   }
 
   private void inFunction(String js) {
+    // Infer the types with both kinds of flow scopes. getType checks that
+    // they agree.
+    compiler.getOptions().setUseArrayFlowScopes(true);
+    arrayReturnScope = inferReturnScope(js);
+    compiler.getOptions().setUseArrayFlowScopes(false);
+    returnScope = inferReturnScope(js);
+  }
+
+  private FlowScope inferReturnScope(String js) {
     // Parse the body of the function.
     String thisBlock = assumedThisType == null
         ? ""
@@ -128,13 +139,20 @@ public final class TypeInferenceTest extends TestCase {
     // Get the scope of the implicit return.
     BranchedFlowState<FlowScope> rtnState =
         cfg.getImplicitReturn().getAnnotation();
-    returnScope = rtnState.getIn();
+    return rtnState.getIn();
   }
 
   private JSType getType(String name) {
     assertNotNull("The return scope should not be null.", returnScope);
     StaticTypedSlot<JSType> var = returnScope.getSlot(name);
     assertNotNull("The variable " + name + " is missing from the scope.", var);
+    StaticTypedSlot<JSType> arrayVar = arrayReturnScope.getSlot(name);
+    assertNotNull(
+        "The variable " + name + " is missing from the array flow scope.", arrayVar);
+    // The types of the objects created in the function are new for each
+    // run, so the runs are compared by the printed types.
+    assertEquals("Mismatch with array flow scopes for " + name,
+        String.valueOf(var.getType()), String.valueOf(arrayVar.getType()));
     return var.getType();
   }
 
@@ -21,6 +21,7 @@ import static com.google.common.truth.Truth.assertThat;
 import com.google.javascript.jscomp.graph.Annotatable;
 import com.google.javascript.jscomp.graph.Annotation;
 import com.google.javascript.jscomp.graph.DiGraph;
+import com.google.javascript.jscomp.graph.DiGraph.DiGraphNode;
 import com.google.javascript.jscomp.graph.Graph;
 import com.google.javascript.jscomp.graph.Graph.GraphEdge;
 import com.google.javascript.jscomp.graph.GraphNode;
@@ -182,6 +183,17 @@ public final class GraphTest extends TestCase {
     assertThat(graph.isConnected("a", "b")).isFalse();
   }
 
+  public void testDirectedNodeIndices() {
+    LinkedDirectedGraph<String, String> graph = LinkedDirectedGraph.create();
+    DiGraphNode<String, String> a = graph.createDirectedGraphNode("a");
+    DiGraphNode<String, String> b = graph.createDirectedGraphNode("b");
+    assertThat(graph.getIndex(a)).isEqualTo(0);
+    assertThat(graph.getIndex(b)).isEqualTo(1);
+    // Creating an existing node does not number it again.
+    graph.createNode("a");
+    assertThat(graph.getIndex(graph.createDirectedGraphNode("c"))).isEqualTo(2);
+  }
+
   public void testUndirectedNeighbors() {
     UndiGraph<String, String> graph =
         LinkedUndirectedGraph.create();
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ChampPersistentMap}.
+ */
+public final class ChampPersistentMapTest extends TestCase {
+
+  private static final ChampPersistentMap.Merger<Integer> SUM =
+      new ChampPersistentMap.Merger<Integer>() {
+        @Override
+        public Integer merge(Integer v1, Integer v2) {
+          return v1 + v2;
+        }
+      };
+
+  private static final ChampPersistentMap.Merger<Integer> MAX =
+      new ChampPersistentMap.Merger<Integer>() {
+        @Override
+        public Integer merge(Integer v1, Integer v2) {
+          return Math.max(v1, v2);
+        }
+      };
+
+  public void testWithAndWithout() {
+    ChampPersistentMap<String, Integer> empty = ChampPersistentMap.empty();
+    ChampPersistentMap<String, Integer> m = empty.with("a", 1).with("b", 2);
+    assertEquals(2, m.size());
+    assertEquals(1, (int) m.get("a"));
+    assertNull(m.get("c"));
+    assertEquals(0, empty.size());
+
+    Integer two = m.get("b");
+    assertSame(m, m.with("b", two));
+    assertSame(m, m.without("c"));
+    assertEquals(empty.with("a", 1), m.without("b"));
+  }
+
+  public void testJoinKeepsSharedMaps() {
+    ChampPersistentMap<String, Integer> base = ChampPersistentMap.empty();
+    for (int i = 0; i < 1000; i++) {
+      base = base.with("v" + i, i);
+    }
+    ChampPersistentMap<String, Integer> left = base.with("v1", 10);
+    assertSame(base, base.join(base, SUM));
+    assertSame(left, base.join(left, new ChampPersistentMap.Merger<Integer>() {
+      @Override
+      public Integer merge(Integer v1, Integer v2) {
+        return v2;
+      }
+    }));
+
+    ChampPersistentMap<String, Integer> joined = left.join(base.with("v2", 20), SUM);
+    assertEquals(1000, joined.size());
+    assertEquals(11, (int) joined.get("v1"));
+    assertEquals(22, (int) joined.get("v2"));
+    assertEquals(3, (int) joined.get("v3"));
+  }
+
+  public void testRandomOperations() {
+    Random random = new Random(42);
+    ChampPersistentMap<Key, Integer> m1 = ChampPersistentMap.empty();
+    ChampPersistentMap<Key, Integer> m2 = ChampPersistentMap.empty();
+    Map<Key, Integer> expected1 = new HashMap<>();
+    Map<Key, Integer> expected2 = new HashMap<>();
+    for (int i = 0; i < 20000; i++) {
+      // Few distinct hashes, so that some keys collide.
+      Key key = new Key(random.nextInt(3000));
+      int value = random.nextInt(5);
+      switch (random.nextInt(4)) {
+        case 0:
+          m1 = m1.with(key, value);
+          expected1.put(key, value);
+          break;
+        case 1:
+          m1 = m1.without(key);
+          expected1.remove(key);
+          break;
+        case 2:
+          m2 = m2.with(key, value);
+          expected2.put(key, value);
+          break;
+        default:
+          m2 = m2.without(key);
+          expected2.remove(key);
+          break;
+      }
+      if (i % 1000 == 0) {
+        assertJoin(m1, m2, expected1, expected2);
+        m2 = m1;
+        expected2 = new HashMap<>(expected1);
+      }
+    }
+    assertJoin(m1, m2, expected1, expected2);
+  }
+
+  private static void assertJoin(
+      ChampPersistentMap<Key, Integer> m1, ChampPersistentMap<Key, Integer> m2,
+      Map<Key, Integer> expected1, Map<Key, Integer> expected2) {
+    assertEquals(expected1, m1);
+    assertEquals(m1, expected1);
+    assertEquals(expected2, m2);
+    assertEquals(expected1.equals(expected2), m1.equals(m2));
+
+    Map<Key, Integer> expectedJoin = new HashMap<>(expected1);
+    for (Map.Entry<Key, Integer> entry : expected2.entrySet()) {
+      Integer v1 = expectedJoin.get(entry.getKey());
+      expectedJoin.put(entry.getKey(),
+          v1 == null ? entry.getValue() : Math.max(v1, entry.getValue()));
+    }
+    ChampPersistentMap<Key, Integer> joined = m1.join(m2, MAX);
+    assertEquals(expectedJoin.size(), joined.size());
+    assertEquals(expectedJoin, joined);
+
+    // Removing all keys leads back to the empty map.
+    ChampPersistentMap<Key, Integer> m = joined;
+    for (Key key : expectedJoin.keySet()) {
+      m = m.without(key);
+    }
+    assertEquals(ChampPersistentMap.<Key, Integer>empty(), m);
+    assertEquals(0, m.size());
+  }
+
+  private static final class Key {
+    final int id;
+
+    Key(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return id / 3;
+    }
+
+    @Override
+    public String toString() {
+      return "k" + id;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.newtypes;
+
+import com.google.common.collect.ImmutableList;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link TypeEnv}.
+ */
+public final class TypeEnvTest extends TestCase {
+
+  public void testJoin() {
+    TypeEnv env = new TypeEnv().putType("x", JSType.NUMBER).putType("y", JSType.STRING);
+    TypeEnv joined = TypeEnv.join(env, env.putType("x", JSType.STRING));
+    assertEquals(JSType.join(JSType.NUMBER, JSType.STRING), joined.getType("x"));
+    assertEquals(JSType.STRING, joined.getType("y"));
+  }
+
+  public void testVarMissingFromLaterEnv() {
+    TypeEnv env = new TypeEnv().putType("x", JSType.NUMBER);
+    assertMissing("y", ImmutableList.of(env.putType("y", JSType.NUMBER), env));
+  }
+
+  public void testVarMissingFromFirstEnv() {
+    TypeEnv env = new TypeEnv().putType("x", JSType.NUMBER);
+    assertMissing("y", ImmutableList.of(env, env.putType("y", JSType.NUMBER)));
+  }
+
+  public void testEnvsOfSameSizeWithDifferentVars() {
+    TypeEnv env = new TypeEnv().putType("x", JSType.NUMBER);
+    assertMissing("y", ImmutableList.of(
+        env.putType("y", JSType.NUMBER), env.putType("z", JSType.NUMBER)));
+  }
+
+  private static void assertMissing(String name, ImmutableList<TypeEnv> envs) {
+    try {
+      TypeEnv.join(envs);
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals(name + " is missing from an env", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.rhino;
+
+import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.jscomp.parsing.ParserRunner;
+import com.google.javascript.rhino.testing.TestErrorReporter;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Tests for {@link BinaryNodeWriter} and {@link BinaryNodeReader}.
+ */
+public final class BinaryNodeWriterTest extends TestCase {
+
+  private final SimpleSourceFile file = new SimpleSourceFile("a.js", false);
+
+  public void testParsedTreeRoundTrip() throws IOException {
+    Node root = parse(
+        "/** @const */ var ns = {};\n"
+        + "/** @param {number} x\n @return {string} */\n"
+        + "ns.f = function(x) { return 'a\\u1234b' + x * -0 + 1.5 + 1e300; };\n"
+        + "label: for (var i = 0; i < 10; i++) { if (i) break label; }");
+
+    Node copy = roundTrip(root);
+    assertNull(root.checkTreeEqualsIncludingJsDoc(copy));
+    assertEquals(root.toStringTree(), copy.toStringTree());
+    assertSamePositions(root, copy);
+  }
+
+  public void testNumbers() throws IOException {
+    for (double d : new double[] {0, -0.0, 1, -1, 1.5, Double.NaN, 1e300, Integer.MAX_VALUE}) {
+      Node copy = roundTrip(IR.number(d));
+      assertEquals(Double.doubleToLongBits(d), Double.doubleToLongBits(copy.getDouble()));
+    }
+  }
+
+  public void testProperties() throws IOException {
+    Node name = IR.name("x");
+    name.putBooleanProp(Node.IS_CONSTANT_NAME, true);
+    name.putIntProp(Node.SIDE_EFFECT_FLAGS, -7);
+    name.putProp(Node.ORIGINALNAME_PROP, "y");
+    Node copy = roundTrip(IR.var(name));
+
+    Node nameCopy = copy.getFirstChild();
+    assertTrue(nameCopy.getBooleanProp(Node.IS_CONSTANT_NAME));
+    assertEquals(-7, nameCopy.getIntProp(Node.SIDE_EFFECT_FLAGS));
+    assertEquals("y", nameCopy.getProp(Node.ORIGINALNAME_PROP));
+  }
+
+  public void testSharedPropertiesStayShared() throws IOException {
+    Node root = parse("var a = b + c;");
+    Node copy = roundTrip(root);
+
+    Node name = copy.getFirstChild().getFirstChild();
+    Node add = name.getFirstChild();
+    assertSame(file, name.getStaticSourceFile());
+    assertSame(name.getPackedProps(), add.getPackedProps());
+  }
+
+  public void testSeveralTreesInOneStream() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryNodeWriter writer = new BinaryNodeWriter(bytes);
+    writer.writeTree(parse("var abc = 1;"), file);
+    writer.writeTree(parse("abc();"), file);
+    writer.close();
+
+    BinaryNodeReader reader = new BinaryNodeReader(new ByteArrayInputStream(bytes.toByteArray()));
+    assertNull(parse("var abc = 1;").checkTreeEquals(reader.readTree(file)));
+    assertNull(parse("abc();").checkTreeEquals(reader.readTree(file)));
+    assertNull(reader.readTree(file));
+  }
+
+  public void testNotAnAstStream() {
+    try {
+      new BinaryNodeReader(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  private Node parse(String code) {
+    Config config = ParserRunner.createConfig(Config.LanguageMode.ECMASCRIPT6, null);
+    return ParserRunner.parse(file, code, config, TestErrorReporter.forNoExpectedReports()).ast;
+  }
+
+  private Node roundTrip(Node root) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (BinaryNodeWriter writer = new BinaryNodeWriter(bytes)) {
+      writer.writeTree(root, file);
+    }
+    try (BinaryNodeReader reader =
+        new BinaryNodeReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return reader.readTree(file);
+    }
+  }
+
+  private static void assertSamePositions(Node expected, Node actual) {
+    assertEquals(expected.getSourcePosition(), actual.getSourcePosition());
+    assertEquals(expected.getLength(), actual.getLength());
+    Node actualChild = actual.getFirstChild();
+    for (Node child = expected.getFirstChild(); child != null; child = child.getNext()) {
+      assertSamePositions(child, actualChild);
+      actualChild = actualChild.getNext();
+    }
+  }
+}
@@ -47,6 +47,12 @@ import com.google.javascript.rhino.testing.TestErrorReporter;
 
 import junit.framework.TestCase;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 public class NodeTest extends TestCase {
   public void testMergeExtractNormal() throws Exception {
     testMergeExtract(5, 6);
@@ -380,7 +386,7 @@ public class NodeTest extends TestCase {
     n.putIntProp(Node.SIDE_EFFECT_FLAGS, 5);
     Node m = new Node(Token.TRUE);
     m.clonePropsFrom(n);
-    assertEquals(m.getPropListHeadForTesting(), n.getPropListHeadForTesting());
+    assertEquals(m.getPropsForTesting(), n.getPropsForTesting());
     assertEquals(5, n.getIntProp(Node.SIDE_EFFECT_FLAGS));
     assertEquals(5, m.getIntProp(Node.SIDE_EFFECT_FLAGS));
   }
@@ -395,7 +401,7 @@ public class NodeTest extends TestCase {
     assertEquals(6, n.getIntProp(Node.SIDE_EFFECT_FLAGS));
     assertEquals(5, m.getIntProp(Node.SIDE_EFFECT_FLAGS));
     assertFalse(
-        m.getPropListHeadForTesting() == n.getPropListHeadForTesting());
+        m.getPropsForTesting() == n.getPropsForTesting());
 
     m.putIntProp(Node.SIDE_EFFECT_FLAGS, 7);
     assertEquals(6, n.getIntProp(Node.SIDE_EFFECT_FLAGS));
@@ -419,20 +425,59 @@ public class NodeTest extends TestCase {
 
     n.putBooleanProp(Node.IS_CONSTANT_NAME, false);
 
-    assertNull(n.lookupProperty(Node.IS_CONSTANT_NAME));
+    assertFalse(n.hasProp(Node.IS_CONSTANT_NAME));
     assertFalse(n.getBooleanProp(Node.IS_CONSTANT_NAME));
 
     n.putBooleanProp(Node.IS_CONSTANT_NAME, true);
 
-    assertNotNull(n.lookupProperty(Node.IS_CONSTANT_NAME));
+    assertTrue(n.hasProp(Node.IS_CONSTANT_NAME));
     assertTrue(n.getBooleanProp(Node.IS_CONSTANT_NAME));
 
     n.putBooleanProp(Node.IS_CONSTANT_NAME, false);
 
-    assertNull(n.lookupProperty(Node.IS_CONSTANT_NAME));
+    assertFalse(n.hasProp(Node.IS_CONSTANT_NAME));
     assertFalse(n.getBooleanProp(Node.IS_CONSTANT_NAME));
   }
 
+  public void testIntPropChangesBetweenFlagAndValue() {
+    Node n = getVarRef("a");
+    n.putProp(Node.ORIGINALNAME_PROP, "b");
+
+    n.putIntProp(Node.SIDE_EFFECT_FLAGS, 1);
+    assertEquals(1, n.getExistingIntProp(Node.SIDE_EFFECT_FLAGS));
+    n.putIntProp(Node.SIDE_EFFECT_FLAGS, 7);
+    assertEquals(7, n.getExistingIntProp(Node.SIDE_EFFECT_FLAGS));
+    n.putIntProp(Node.SIDE_EFFECT_FLAGS, 1);
+    assertEquals(1, n.getIntProp(Node.SIDE_EFFECT_FLAGS));
+    n.putIntProp(Node.SIDE_EFFECT_FLAGS, 0);
+    assertFalse(n.hasProp(Node.SIDE_EFFECT_FLAGS));
+
+    assertEquals("b", n.getProp(Node.ORIGINALNAME_PROP));
+  }
+
+  public void testManyProps() {
+    Node n = new Node(Token.NAME);
+    int[] types = {Node.IS_ES6_CLASS, Node.JSDOC_INFO_PROP, Node.ORIGINALNAME_PROP,
+        Node.SIDE_EFFECT_FLAGS, Node.FREE_CALL, Node.INPUT_ID};
+    for (int i = 0; i < types.length; i++) {
+      n.putIntProp(types[i], i + 10);
+    }
+    for (int i = 0; i < types.length; i++) {
+      assertEquals(i + 10, n.getIntProp(types[i]));
+    }
+
+    n.removeProp(Node.ORIGINALNAME_PROP);
+    n.removeProp(Node.IS_ES6_CLASS);
+    assertFalse(n.hasProp(Node.ORIGINALNAME_PROP));
+    assertEquals(10 + 1, n.getIntProp(Node.JSDOC_INFO_PROP));
+    assertEquals(10 + 5, n.getIntProp(Node.INPUT_ID));
+
+    for (int type : types) {
+      n.removeProp(type);
+    }
+    assertFalse(n.hasProps());
+  }
+
   // Verify that annotations on cloned nodes are properly handled.
   public void testCloneAnnontations2() {
     Node n = getVarRef("a");
@@ -561,6 +606,117 @@ public class NodeTest extends TestCase {
         clone.getFirstChild().getJSDocInfo().getType().getRoot());
   }
 
+  public void testSharedJSDocInfoIsCopiedForUpdate() {
+    Node snapshot = IR.var(IR.name("varName"));
+    JSDocInfoBuilder builder = new JSDocInfoBuilder(false);
+    builder.recordType(new JSTypeExpression(IR.name("TypeName"), "blah"));
+    builder.recordInlineType();
+    JSDocInfo info = builder.build();
+    snapshot.getFirstChild().setJSDocInfo(info);
+    snapshot.markJSDocInfoShared();
+
+    // Clones share the JSDocInfo of the snapshot, and reading it doesn't copy it.
+    Node clone1 = snapshot.cloneTree();
+    Node clone2 = snapshot.cloneTree();
+    assertSame(info, clone1.getFirstChild().getJSDocInfo());
+
+    // A clone gets its own copy when it asks to modify it.
+    JSDocInfo info1 = clone1.getFirstChild().getMutableJSDocInfo();
+    assertNotSame(info, info1);
+    assertNotSame(info.getType().getRoot(), info1.getType().getRoot());
+    assertTrue(info1.isInlineType());
+    assertSame(info1, clone1.getFirstChild().getJSDocInfo());
+    assertSame(info1, clone1.getFirstChild().getMutableJSDocInfo());
+
+    // Modifying the copy leaves the snapshot and the other clones unchanged.
+    info1.getType().getRoot().setString("OtherName");
+    assertEquals("TypeName", info.getType().getRoot().getString());
+    assertEquals("TypeName", clone2.getFirstChild().getJSDocInfo().getType().getRoot().getString());
+
+    // JSDocInfo built from the shared types gets its own copies of them.
+    JSDocInfoBuilder copyBuilder = new JSDocInfoBuilder(false);
+    copyBuilder.recordReturnType(clone2.getFirstChild().getJSDocInfo().getType());
+    JSDocInfo built = copyBuilder.build();
+    assertNotSame(info.getType().getRoot(), built.getReturnType().getRoot());
+    JSDocInfo copied = JSDocInfoBuilder.copyFrom(info).build();
+    assertNotSame(info.getType().getRoot(), copied.getType().getRoot());
+
+    // Unsharing a tree copies all its shared JSDocInfo.
+    Node clone3 = snapshot.cloneTree();
+    clone3.unshareJSDocInfo();
+    assertNotSame(info, clone3.getFirstChild().getJSDocInfo());
+    assertEquals("TypeName", clone3.getFirstChild().getJSDocInfo().getType().getRoot().getString());
+  }
+
+  public void testUnknownPropertyTypeIsRejected() {
+    Node n = IR.name("a");
+    n.putBooleanProp(Node.IS_ES6_CLASS, true);
+    try {
+      n.putBooleanProp(Node.IS_ES6_CLASS + 1, true);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      n.getIntProp(Node.JSDOC_INFO_PROP - 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testSerializeLargeTree() throws Exception {
+    // Long sibling lists and deep nesting must not overflow the stack.
+    Node script = new Node(Token.SCRIPT);
+    for (int i = 0; i < 100000; i++) {
+      script.addChildToBack(IR.exprResult(IR.number(i)));
+    }
+    Node expr = IR.name("x");
+    for (int i = 0; i < 10000; i++) {
+      expr = IR.add(expr, IR.string("s" + i));
+    }
+    script.addChildToBack(IR.exprResult(expr));
+
+    Node copy = (Node) deserialize(serialize(script));
+    assertNull(script.checkTreeEquals(copy));
+  }
+
+  public void testSerializeNodeInTree() throws Exception {
+    Node name = IR.name("a");
+    Node number = IR.number(1);
+    Node script = new Node(Token.SCRIPT, IR.var(name), IR.exprResult(number));
+    Node other = new Node(Token.SCRIPT, IR.exprResult(IR.name("b")));
+    // Node-valued properties that point further into the tree and into
+    // another tree, as types and JSDoc do.
+    script.getFirstChild().putProp(Node.GENERIC_TYPE_LIST, number);
+    script.getLastChild().putProp(Node.IMPLEMENTS, other.getFirstChild());
+
+    // Writing a node from the middle of a tree writes the whole tree.
+    Object[] copies = (Object[]) deserialize(serialize(new Object[] {name, script, other}));
+    Node nameCopy = (Node) copies[0];
+    Node scriptCopy = (Node) copies[1];
+    Node otherCopy = (Node) copies[2];
+    assertSame(scriptCopy, nameCopy.getParent().getParent());
+    assertNull(script.checkTreeEquals(scriptCopy));
+    assertNull(other.checkTreeEquals(otherCopy));
+    assertSame(
+        scriptCopy.getLastChild().getFirstChild(),
+        scriptCopy.getFirstChild().getProp(Node.GENERIC_TYPE_LIST));
+    assertSame(otherCopy.getFirstChild(), scriptCopy.getLastChild().getProp(Node.IMPLEMENTS));
+  }
+
+  private static byte[] serialize(Object obj) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+      out.writeObject(obj);
+    }
+    return baos.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    }
+  }
+
   public void testAddChildToFrontWithSingleNode() {
     Node root = new Node(Token.SCRIPT);
     Node nodeToAdd = new Node(Token.SCRIPT);
@@ -38,6 +38,7 @@
 
 package com.google.javascript.rhino.jstype;
 
+import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.testing.Asserts;
 import com.google.javascript.rhino.testing.BaseJSTypeTestCase;
 
@@ -197,4 +198,33 @@ public class RecordTypeTest extends BaseJSTypeTestCase {
     assertTrue(recordB.isSubtype(recordC));
     assertTrue(recordA.isSubtype(recordC));
   }
+
+  public void testInterning() {
+    JSType recordA = new RecordTypeBuilder(registry)
+        .addProperty("a", NUMBER_TYPE, null)
+        .addProperty("b", STRING_TYPE, null)
+        .build();
+    JSType recordB = new RecordTypeBuilder(registry)
+        .addProperty("a", NUMBER_TYPE, null)
+        .addProperty("b", STRING_TYPE, null)
+        .build();
+    assertSame(recordA, recordB);
+
+    Node propertyNode = Node.newString("b");
+    JSType recordC = new RecordTypeBuilder(registry)
+        .addProperty("a", NUMBER_TYPE, null)
+        .addProperty("b", STRING_TYPE, propertyNode)
+        .build();
+    assertNotSame(recordA, recordC);
+    assertTrue(recordA.isEquivalentTo(recordC));
+    assertSame(propertyNode, recordC.toObjectType().getPropertyNode("b"));
+
+    RecordTypeBuilder builder = new RecordTypeBuilder(registry);
+    builder.setSynthesized(true);
+    JSType synthesized = builder
+        .addProperty("a", NUMBER_TYPE, null)
+        .addProperty("b", STRING_TYPE, null)
+        .build();
+    assertNotSame(recordA, synthesized);
+  }
 }
@@ -40,6 +40,11 @@ package com.google.javascript.rhino.jstype;
 
 import com.google.javascript.rhino.testing.BaseJSTypeTestCase;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 /**
  * Test for {@link UnionTypeBuilder}.
  *
@@ -125,6 +130,37 @@ public class UnionTypeBuilderTest extends BaseJSTypeTestCase {
     assertEquals("(Error|function (): Error)", union.toString());
   }
 
+  public void testInterning() {
+    JSType union = registry.createUnionType(NUMBER_TYPE, STRING_TYPE);
+    assertSame(union, registry.createUnionType(NUMBER_TYPE, STRING_TYPE));
+    assertSame(union, new UnionTypeBuilder(registry)
+        .addAlternate(NUMBER_TYPE)
+        .addAlternate(union)
+        .build());
+    assertSame(union, registry.createUnionType(NUMBER_TYPE, NUMBER_TYPE, STRING_TYPE));
+    assertTrue(union.isSubtype(union));
+
+    JSType otherUnion = registry.createUnionType(NUMBER_TYPE, BOOLEAN_TYPE);
+    assertNotSame(union, otherUnion);
+    assertFalse(union.isEquivalentTo(otherUnion));
+  }
+
+  public void testInterningAfterSerialization() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(registry);
+    }
+    JSTypeRegistry restored;
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      restored = (JSTypeRegistry) in.readObject();
+    }
+    JSType number = restored.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType string = restored.getNativeType(JSTypeNative.STRING_TYPE);
+    assertSame(restored.createUnionType(number, string),
+        restored.createUnionType(number, string));
+  }
+
   public void assertUnion(String expected, JSType ... types) {
     UnionTypeBuilder builder = new UnionTypeBuilder(registry);
     for (JSType type : types) {